@@ -26,12 +26,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -45,6 +51,7 @@ import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javazoom.spi.PropertiesContainer;
+import javazoom.spi.SeekableAudioStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tritonus.share.sampled.TAudioFormat;
@@ -71,6 +78,9 @@ public class BasicPlayer implements BasicController, Runnable
     private int m_lineCurrentBufferSize = -1;
     private int lineBufferSize = -1;
     private long threadSleep = -1;
+    private long progressInterval = 0;
+    private long lastProgress = 0;
+    private BasicPlayerProgress m_progress = null;
     private static Logger log = LoggerFactory.getLogger(BasicPlayer.class);
     /**
      * These variables are used to distinguish stopped, paused, playing states.
@@ -82,10 +92,18 @@ public class BasicPlayer implements BasicController, Runnable
     public static final int STOPPED = 2;
     public static final int OPENED = 3;
     public static final int SEEKING = 4;
-    private int m_status = UNKNOWN;
+    private volatile int m_status = UNKNOWN;
+    // Guards status changes the playback thread waits for.
+    private final ReentrantLock m_statusLock = new ReentrantLock();
+    private final Condition m_statusChanged = m_statusLock.newCondition();
+    // Seek for the playback thread to do, -1 if none, and its result.
+    private volatile long m_seekTarget = -1;
+    private long m_seekReached = -1;
+    // Line position when the stream was last seeked in place.
+    private long m_lineOffset = 0;
     // Listeners to be notified.
     private Collection m_listeners = null;
-    private Map empty_map = new HashMap();
+    private BasicPlayerEventDispatcher m_dispatcher = null;
 
     /**
      * Constructs a Basic Player.
@@ -93,13 +111,16 @@ public class BasicPlayer implements BasicController, Runnable
     public BasicPlayer()
     {
         m_dataSource = null;
-        m_listeners = new ArrayList();
+        m_listeners = new CopyOnWriteArrayList();
+        m_dispatcher = new BasicPlayerEventDispatcher(this, m_listeners);
+        m_progress = new BasicPlayerProgress(this);
         reset();
     }
 
     protected void reset()
     {
-        m_status = UNKNOWN;
+        boolean playing = (m_status == PLAYING) || (m_status == PAUSED);
+        setStatus(UNKNOWN);
         if (m_audioInputStream != null)
         {
             synchronized (m_audioInputStream)
@@ -107,6 +128,8 @@ public class BasicPlayer implements BasicController, Runnable
                 closeStream();
             }
         }
+        // The playback thread ended, it leaves the notification to us.
+        if (playing) notifyEvent(BasicPlayerEvent.STOPPED, getEncodedStreamPosition(), -1, null);
         m_audioInputStream = null;
         m_audioFileFormat = null;
         m_encodedaudioInputStream = null;
@@ -121,6 +144,60 @@ public class BasicPlayer implements BasicController, Runnable
         m_panControl = null;
     }
 
+    /**
+     * Changes the status and wakes up the playback thread.
+     * @param status new player status.
+     */
+    protected void setStatus(int status)
+    {
+        m_statusLock.lock();
+        try
+        {
+            m_status = status;
+            m_statusChanged.signalAll();
+        }
+        finally
+        {
+            m_statusLock.unlock();
+        }
+    }
+
+    /**
+     * Waits while the player is paused.
+     * @throws InterruptedException
+     */
+    private void awaitNotPaused() throws InterruptedException
+    {
+        m_statusLock.lock();
+        try
+        {
+            while ((m_status == PAUSED) && (m_seekTarget < 0)) m_statusChanged.await();
+        }
+        finally
+        {
+            m_statusLock.unlock();
+        }
+    }
+
+    /**
+     * Waits for time or until the player leaves PLAYING.
+     * @param millis to wait.
+     * @throws InterruptedException
+     */
+    private void awaitWhilePlaying(long millis) throws InterruptedException
+    {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        m_statusLock.lock();
+        try
+        {
+            while ((m_status == PLAYING) && (nanos > 0)) nanos = m_statusChanged.awaitNanos(nanos);
+        }
+        finally
+        {
+            m_statusLock.unlock();
+        }
+    }
+
     /**
      * Add listener to be notified.
      * @param bpl
@@ -151,6 +228,26 @@ public class BasicPlayer implements BasicController, Runnable
         }
     }
 
+    /**
+     * Sets the Executor that delivers BasicPlayerEvents to listeners.
+     * Events are delivered in order, one at a time, whatever the Executor.
+     * @param executor null to use a thread of the player (default).
+     * @see BasicPlayerEventDispatcher
+     */
+    public void setEventExecutor(Executor executor)
+    {
+        m_dispatcher.setExecutor(executor);
+    }
+
+    /**
+     * Return the dispatcher of BasicPlayerEvents.
+     * @return
+     */
+    public BasicPlayerEventDispatcher getEventDispatcher()
+    {
+        return m_dispatcher;
+    }
+
     /**
      * Set SourceDataLine buffer size. It affects audio latency.
      * (the delay between line.write(data) and real sound).
@@ -199,6 +296,25 @@ public class BasicPlayer implements BasicController, Runnable
         return threadSleep;
     }
 
+    /**
+     * Set the minimum time between two progress notifications.
+     * Default is 0 (every buffer played is notified).
+     * @param interval in milliseconds.
+     */
+    public void setProgressInterval(long interval)
+    {
+        progressInterval = interval;
+    }
+
+    /**
+     * Return the minimum time between two progress notifications.
+     * @return interval in milliseconds.
+     */
+    public long getProgressInterval()
+    {
+        return progressInterval;
+    }
+
     /**
      * Returns BasicPlayer status.
      * @return status
@@ -305,7 +421,7 @@ public class BasicPlayer implements BasicController, Runnable
                 BasicPlayerListener bpl = (BasicPlayerListener) it.next();
                 bpl.opened(m_dataSource, properties);
             }
-            m_status = OPENED;
+            setStatus(OPENED);
             notifyEvent(BasicPlayerEvent.OPENED, getEncodedStreamPosition(), -1, null);
         }
         catch (LineUnavailableException e)
@@ -417,23 +533,29 @@ public class BasicPlayer implements BasicController, Runnable
             m_audioInputStream = AudioSystem.getAudioInputStream(targetFormat, m_audioInputStream);
             AudioFormat audioFormat = m_audioInputStream.getFormat();
             DataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat, AudioSystem.NOT_SPECIFIED);
-            Mixer mixer = getMixer(m_mixerName);
-            if (mixer != null)
-            {
-                log.info("Mixer : "+mixer.getMixerInfo().toString());
-                m_line = (SourceDataLine) mixer.getLine(info);
-            }
-            else 
-            {
-                m_line = (SourceDataLine) AudioSystem.getLine(info);
-                m_mixerName = null;
-            }
+            m_line = getLine(info);
             log.info("Line : " + m_line.toString());
             log.debug("Line Info : " + m_line.getLineInfo().toString());
             log.debug("Line AudioFormat: " + m_line.getFormat().toString());
         }
     }
 
+    /**
+     * Gets a SourceDataLine from the mixer, or from AudioSystem
+     * if no mixer is set.
+     */
+    protected SourceDataLine getLine(DataLine.Info info) throws LineUnavailableException
+    {
+        Mixer mixer = getMixer(m_mixerName);
+        if (mixer != null)
+        {
+            log.info("Mixer : "+mixer.getMixerInfo().toString());
+            return (SourceDataLine) mixer.getLine(info);
+        }
+        m_mixerName = null;
+        return (SourceDataLine) AudioSystem.getLine(info);
+    }
+
     /**
      * Opens the line.
      */
@@ -478,12 +600,14 @@ public class BasicPlayer implements BasicController, Runnable
     {
         if ((m_status == PLAYING) || (m_status == PAUSED))
         {
-            if (m_line != null)
+            // The playback thread releases the line once stopped.
+            SourceDataLine line = m_line;
+            setStatus(STOPPED);
+            if (line != null)
             {
-                m_line.flush();
-                m_line.stop();
+                line.flush();
+                line.stop();
             }
-            m_status = STOPPED;
             notifyEvent(BasicPlayerEvent.STOPPED, getEncodedStreamPosition(), -1, null);
             synchronized (m_audioInputStream)
             {
@@ -504,9 +628,9 @@ public class BasicPlayer implements BasicController, Runnable
         {
             if (m_status == PLAYING)
             {
+                setStatus(PAUSED);
                 m_line.flush();
                 m_line.stop();
-                m_status = PAUSED;
                 log.info("pausePlayback() completed");
                 notifyEvent(BasicPlayerEvent.PAUSED, getEncodedStreamPosition(), -1, null);
             }
@@ -525,7 +649,7 @@ public class BasicPlayer implements BasicController, Runnable
             if (m_status == PAUSED)
             {
                 m_line.start();
-                m_status = PLAYING;
+                setStatus(PLAYING);
                 log.info("resumePlayback() completed");
                 notifyEvent(BasicPlayerEvent.RESUMED, getEncodedStreamPosition(), -1, null);
             }
@@ -541,31 +665,7 @@ public class BasicPlayer implements BasicController, Runnable
         if (m_status == OPENED)
         {
             log.info("startPlayback called");
-            if (!(m_thread == null || !m_thread.isAlive()))
-            {
-                log.info("WARNING: old thread still running!!");
-                int cnt = 0;
-                while (m_status != OPENED)
-                {
-                    try
-                    {
-                        if (m_thread != null)
-                        {
-                            log.info("Waiting ... " + cnt);
-                            cnt++;
-                            Thread.sleep(1000);
-                            if (cnt > 2)
-                            {
-                                m_thread.interrupt();
-                            }
-                        }
-                    }
-                    catch (InterruptedException e)
-                    {
-                        throw new BasicPlayerException(BasicPlayerException.WAITERROR, e);
-                    }
-                }
-            }
+            awaitPlaybackEnd();
             // Open SourceDataLine.
             try
             {
@@ -575,118 +675,237 @@ public class BasicPlayer implements BasicController, Runnable
             {
                 throw new BasicPlayerException(BasicPlayerException.CANNOTINITLINE, e);
             }
-            log.info("Creating new thread");
-            m_thread = new Thread(this, "BasicPlayer");
-            m_thread.start();
             if (m_line != null)
             {
                 m_line.start();
-                m_status = PLAYING;
+                setStatus(PLAYING);
                 notifyEvent(BasicPlayerEvent.PLAYING, getEncodedStreamPosition(), -1, null);
+                log.info("Creating new thread");
+                // The thread plays this line and stream, whatever comes next.
+                final SourceDataLine line = m_line;
+                final AudioInputStream audioInputStream = m_audioInputStream;
+                m_lineOffset = 0;
+                m_thread = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        playback(line, audioInputStream);
+                    }
+                }, "BasicPlayer");
+                m_thread.start();
             }
         }
     }
 
+    /**
+     * Waits for the end of the previous playback thread, which has been
+     * told to stop. It is interrupted after one second.
+     */
+    private void awaitPlaybackEnd() throws BasicPlayerException
+    {
+        Thread thread = m_thread;
+        if ((thread == null) || (thread == Thread.currentThread())) return;
+        try
+        {
+            thread.join(1000);
+            if (thread.isAlive())
+            {
+                log.info("WARNING: old thread still running!!");
+                thread.interrupt();
+                thread.join(1000);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new BasicPlayerException(BasicPlayerException.WAITERROR, e);
+        }
+    }
+
     /**
      * Main loop.
      *
-     * Player Status == STOPPED || SEEKING => End of Thread + Freeing Audio Ressources.<br>
+     * Player Status == STOPPED || SEEKING || UNKNOWN => End of Thread + Freeing Audio Ressources.<br>
      * Player Status == PLAYING => Audio stream data sent to Audio line.<br>
-     * Player Status == PAUSED => Waiting for another status.
+     * Player Status == PAUSED => Waiting, without polling, for another status.
      */
     public void run()
+    {
+        playback(m_line, m_audioInputStream);
+    }
+
+    /**
+     * Main loop of a playback thread.
+     * @param line to write to.
+     * @param audioInputStream to read from.
+     */
+    private void playback(SourceDataLine line, AudioInputStream audioInputStream)
     {
         log.info("Thread Running");
         int nBytesRead = 1;
         byte[] abData = new byte[EXTERNAL_BUFFER_SIZE];
         // Lock stream while playing.
-        synchronized (m_audioInputStream)
+        synchronized (audioInputStream)
         {
-            // Main play/pause loop.
-            while ((nBytesRead != -1) && (m_status != STOPPED) && (m_status != SEEKING) && (m_status != UNKNOWN))
+            try
             {
-                if (m_status == PLAYING)
+                // Main play/pause loop.
+                while ((nBytesRead != -1) && ((m_status == PLAYING) || (m_status == PAUSED)))
                 {
-                    // Play.
-                    try
+                    if (m_seekTarget >= 0) seekRequested(line, audioInputStream);
+                    if (m_status == PLAYING)
                     {
-                        nBytesRead = m_audioInputStream.read(abData, 0, abData.length);
+                        // Play.
+                        nBytesRead = audioInputStream.read(abData, 0, abData.length);
                         if (nBytesRead >= 0)
                         {
-                            byte[] pcm = new byte[nBytesRead];
-                            System.arraycopy(abData, 0, pcm, 0, nBytesRead);
-                            if (m_line.available() >= m_line.getBufferSize()) log.debug("Underrun : "+m_line.available()+"/"+m_line.getBufferSize());
-                            int nBytesWritten = m_line.write(abData, 0, nBytesRead);
-                            // Compute position in bytes in encoded stream.
-                            int nEncodedBytes = getEncodedStreamPosition();
-                            // Notify listeners
-                            Iterator it = m_listeners.iterator();
-                            while (it.hasNext())
-                            {
-                                BasicPlayerListener bpl = (BasicPlayerListener) it.next();
-                                if (m_audioInputStream instanceof PropertiesContainer)
-                                {
-                                    // Pass audio parameters such as instant bitrate, ...
-                                    Map properties = ((PropertiesContainer) m_audioInputStream).properties();
-                                    bpl.progress(nEncodedBytes, m_line.getMicrosecondPosition(), pcm, properties);
-                                }
-                                else bpl.progress(nEncodedBytes, m_line.getMicrosecondPosition(), pcm, empty_map);
-                            }
+                            if (log.isDebugEnabled() && (line.available() >= line.getBufferSize())) log.debug("Underrun : "+line.available()+"/"+line.getBufferSize());
+                            int nBytesWritten = line.write(abData, 0, nBytesRead);
+                            notifyProgress(abData, nBytesRead);
                         }
+                        // Nice CPU usage.
+                        if (threadSleep > 0) awaitWhilePlaying(threadSleep);
                     }
-                    catch (IOException e)
-                    {
-                        log.error("Thread cannot run()", e);
-                        m_status = STOPPED;
-                        notifyEvent(BasicPlayerEvent.STOPPED, getEncodedStreamPosition(), -1, null);
-                    }
-                    // Nice CPU usage.
-                    if (threadSleep > 0)
-                    {
-                        try
-                        {
-                            Thread.sleep(threadSleep);
-                        }
-                        catch (InterruptedException e)
-                        {
-                            log.error("Thread cannot sleep(" + threadSleep + ")", e);
-                        }
-                    }
-                }
-                else
-                {
                     // Pause
-                    try
-                    {
-                        Thread.sleep(1000);
-                    }
-                    catch (InterruptedException e)
-                    {
-                        log.error("Thread cannot sleep(1000)", e);
-                    }
+                    else awaitNotPaused();
                 }
             }
-            // Free audio resources.
-            if (m_line != null)
+            catch (IOException e)
             {
-                m_line.drain();
-                m_line.stop();
-                m_line.close();
-                m_line = null;
+                log.error("Thread cannot run()", e);
             }
+            catch (InterruptedException e)
+            {
+                log.info("Thread interrupted");
+            }
+            // Free audio resources.
+            if (nBytesRead == -1) line.drain();
+            line.stop();
+            line.close();
+            if (m_line == line) m_line = null;
             // Notification of "End Of Media"
             if (nBytesRead == -1)
             {
                 notifyEvent(BasicPlayerEvent.EOM, getEncodedStreamPosition(), -1, null);
             }
             // Close stream.
-            closeStream();
+            try
+            {
+                audioInputStream.close();
+                log.info("Stream closed");
+            }
+            catch (IOException e)
+            {
+                log.info("Cannot close stream", e);
+            }
+        }
+        // Stopped, seeking or reopened players are already notified.
+        boolean ended = false;
+        m_statusLock.lock();
+        try
+        {
+            if (((m_status == PLAYING) || (m_status == PAUSED)) && (m_audioInputStream == audioInputStream))
+            {
+                m_status = STOPPED;
+                m_statusChanged.signalAll();
+                ended = true;
+            }
+        }
+        finally
+        {
+            m_statusLock.unlock();
         }
-        m_status = STOPPED;
-        notifyEvent(BasicPlayerEvent.STOPPED, getEncodedStreamPosition(), -1, null);
+        if (ended) notifyEvent(BasicPlayerEvent.STOPPED, getEncodedStreamPosition(), -1, null);
         log.info("Thread completed");
     }
 
+    /**
+     * Seeks the stream of the playback thread to the position asked by
+     * seekMicroseconds(), and drops what the line holds from before.
+     * The stream is seeked without the status lock, so that pause, stop
+     * and open are not held up by it.
+     * @param line of the playback thread.
+     * @param audioInputStream of the playback thread.
+     */
+    private void seekRequested(SourceDataLine line, AudioInputStream audioInputStream)
+    {
+        long target = m_seekTarget;
+        long reached = -1;
+        try
+        {
+            if ((target >= 0) && (audioInputStream instanceof SeekableAudioStream))
+            {
+                reached = ((SeekableAudioStream) audioInputStream).seekMicroseconds(target);
+                line.flush();
+                // Progress restarts from 0, as after skipBytes().
+                m_lineOffset = line.getMicrosecondPosition();
+            }
+        }
+        finally
+        {
+            m_statusLock.lock();
+            try
+            {
+                // A later target is seeked on the next turn of the loop.
+                if (m_seekTarget == target)
+                {
+                    m_seekReached = reached;
+                    m_seekTarget = -1;
+                }
+                m_statusChanged.signalAll();
+            }
+            finally
+            {
+                m_statusLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Notifies listeners of progress, at most once per progress interval.
+     * BasicPlayerProgressListeners share one snapshot, other listeners get
+     * their own PCM copy.
+     * @param data PCM samples played.
+     * @param length of PCM samples.
+     */
+    protected void notifyProgress(byte[] data, int length)
+    {
+        if (progressInterval > 0)
+        {
+            long now = System.nanoTime();
+            if ((lastProgress != 0) && (now - lastProgress < progressInterval * 1000000L)) return;
+            lastProgress = now;
+        }
+        boolean legacy = false;
+        boolean pcmRequired = false;
+        Iterator it = m_listeners.iterator();
+        while (it.hasNext())
+        {
+            Object listener = it.next();
+            if (!(listener instanceof BasicPlayerProgressListener)) legacy = true;
+            else if (((BasicPlayerProgressListener) listener).isPcmRequired()) pcmRequired = true;
+        }
+        // Compute position in bytes in encoded stream.
+        int nEncodedBytes = getEncodedStreamPosition();
+        long microseconds = m_line.getMicrosecondPosition() - m_lineOffset;
+        PropertiesContainer container = null;
+        if (m_audioInputStream instanceof PropertiesContainer) container = (PropertiesContainer) m_audioInputStream;
+        m_progress.update(nEncodedBytes, microseconds, pcmRequired ? data : null, length, container);
+        byte[] pcm = null;
+        if (legacy)
+        {
+            pcm = new byte[length];
+            System.arraycopy(data, 0, pcm, 0, length);
+        }
+        it = m_listeners.iterator();
+        while (it.hasNext())
+        {
+            BasicPlayerListener bpl = (BasicPlayerListener) it.next();
+            if (bpl instanceof BasicPlayerProgressListener) ((BasicPlayerProgressListener) bpl).progress(m_progress);
+            // Pass audio parameters such as instant bitrate, ...
+            else bpl.progress(nEncodedBytes, microseconds, pcm, m_progress.getProperties());
+        }
+    }
+
     /**
      * Skip bytes in the File inputstream.
      * It will skip N frames matching to bytes, so it will never skip given bytes length exactly.
@@ -695,19 +914,36 @@ public class BasicPlayer implements BasicController, Runnable
      * @throws BasicPlayerException
      */
     protected long skipBytes(long bytes) throws BasicPlayerException
+    {
+        return skipBytes(bytes, true);
+    }
+
+    /**
+     * Skip bytes in the File inputstream, see skipBytes(long).
+     * @param bytes
+     * @param notify whether to notify SEEKING and SEEKED, which
+     * seekMicroseconds() does itself.
+     * @return value>0 for File and value=0 for URL and InputStream
+     * @throws BasicPlayerException
+     */
+    private long skipBytes(long bytes, boolean notify) throws BasicPlayerException
     {
         long totalSkipped = 0;
         if (m_dataSource instanceof File)
         {
             log.info("Bytes to skip : " + bytes);
             int previousStatus = m_status;
-            m_status = SEEKING;
+            SourceDataLine line = m_line;
+            setStatus(SEEKING);
+            // A playing line is flushed so that the playback thread ends now.
+            if (line != null) line.flush();
             long skipped = 0;
             try
             {
+                if (notify) notifyEvent(BasicPlayerEvent.SEEKING, getEncodedStreamPosition(), -1, null);
+                awaitPlaybackEnd();
                 synchronized (m_audioInputStream)
                 {
-                    notifyEvent(BasicPlayerEvent.SEEKING, getEncodedStreamPosition(), -1, null);
                     initAudioInputStream();
                     if (m_audioInputStream != null)
                     {
@@ -722,8 +958,8 @@ public class BasicPlayer implements BasicController, Runnable
                         }
                     }
                 }
-                notifyEvent(BasicPlayerEvent.SEEKED, getEncodedStreamPosition(), -1, null);
-                m_status = OPENED;
+                if (notify) notifyEvent(BasicPlayerEvent.SEEKED, getEncodedStreamPosition(), -1, null);
+                setStatus(OPENED);
                 if (previousStatus == PLAYING) startPlayback();
                 else if (previousStatus == PAUSED)
                 {
@@ -746,8 +982,7 @@ public class BasicPlayer implements BasicController, Runnable
      */
     protected void notifyEvent(int code, int position, double value, Object description)
     {
-        BasicPlayerEventLauncher trigger = new BasicPlayerEventLauncher(code, position, value, description, new ArrayList(m_listeners), this);
-        trigger.start();
+        m_dispatcher.fire(code, position, value, description);
     }
 
     protected int getEncodedStreamPosition()
@@ -917,6 +1152,122 @@ public class BasicPlayer implements BasicController, Runnable
         return skipBytes(bytes);
     }
 
+    /**
+     * Seeks to a time position.
+     * @param position from the start of the stream.
+     * @return the position reached, or null if the stream cannot move there.
+     * @throws BasicPlayerException
+     * @see #seekMicroseconds(long)
+     */
+    public Duration seek(Duration position) throws BasicPlayerException
+    {
+        long reached = seekMicroseconds(position.toNanos() / 1000);
+        return (reached < 0) ? null : Duration.ofNanos(reached * 1000);
+    }
+
+    /**
+     * Seeks to a time position.
+     *
+     * While playing or paused, a stream that implements SeekableAudioStream,
+     * such as decoded MP3 and Ogg Vorbis streams, is seeked by the playback
+     * thread: the file is not reopened and the line stays open. Otherwise
+     * the position is converted to bytes for skipBytes(), which only works
+     * for File sources. Listeners are notified of SEEKING and SEEKED once,
+     * whichever way is taken.
+     *
+     * @param microseconds position from the start of the stream.
+     * @return the position reached in microseconds, or -1 if the stream cannot move there.
+     * @throws BasicPlayerException
+     */
+    public long seekMicroseconds(long microseconds) throws BasicPlayerException
+    {
+        if (microseconds < 0) return -1;
+        notifyEvent(BasicPlayerEvent.SEEKING, getEncodedStreamPosition(), -1, null);
+        try
+        {
+            long reached = seekInPlace(microseconds);
+            if (reached >= 0) return reached;
+            long bytes = microsecondsToBytes(microseconds);
+            if (bytes < 0) return -1;
+            long skipped = skipBytes(bytes, false);
+            if (bytes == 0) return 0;
+            if (skipped <= 0) return -1;
+            return microseconds * skipped / bytes;
+        }
+        finally
+        {
+            notifyEvent(BasicPlayerEvent.SEEKED, getEncodedStreamPosition(), -1, null);
+        }
+    }
+
+    /**
+     * Asks the playback thread to seek its stream and waits for it.
+     * @param microseconds position from the start of the stream.
+     * @return the position reached in microseconds, or -1 if the stream cannot move there.
+     * @throws BasicPlayerException
+     */
+    private long seekInPlace(long microseconds) throws BasicPlayerException
+    {
+        SourceDataLine line = m_line;
+        Thread thread = m_thread;
+        if ((line == null) || !(m_audioInputStream instanceof SeekableAudioStream)) return -1;
+        if ((thread == null) || (thread == Thread.currentThread())) return -1;
+        long reached = -1;
+        m_statusLock.lock();
+        try
+        {
+            if ((m_status != PLAYING) && (m_status != PAUSED)) return -1;
+            m_seekTarget = microseconds;
+            m_statusChanged.signalAll();
+            // A write to a full line returns at once.
+            line.flush();
+            while ((m_seekTarget >= 0) && ((m_status == PLAYING) || (m_status == PAUSED)))
+            {
+                m_statusChanged.await();
+            }
+            if (m_seekTarget < 0) reached = m_seekReached;
+        }
+        catch (InterruptedException e)
+        {
+            throw new BasicPlayerException(BasicPlayerException.WAITERROR, e);
+        }
+        finally
+        {
+            m_seekTarget = -1;
+            m_statusLock.unlock();
+        }
+        return reached;
+    }
+
+    /**
+     * Converts a time position to bytes for skipBytes(): frames for PCM
+     * streams, else a share of the file length matching the duration.
+     * @param microseconds position from the start of the stream.
+     * @return bytes from the start of the stream, -1 if unknown.
+     */
+    protected long microsecondsToBytes(long microseconds)
+    {
+        if (m_audioFileFormat == null) return -1;
+        AudioFormat format = m_audioFileFormat.getFormat();
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if ((encoding == AudioFormat.Encoding.PCM_SIGNED) || (encoding == AudioFormat.Encoding.PCM_UNSIGNED))
+        {
+            if ((format.getFrameRate() <= 0) || (format.getFrameSize() <= 0)) return -1;
+            long frames = (long) (microseconds * (double) format.getFrameRate() / 1000000.0);
+            return frames * format.getFrameSize();
+        }
+        if (m_audioFileFormat instanceof TAudioFileFormat)
+        {
+            Object duration = ((TAudioFileFormat) m_audioFileFormat).properties().get("duration");
+            long length = m_audioFileFormat.getByteLength();
+            if ((duration instanceof Long) && (((Long) duration).longValue() > 0) && (length > 0))
+            {
+                return (long) (microseconds * (double) length / ((Long) duration).longValue());
+            }
+        }
+        return -1;
+    }
+
     /**
      * @see javazoom.jlgui.basicplayer.BasicController#play()
      */
@@ -0,0 +1,272 @@
+/*
+ * BasicPlayerEventDispatcher.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class delivers the events of one player to its listeners.
+ *
+ * Events are queued and delivered in the order they were fired, by at most
+ * one task at a time, so listeners never see two events of the same player
+ * at once or out of order. By default the task runs on a thread of the
+ * dispatcher, which is started when events come in and ends after
+ * KEEP_ALIVE_SECONDS without events. setExecutor() can move delivery to
+ * another Executor, for instance the AWT event queue.
+ *
+ * Events that are still waiting are coalesced: an event replaces the last
+ * waiting event if both have the same code. A GAIN or PAN event also
+ * drops a waiting event with its code further up the queue, as only the
+ * latest value matters, and is queued last to keep the order.
+ */
+public class BasicPlayerEventDispatcher
+{
+    public static long KEEP_ALIVE_SECONDS = 30;
+    private static Logger log = LoggerFactory.getLogger(BasicPlayerEventDispatcher.class);
+    private final Object source;
+    private final Collection listeners;
+    // Waiting events, guarded by itself.
+    private final LinkedList pending = new LinkedList();
+    private final Runnable drain = new Runnable()
+    {
+        public void run()
+        {
+            drain();
+        }
+    };
+    private Executor executor = null;
+    private ThreadPoolExecutor defaultExecutor = null;
+    // True while a drain task is submitted or running.
+    private boolean scheduled = false;
+    private long fired = 0;
+    private long coalesced = 0;
+
+    /**
+     * Constructor.
+     * @param source of the events
+     * @param listeners BasicPlayerListeners to notify. The collection is
+     * iterated for every event, so it should be safe to iterate while it is
+     * changed, like a CopyOnWriteArrayList.
+     */
+    public BasicPlayerEventDispatcher(Object source, Collection listeners)
+    {
+        this.source = source;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Sets the Executor that delivers events.
+     * @param executor null to use a thread of this dispatcher.
+     */
+    public void setExecutor(Executor executor)
+    {
+        synchronized (pending)
+        {
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Return the Executor that delivers events.
+     * @return null if a thread of this dispatcher is used.
+     */
+    public Executor getExecutor()
+    {
+        synchronized (pending)
+        {
+            return executor;
+        }
+    }
+
+    /**
+     * Queues an event for delivery.
+     * @param code of the event
+     * @param position in the stream when the event occurs
+     * @param value optional control value
+     * @param description optional description
+     */
+    public void fire(int code, int position, double value, Object description)
+    {
+        BasicPlayerEvent event = new BasicPlayerEvent(source, code, position, value, description);
+        Executor target = null;
+        synchronized (pending)
+        {
+            fired++;
+            coalesce(event);
+            pending.addLast(event);
+            if (!scheduled)
+            {
+                scheduled = true;
+                target = (executor != null) ? executor : getDefaultExecutor();
+            }
+        }
+        if (target != null)
+        {
+            try
+            {
+                target.execute(drain);
+            }
+            catch (RejectedExecutionException e)
+            {
+                log.error("Cannot deliver events", e);
+                synchronized (pending)
+                {
+                    pending.clear();
+                    scheduled = false;
+                    pending.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until all queued events are delivered.
+     * @param timeout in milliseconds.
+     * @return false if events are still waiting after timeout.
+     * @throws InterruptedException
+     */
+    public boolean awaitIdle(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (pending)
+        {
+            while (scheduled)
+            {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) return false;
+                pending.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of events fired.
+     */
+    public long getFiredCount()
+    {
+        synchronized (pending)
+        {
+            return fired;
+        }
+    }
+
+    /**
+     * Return the number of events that were replaced by a later one
+     * before they were delivered.
+     */
+    public long getCoalescedCount()
+    {
+        synchronized (pending)
+        {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Removes the waiting event that event replaces, if any.
+     * Called with the lock on pending.
+     */
+    private void coalesce(BasicPlayerEvent event)
+    {
+        int code = event.getCode();
+        boolean latestValue = (code == BasicPlayerEvent.GAIN) || (code == BasicPlayerEvent.PAN);
+        ListIterator it = pending.listIterator(pending.size());
+        while (it.hasPrevious())
+        {
+            BasicPlayerEvent waiting = (BasicPlayerEvent) it.previous();
+            if (waiting.getCode() == code)
+            {
+                it.remove();
+                coalesced++;
+                return;
+            }
+            if (!latestValue) return;
+        }
+    }
+
+    private void drain()
+    {
+        while (true)
+        {
+            BasicPlayerEvent event = null;
+            synchronized (pending)
+            {
+                if (pending.isEmpty())
+                {
+                    scheduled = false;
+                    pending.notifyAll();
+                    return;
+                }
+                event = (BasicPlayerEvent) pending.removeFirst();
+            }
+            Iterator it = listeners.iterator();
+            while (it.hasNext())
+            {
+                BasicPlayerListener bpl = (BasicPlayerListener) it.next();
+                try
+                {
+                    bpl.stateUpdated(event);
+                }
+                catch (RuntimeException e)
+                {
+                    // Other listeners and later events are still delivered.
+                    log.error("Listener failed on " + event, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called with the lock on pending.
+     */
+    private Executor getDefaultExecutor()
+    {
+        if (defaultExecutor == null)
+        {
+            ThreadFactory factory = new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "BasicPlayer events");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            defaultExecutor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue(), factory);
+            defaultExecutor.allowCoreThreadTimeOut(true);
+        }
+        return defaultExecutor;
+    }
+}
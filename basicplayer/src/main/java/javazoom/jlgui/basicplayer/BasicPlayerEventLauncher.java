@@ -27,6 +27,8 @@ import java.util.Iterator;
 
 /**
  * This class implements a threaded events launcher.
+ * @deprecated BasicPlayer queues events in a BasicPlayerEventDispatcher
+ * instead of starting a thread for each.
  */
 public class BasicPlayerEventLauncher extends Thread
 {
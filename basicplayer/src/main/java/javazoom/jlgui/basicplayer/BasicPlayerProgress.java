@@ -0,0 +1,145 @@
+/*
+ * BasicPlayerProgress.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.util.Collections;
+import java.util.Map;
+import javazoom.spi.PropertiesContainer;
+
+/**
+ * This class holds the progress of a playing BasicPlayer.
+ *
+ * One instance is kept per player and updated in place before listeners
+ * are notified, so that progress updates do not allocate. Audio stream
+ * properties such as the instant bitrate are only read when a listener
+ * asks for them, once per update.
+ */
+public class BasicPlayerProgress
+{
+    private final Object source;
+    private long updates = 0;
+    private int encodedPosition = -1;
+    private long microseconds = -1;
+    private byte[] pcm = new byte[0];
+    private int pcmLength = 0;
+    private PropertiesContainer container = null;
+    private Map properties = null;
+
+    /**
+     * Constructor.
+     * @param source player that updates this snapshot.
+     */
+    public BasicPlayerProgress(Object source)
+    {
+        this.source = source;
+    }
+
+    /**
+     * Updates this snapshot.
+     * @param encodedPosition bytes read from encoded stream.
+     * @param microseconds elapsed.
+     * @param data PCM samples, null to keep none.
+     * @param length of PCM samples.
+     * @param container of stream properties, or null.
+     */
+    void update(int encodedPosition, long microseconds, byte[] data, int length, PropertiesContainer container)
+    {
+        updates++;
+        this.encodedPosition = encodedPosition;
+        this.microseconds = microseconds;
+        if (data != null)
+        {
+            if (pcm.length < length) pcm = new byte[length];
+            System.arraycopy(data, 0, pcm, 0, length);
+            pcmLength = length;
+        }
+        else pcmLength = 0;
+        this.container = container;
+        properties = null;
+    }
+
+    /**
+     * Return the player.
+     */
+    public Object getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Return the number of updates since the player was created.
+     * Listeners can compare it to detect skipped updates.
+     */
+    public long getUpdateCount()
+    {
+        return updates;
+    }
+
+    /**
+     * Return bytes read from encoded stream.
+     */
+    public int getEncodedPosition()
+    {
+        return encodedPosition;
+    }
+
+    /**
+     * Return microseconds elapsed (<b>reseted after a seek !</b>).
+     */
+    public long getMicroseconds()
+    {
+        return microseconds;
+    }
+
+    /**
+     * Return the PCM buffer. Only the first getPcmLength() bytes are
+     * samples of this update, and the buffer is reused by the next one.
+     */
+    public byte[] getPcm()
+    {
+        return pcm;
+    }
+
+    /**
+     * Return the number of PCM bytes, 0 when no listener requires them.
+     */
+    public int getPcmLength()
+    {
+        return pcmLength;
+    }
+
+    /**
+     * Return audio stream parameters such as instant bitrate, microseconds
+     * position, current frame number, ...
+     * @return an empty map if the stream has no properties.
+     */
+    public Map getProperties()
+    {
+        if (properties == null)
+        {
+            if (container != null) properties = container.properties();
+            else properties = Collections.EMPTY_MAP;
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * BasicPlayerProgressListener.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+/**
+ * This interface defines a progress callback that does not allocate.
+ *
+ * A BasicPlayerListener that also implements this interface is notified
+ * through progress(BasicPlayerProgress) instead of
+ * progress(int, long, byte[], Map). The snapshot and its PCM buffer belong
+ * to the player and are reused for the next update, so a listener that
+ * keeps values must copy them before it returns.
+ */
+public interface BasicPlayerProgressListener extends BasicPlayerListener
+{
+    /**
+     * Progress callback while playing.
+     *
+     * This method is called at most at the progress rate of the player,
+     * from the playback thread.
+     *
+     * @param progress snapshot, valid until this method returns.
+     */
+    public void progress(BasicPlayerProgress progress);
+
+    /**
+     * Tells if this listener reads PCM samples.
+     * When no listener does, PCM samples are not copied at all.
+     * @return false to get snapshots without PCM samples.
+     */
+    public boolean isPcmRequired();
+}
@@ -0,0 +1,192 @@
+/*
+ * EventStressTest.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class hammers a BasicPlayer with control calls (pause, resume, gain,
+ * seeks and track changes) and reports the threads started meanwhile and the
+ * latency between firing an event and a listener receiving it. Every
+ * event carries a sequence number, so events delivered out of order are
+ * detected. It plays to a SimulatedSourceDataLine, no audio device is used.
+ *
+ * Usage : EventStressTest [rounds]
+ * Exit status 1 on events out of order, too many threads or a playback
+ * that a previous one stopped.
+ */
+public class EventStressTest implements BasicPlayerListener
+{
+    private final Object lock = new Object();
+    private long[] latencies = new long[1024];
+    private int received = 0;
+    private long lastSequence = -1;
+    private int outOfOrder = 0;
+
+    /**
+     * Entry point.
+     * @param args optional number of rounds.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        System.exit(new EventStressTest().run(rounds) ? 0 : 1);
+    }
+
+    public boolean run(int rounds) throws Exception
+    {
+        File file = SimulatedPlayer.createWave(30);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final long[] sequence = new long[1];
+        SimulatedPlayer player = new SimulatedPlayer()
+        {
+            protected void notifyEvent(int code, int position, double value, Object description)
+            {
+                // The sequence is taken in the order events are queued.
+                synchronized (sequence)
+                {
+                    long[] stamp = new long[] { sequence[0]++, System.nanoTime() };
+                    super.notifyEvent(code, position, value, stamp);
+                }
+            }
+        };
+        player.addBasicPlayerListener(this);
+        long threadsBefore = threads.getTotalStartedThreadCount();
+        long start = System.nanoTime();
+        // Calls that start a playback thread.
+        int playbackStarts = 0;
+        int lost = 0;
+        Random random = new Random(1);
+        player.open(file);
+        player.play();
+        playbackStarts++;
+        for (int i = 0; i < rounds; i++)
+        {
+            try
+            {
+                switch (random.nextInt(10))
+                {
+                    case 0:
+                        player.pause();
+                        break;
+                    case 1:
+                        player.resume();
+                        break;
+                    case 2:
+                    case 3:
+                        // Track change.
+                        player.stop();
+                        player.joinPlayback();
+                        player.open(file);
+                        player.play();
+                        playbackStarts++;
+                        break;
+                    case 4:
+                        // Track change, the old thread may still run.
+                        player.stop();
+                        player.open(file);
+                        player.play();
+                        playbackStarts++;
+                        break;
+                    case 5:
+                        int status = player.getStatus();
+                        // Within the first half of the file, far from its end.
+                        player.seek(44 + 4 * random.nextInt(44100 * 15));
+                        if ((status == BasicPlayer.PLAYING) || (status == BasicPlayer.PAUSED)) playbackStarts++;
+                        if (status != player.getStatus()) lost++;
+                        break;
+                    default:
+                        player.setGain(random.nextDouble());
+                        break;
+                }
+            }
+            catch (BasicPlayerException e)
+            {
+                // No gain control while the line is closed.
+                if (!BasicPlayerException.GAINCONTROLNOTSUPPORTED.equals(e.getMessage())) throw e;
+            }
+            // Nothing stops playback but the test.
+            int status = player.getStatus();
+            if ((status != BasicPlayer.PLAYING) && (status != BasicPlayer.PAUSED)) lost++;
+        }
+        player.stop();
+        long controlTime = System.nanoTime() - start;
+        boolean idle = player.getEventDispatcher().awaitIdle(10000);
+        long threadsStarted = threads.getTotalStartedThreadCount() - threadsBefore;
+        BasicPlayerEventDispatcher dispatcher = player.getEventDispatcher();
+        synchronized (lock)
+        {
+            long[] sorted = new long[received];
+            System.arraycopy(latencies, 0, sorted, 0, received);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (int i = 0; i < received; i++) sum += sorted[i];
+            System.out.println("rounds: " + rounds + ", control time: " + (controlTime / 1000000) + " ms");
+            System.out.println("events fired: " + dispatcher.getFiredCount() + ", coalesced: " + dispatcher.getCoalescedCount() + ", received: " + received + ", out of order: " + outOfOrder);
+            System.out.println("threads started: " + threadsStarted + " (playback threads: " + playbackStarts + "), playbacks lost: " + lost);
+            if (received > 0)
+            {
+                System.out.println("latency us: mean " + (sum / received / 1000) + ", p50 " + (sorted[received / 2] / 1000) + ", p99 " + (sorted[received * 99 / 100] / 1000) + ", max " + (sorted[received - 1] / 1000));
+            }
+            // One event thread, maybe a second one after an idle time out.
+            boolean ok = idle && (outOfOrder == 0) && (lost == 0) && (threadsStarted <= playbackStarts + 2);
+            System.out.println(ok ? "OK" : "FAILED");
+            return ok;
+        }
+    }
+
+    public void stateUpdated(BasicPlayerEvent event)
+    {
+        long now = System.nanoTime();
+        long[] stamp = (long[]) event.getDescription();
+        synchronized (lock)
+        {
+            if (stamp[0] <= lastSequence) outOfOrder++;
+            lastSequence = stamp[0];
+            if (received == latencies.length)
+            {
+                long[] grown = new long[received * 2];
+                System.arraycopy(latencies, 0, grown, 0, received);
+                latencies = grown;
+            }
+            latencies[received++] = now - stamp[1];
+        }
+    }
+
+    public void opened(Object stream, Map properties)
+    {
+    }
+
+    public void progress(int bytesread, long microseconds, byte[] pcmdata, Map properties)
+    {
+    }
+
+    public void setController(BasicController controller)
+    {
+    }
+}
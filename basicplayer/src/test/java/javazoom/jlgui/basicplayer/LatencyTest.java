@@ -0,0 +1,99 @@
+/*
+ * LatencyTest.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * This class measures how fast playback reacts to resume() and stop(),
+ * and the CPU time a paused player uses. Resume latency is the time until
+ * the line gets data again, stop latency the time until the playback
+ * thread ends. It plays to a SimulatedSourceDataLine, no audio device is
+ * used.
+ *
+ * Usage : LatencyTest [rounds]
+ * Exit status 1 if a latency or the paused CPU time is too high.
+ */
+public class LatencyTest
+{
+    private static final long MAX_LATENCY_MS = 100;
+    private static final long PAUSE_MS = 300;
+
+    /**
+     * Entry point.
+     * @param args optional number of rounds.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        System.exit(new LatencyTest().run(rounds) ? 0 : 1);
+    }
+
+    public boolean run(int rounds) throws Exception
+    {
+        File file = SimulatedPlayer.createWave(30);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        SimulatedPlayer player = new SimulatedPlayer();
+        long maxResume = 0;
+        long maxStop = 0;
+        long maxPausedCpu = 0;
+        for (int i = 0; i < rounds; i++)
+        {
+            player.open(file);
+            player.play();
+            Thread.sleep(50);
+            player.pause();
+            Thread playback = player.m_thread;
+            long cpu = threads.getThreadCpuTime(playback.getId());
+            Thread.sleep(PAUSE_MS);
+            long pausedCpu = threads.getThreadCpuTime(playback.getId()) - cpu;
+            maxPausedCpu = Math.max(maxPausedCpu, pausedCpu);
+            // Resume.
+            SimulatedSourceDataLine line = player.getSimulatedLine();
+            long lastWrite = line.getLastWriteTime();
+            long start = System.nanoTime();
+            player.resume();
+            while ((line.getLastWriteTime() == lastWrite) && (System.nanoTime() - start < 2000000000L))
+            {
+                Thread.sleep(1);
+            }
+            maxResume = Math.max(maxResume, line.getLastWriteTime() - start);
+            Thread.sleep(50);
+            // Stop, from playing and from paused.
+            if ((i % 2) == 1) player.pause();
+            start = System.nanoTime();
+            player.stop();
+            playback.join(2000);
+            maxStop = Math.max(maxStop, System.nanoTime() - start);
+        }
+        maxResume /= 1000000;
+        maxStop /= 1000000;
+        maxPausedCpu /= 1000000;
+        System.out.println("rounds: " + rounds + ", max resume latency ms: " + maxResume + ", max stop latency ms: " + maxStop + ", max paused cpu ms: " + maxPausedCpu + " in " + PAUSE_MS + " ms");
+        boolean ok = (maxResume < MAX_LATENCY_MS) && (maxStop < MAX_LATENCY_MS) && (maxPausedCpu < 10);
+        System.out.println(ok ? "OK" : "FAILED");
+        return ok;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * ProgressTest.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * This class plays a file with progress listeners and checks the progress
+ * rate, the reuse of the progress snapshot and that PCM samples are only
+ * copied when a listener requires them. The bytes allocated by the
+ * playback thread per second are reported for BasicPlayerListener and
+ * BasicPlayerProgressListener. It plays to a SimulatedSourceDataLine, no
+ * audio device is used.
+ *
+ * Usage : ProgressTest
+ * Exit status 1 on failure.
+ */
+public class ProgressTest
+{
+    private static final long INTERVAL = 100;
+
+    /**
+     * Entry point.
+     * @param args not used.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        System.exit(new ProgressTest().run() ? 0 : 1);
+    }
+
+    public boolean run() throws Exception
+    {
+        File file = SimulatedPlayer.createWave(2);
+        boolean ok = true;
+
+        Snapshots snapshots = new Snapshots(false);
+        play(file, snapshots, INTERVAL);
+        System.out.println("snapshots: " + snapshots.calls + ", min interval ms: " + snapshots.minGap / 1000000L + ", pcm bytes: " + snapshots.pcmBytes + ", bytes allocated/s: " + snapshots.allocationRate());
+        ok &= check(snapshots.calls > 5, "too few snapshots");
+        ok &= check(snapshots.calls <= 2000 / INTERVAL + 2, "progress interval ignored");
+        ok &= check(snapshots.minGap >= (INTERVAL - 5) * 1000000L, "progress interval too short");
+        ok &= check(!snapshots.changed, "snapshot not reused");
+        ok &= check(snapshots.pcmBytes == 0, "PCM copied without a listener that requires it");
+
+        Snapshots withPcm = new Snapshots(true);
+        play(file, withPcm, 0);
+        System.out.println("snapshots with pcm: " + withPcm.calls + ", pcm bytes: " + withPcm.pcmBytes + ", bytes allocated/s: " + withPcm.allocationRate());
+        ok &= check(withPcm.pcmBytes > 0, "PCM not copied");
+
+        Legacy legacy = new Legacy();
+        play(file, legacy, 0);
+        System.out.println("progress calls: " + legacy.calls + ", pcm bytes: " + legacy.pcmBytes + ", bytes allocated/s: " + legacy.allocationRate());
+        ok &= check(legacy.pcmBytes == withPcm.pcmBytes, "PCM bytes differ between listeners");
+
+        System.out.println(ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    private void play(File file, BasicPlayerListener listener, long interval) throws Exception
+    {
+        SimulatedPlayer player = new SimulatedPlayer();
+        player.setProgressInterval(interval);
+        player.addBasicPlayerListener(listener);
+        player.open(file);
+        player.play();
+        player.joinPlayback();
+    }
+
+    private static boolean check(boolean condition, String message)
+    {
+        if (!condition) System.out.println("FAILED: " + message);
+        return condition;
+    }
+
+    /**
+     * Counts progress calls and bytes allocated by the calling thread.
+     */
+    private static class Counter
+    {
+        int calls = 0;
+        long pcmBytes = 0;
+        long firstTime = 0;
+        long lastTime = 0;
+        long firstAllocated = 0;
+        long lastAllocated = 0;
+
+        void count(int pcmLength)
+        {
+            long now = System.nanoTime();
+            long allocated = allocatedBytes();
+            if (calls == 0)
+            {
+                firstTime = now;
+                firstAllocated = allocated;
+            }
+            calls++;
+            pcmBytes += pcmLength;
+            lastTime = now;
+            lastAllocated = allocated;
+        }
+
+        long allocationRate()
+        {
+            if (lastTime == firstTime) return 0;
+            return (long) ((lastAllocated - firstAllocated) * 1.0e9 / (lastTime - firstTime));
+        }
+
+        private static long allocatedBytes()
+        {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean)
+            {
+                return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return 0;
+        }
+    }
+
+    private static class Legacy extends Counter implements BasicPlayerListener
+    {
+        public void progress(int bytesread, long microseconds, byte[] pcmdata, Map properties)
+        {
+            count(pcmdata.length);
+        }
+
+        public void opened(Object stream, Map properties)
+        {
+        }
+
+        public void stateUpdated(BasicPlayerEvent event)
+        {
+        }
+
+        public void setController(BasicController controller)
+        {
+        }
+    }
+
+    private static class Snapshots extends Legacy implements BasicPlayerProgressListener
+    {
+        private final boolean pcmRequired;
+        private BasicPlayerProgress snapshot = null;
+        boolean changed = false;
+        long minGap = Long.MAX_VALUE;
+
+        Snapshots(boolean pcmRequired)
+        {
+            this.pcmRequired = pcmRequired;
+        }
+
+        public void progress(BasicPlayerProgress progress)
+        {
+            long previous = lastTime;
+            count(progress.getPcmLength());
+            if (calls > 1) minGap = Math.min(minGap, lastTime - previous);
+            if ((snapshot != null) && (snapshot != progress)) changed = true;
+            snapshot = progress;
+        }
+
+        public boolean isPcmRequired()
+        {
+            return pcmRequired;
+        }
+    }
+}
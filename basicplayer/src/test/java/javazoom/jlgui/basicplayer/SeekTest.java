@@ -0,0 +1,143 @@
+/*
+ * SeekTest.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * This class seeks a playing and a paused MP3 stream to random time
+ * positions. It checks that the positions are reached, that neither the
+ * stream nor the playback thread are replaced, and compares the time taken
+ * with byte seeks, which reopen the file. The MP3 file is repeated 30
+ * times, so that short files can be used. It plays to a
+ * SimulatedSourceDataLine, no audio device is used.
+ *
+ * Usage : SeekTest file.mp3 [seeks]
+ * Exit status 1 on failure.
+ */
+public class SeekTest implements BasicPlayerListener
+{
+    private static final long TOLERANCE_US = 50000;
+    private int opened = 0;
+    private volatile int seeking = 0;
+    private volatile int seeked = 0;
+
+    /**
+     * Entry point.
+     * @param args MP3 file and optional number of seeks.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int seeks = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        System.exit(new SeekTest().run(new File(args[0]), seeks) ? 0 : 1);
+    }
+
+    public boolean run(File mp3, int seeks) throws Exception
+    {
+        File file = File.createTempFile("basicplayer", ".mp3");
+        file.deleteOnExit();
+        byte[] data = Files.readAllBytes(mp3.toPath());
+        OutputStream out = new FileOutputStream(file);
+        for (int i = 0; i < 30; i++) out.write(data);
+        out.close();
+        SimulatedPlayer player = new SimulatedPlayer();
+        player.addBasicPlayerListener(this);
+        player.open(file);
+        long duration = ((Long) player.m_audioFileFormat.properties().get("duration")).longValue();
+        player.play();
+        Thread thread = player.m_thread;
+        AudioInputStream stream = player.m_audioInputStream;
+        int openedBefore = opened;
+        Random random = new Random(1);
+        boolean ok = true;
+        long maxError = 0;
+        long time = 0;
+        for (int i = 0; i < seeks; i++)
+        {
+            if (i == seeks / 2) player.pause();
+            long target = (long) (random.nextDouble() * duration * 0.9);
+            long start = System.nanoTime();
+            Duration reached = player.seek(Duration.ofNanos(target * 1000));
+            time += System.nanoTime() - start;
+            if (reached == null)
+            {
+                System.out.println("FAILED: cannot seek to " + target + " us");
+                ok = false;
+                continue;
+            }
+            maxError = Math.max(maxError, Math.abs(reached.toNanos() / 1000 - target));
+        }
+        ok &= check(player.getEventDispatcher().awaitIdle(5000), "events not delivered");
+        ok &= check((seeking == seeks) && (seeked == seeks), seeking + " SEEKING and " + seeked + " SEEKED events for " + seeks + " seeks");
+        ok &= check(maxError <= TOLERANCE_US, "position error " + maxError + " us");
+        ok &= check(opened == openedBefore, "stream reopened");
+        ok &= check((player.m_thread == thread) && thread.isAlive(), "playback thread replaced");
+        ok &= check(player.m_audioInputStream == stream, "stream replaced");
+        ok &= check(player.getStatus() == BasicPlayer.PAUSED, "not paused");
+        // Byte seeks, for comparison.
+        long bytesTime = 0;
+        long length = file.length();
+        for (int i = 0; i < seeks; i++)
+        {
+            long start = System.nanoTime();
+            player.seek((long) (random.nextDouble() * length * 0.9));
+            bytesTime += System.nanoTime() - start;
+        }
+        player.stop();
+        System.out.println("seeks: " + seeks + ", max position error us: " + maxError + ", mean time us: " + (time / seeks / 1000) + ", mean byte seek time us: " + (bytesTime / seeks / 1000));
+        System.out.println(ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    private static boolean check(boolean condition, String message)
+    {
+        if (!condition) System.out.println("FAILED: " + message);
+        return condition;
+    }
+
+    public void opened(Object stream, Map properties)
+    {
+        opened++;
+    }
+
+    public void progress(int bytesread, long microseconds, byte[] pcmdata, Map properties)
+    {
+    }
+
+    public void stateUpdated(BasicPlayerEvent event)
+    {
+        if (event.getCode() == BasicPlayerEvent.SEEKING) seeking++;
+        else if (event.getCode() == BasicPlayerEvent.SEEKED) seeked++;
+    }
+
+    public void setController(BasicController controller)
+    {
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * SimulatedPlayer.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * This class implements a BasicPlayer that plays to a
+ * SimulatedSourceDataLine, so that players can be tested without
+ * an audio device.
+ */
+public class SimulatedPlayer extends BasicPlayer
+{
+    private SimulatedSourceDataLine line = null;
+
+    protected SourceDataLine getLine(DataLine.Info info)
+    {
+        line = new SimulatedSourceDataLine(info);
+        return line;
+    }
+
+    /**
+     * Return the last line created.
+     */
+    public SimulatedSourceDataLine getSimulatedLine()
+    {
+        return line;
+    }
+
+    /**
+     * Waits for the playback thread to end.
+     * @throws InterruptedException
+     */
+    public void joinPlayback() throws InterruptedException
+    {
+        Thread thread = m_thread;
+        if (thread != null) thread.join();
+    }
+
+    /**
+     * Writes a WAVE file with a sine wave, 44.1 kHz 16 bit stereo.
+     * @param seconds length of the file
+     * @return a temporary file, deleted on exit.
+     * @throws IOException
+     */
+    public static File createWave(double seconds) throws IOException
+    {
+        AudioFormat format = new AudioFormat(44100.0f, 16, 2, true, false);
+        int frames = (int) (seconds * format.getFrameRate());
+        byte[] data = new byte[frames * format.getFrameSize()];
+        for (int i = 0; i < frames; i++)
+        {
+            int sample = (int) (8000 * Math.sin(2 * Math.PI * 440 * i / format.getFrameRate()));
+            for (int c = 0; c < 2; c++)
+            {
+                data[4 * i + 2 * c] = (byte) sample;
+                data[4 * i + 2 * c + 1] = (byte) (sample >> 8);
+            }
+        }
+        File file = File.createTempFile("basicplayer", ".wav");
+        file.deleteOnExit();
+        AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(data), format, frames);
+        AudioSystem.write(in, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * SimulatedSourceDataLine.
+ *
+ * JavaZOOM : jlgui@javazoom.net
+ *            http://www.javazoom.net
+ *
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.jlgui.basicplayer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * This class implements a SourceDataLine without an audio device, for
+ * machines that have none. Data is consumed at the frame rate of the
+ * format while the line is started, so write() blocks like a real line
+ * when the buffer is full. The time of the last write is kept, to measure
+ * how fast playback reacts to player controls.
+ */
+public class SimulatedSourceDataLine implements SourceDataLine
+{
+    private final DataLine.Info info;
+    private final FloatControl gainControl = new FloatControl(FloatControl.Type.MASTER_GAIN, -80.0f, 6.0206f, 0.01f, -1, 0.0f, "dB")
+    {
+    };
+    private AudioFormat format = null;
+    private int bufferSize = -1;
+    private boolean open = false;
+    private boolean running = false;
+    // Bytes written, and bytes played when started was taken.
+    private long written = 0;
+    private long playedAtStart = 0;
+    private long started = 0;
+    private long lastWrite = 0;
+
+    /**
+     * Contructor.
+     * @param info of the line to simulate.
+     */
+    public SimulatedSourceDataLine(DataLine.Info info)
+    {
+        this.info = info;
+        AudioFormat[] formats = info.getFormats();
+        if (formats.length > 0) format = formats[0];
+    }
+
+    public synchronized void open(AudioFormat format, int bufferSize)
+    {
+        this.format = format;
+        int frameSize = format.getFrameSize();
+        // Half a second by default.
+        if (bufferSize <= 0) bufferSize = (int) (format.getFrameRate() / 2) * frameSize;
+        this.bufferSize = bufferSize - (bufferSize % frameSize);
+        written = 0;
+        playedAtStart = 0;
+        open = true;
+    }
+
+    public void open(AudioFormat format)
+    {
+        open(format, AudioSystem.NOT_SPECIFIED);
+    }
+
+    public void open()
+    {
+        open(format);
+    }
+
+    public synchronized void close()
+    {
+        open = false;
+        running = false;
+        notifyAll();
+    }
+
+    public synchronized boolean isOpen()
+    {
+        return open;
+    }
+
+    public synchronized void start()
+    {
+        if (!running)
+        {
+            started = System.nanoTime();
+            running = true;
+            notifyAll();
+        }
+    }
+
+    public synchronized void stop()
+    {
+        if (running)
+        {
+            playedAtStart = played();
+            running = false;
+            notifyAll();
+        }
+    }
+
+    public synchronized boolean isRunning()
+    {
+        return running;
+    }
+
+    public synchronized boolean isActive()
+    {
+        return running && (played() < written);
+    }
+
+    public synchronized int write(byte[] b, int off, int len)
+    {
+        int frameSize = format.getFrameSize();
+        len -= len % frameSize;
+        int done = 0;
+        long flushes = written;
+        try
+        {
+            while ((done < len) && open)
+            {
+                long played = played();
+                if (played == written)
+                {
+                    // Underrun: the line plays new data from now on.
+                    playedAtStart = played;
+                    started = System.nanoTime();
+                }
+                int space = (int) (bufferSize - (written - played));
+                if (space > 0)
+                {
+                    int n = Math.min(space, len - done);
+                    written += n;
+                    done += n;
+                    flushes = written;
+                    lastWrite = System.nanoTime();
+                }
+                else if (!running)
+                {
+                    // A stopped line with a full buffer returns.
+                    break;
+                }
+                else
+                {
+                    wait(Math.max(1, (frameSize * 1000L) / bytesPerSecond() + 1));
+                    // flush() moved written back.
+                    if (written < flushes) break;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return done;
+    }
+
+    public synchronized void drain()
+    {
+        try
+        {
+            while (open && running && (played() < written))
+            {
+                wait(5);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized void flush()
+    {
+        long played = played();
+        written = played;
+        playedAtStart = played;
+        started = System.nanoTime();
+        notifyAll();
+    }
+
+    public synchronized int available()
+    {
+        return (int) (bufferSize - (written - played()));
+    }
+
+    public synchronized int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public synchronized AudioFormat getFormat()
+    {
+        return format;
+    }
+
+    public synchronized int getFramePosition()
+    {
+        return (int) getLongFramePosition();
+    }
+
+    public synchronized long getLongFramePosition()
+    {
+        return played() / format.getFrameSize();
+    }
+
+    public synchronized long getMicrosecondPosition()
+    {
+        return (long) (getLongFramePosition() * 1000000.0 / format.getFrameRate());
+    }
+
+    public float getLevel()
+    {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    /**
+     * Return System.nanoTime() of the last write that put data in the line.
+     */
+    public synchronized long getLastWriteTime()
+    {
+        return lastWrite;
+    }
+
+    public Line.Info getLineInfo()
+    {
+        return info;
+    }
+
+    public Control[] getControls()
+    {
+        return new Control[] { gainControl };
+    }
+
+    public boolean isControlSupported(Control.Type control)
+    {
+        return control == FloatControl.Type.MASTER_GAIN;
+    }
+
+    public Control getControl(Control.Type control)
+    {
+        if (isControlSupported(control)) return gainControl;
+        throw new IllegalArgumentException("Unsupported control type : " + control);
+    }
+
+    public void addLineListener(LineListener listener)
+    {
+    }
+
+    public void removeLineListener(LineListener listener)
+    {
+    }
+
+    /**
+     * Bytes played, called with the lock.
+     */
+    private long played()
+    {
+        if (!running) return playedAtStart;
+        long elapsed = System.nanoTime() - started;
+        long played = playedAtStart + (long) (elapsed / 1.0e9 * bytesPerSecond());
+        played -= played % format.getFrameSize();
+        return Math.min(written, played);
+    }
+
+    private long bytesPerSecond()
+    {
+        return (long) (format.getFrameRate() * format.getFrameSize());
+    }
+}
@@ -1,4 +1,7 @@
 /*
+ * 10/17/26			Bits packed 8 to a byte, fields extracted
+ *					with shifts and masks.
+ *
  * 11/19/04			1.0 moved to LGPL.
  * 
  * 12/12/99 0.0.7	Implementation stores single bits 
@@ -30,11 +33,11 @@ package javazoom.jl.decoder;
 /**
  * Implementation of Bit Reservoir for Layer III.
  * <p>
- * The implementation stores single bits as a word in the buffer. If
- * a bit is set, the corresponding word in the buffer will be non-zero.
- * If a bit is clear, the corresponding word is zero. Although this
- * may seem waseful, this can be a factor of two quicker than 
- * packing 8 bits to a byte and extracting. 
+ * The implementation packs the reserved bits 8 to a byte. Multi-bit
+ * fields are extracted with shifts and masks from a 32-bit window
+ * instead of being assembled one bit at a time. The first bytes
+ * of the buffer are mirrored past its end, so that a window never
+ * needs to wrap around.
  * <p> 
  */
 
@@ -44,8 +47,7 @@ final class BitReserve
 {
    /**
     * Size of the internal buffer to store the reserved bits.
-    * Must be a power of 2. And x8, as each bit is stored as a single
-    * entry.
+    * Must be a power of 2. And x8, as positions are counted in bits.
     */
 	private static final int		BUFSIZE = 4096*8;
 	
@@ -55,16 +57,31 @@ final class BitReserve
 	 */
 	private static final int		BUFSIZE_MASK = BUFSIZE-1;
 	
-	private int 					offset, totbit, buf_byte_idx;
-	private final int[] 			buf = new int[BUFSIZE];
-	private int 					buf_bit_idx;
+	/**
+	 * Number of bytes in the internal buffer.
+	 */
+	private static final int		BUFBYTES = BUFSIZE >>> 3;
+	
+	/**
+	 * Number of bytes mirrored past the end of the buffer, so
+	 * a 4 byte window can be read at any byte position.
+	 */
+	private static final int		MIRROR = 3;
+	
+	/**
+	 * Largest number of bits extracted from a single window.
+	 */
+	private static final int		MAX_CHUNK = 24;
+	
+	private int 					offset, totbit, buf_bit_idx;
+	private final byte[] 			buf = new byte[BUFBYTES + MIRROR];
 	
    BitReserve()
    {
 	  
 	  offset = 0;
       totbit = 0;
-      buf_byte_idx = 0;	  
+      buf_bit_idx = 0;	  
    }
       
    
@@ -86,51 +103,47 @@ final class BitReserve
 	 
 	 int val = 0;
 	 
-	 int pos = buf_byte_idx;
-	 if (pos+N < BUFSIZE)
+	 int pos = buf_bit_idx;
+	 while (N > 0)
 	 {
-		while (N-- > 0)
-		{
-			val <<= 1;
-			val |= ((buf[pos++]!=0) ? 1 : 0);		 
-		}
-	}
-	 else
-	 {	 
-		 while (N-- > 0)
-		{
-			 val <<= 1;			 
-			 val |= ((buf[pos]!=0) ? 1 : 0);
-			 pos = (pos+1) & BUFSIZE_MASK;
-		}		 
-	 }	
-	 buf_byte_idx = pos;
+		 int n = (N < MAX_CHUNK) ? N : MAX_CHUNK;
+		 int idx = pos >>> 3;
+		 int window = ((buf[idx] & 0xff) << 24)
+		 			| ((buf[idx+1] & 0xff) << 16)
+		 			| ((buf[idx+2] & 0xff) << 8)
+		 			|  (buf[idx+3] & 0xff);
+		 val = (val << n) | ((window << (pos & 7)) >>> (32 - n));
+		 pos = (pos + n) & BUFSIZE_MASK;
+		 N -= n;
+	 }
+	 buf_bit_idx = pos;
 	 return val;
    }
    
-	 
+   /**
+    * Returns the next N bits without removing them from the reserve.
+    * @param N the number of bits, 1 to 24.
+	*/
+   public int hpeekbits(int N)
+   {
+	 int pos = buf_bit_idx;
+	 int idx = pos >>> 3;
+	 int window = ((buf[idx] & 0xff) << 24)
+	 			| ((buf[idx+1] & 0xff) << 16)
+	 			| ((buf[idx+2] & 0xff) << 8)
+	 			|  (buf[idx+3] & 0xff);
+	 return (window << (pos & 7)) >>> (32 - N);
+   }
    
    /**
-    * Read 1 bit from the bit stream.
+    * Removes N bits from the reserve without reading them.
 	*/
-/*
-   public int hget1bit_old()
+   public void hskipbits(int N)
    {
-   	  int val;
-	  totbit++;
-	  if (buf_bit_idx == 0)
-	  {
-         buf_bit_idx = 8;
-	     buf_byte_idx++;		 
-	  }
-      // BUFSIZE = 4096 = 2^12, so
-      // buf_byte_idx%BUFSIZE == buf_byte_idx & 0xfff
-      val = buf[buf_byte_idx & BUFSIZE_MASK] & putmask[buf_bit_idx];
-      buf_bit_idx--;
-	  val = val >>> buf_bit_idx;
-      return val;   
+	 totbit += N;
+	 buf_bit_idx = (buf_bit_idx + N) & BUFSIZE_MASK;
    }
- */
+   
    /**
     * Returns next bit from reserve.
     * @returns 0 if next bit is reset, or 1 if next bit is set.
@@ -138,43 +151,10 @@ final class BitReserve
    public int hget1bit()
    {   	  
 	  totbit++;	  
-	  int val = buf[buf_byte_idx];
-	  buf_byte_idx = (buf_byte_idx+1) & BUFSIZE_MASK;
-      return val;
-   }
-   
-   /**
-    * Retrieves bits from the reserve.     
-    */
-/*   
-   public int readBits(int[] out, int len)
-   {
-		if (buf_bit_idx == 0)
-		{
-		   buf_bit_idx = 8;
-		   buf_byte_idx++;
-		   current = buf[buf_byte_idx & BUFSIZE_MASK];
-		}      
-		
-		
-		
-		// save total number of bits returned
-		len = buf_bit_idx;
-		buf_bit_idx = 0;
-		  
-		int b = current;
-		int count = len-1;
-		  
-		while (count >= 0)
-		{
-		    out[count--] = (b & 0x1);
-		    b >>>= 1;
-		}
-	  
-		totbit += len;
-		return len;
+	  int pos = buf_bit_idx;
+	  buf_bit_idx = (pos+1) & BUFSIZE_MASK;
+      return (buf[pos >>> 3] >>> (7 - (pos & 7))) & 1;
    }
-  */
    
    /**
     * Write 8 bits into the bit stream.
@@ -182,16 +162,11 @@ final class BitReserve
    public void hputbuf(int val)
    {   	  
 	   int ofs = offset;
-	   buf[ofs++] = val & 0x80;
-	   buf[ofs++] = val & 0x40;
-	   buf[ofs++] = val & 0x20;
-	   buf[ofs++] = val & 0x10;
-	   buf[ofs++] = val & 0x08;
-	   buf[ofs++] = val & 0x04;
-	   buf[ofs++] = val & 0x02;
-	   buf[ofs++] = val & 0x01;
+	   buf[ofs] = (byte) val;
+	   if (ofs < MIRROR)
+		   buf[BUFBYTES + ofs] = (byte) val;
 	   
-	   if (ofs==BUFSIZE)
+	   if (++ofs==BUFBYTES)
 			offset = 0;
 	   else
 			offset = ofs;
@@ -204,9 +179,9 @@ final class BitReserve
    public void rewindNbits(int N)
    {
  	  totbit -= N;	  	  
-	  buf_byte_idx -= N;
-	  if (buf_byte_idx<0)
-		  buf_byte_idx += BUFSIZE;
+	  buf_bit_idx -= N;
+	  if (buf_bit_idx<0)
+		  buf_bit_idx += BUFSIZE;
    }
 	
    /**
@@ -216,8 +191,8 @@ final class BitReserve
    {
       int bits = (N << 3);
 	  totbit -= bits;
-	  buf_byte_idx -= bits;	  
-	  if (buf_byte_idx<0)
-		  buf_byte_idx += BUFSIZE;
+	  buf_bit_idx -= bits;	  
+	  if (buf_bit_idx<0)
+		  buf_bit_idx += BUFSIZE;
    }
 }
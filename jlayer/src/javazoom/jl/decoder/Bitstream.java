@@ -37,6 +37,7 @@ package javazoom.jl.decoder;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
@@ -106,6 +107,16 @@ public final class Bitstream implements BitstreamErrors
 	 */
 	private int				header_pos = 0;
 
+	/**
+	 * Number of bytes consumed from the start of the stream.
+	 */
+	private long			stream_pos = 0;
+
+	/**
+	 * Position in stream of the last frame header read.
+	 */
+	private long			frame_pos = -1;
+
 	/**
 	 *
 	 */
@@ -122,6 +133,12 @@ public final class Bitstream implements BitstreamErrors
 
 	private final PushbackInputStream	source;
 
+	/**
+	 * Seekable source the frames are read from, when the
+	 * stream was not given as an InputStream.
+	 */
+	private final Source			datasource;
+
 	private final Header			header = new Header();
 
 	private final byte				syncbuf[] = new byte[4];
@@ -147,12 +164,42 @@ public final class Bitstream implements BitstreamErrors
 		firstframe = true;
 		//source = new PushbackInputStream(in, 1024);
 		source = new PushbackInputStream(in, BUFFER_INT_SIZE*4);
+		datasource = null;
 		
 		closeFrame();
 		//current_frame_number = -1;
 		//last_frame_number = -1;
 	}
 
+	/**
+	 * Construct a IBitstream that reads data from a
+	 * given Source. A seekable source is read directly,
+	 * without buffering or pushback streams, unreading only
+	 * moves its position back.
+	 *
+	 * @param src	The Source to read from.
+	 */
+	public Bitstream(Source src)
+	{
+		if (src==null) throw new NullPointerException("src");
+		firstframe = true;
+		if (src.isSeekable())
+		{
+			datasource = src;
+			source = null;
+			loadID3v2(src);
+		}
+		else
+		{
+			InputStream in = new BufferedInputStream(new SourceInputStream(src));
+			loadID3v2(in);
+			source = new PushbackInputStream(in, BUFFER_INT_SIZE*4);
+			datasource = null;
+		}
+		
+		closeFrame();
+	}
+
 	/**
 	 * Return position of the first audio header.
 	 * @return size of ID3v2 tag frames.
@@ -161,6 +208,70 @@ public final class Bitstream implements BitstreamErrors
 	{
 		return header_pos;
 	}
+
+	/**
+	 * Return position of the next byte to be read.
+	 * @return number of bytes consumed from the stream, ID3v2 tag included.
+	 */
+	public long stream_pos()
+	{
+		return stream_pos;
+	}
+
+	/**
+	 * Return position of the last frame read.
+	 * @return offset of the frame header in the stream, or -1 if
+	 * no frame was read yet.
+	 */
+	public long frame_pos()
+	{
+		return frame_pos;
+	}
+
+	/**
+	 * Tells whether the stream can be moved backwards.
+	 * @return true if frames are read from a seekable Source.
+	 */
+	public boolean isSeekable()
+	{
+		return datasource != null;
+	}
+
+	/**
+	 * Moves the stream to the given position, which should be the
+	 * start of a frame. The current frame is closed. A stream that
+	 * is not seekable can only be moved forward.
+	 *
+	 * @param pos	The position to move to, as returned by frame_pos().
+	 */
+	public void seek(long pos) throws BitstreamException
+	{
+		closeFrame();
+		if (datasource != null)
+		{
+			stream_pos = datasource.seek(pos);
+			return;
+		}
+		if (pos < stream_pos) throw newBitstreamException(STREAM_ERROR);
+		try
+		{
+			while (stream_pos < pos)
+			{
+				long skipped = source.skip(pos - stream_pos);
+				if (skipped <= 0)
+				{
+					// skip() may give up before the end, read instead.
+					if (source.read() == -1) break;
+					skipped = 1;
+				}
+				stream_pos += skipped;
+			}
+		}
+		catch (IOException ex)
+		{
+			throw newBitstreamException(STREAM_ERROR, ex);
+		}
+	}
 	
 	/**
 	 * Load ID3v2 frames.
@@ -195,13 +306,61 @@ public final class Bitstream implements BitstreamErrors
 			if (size > 0)
 			{
 				rawid3v2 = new byte[size];
-				in.read(rawid3v2,0,rawid3v2.length);
+				int read = in.read(rawid3v2,0,rawid3v2.length);
+				if (read > 0) stream_pos = read;
 			}			
 		}
 		catch (IOException e)
 		{}
 	}
 	
+	/**
+	 * Load ID3v2 frames from a seekable source.
+	 * @param src MP3 Source.
+	 */
+	private void loadID3v2(Source src)
+	{
+		long start = src.tell();
+		stream_pos = start;
+		int size = -1;
+		try
+		{
+			byte[] id3header = new byte[10];
+			size = -10;
+			if ((readSource(id3header, 0, 10) == 10)
+				&& (id3header[0]=='I') && (id3header[1]=='D') && (id3header[2]=='3'))
+			{
+				size = (int) (id3header[6] << 21) + (id3header[7] << 14) + (id3header[8] << 7) + (id3header[9]);
+			}
+			size += 10;
+			header_pos = size;
+		}
+		catch (IOException e)
+		{}
+		finally
+		{
+			src.seek(start);
+			stream_pos = start;
+		}
+		try
+		{
+			if (size > 0)
+			{
+				rawid3v2 = new byte[size];
+				// a source may return less than asked for, as FileChannelSource does
+				int offs = 0;
+				while (offs < size)
+				{
+					int read = readSource(rawid3v2, offs, size - offs);
+					if (read <= 0) break;
+					offs += read;
+				}
+			}
+		}
+		catch (IOException e)
+		{}
+	}
+
 	/**
 	 * Parse ID3v2 tag header to find out size of ID3v2 frames. 
 	 * @param in MP3 InputStream
@@ -248,7 +407,15 @@ public final class Bitstream implements BitstreamErrors
 	{
 		try
 		{
-			source.close();
+			if (datasource != null)
+			{
+				if (datasource instanceof Closeable)
+					((Closeable) datasource).close();
+			}
+			else
+			{
+				source.close();
+			}
 		}
 		catch (IOException ex)
 		{
@@ -339,7 +506,7 @@ public final class Bitstream implements BitstreamErrors
 		{
 			try
 			{
-				source.unread(frame_bytes, 0, framesize);
+				unreadSource(frame_bytes, 0, framesize);
 			}
 			catch (IOException ex)
 			{
@@ -369,7 +536,7 @@ public final class Bitstream implements BitstreamErrors
 
 		try
 		{
-			source.unread(syncbuf, 0, read);
+			unreadSource(syncbuf, 0, read);
 		}
 		catch (IOException ex)
 		{
@@ -444,6 +611,8 @@ public final class Bitstream implements BitstreamErrors
 		}
 		while (!sync);
 
+		frame_pos = stream_pos - 4;
+
 		//current_frame_number++;
 		//if (last_frame_number < current_frame_number) last_frame_number = current_frame_number;
 
@@ -602,7 +771,7 @@ public final class Bitstream implements BitstreamErrors
 		{
 			while (len > 0)
 			{
-				int bytesread = source.read(b, offs, len);
+				int bytesread = readSource(b, offs, len);
 				if (bytesread == -1)
 				{
 					while (len-->0)
@@ -636,7 +805,7 @@ public final class Bitstream implements BitstreamErrors
 		{
 			while (len > 0)
 			{
-				int bytesread = source.read(b, offs, len);
+				int bytesread = readSource(b, offs, len);
 				if (bytesread == -1)
 				{
 					break;
@@ -652,4 +821,63 @@ public final class Bitstream implements BitstreamErrors
 		}
 		return totalBytesRead;
 	}
+
+	/**
+	 * Reads bytes from the source stream or the seekable source.
+	 */
+	private int readSource(byte[] b, int offs, int len)
+		throws IOException
+	{
+		int read = (datasource != null) ? datasource.read(b, offs, len) : source.read(b, offs, len);
+		if (read > 0) stream_pos += read;
+		return read;
+	}
+
+	/**
+	 * Pushes back the bytes that were last read. A seekable source
+	 * is moved back instead, the bytes are not copied.
+	 */
+	private void unreadSource(byte[] b, int offs, int len)
+		throws IOException
+	{
+		if (datasource != null)
+			datasource.seek(datasource.tell() - len);
+		else
+			source.unread(b, offs, len);
+		stream_pos -= len;
+	}
+
+	/**
+	 * Adapts a <code>Source</code> that is not seekable to the
+	 * <code>InputStream</code> read path.
+	 */
+	private static final class SourceInputStream extends InputStream
+	{
+		private final Source		src;
+		private final byte[]		single = new byte[1];
+
+		SourceInputStream(Source src)
+		{
+			this.src = src;
+		}
+
+		public int read() throws IOException
+		{
+			int read;
+			while ((read = src.read(single, 0, 1)) == 0)
+				;
+			return (read < 0) ? -1 : (single[0] & 0xFF);
+		}
+
+		public int read(byte[] b, int offs, int len) throws IOException
+		{
+			return src.read(b, offs, len);
+		}
+
+		public void close() throws IOException
+		{
+			if (src instanceof Closeable)
+				((Closeable) src).close();
+		}
+	}
 }
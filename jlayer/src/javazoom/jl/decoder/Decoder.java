@@ -65,6 +65,13 @@ public class Decoder implements DecoderErrors
 	
 	private Equalizer				equalizer = new Equalizer();
 	
+	/**
+	 * The band factors of equalizer, and the version of equalizer
+	 * they were computed from.
+	 */
+	private final float[]			eqFactors = new float[32];
+	private int						eqVersion;
+	
 	private Params					params;
 	
 	private boolean					initialized;
@@ -113,15 +120,25 @@ public class Decoder implements DecoderErrors
 		
 		equalizer.setFrom(eq);
 		
-		float[] factors = equalizer.getBandFactors();
+		// the filters pick up the factors when they are created
+		if (equalizer.getVersion()==eqVersion || filter1==null)
+			return;
+		
+		float[] factors = getBandFactors();
 
-		if (filter1!=null)
-			filter1.setEQ(factors);
+		filter1.setEQ(factors);
 		
 		if (filter2!=null)
 			filter2.setEQ(factors);			
 	}
 	
+	private float[] getBandFactors()
+	{
+		eqVersion = equalizer.getVersion();
+		equalizer.getBandFactors(eqFactors);
+		return eqFactors;
+	}
+	
 	/**
 	 * Decodes one frame from an MPEG audio bitstream.
 	 * 
@@ -279,7 +296,7 @@ public class Decoder implements DecoderErrors
 		if (output==null)
 			output = new SampleBuffer(header.frequency(), channels);
 		
-		float[] factors = equalizer.getBandFactors();
+		float[] factors = getBandFactors();
 		filter1 = new SynthesisFilter(0, scalefactor, factors);
    		
 		// REVIEW: allow mono output for stereo
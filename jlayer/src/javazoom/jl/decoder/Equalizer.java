@@ -49,6 +49,11 @@ public final class Equalizer
 	
 	private final float[]	settings = new float[BANDS];
 	
+	/**
+	 * Counts the changes to the bands, see getVersion().
+	 */
+	private volatile int	version;
+	
 	/**
 	 * Creates a new <code>Equalizer</code> instance. 
 	 */
@@ -73,23 +78,21 @@ public final class Equalizer
 	
 	public void setFrom(float[] eq)
 	{
-		reset();
 		int max = (eq.length > BANDS) ? BANDS : eq.length;
 		
-		for (int i=0; i<max; i++)
+		for (int i=0; i<BANDS; i++)
 		{
-			settings[i] = limit(eq[i]);
+			set(i, (i<max) ? eq[i] : 0.0f);
 		}
 	}
 
 	public void setFrom(EQFunction eq)
 	{
-		reset();
 		int max = BANDS;
 		
 		for (int i=0; i<max; i++)
 		{
-			settings[i] = limit(eq.getBand(i));
+			set(i, eq.getBand(i));
 		}		
 	}
 	
@@ -115,9 +118,20 @@ public final class Equalizer
 	{
 		for (int i=0; i<BANDS; i++)
 		{
-			settings[i] = 0.0f;
+			set(i, 0.0f);
 		}
 	}
+	
+	/**
+	 * Retrieves a counter that changes whenever the setting of
+	 * a band changes. Setting a band to the value it already has
+	 * leaves it as it is, so comparing two versions tells if the
+	 * band factors have to be computed again.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
 
 	
 	/**
@@ -135,7 +149,7 @@ public final class Equalizer
 		if ((band>=0) && (band<BANDS))
 		{
 			eq = settings[band];
-			settings[band] = limit(neweq);
+			set(band, neweq);
 		}
 		
 		return eq;		
@@ -158,6 +172,16 @@ public final class Equalizer
 		return eq;
 	}
 	
+	private void set(int band, float eq)
+	{
+		eq = limit(eq);
+		if (Float.floatToIntBits(settings[band])!=Float.floatToIntBits(eq))
+		{
+			settings[band] = eq;
+			version++;
+		}
+	}
+	
 	private float limit(float eq)
 	{
 		if (eq==BAND_NOT_PRESENT)
@@ -182,12 +206,22 @@ public final class Equalizer
 	float[] getBandFactors()
 	{
 		float[] factors = new float[BANDS];
+		getBandFactors(factors);
+		return factors;
+	}
+	
+	/**
+	 * Stores the factors of getBandFactors() in an existing array. 
+	 * 
+	 * @param factors	receives the factors, at least
+	 *					getBandCount() long.
+	 */
+	void getBandFactors(float[] factors)
+	{
 		for (int i=0, maxCount=BANDS; i<maxCount; i++)
 		{
 			factors[i] = getBandFactor(settings[i]);
 		}
-		
-		return factors;
 	}
 	
 	/**
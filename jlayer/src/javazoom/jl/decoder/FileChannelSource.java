@@ -0,0 +1,141 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An instance of <code>FileChannelSource</code> implements a
+ * <code>Source</code> that reads a file with positional
+ * <code>FileChannel</code> reads into a buffer. Seeking within
+ * the buffered data, e.g. to unread a frame, reads nothing.
+ */
+public class FileChannelSource implements Source, Closeable
+{
+	private static final int		BUFFER_SIZE = 64*1024;
+	
+	private final FileChannel		channel;
+	private final ByteBuffer		buffer;
+	
+	/**
+	 * Position in the file of the first byte of the buffer.
+	 */
+	private long					bufferpos;
+	
+	public FileChannelSource(File file)
+		throws IOException
+	{
+		this(new RandomAccessFile(file, "r").getChannel());
+	}
+	
+	public FileChannelSource(FileChannel channel)
+	{
+		if (channel==null)
+			throw new NullPointerException("channel");
+		
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.limit(0);
+		bufferpos = 0;
+	}
+	
+	public int read(byte[] b, int offs, int len)
+		throws IOException
+	{
+		if (!buffer.hasRemaining() && !fill())
+			return -1;
+		int remaining = buffer.remaining();
+		if (len > remaining)
+			len = remaining;
+		buffer.get(b, offs, len);
+		return len;
+	}
+	
+	/**
+	 * Reads the data following the buffer.
+	 * @return false if the end of the file was reached.
+	 */
+	private boolean fill()
+		throws IOException
+	{
+		bufferpos += buffer.limit();
+		buffer.clear();
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, bufferpos + buffer.position()) < 0)
+				break;
+		}
+		buffer.flip();
+		return buffer.hasRemaining();
+	}
+	
+	public boolean willReadBlock()
+	{
+		return !buffer.hasRemaining();
+	}
+	
+	public boolean isSeekable()
+	{
+		return true;	
+	}
+	
+	public long	tell()
+	{
+		return bufferpos + buffer.position();	
+	}
+	
+	public long	seek(long to)
+	{
+		if (to < 0)
+			to = 0;
+		if ((to >= bufferpos) && (to <= bufferpos + buffer.limit()))
+		{
+			buffer.position((int) (to - bufferpos));
+		}
+		else
+		{
+			bufferpos = to;
+			buffer.limit(0);
+		}
+		return to;
+	}
+	
+	public long length()
+	{
+		try
+		{
+			return channel.size();
+		}
+		catch (IOException ex)
+		{
+			return LENGTH_UNKNOWN;
+		}
+	}
+	
+	public void close()
+		throws IOException
+	{
+		channel.close();
+	}
+}
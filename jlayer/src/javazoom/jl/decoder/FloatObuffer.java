@@ -0,0 +1,106 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+/**
+ * The <code>FloatObuffer</code> class implements an output buffer
+ * that keeps the samples of a frame as floats, one array per channel.
+ * Samples are scaled to the range [-1.0, 1.0] and are not clipped,
+ * so nothing is lost to 16 bit quantization.
+ */
+public class FloatObuffer extends Obuffer
+{
+  private static final float	SCALE = 1.0f / 32768.0f;
+
+  private float[][]		buffer;
+  private int[]			bufferp;
+  private int			channels;
+  private int			frequency;
+
+  /**
+   * Constructor
+   */
+  public FloatObuffer(int sample_frequency, int number_of_channels)
+  {
+	buffer = new float[number_of_channels][OBUFFERSIZE / MAXCHANNELS];
+	bufferp = new int[MAXCHANNELS];
+	channels = number_of_channels;
+	frequency = sample_frequency;
+  }
+
+  public int getChannelCount()
+  {
+	return this.channels;
+  }
+
+  public int getSampleFrequency()
+  {
+	return this.frequency;
+  }
+
+  /**
+   * Returns the samples, indexed by channel then by sample.
+   */
+  public float[][] getBuffer()
+  {
+	return this.buffer;
+  }
+
+  /**
+   * Returns the number of samples per channel in the buffer.
+   */
+  public int getBufferLength()
+  {
+	return bufferp[0];
+  }
+
+  /**
+   * Takes a 16 Bit PCM sample.
+   */
+  public void append(int channel, short value)
+  {
+	buffer[channel][bufferp[channel]++] = value * SCALE;
+  }
+
+	public void appendSamples(int channel, float[] f)
+	{
+		float[] out = buffer[channel];
+		int pos = bufferp[channel];
+		for (int i=0; i<32; i++)
+		{
+			out[pos + i] = f[i] * SCALE;
+		}
+		bufferp[channel] = pos + 32;
+	}
+
+  public void write_buffer(int val)
+  {}
+
+  public void close()
+  {}
+
+  public void clear_buffer()
+  {
+	for (int i = 0; i < channels; ++i)
+		bufferp[i] = 0;
+  }
+
+  public void set_stop_flag()
+  {}
+}
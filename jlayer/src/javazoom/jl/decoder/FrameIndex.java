@@ -0,0 +1,353 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A <code>FrameIndex</code> holds the stream position of every
+ * frame, or of every Nth frame, of an MPEG audio stream. It is
+ * built once by reading the frame headers and lets a
+ * <code>Bitstream</code> be moved to any frame without reading the
+ * headers in between.
+ * <p>
+ * An index can be saved next to the file it describes, see
+ * <code>getSidecar(File)</code>, and loaded back on the next run.
+ */
+public final class FrameIndex
+{
+	/**
+	 * Index every frame.
+	 */
+	public static final int		DEFAULT_STEP = 1;
+
+	private static final int	MAGIC = 0x4A4C4649;	// "JLFI"
+	private static final int	VERSION = 1;
+	private static final String	SIDECAR_SUFFIX = ".idx";
+
+	private final int			step;
+	private final int			frames;
+	private final long[]		offsets;
+	private final float			ms_per_frame;
+	private final long			length;
+	private long				modified = 0;
+
+	private FrameIndex(int step, int frames, long[] offsets, float ms_per_frame, long length)
+	{
+		this.step = step;
+		this.frames = frames;
+		this.offsets = offsets;
+		this.ms_per_frame = ms_per_frame;
+		this.length = length;
+	}
+
+	/**
+	 * Builds the index of the frames left in a stream.
+	 * Frames are numbered from the current position of the stream,
+	 * which is read up to its end.
+	 *
+	 * @param stream	The stream to index.
+	 * @param step		Index one frame every <code>step</code> frames.
+	 */
+	public static FrameIndex build(Bitstream stream, int step)
+		throws BitstreamException
+	{
+		if (step < 1) throw new IllegalArgumentException("step: "+step);
+		long[] offsets = new long[256];
+		int frames = 0;
+		float ms_per_frame = 0;
+		Header header;
+		while ((header = stream.readFrame()) != null)
+		{
+			if (frames == 0)
+				ms_per_frame = header.msPerFrame();
+			if ((frames % step) == 0)
+			{
+				int entry = frames / step;
+				if (entry == offsets.length)
+				{
+					long[] grown = new long[entry * 2];
+					System.arraycopy(offsets, 0, grown, 0, entry);
+					offsets = grown;
+				}
+				offsets[entry] = stream.frame_pos();
+			}
+			stream.closeFrame();
+			frames++;
+		}
+		int entries = (frames + step - 1) / step;
+		if (entries != offsets.length)
+		{
+			long[] trimmed = new long[entries];
+			System.arraycopy(offsets, 0, trimmed, 0, entries);
+			offsets = trimmed;
+		}
+		return new FrameIndex(step, frames, offsets, ms_per_frame, stream.stream_pos());
+	}
+
+	/**
+	 * Builds the index of an MPEG audio file.
+	 *
+	 * @param file	The file to index.
+	 * @param step	Index one frame every <code>step</code> frames.
+	 */
+	public static FrameIndex build(File file, int step)
+		throws IOException, BitstreamException
+	{
+		long modified = file.lastModified();
+		Bitstream stream = new Bitstream(new FileChannelSource(file));
+		FrameIndex scan;
+		try
+		{
+			scan = build(stream, step);
+		}
+		finally
+		{
+			stream.close();
+		}
+		// a trailing tag is not part of the frames, end at the file length
+		FrameIndex index = new FrameIndex(step, scan.frames, scan.offsets, scan.ms_per_frame, file.length());
+		index.modified = modified;
+		return index;
+	}
+
+	/**
+	 * Returns the number of frames in the stream.
+	 */
+	public int getFrameCount()
+	{
+		return frames;
+	}
+
+	/**
+	 * Returns the number of frames between two indexed frames.
+	 */
+	public int getStep()
+	{
+		return step;
+	}
+
+	/**
+	 * Returns the duration of the first frame in milliseconds.
+	 */
+	public float getMsPerFrame()
+	{
+		return ms_per_frame;
+	}
+
+	/**
+	 * Returns the position of the end of the stream.
+	 */
+	public long getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * Returns the last indexed frame at or before the given frame.
+	 */
+	public int getIndexedFrame(int frame)
+	{
+		if (frame >= frames) return frames;
+		if (frame < 0) frame = 0;
+		return frame - (frame % step);
+	}
+
+	/**
+	 * Returns the stream position of an indexed frame, or the end
+	 * of the stream if the frame is past the last one.
+	 *
+	 * @param frame		A frame number returned by getIndexedFrame().
+	 */
+	public long getOffset(int frame)
+	{
+		if (frame >= frames) return length;
+		return offsets[frame / step];
+	}
+
+	/**
+	 * Returns the last indexed frame starting at or before the given
+	 * stream position. With a step of 1 this is the frame the
+	 * position falls into.
+	 */
+	public int getFrameAt(long pos)
+	{
+		if (pos >= length) return frames;
+		int low = 0;
+		int high = offsets.length - 1;
+		if ((high < 0) || (pos < offsets[0])) return 0;
+		while (low < high)
+		{
+			int mid = (low + high + 1) >>> 1;
+			if (offsets[mid] <= pos)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low * step;
+	}
+
+	/**
+	 * Moves a stream so that the next frame read is the given one.
+	 * The stream is moved to the indexed frame at or before it and
+	 * the frames left, fewer than the step, are read and dropped.
+	 *
+	 * @param stream	A stream over the data this index was built from.
+	 * @param frame		The frame to move to.
+	 * @return false if the stream cannot be moved backwards to the
+	 * 		indexed frame, the stream is then left unchanged.
+	 */
+	public boolean seek(Bitstream stream, int frame)
+		throws BitstreamException
+	{
+		int first = getIndexedFrame(frame);
+		long pos = getOffset(first);
+		if (!stream.isSeekable() && (pos < stream.stream_pos()))
+			return false;
+		stream.seek(pos);
+		for (int i = first; i < frame; i++)
+		{
+			if (stream.readFrame() == null) break;
+			stream.closeFrame();
+		}
+		return true;
+	}
+
+	/**
+	 * Writes this index to a stream.
+	 * Offsets are stored as differences to the previous one.
+	 */
+	public void save(OutputStream out)
+		throws IOException
+	{
+		DataOutputStream dout = new DataOutputStream(out);
+		dout.writeInt(MAGIC);
+		dout.writeInt(VERSION);
+		dout.writeInt(step);
+		dout.writeInt(frames);
+		dout.writeFloat(ms_per_frame);
+		dout.writeLong(length);
+		dout.writeLong(modified);
+		dout.writeInt(offsets.length);
+		long previous = 0;
+		for (int i = 0; i < offsets.length; i++)
+		{
+			dout.writeInt((int) (offsets[i] - previous));
+			previous = offsets[i];
+		}
+		dout.flush();
+	}
+
+	/**
+	 * Reads an index written by save(OutputStream).
+	 */
+	public static FrameIndex load(InputStream in)
+		throws IOException
+	{
+		DataInputStream din = new DataInputStream(in);
+		if (din.readInt() != MAGIC) throw new IOException("Not a frame index");
+		int version = din.readInt();
+		if (version != VERSION) throw new IOException("Unsupported frame index version: "+version);
+		int step = din.readInt();
+		int frames = din.readInt();
+		float ms_per_frame = din.readFloat();
+		long length = din.readLong();
+		long modified = din.readLong();
+		int entries = din.readInt();
+		if ((step < 1) || (frames < 0) || (entries != (frames + step - 1) / step))
+			throw new IOException("Corrupted frame index");
+		long[] offsets = new long[entries];
+		long previous = 0;
+		for (int i = 0; i < entries; i++)
+		{
+			previous += din.readInt();
+			offsets[i] = previous;
+		}
+		FrameIndex index = new FrameIndex(step, frames, offsets, ms_per_frame, length);
+		index.modified = modified;
+		return index;
+	}
+
+	/**
+	 * Returns the file an index of the given file is saved to.
+	 */
+	public static File getSidecar(File file)
+	{
+		return new File(file.getPath() + SIDECAR_SUFFIX);
+	}
+
+	/**
+	 * Loads the saved index of a file.
+	 *
+	 * @return the index, or null if there is none or if the file
+	 * 		changed since it was saved.
+	 */
+	public static FrameIndex loadSidecar(File file)
+	{
+		File sidecar = getSidecar(file);
+		if (!sidecar.isFile()) return null;
+		try
+		{
+			InputStream in = new BufferedInputStream(new FileInputStream(sidecar));
+			try
+			{
+				FrameIndex index = load(in);
+				if ((index.length != file.length()) || (index.modified != file.lastModified()))
+					return null;
+				return index;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Builds the index of a file and saves it next to the file.
+	 */
+	public static FrameIndex createSidecar(File file, int step)
+		throws IOException, BitstreamException
+	{
+		FrameIndex index = build(file, step);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(getSidecar(file)));
+		try
+		{
+			index.save(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		return index;
+	}
+}
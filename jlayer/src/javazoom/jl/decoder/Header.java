@@ -1,4 +1,6 @@
 /*
+ * 10/17/26 : Xing and VBRI tables of contents used for seeking.
+ *
  * 11/19/04 : 1.0 moved to LGPL.
  *            VBRI header support added, E.B javalayer@javazoom.net
  *
@@ -86,6 +88,9 @@ public final class Header {
     private int h_vbr_scale;
     private int h_vbr_bytes;
     private byte[] h_vbr_toc;
+    private int[] h_vbri_toc;
+    private int h_vbri_frames_per_entry;
+    private int h_vbri_first_entry;
     private byte syncmode = Bitstream.INITIAL_SYNC;
     private Crc16 crc;
     private int _headerstring = -1; // E.B
@@ -289,7 +294,7 @@ public final class Header {
                 h_vbr_frames = -1;
                 h_vbr_bytes = -1;
                 h_vbr_scale = -1;
-                h_vbr_toc = new byte[100];
+                h_vbr_toc = null;
 
                 int length = 4;
                 // Read flags.
@@ -316,6 +321,7 @@ public final class Header {
                 }
                 // Read TOC (if available).
                 if ((flags[3] & (byte) (1 << 2)) != 0) {
+                    h_vbr_toc = new byte[100];
                     System.arraycopy(firstframe, offset + length, h_vbr_toc, 0, h_vbr_toc.length);
                     length += h_vbr_toc.length;
                 }
@@ -347,7 +353,7 @@ public final class Header {
                 h_vbr_frames = -1;
                 h_vbr_bytes = -1;
                 h_vbr_scale = -1;
-                h_vbr_toc = new byte[100];
+                h_vbr_toc = null;
                 // Bytes.
                 int length = 4 + 6;
                 System.arraycopy(firstframe, offset + length, tmp, 0, tmp.length);
@@ -364,8 +370,27 @@ public final class Header {
                                | tmp[3] & 0x000000FF;
                 length += 4;
                 //System.out.println("VBR:"+vbri+" Frames:"+ h_vbr_frames +" Size:"+h_vbr_bytes);
-                // TOC
-                // TODO
+                // TOC : entries count, scale, entry size, frames per entry, entries.
+                final int entries = ((firstframe[offset + length] & 0xFF) << 8) | (firstframe[offset + length + 1] & 0xFF);
+                final int scale = ((firstframe[offset + length + 2] & 0xFF) << 8) | (firstframe[offset + length + 3] & 0xFF);
+                final int entrysize = ((firstframe[offset + length + 4] & 0xFF) << 8) | (firstframe[offset + length + 5] & 0xFF);
+                h_vbri_frames_per_entry = ((firstframe[offset + length + 6] & 0xFF) << 8) | (firstframe[offset + length + 7] & 0xFF);
+                length += 8;
+                h_vbri_toc = null;
+                if ((entries > 0) && (entrysize >= 1) && (entrysize <= 4) && (h_vbri_frames_per_entry > 0)
+                    && (offset + length + entries * entrysize <= firstframe.length)) {
+                    final int[] toc = new int[entries];
+                    for (int i = 0; i < entries; i++) {
+                        int entry = 0;
+                        for (int b = 0; b < entrysize; b++) {
+                            entry = (entry << 8) | (firstframe[offset + length++] & 0xFF);
+                        }
+                        toc[i] = entry * scale;
+                    }
+                    h_vbri_toc = toc;
+                    // Entries start after the VBRI frame.
+                    h_vbri_first_entry = framesize + 4;
+                }
             }
         }
         catch (final ArrayIndexOutOfBoundsException e) {
@@ -465,6 +490,43 @@ public final class Header {
         return h_vbr_toc;
     }
 
+    /**
+     * Returns the position of a point of the stream, from the Xing or VBRI table of contents.
+     *
+     * @param fraction   point of the stream, from 0.0 for the start to 1.0 for the end of the duration
+     * @param streamsize size in bytes of the frames, used when the Xing header does not give it
+     * @return offset in bytes from the first frame, or -1 if there is no table of contents
+     */
+    public long vbr_toc_offset(final double fraction, final long streamsize) {
+        final double f = Math.max(0.0, Math.min(1.0, fraction));
+        if (h_vbr_toc != null) {
+            final long bytes = (h_vbr_bytes > 0) ? h_vbr_bytes : streamsize;
+            if (bytes <= 0) {
+                return -1;
+            }
+            // Linear interpolation between two of the 100 entries, in 1/256th of the stream.
+            final double percent = f * 100.0;
+            final int a = Math.min(99, (int) percent);
+            final double fa = h_vbr_toc[a] & 0xFF;
+            final double fb = (a < 99) ? (h_vbr_toc[a + 1] & 0xFF) : 256.0;
+            final double fx = fa + (fb - fa) * (percent - a);
+            return (long) (fx / 256.0 * bytes);
+        }
+        if ((h_vbri_toc != null) && (h_vbr_frames > 0)) {
+            final double frame = f * h_vbr_frames;
+            long offset = h_vbri_first_entry;
+            int i = 0;
+            while ((i < h_vbri_toc.length) && ((double) (i + 1) * h_vbri_frames_per_entry <= frame)) {
+                offset += h_vbri_toc[i++];
+            }
+            if (i < h_vbri_toc.length) {
+                offset += (long) (h_vbri_toc[i] * (frame - (double) i * h_vbri_frames_per_entry) / h_vbri_frames_per_entry);
+            }
+            return offset;
+        }
+        return -1;
+    }
+
     /**
      * Returns Checksum flag.
      * Compares computed checksum with stream checksum.
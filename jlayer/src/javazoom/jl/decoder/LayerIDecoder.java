@@ -40,6 +40,11 @@ class LayerIDecoder implements FrameDecoder
 	
 	protected int					num_subbands;
 	protected Subband[]				subbands;
+	// layout the subbands were created for, they are reused
+	// as long as it does not change.
+	private int						subbands_mode = -1;
+	private int						subbands_bound = -1;
+	private int						subbands_count = -1;
 	protected Crc16					crc	= null;	// new Crc16[1] to enable CRC checking.
 	
 	public LayerIDecoder()
@@ -64,10 +69,23 @@ class LayerIDecoder implements FrameDecoder
 	{
 		
 		num_subbands = header.number_of_subbands();
-		subbands = new Subband[32];
 		mode = header.mode();
+		int bound = (mode == Header.JOINT_STEREO) ? header.intensity_stereo_bound() : 0;
 		
-		createSubbands();
+		if ((subbands == null) || (mode != subbands_mode)
+			|| (bound != subbands_bound) || (num_subbands != subbands_count))
+		{
+			subbands = new Subband[32];
+			createSubbands();
+			subbands_mode = mode;
+			subbands_bound = bound;
+			subbands_count = num_subbands;
+		}
+		else
+		{
+			for (int i = 0; i < num_subbands; ++i)
+				subbands[i].reset();
+		}
 		
 		readAllocation();
 		readScaleFactorSelection();
@@ -178,6 +196,10 @@ class LayerIDecoder implements FrameDecoder
 	  public abstract void read_scalefactor (Bitstream stream, Header header);
 	  public abstract boolean read_sampledata (Bitstream stream);
 	  public abstract boolean put_next_sample (int channels, SynthesisFilter filter1, SynthesisFilter filter2);
+	  /**
+	   * Prepares the subband for decoding the next frame.
+	   */
+	  public abstract void reset ();
 	};
 	
 	/**
@@ -224,6 +246,14 @@ class LayerIDecoder implements FrameDecoder
 	    samplenumber = 0;  
 	  }
 	  
+	  /**
+	   *
+	   */
+	  public void reset()
+	  {
+	    samplenumber = 0;
+	  }
+	  
 	  /**
 	   *
 	   */
@@ -501,6 +501,14 @@ class LayerIIDecoder extends LayerIDecoder implements FrameDecoder
 	    groupnumber = samplenumber = 0;  
 	  }
 	  
+	  /**
+	   *
+	   */
+	  public void reset()
+	  {
+	    groupnumber = samplenumber = 0;
+	  }
+	  
 	  
 	  /**
 	   *
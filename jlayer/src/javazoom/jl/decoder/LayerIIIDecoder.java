@@ -1,4 +1,6 @@
 /*
+ * 10/17/26  Alias reduction and IMDCT limited to the non zero subbands.
+ *
  * 11/19/04	 1.0 moved to LGPL.
  * 
  * 18/06/01  Michael Scheerer,  Fixed bugs which causes
@@ -34,6 +36,8 @@
 
 package javazoom.jl.decoder;
 
+import java.util.Arrays;
+
 /**
  * Class Implementing Layer 3 Decoder.
  *
@@ -288,11 +292,11 @@ final class LayerIIIDecoder implements FrameDecoder
 	         for (ch=first_channel; ch<=last_channel; ch++) {
 
 	         		reorder(lr[ch], ch, gr);
-						antialias(ch, gr);
+						antialias(out_1d, si.ch[ch].gr[gr]);
                  //for (int hb = 0;hb<576;hb++) CheckSumOut1d = CheckSumOut1d + out_1d[hb];
 				 //System.out.println("CheckSumOut1d = "+CheckSumOut1d);
 
-	               hybrid(ch, gr);
+	               hybrid(out_1d, prevblck[ch], si.ch[ch].gr[gr]);
 
 	             //for (int hb = 0;hb<576;hb++) CheckSumOut1d = CheckSumOut1d + out_1d[hb];
 				 //System.out.println("CheckSumOut1d = "+CheckSumOut1d);
@@ -1400,12 +1404,12 @@ final class LayerIIIDecoder implements FrameDecoder
 	}
 
     /**
-	 *
+	 * Alias reduction of the granule in x, up to the last subband
+	 * holding a non zero value.
 	 */
-	private void antialias(int ch, int gr)
+	void antialias(float[] x, gr_info_s gr_info)
 	{
 	   int sb18, ss, sb18lim;
-	   gr_info_s gr_info = (si.ch[ch].gr[gr]);
 	   // 31 alias-reduction operations between each pair of sub-bands
 	   // with 8 butterflies between each pair
 
@@ -1420,18 +1424,40 @@ final class LayerIIIDecoder implements FrameDecoder
 			sb18lim = 558;
 	   }
 
+	   // no butterfly between two subbands holding only zeros
+	   int nz18 = nonzero_subbands(x) * 18;
+	   if (nz18 < sb18lim)
+		   sb18lim = nz18;
+
 	   for (sb18=0; sb18 < sb18lim; sb18+=18) {
 	      for (ss=0;ss<8;ss++) {
 	      	int src_idx1 = sb18 + 17 - ss;
 	         int src_idx2 = sb18 + 18 + ss;
-	      	float bu = out_1d[src_idx1];
-				float bd = out_1d[src_idx2];
-				out_1d[src_idx1] = (bu * cs[ss]) - (bd * ca[ss]);
-				out_1d[src_idx2] = (bd * cs[ss]) + (bu * ca[ss]);
+	      	float bu = x[src_idx1];
+				float bd = x[src_idx2];
+				x[src_idx1] = (bu * cs[ss]) - (bd * ca[ss]);
+				x[src_idx2] = (bd * cs[ss]) + (bu * ca[ss]);
 	      }
    	  }
 	}
 
+	/**
+	 * Returns the number of subbands up to the last one holding a
+	 * non zero value in x.
+	 */
+	private static int nonzero_subbands(float[] x)
+	{
+	   for (int sb18 = 576; sb18 > 0; sb18 -= 18)
+	   {
+		   for (int i = sb18 - 1; i >= sb18 - 18; i--)
+		   {
+			   if (x[i] != 0.0f)
+				   return sb18 / 18;
+		   }
+	   }
+	   return 0;
+	}
+
 	/**
 	 *
 	 */
@@ -1441,72 +1467,44 @@ final class LayerIIIDecoder implements FrameDecoder
 	float[] tsOutCopy = new float[18];
 	float[] rawout = new float[36];
 
-	private void hybrid(int ch, int gr)
+	/**
+	 * IMDCT and overlap addition of the granule in tsOut, with the
+	 * saved halves of the previous granule in prvblk.
+	 */
+	void hybrid(float[] tsOut, float[] prvblk, gr_info_s gr_info)
 	{
 	   int bt;
 	   int sb18;
-	   gr_info_s gr_info = (si.ch[ch].gr[gr]);
-	   float[] tsOut;
 
-	   float[][] prvblk;
+	   // The IMDCT of a subband holding only zeros is zero, the
+	   // subbands above the last non zero one are only overlapped.
+	   int sblimit = nonzero_subbands(tsOut) * SSLIMIT;
 
-	   for(sb18=0;sb18<576;sb18+=18)
+	   for(sb18=0;sb18<sblimit;sb18+=18)
 	   {
 			bt = ((gr_info.window_switching_flag !=0 ) && (gr_info.mixed_block_flag !=0) &&
 					 (sb18 < 36)) ? 0 : gr_info.block_type;
 
-		   tsOut = out_1d;
 	       // Modif E.B 02/22/99
 	       for (int cc = 0;cc<18;cc++)
 			   tsOutCopy[cc] = tsOut[cc+sb18];
 
 		   inv_mdct(tsOutCopy, rawout, bt);
 
-
-		   for (int cc = 0;cc<18;cc++)
-			   tsOut[cc+sb18] = tsOutCopy[cc];
-		   // Fin Modif
-
 			// overlap addition
-		   prvblk = prevblck;
-
-		   tsOut[0 + sb18]   = rawout[0]  + prvblk[ch][sb18 + 0];
-		   prvblk[ch][sb18 + 0]  = rawout[18];
-		   tsOut[1 + sb18]   = rawout[1]  + prvblk[ch][sb18 + 1];
-		   prvblk[ch][sb18 + 1]  = rawout[19];
-		   tsOut[2 + sb18]   = rawout[2]  + prvblk[ch][sb18 + 2];
-		   prvblk[ch][sb18 + 2]  = rawout[20];
-		   tsOut[3 + sb18]   = rawout[3]  + prvblk[ch][sb18 + 3];
-		   prvblk[ch][sb18 + 3]  = rawout[21];
-		   tsOut[4 + sb18]   = rawout[4]  + prvblk[ch][sb18 + 4];
-		   prvblk[ch][sb18 + 4]  = rawout[22];
-		   tsOut[5 + sb18]   = rawout[5]  + prvblk[ch][sb18 + 5];
-		   prvblk[ch][sb18 + 5]  = rawout[23];
-		   tsOut[6 + sb18]   = rawout[6]  + prvblk[ch][sb18 + 6];
-		   prvblk[ch][sb18 + 6]  = rawout[24];
-		   tsOut[7 + sb18]   = rawout[7]  + prvblk[ch][sb18 + 7];
-		   prvblk[ch][sb18 + 7]  = rawout[25];
-		   tsOut[8 + sb18]   = rawout[8]  + prvblk[ch][sb18 + 8];
-		   prvblk[ch][sb18 + 8]  = rawout[26];
-		   tsOut[9 + sb18]   = rawout[9]  + prvblk[ch][sb18 + 9];
-		   prvblk[ch][sb18 + 9]  = rawout[27];
-	   	   tsOut[10 + sb18]  = rawout[10] + prvblk[ch][sb18 + 10];
-	   	   prvblk[ch][sb18 + 10] = rawout[28];
-	 	   tsOut[11 + sb18]  = rawout[11] + prvblk[ch][sb18 + 11];
-	 	   prvblk[ch][sb18 + 11] = rawout[29];
-	 	   tsOut[12 + sb18]  = rawout[12] + prvblk[ch][sb18 + 12];
-	 	   prvblk[ch][sb18 + 12] = rawout[30];
-	 	   tsOut[13 + sb18]  = rawout[13] + prvblk[ch][sb18 + 13];
-	 	   prvblk[ch][sb18 + 13] = rawout[31];
-	 	   tsOut[14 + sb18]  = rawout[14] + prvblk[ch][sb18 + 14];
-	 	   prvblk[ch][sb18 + 14] = rawout[32];
-	 	   tsOut[15 + sb18]  = rawout[15] + prvblk[ch][sb18 + 15];
-	 	   prvblk[ch][sb18 + 15] = rawout[33];
-	 	   tsOut[16 + sb18]  = rawout[16] + prvblk[ch][sb18 + 16];
-	 	   prvblk[ch][sb18 + 16] = rawout[34];
-	 	   tsOut[17 + sb18]  = rawout[17] + prvblk[ch][sb18 + 17];
-	 	   prvblk[ch][sb18 + 17] = rawout[35];
+		   for (int cc = 0;cc<18;cc++)
+		   {
+			   tsOut[cc + sb18] = rawout[cc] + prvblk[cc + sb18];
+			   prvblk[cc + sb18] = rawout[cc + 18];
+		   }
    	  }
+
+	   // overlap addition of all the silent subbands at once
+	   if (sblimit < 576)
+	   {
+		   System.arraycopy(prvblk, sblimit, tsOut, sblimit, 576 - sblimit);
+		   Arrays.fill(prvblk, sblimit, 576, 0.0f);
+	   }
 	}
 
     /**
@@ -2333,13 +2331,13 @@ final class LayerIIIDecoder implements FrameDecoder
 	};
 */
 
-	private static final float cs[] =
+	static final float cs[] =
 	{
 	 0.857492925712f, 0.881741997318f, 0.949628649103f, 0.983314592492f,
 	 0.995517816065f, 0.999160558175f, 0.999899195243f, 0.999993155067f
 	};
 
-	private static final float ca[] =
+	static final float ca[] =
 	{
 	 -0.5144957554270f, -0.4717319685650f, -0.3133774542040f, -0.1819131996110f,
 	 -0.0945741925262f, -0.0409655828852f, -0.0141985685725f, -0.00369997467375f
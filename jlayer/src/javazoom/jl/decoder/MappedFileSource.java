@@ -0,0 +1,110 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An instance of <code>MappedFileSource</code> implements a
+ * <code>Source</code> that maps a whole file into memory.
+ * Reading, seeking and unreading only move the position
+ * of the mapped <code>ByteBuffer</code>.
+ * <p>
+ * Files larger than 2 GB cannot be mapped, use a
+ * <code>FileChannelSource</code> for them.
+ */
+public class MappedFileSource implements Source, Closeable
+{
+	private final FileChannel		channel;
+	private final ByteBuffer		buffer;
+	
+	public MappedFileSource(File file)
+		throws IOException
+	{
+		if (file==null)
+			throw new NullPointerException("file");
+		
+		channel = new RandomAccessFile(file, "r").getChannel();
+		try
+		{
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large to be mapped: "+file);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		catch (IOException ex)
+		{
+			channel.close();
+			throw ex;
+		}
+	}
+	
+	public int read(byte[] b, int offs, int len)
+		throws IOException
+	{
+		int remaining = buffer.remaining();
+		if (remaining==0)
+			return -1;
+		if (len > remaining)
+			len = remaining;
+		buffer.get(b, offs, len);
+		return len;
+	}
+	
+	public boolean willReadBlock()
+	{
+		return false;
+	}
+	
+	public boolean isSeekable()
+	{
+		return true;	
+	}
+	
+	public long	tell()
+	{
+		return buffer.position();	
+	}
+	
+	public long	seek(long to)
+	{
+		if (to < 0)
+			to = 0;
+		else if (to > buffer.limit())
+			to = buffer.limit();
+		buffer.position((int) to);
+		return to;
+	}
+	
+	public long length()
+	{
+		return buffer.limit();
+	}
+	
+	public void close()
+		throws IOException
+	{
+		channel.close();
+	}
+}
@@ -60,6 +60,7 @@ final class huffcodetab
   private int[]   			 hlen=null;             /* pointer to array[xlen][ylen]		      */
   private int[][]			 val=null;		        /* decoder tree		    	              */
   private int 				 treelen;	            /* length of decoder tree  	              */
+  private int[]				 lookup=null;	        /* multi-level decoding table             */
 
   private static int ValTab0[][] = {
 	{0,0}	// dummy
@@ -417,6 +418,24 @@ final class huffcodetab
 
   public static huffcodetab[]  ht = null;     /* Simulate extern struct                 */
 
+  /**
+   * Number of bits resolved by the first level of the lookup table.
+   */
+  private static final int	 LOOKUP_BITS = 8;
+
+  /**
+   * Number of bits resolved by each further level of the lookup table.
+   */
+  private static final int	 SUBTABLE_BITS = 4;
+
+  /**
+   * Flags a lookup entry holding a decoded value. The code length is
+   * stored in bits 8..15 and the value (x << 4 | y) in bits 0..7.
+   * Negative entries are offsets of the next level, and 0 marks
+   * a bit pattern that must be decoded by walking the tree.
+   */
+  private static final int	 LEAF = 0x10000;
+
   private static int[] bitbuf = new int[32];
   
   /**
@@ -447,6 +466,38 @@ final class huffcodetab
    * discard x.
    */
   public static int huffman_decoder(huffcodetab h, int[] x, int[] y, int[] v, int[] w, BitReserve br)
+  {
+	if (h.lookup == null)
+		return huffman_tree_decoder(h, x, y, v, w, br);
+
+	int[] lookup = h.lookup;
+	int bits = LOOKUP_BITS;
+	int used = 0;
+	int e = lookup[br.hpeekbits(LOOKUP_BITS)];
+	while (e < 0)
+	{
+		br.hskipbits(bits);
+		used += bits;
+		bits = SUBTABLE_BITS;
+		e = lookup[br.hpeekbits(SUBTABLE_BITS) - e];
+	}
+	if (e == 0)
+	{
+		// Not resolved by the table, walk the tree from the start.
+		br.rewindNbits(used);
+		return huffman_tree_decoder(h, x, y, v, w, br);
+	}
+	br.hskipbits((e >>> 8) & 0xff);
+	x[0] = (e >>> 4) & 0xf;
+	y[0] = e & 0xf;
+	return huffman_signs(h, x, y, v, w, br, 0);
+  }
+
+  /**
+   * Do the huffman-decoding by walking the decoder tree
+   * one bit at a time.
+   */
+  static int huffman_tree_decoder(huffcodetab h, int[] x, int[] y, int[] v, int[] w, BitReserve br)
   {
 	// array of all huffcodtable headers
 	// 0..31 Huffman code table 0..31
@@ -514,6 +565,14 @@ final class huffcodetab
 		if (unread>0)
 			br.rewindNbits(unread);
 	 */
+  	  return huffman_signs(h, x, y, v, w, br, error);
+  }
+
+  /**
+   * Reads the linbits and sign bits following a decoded value.
+   */
+  private static int huffman_signs(huffcodetab h, int[] x, int[] y, int[] v, int[] w, BitReserve br, int error)
+  {
   	  /* Process sign encodings for quadruples tables. */
       // System.out.println(h.tablename);
   	  if (h.tablename0 == '3' && (h.tablename1 == '2' || h.tablename1 == '3'))
@@ -596,5 +655,106 @@ final class huffcodetab
     ht[31] = new huffcodetab("31 ",16,16,13,8191,24,null,null,ValTab24,512);
     ht[32] = new huffcodetab("32 ",1,16,0,0,-1,null,null,ValTab32,31);
     ht[33] = new huffcodetab("33 ",1,16,0,0,-1,null,null,ValTab33,31);
+
+    for (int i = 0; i < HTN; i++)
+    {
+      if (ht[i].treelen == 0)
+        continue;
+      // Tables 17..23 and 25..31 share the tree of 16 and 24.
+      if (i > 0 && ht[i-1].val == ht[i].val)
+        ht[i].lookup = ht[i-1].lookup;
+      else
+        ht[i].lookup = ht[i].build_lookup();
+    }
+  }
+
+  /**
+   * Builds the lookup table by walking the decoder tree for every
+   * bit pattern, so that it decodes exactly like huffman_tree_decoder.
+   * The first level resolves LOOKUP_BITS bits, codes that are longer
+   * continue in subtables of SUBTABLE_BITS bits each.
+   */
+  private int[] build_lookup()
+  {
+	int[][] tables = new int[val.length][];
+	int[] offsets = new int[val.length];
+	int[] size = {0};
+	fill_lookup(0, LOOKUP_BITS, 0, tables, offsets, size);
+
+	int[] lookup = new int[size[0]];
+	for (int point = 0; point < tables.length; point++)
+	{
+	  if (tables[point] == null)
+		continue;
+	  int[] t = tables[point];
+	  for (int i = 0; i < t.length; i++)
+	  {
+		// make subtable references absolute
+		if (t[i] < 0)
+		  t[i] = -offsets[-t[i] - 1];
+	  }
+	  System.arraycopy(t, 0, lookup, offsets[point], t.length);
+	}
+	return lookup;
+  }
+
+  /**
+   * Fills the table level starting at tree node point, creating the
+   * levels below it as needed. Subtable references are stored as
+   * -(node + 1) until all offsets are known.
+   */
+  private void fill_lookup(int point, int nbits, int depth, int[][] tables, int[] offsets, int[] size)
+  {
+	int[] t = new int[1 << nbits];
+	tables[point] = t;
+	offsets[point] = size[0];
+	size[0] += t.length;
+
+	for (int pattern = 0; pattern < t.length; pattern++)
+	{
+	  int p = point;
+	  int len = 0;
+	  boolean leaf = false;
+	  try
+	  {
+		while (depth + len < 32)
+		{
+		  if (val[p][0] == 0)
+		  {
+			leaf = true;
+			break;
+		  }
+		  if (len == nbits)
+			break;
+		  if (((pattern >>> (nbits - 1 - len)) & 1) != 0)
+		  {
+			while (val[p][1] >= MXOFF) p += val[p][1];
+			p += val[p][1];
+		  }
+		  else
+		  {
+			while (val[p][0] >= MXOFF) p += val[p][0];
+			p += val[p][0];
+		  }
+		  len++;
+		}
+	  }
+	  catch (ArrayIndexOutOfBoundsException e)
+	  {
+		// left to the tree decoder
+		continue;
+	  }
+	  if (leaf)
+	  {
+		if (len > 0)
+		  t[pattern] = LEAF | (len << 8) | (val[p][1] & 0xff);
+	  }
+	  else if (len == nbits && depth + len < 32)
+	  {
+		if (tables[p] == null)
+		  fill_lookup(p, SUBTABLE_BITS, depth + len, tables, offsets, size);
+		t[pattern] = -(p + 1);
+	  }
+	}
   }
 }
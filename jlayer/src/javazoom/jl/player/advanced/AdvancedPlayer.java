@@ -24,6 +24,7 @@ import java.io.InputStream;
 import javazoom.jl.decoder.Bitstream;
 import javazoom.jl.decoder.BitstreamException;
 import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.FrameIndex;
 import javazoom.jl.decoder.Header;
 import javazoom.jl.decoder.JavaLayerException;
 import javazoom.jl.decoder.SampleBuffer;
@@ -49,6 +50,8 @@ public class AdvancedPlayer
 	private int lastPosition = 0;
 	/** Listener for the playback process */
 	private PlaybackListener listener;
+	/** Positions of the frames, used to seek to the first frame to play. */
+	private FrameIndex frameIndex;
 
 	/**
 	 * Creates a new <code>Player</code> instance.
@@ -195,10 +198,29 @@ public class AdvancedPlayer
 	{
 		boolean ret = true;
 		int offset = start;
+		if ((frameIndex != null) && (offset > 0) && frameIndex.seek(bitstream, start)) offset = 0;
 		while (offset-- > 0 && ret) ret = skipFrame();
 		return play(end - start);
 	}
 
+	/**
+	 * sets the <code>FrameIndex</code> of the stream, so that
+	 * <code>play(start, end)</code> seeks to the first frame instead
+	 * of skipping frames one by one
+	 */
+	public void setFrameIndex(FrameIndex index)
+	{
+		this.frameIndex = index;
+	}
+
+	/**
+	 * gets the <code>FrameIndex</code>
+	 */
+	public FrameIndex getFrameIndex()
+	{
+		return frameIndex;
+	}
+
 	/**
 	 * Constructs a <code>PlaybackEvent</code>
 	 */
@@ -17,7 +17,16 @@
  *----------------------------------------------------------------------
  */
 
+import javazoom.jl.decoder.BitReserveTest;
 import javazoom.jl.decoder.BitstreamTest;
+import javazoom.jl.decoder.EqualizerTest;
+import javazoom.jl.decoder.FloatObufferTest;
+import javazoom.jl.decoder.FrameIndexTest;
+import javazoom.jl.decoder.HuffmanDecoderTest;
+import javazoom.jl.decoder.LayerIIIDecoderTest;
+import javazoom.jl.decoder.SourceTest;
+import javazoom.jl.decoder.SubbandAllocationTest;
+import javazoom.jl.decoder.SynthesisFilterTest;
 import javazoom.jl.player.jlpTest;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -32,6 +41,15 @@ public class AllTests
 		TestSuite suite = new TestSuite("Test for javazoom.jl.decoder");
 		//$JUnit-BEGIN$
 		suite.addTest(new TestSuite(BitstreamTest.class));
+		suite.addTest(new TestSuite(BitReserveTest.class));
+		suite.addTest(new TestSuite(HuffmanDecoderTest.class));
+		suite.addTest(new TestSuite(SubbandAllocationTest.class));
+		suite.addTest(new TestSuite(SourceTest.class));
+		suite.addTest(new TestSuite(FrameIndexTest.class));
+		suite.addTest(new TestSuite(FloatObufferTest.class));
+		suite.addTest(new TestSuite(SynthesisFilterTest.class));
+		suite.addTest(new TestSuite(EqualizerTest.class));
+		suite.addTest(new TestSuite(LayerIIIDecoderTest.class));
 		suite.addTest(new TestSuite(jlpTest.class));
 		//$JUnit-END$
 		return suite;
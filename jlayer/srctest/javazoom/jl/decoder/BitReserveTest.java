@@ -0,0 +1,241 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * BitReserve unit test.
+ * Feeds the same random bytes and the same random sequence of reads
+ * and rewinds to the packed BitReserve and to the former one bit per
+ * int implementation, and checks that every returned value matches.
+ */
+public class BitReserveTest extends TestCase
+{
+	private static final long SEED = 0x4d504733L;
+
+	private Random random = null;
+	private BitReserve packed = null;
+	private ReferenceBitReserve reference = null;
+
+	/**
+	 * Constructor for BitReserveTest.
+	 * @param arg0
+	 */
+	public BitReserveTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		random = new Random(SEED);
+		packed = new BitReserve();
+		reference = new ReferenceBitReserve();
+	}
+
+	public void testFieldReads()
+	{
+		for (int frame = 0; frame < 2000; frame++)
+		{
+			put(random.nextInt(1441));
+			for (int i = 0; i < 200; i++)
+			{
+				int n = random.nextInt(33);
+				assertEquals("hgetbits(" + n + ")", reference.hgetbits(n), packed.hgetbits(n));
+				assertEquals("hsstell", reference.hsstell(), packed.hsstell());
+			}
+		}
+	}
+
+	public void testSingleBitReads()
+	{
+		for (int frame = 0; frame < 500; frame++)
+		{
+			put(random.nextInt(1441));
+			for (int i = 0; i < 1000; i++)
+			{
+				assertEquals("hget1bit", reference.hget1bit() != 0, packed.hget1bit() != 0);
+			}
+			assertEquals("hsstell", reference.hsstell(), packed.hsstell());
+		}
+	}
+
+	public void testMixedOperations()
+	{
+		for (int op = 0; op < 500000; op++)
+		{
+			switch (random.nextInt(10))
+			{
+				case 0:
+					put(random.nextInt(64));
+					break;
+				case 1:
+					// stuffing bits dismissed in one call
+					int skip = random.nextInt(4000);
+					assertEquals("hgetbits(" + skip + ")", reference.hgetbits(skip), packed.hgetbits(skip));
+					break;
+				case 2:
+					int nbits = random.nextInt(64);
+					reference.rewindNbits(nbits);
+					packed.rewindNbits(nbits);
+					break;
+				case 3:
+					int nbytes = random.nextInt(16);
+					reference.rewindNbytes(nbytes);
+					packed.rewindNbytes(nbytes);
+					break;
+				case 4:
+				case 5:
+					assertEquals("hget1bit", reference.hget1bit() != 0, packed.hget1bit() != 0);
+					break;
+				default:
+					int n = random.nextInt(33);
+					assertEquals("hgetbits(" + n + ")", reference.hgetbits(n), packed.hgetbits(n));
+					break;
+			}
+			assertEquals("hsstell", reference.hsstell(), packed.hsstell());
+		}
+	}
+
+	public void testWrapAround()
+	{
+		// Read across the end of the buffer at every bit offset.
+		for (int shift = 0; shift < 8; shift++)
+		{
+			put(4096 - 2);
+			assertEquals(reference.hgetbits(shift), packed.hgetbits(shift));
+			for (int i = 0; i < 4096 - 2; i++)
+			{
+				assertEquals(reference.hgetbits(8), packed.hgetbits(8));
+			}
+			put(8);
+			for (int n = 1; n <= 32; n++)
+			{
+				reference.rewindNbits(n);
+				packed.rewindNbits(n);
+				assertEquals("hgetbits(" + n + ")", reference.hgetbits(n), packed.hgetbits(n));
+			}
+			int rest = 64 - shift;
+			assertEquals(reference.hgetbits(rest), packed.hgetbits(rest));
+		}
+	}
+
+	private void put(int nbytes)
+	{
+		for (int i = 0; i < nbytes; i++)
+		{
+			int b = random.nextInt(256);
+			reference.hputbuf(b);
+			packed.hputbuf(b);
+		}
+	}
+
+	/**
+	 * The previous implementation, which stores every bit as a
+	 * separate int, kept as the reference for the packed one.
+	 */
+	static final class ReferenceBitReserve
+	{
+		private static final int BUFSIZE = 4096*8;
+		private static final int BUFSIZE_MASK = BUFSIZE-1;
+
+		private int offset, totbit, buf_byte_idx;
+		private final int[] buf = new int[BUFSIZE];
+
+		public int hsstell()
+		{
+			return(totbit);
+		}
+
+		public int hgetbits(int N)
+		{
+			totbit += N;
+			int val = 0;
+			int pos = buf_byte_idx;
+			if (pos+N < BUFSIZE)
+			{
+				while (N-- > 0)
+				{
+					val <<= 1;
+					val |= ((buf[pos++]!=0) ? 1 : 0);
+				}
+			}
+			else
+			{
+				while (N-- > 0)
+				{
+					val <<= 1;
+					val |= ((buf[pos]!=0) ? 1 : 0);
+					pos = (pos+1) & BUFSIZE_MASK;
+				}
+			}
+			buf_byte_idx = pos;
+			return val;
+		}
+
+		public int hget1bit()
+		{
+			totbit++;
+			int val = buf[buf_byte_idx];
+			buf_byte_idx = (buf_byte_idx+1) & BUFSIZE_MASK;
+			return val;
+		}
+
+		public void hputbuf(int val)
+		{
+			int ofs = offset;
+			buf[ofs++] = val & 0x80;
+			buf[ofs++] = val & 0x40;
+			buf[ofs++] = val & 0x20;
+			buf[ofs++] = val & 0x10;
+			buf[ofs++] = val & 0x08;
+			buf[ofs++] = val & 0x04;
+			buf[ofs++] = val & 0x02;
+			buf[ofs++] = val & 0x01;
+			if (ofs==BUFSIZE)
+				offset = 0;
+			else
+				offset = ofs;
+		}
+
+		public void rewindNbits(int N)
+		{
+			totbit -= N;
+			buf_byte_idx -= N;
+			if (buf_byte_idx<0)
+				buf_byte_idx += BUFSIZE;
+		}
+
+		public void rewindNbytes(int N)
+		{
+			int bits = (N << 3);
+			totbit -= bits;
+			buf_byte_idx -= bits;
+			if (buf_byte_idx<0)
+				buf_byte_idx += BUFSIZE;
+		}
+	}
+}
@@ -20,7 +20,9 @@
 
 package javazoom.jl.decoder;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -66,8 +68,12 @@ public class BitstreamTest extends TestCase
 		basefile = (String) props.getProperty("basefile");
 		name = (String) props.getProperty("filename");		
 		filename = basefile + name;	
-		mp3in = new FileInputStream(filename);
-		in = new Bitstream(mp3in);
+		// test.mp3 is not shipped, only testStream() needs it
+		if (new File(filename).exists())
+		{
+			mp3in = new FileInputStream(filename);
+			in = new Bitstream(mp3in);
+		}
 		//out = System.out;
 	}
 	/*
@@ -76,12 +82,13 @@ public class BitstreamTest extends TestCase
 	protected void tearDown() throws Exception
 	{
 		super.tearDown();
-		in.close();
-		mp3in.close();	
+		if (in != null) in.close();
+		if (mp3in != null) mp3in.close();	
 	}
 
 	public void testStream()
 	{
+		assertNotNull(filename + " not found", in);
 		try
 		{
 			InputStream id3in = in.getRawID3v2();
@@ -105,8 +112,8 @@ public class BitstreamTest extends TestCase
 				out.println("vbr_scale="+header.vbr_scale());
 				out.println("max_number_of_frames="+header.max_number_of_frames(mp3in.available()));
 				out.println("min_number_of_frames="+header.min_number_of_frames(mp3in.available()));
-				out.println("ms_per_frame="+header.ms_per_frame());
-				out.println("frames_per_second="+(float) ((1.0 / (header.ms_per_frame())) * 1000.0));
+				out.println("ms_per_frame="+header.msPerFrame());
+				out.println("frames_per_second="+(float) ((1.0 / (header.msPerFrame())) * 1000.0));
 				out.println("total_ms="+header.total_ms(mp3in.available()));
 				out.println("SyncHeader="+header.getSyncHeader());
 				out.println("checksums="+header.checksums());
@@ -131,8 +138,8 @@ public class BitstreamTest extends TestCase
 			assertEquals("vbr_scale",Integer.parseInt((String)props.getProperty("vbr_scale")),header.vbr_scale());
 			assertEquals("max_number_of_frames",Integer.parseInt((String)props.getProperty("max_number_of_frames")),header.max_number_of_frames(mp3in.available()));
 			assertEquals("min_number_of_frames",Integer.parseInt((String)props.getProperty("min_number_of_frames")),header.min_number_of_frames(mp3in.available()));
-			assertTrue("ms_per_frame",Float.parseFloat((String)props.getProperty("ms_per_frame"))==header.ms_per_frame());
-			assertTrue("frames_per_second",Float.parseFloat((String)props.getProperty("frames_per_second"))==(float) ((1.0 / (header.ms_per_frame())) * 1000.0));
+			assertTrue("ms_per_frame",Float.parseFloat((String)props.getProperty("ms_per_frame"))==header.msPerFrame());
+			assertTrue("frames_per_second",Float.parseFloat((String)props.getProperty("frames_per_second"))==(float) ((1.0 / (header.msPerFrame())) * 1000.0));
 			assertTrue("total_ms",Float.parseFloat((String)props.getProperty("total_ms"))==header.total_ms(mp3in.available()));
 			assertEquals("SyncHeader",Integer.parseInt((String)props.getProperty("SyncHeader")),header.getSyncHeader());
 			assertEquals("checksums",Boolean.valueOf((String)props.getProperty("checksums")),new Boolean(header.checksums()));
@@ -152,4 +159,53 @@ public class BitstreamTest extends TestCase
 			assertTrue("IOException : "+e.getMessage(),false);
 		}		
 	}
+
+	/**
+	 * A seekable source may return less than asked for:
+	 * FileChannelSource reads at most 64 KB at a time. An ID3v2
+	 * tag larger than that must still be read whole.
+	 */
+	public void testLargeID3v2FromFileChannel() throws Exception
+	{
+		// 100000 bytes of frames, as a synchsafe integer
+		int frames = 100000;
+		byte[] tag = new byte[10 + frames];
+		for (int i = 0; i < tag.length; i++) tag[i] = (byte) (i * 31);
+		tag[0] = 'I'; tag[1] = 'D'; tag[2] = '3'; tag[3] = 3; tag[4] = 0; tag[5] = 0;
+		tag[6] = (byte) ((frames >> 21) & 0x7F);
+		tag[7] = (byte) ((frames >> 14) & 0x7F);
+		tag[8] = (byte) ((frames >> 7) & 0x7F);
+		tag[9] = (byte) (frames & 0x7F);
+		// MPEG-1 Layer II, 192 kbit/s, 48 kHz, single channel.
+		byte[] frame = new byte[576];
+		frame[0] = (byte) 0xFF; frame[1] = (byte) 0xFD; frame[2] = (byte) 0xA4; frame[3] = (byte) 0xC0;
+		File file = File.createTempFile("bitstream", ".mp3");
+		file.deleteOnExit();
+		FileOutputStream fout = new FileOutputStream(file);
+		fout.write(tag);
+		for (int i = 0; i < 3; i++) fout.write(frame);
+		fout.close();
+		FileChannelSource src = new FileChannelSource(file);
+		Bitstream bitstream = new Bitstream(src);
+		try
+		{
+			InputStream id3in = bitstream.getRawID3v2();
+			assertEquals("ID3v2Size", tag.length, id3in.available());
+			byte[] raw = new byte[tag.length];
+			assertEquals("read length", tag.length, id3in.read(raw));
+			for (int i = 0; i < tag.length; i++)
+			{
+				if (raw[i] != tag[i]) fail("wrong tag byte at " + i);
+			}
+			Header header = bitstream.readFrame();
+			assertNotNull("first frame", header);
+			assertEquals("layer", 2, header.layer());
+		}
+		finally
+		{
+			bitstream.close();
+			src.close();
+			file.delete();
+		}
+	}
 }
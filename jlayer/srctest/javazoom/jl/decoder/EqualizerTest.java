@@ -0,0 +1,104 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import junit.framework.TestCase;
+
+/**
+ * Equalizer unit test.
+ * Checks that the version only changes when a band really changes,
+ * and that the factors written to an existing array are the same
+ * as the ones of a new array.
+ */
+public class EqualizerTest extends TestCase
+{
+	/**
+	 * Constructor for EqualizerTest.
+	 * @param arg0
+	 */
+	public EqualizerTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testSetBand()
+	{
+		Equalizer eq = new Equalizer();
+		int version = eq.getVersion();
+		eq.setBand(3, 0.0f);
+		assertEquals("same value", version, eq.getVersion());
+		eq.setBand(3, 0.5f);
+		assertTrue("changed band", version != eq.getVersion());
+		version = eq.getVersion();
+		eq.setBand(3, 0.5f);
+		assertEquals("same value again", version, eq.getVersion());
+		eq.setBand(40, 0.5f);
+		assertEquals("band out of range", version, eq.getVersion());
+		// limited to 1.0
+		eq.setBand(4, 2.0f);
+		version = eq.getVersion();
+		eq.setBand(4, 3.0f);
+		assertEquals("limited value", version, eq.getVersion());
+		assertEquals(1.0f, eq.getBand(4), 0.0f);
+	}
+
+	public void testSetFrom()
+	{
+		float[] values = new float[32];
+		for (int i = 0; i < values.length; i++)
+			values[i] = (i - 16) / 16.0f;
+		Equalizer eq = new Equalizer(values);
+		int version = eq.getVersion();
+		eq.setFrom(values);
+		assertEquals("same values", version, eq.getVersion());
+		Equalizer copy = new Equalizer();
+		copy.setFrom(eq);
+		version = copy.getVersion();
+		copy.setFrom(eq);
+		assertEquals("same equalizer", version, copy.getVersion());
+		// missing bands are reset
+		eq.setFrom(new float[] { values[0], values[1] });
+		assertTrue("shorter array", version != eq.getVersion());
+		assertEquals(values[1], eq.getBand(1), 0.0f);
+		assertEquals(0.0f, eq.getBand(31), 0.0f);
+		version = eq.getVersion();
+		eq.reset();
+		assertTrue("reset", version != eq.getVersion());
+		version = eq.getVersion();
+		eq.reset();
+		assertEquals("reset again", version, eq.getVersion());
+	}
+
+	public void testBandFactors()
+	{
+		Equalizer eq = new Equalizer();
+		eq.setBand(0, -1.0f);
+		eq.setBand(1, 1.0f);
+		eq.setBand(2, Equalizer.BAND_NOT_PRESENT);
+		float[] factors = new float[32];
+		eq.getBandFactors(factors);
+		float[] expected = eq.getBandFactors();
+		for (int i = 0; i < 32; i++)
+			assertEquals("band " + i, expected[i], factors[i], 0.0f);
+		assertEquals(0.5f, factors[0], 0.0f);
+		assertEquals(2.0f, factors[1], 0.0f);
+		assertEquals(0.0f, factors[2], 0.0f);
+		assertEquals(1.0f, factors[3], 0.0f);
+	}
+}
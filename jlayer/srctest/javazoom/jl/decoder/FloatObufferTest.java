@@ -0,0 +1,122 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * FloatObuffer unit test.
+ * Decodes the same generated stream into a SampleBuffer and
+ * into a FloatObuffer, and checks that the floats quantize to the
+ * 16 bit samples.
+ */
+public class FloatObufferTest extends TestCase
+{
+	// MPEG-1 Layer II, 192 kbit/s, 48 kHz, single channel.
+	private static final int LAYER2_HEADER = 0xFFFDA4C0;
+	private static final int FRAMESIZE = 576;
+	private static final int FRAMES = 50;
+
+	private byte[] data = null;
+
+	/**
+	 * Constructor for FloatObufferTest.
+	 * @param arg0
+	 */
+	public FloatObufferTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Random random = new Random(0x464C54L);
+		data = new byte[FRAMES * FRAMESIZE];
+		random.nextBytes(data);
+		for (int i = 0; i < data.length; i += FRAMESIZE)
+		{
+			data[i] = (byte) (LAYER2_HEADER >>> 24);
+			data[i + 1] = (byte) (LAYER2_HEADER >>> 16);
+			data[i + 2] = (byte) (LAYER2_HEADER >>> 8);
+			data[i + 3] = (byte) LAYER2_HEADER;
+		}
+	}
+
+	public void testAppendSamples()
+	{
+		FloatObuffer buffer = new FloatObuffer(44100, 2);
+		float[] samples = new float[32];
+		for (int i = 0; i < 32; i++)
+			samples[i] = (i - 16) * 4096.0f;
+		buffer.appendSamples(0, samples);
+		buffer.appendSamples(1, samples);
+		buffer.append(1, (short) -32768);
+		assertEquals(32, buffer.getBufferLength());
+		assertEquals(-2.0f, buffer.getBuffer()[0][0], 0.0f);
+		assertEquals(1.875f, buffer.getBuffer()[1][31], 0.0f);
+		assertEquals(-1.0f, buffer.getBuffer()[1][32], 0.0f);
+		buffer.clear_buffer();
+		assertEquals(0, buffer.getBufferLength());
+	}
+
+	public void testDecode() throws Exception
+	{
+		Bitstream shorts = new Bitstream(new ByteArrayInputStream(data));
+		Bitstream floats = new Bitstream(new ByteArrayInputStream(data));
+		Decoder shortDecoder = new Decoder();
+		Decoder floatDecoder = new Decoder();
+		FloatObuffer output = new FloatObuffer(48000, 1);
+		floatDecoder.setOutputBuffer(output);
+		int frames = 0;
+		Header header;
+		while ((header = shorts.readFrame()) != null)
+		{
+			SampleBuffer expected = (SampleBuffer) shortDecoder.decodeFrame(header, shorts);
+			shorts.closeFrame();
+			assertSame(output, floatDecoder.decodeFrame(floats.readFrame(), floats));
+			floats.closeFrame();
+
+			assertEquals(expected.getBufferLength(), output.getBufferLength());
+			short[] pcm = expected.getBuffer();
+			for (int i = 0; i < output.getBufferLength(); i++)
+			{
+				assertEquals("frame " + frames + " sample " + i, pcm[i], quantize(output.getBuffer()[0][i]));
+			}
+			frames++;
+		}
+		assertEquals(FRAMES, frames);
+	}
+
+	/**
+	 * Same rounding and clipping as SampleBuffer.
+	 */
+	private static short quantize(float sample)
+	{
+		float fs = sample * 32768.0f;
+		fs = (fs > 32767.0f ? 32767.0f : (fs < -32767.0f ? -32767.0f : fs));
+		return (short) fs;
+	}
+}
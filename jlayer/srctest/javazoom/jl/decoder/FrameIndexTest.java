@@ -0,0 +1,211 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * FrameIndex unit test.
+ * Indexes a generated file with junk between some frames, and
+ * checks the offsets and the frames reached by seeking against
+ * a plain frame by frame read of the same file.
+ */
+public class FrameIndexTest extends TestCase
+{
+	// MPEG-1 Layer II, 192 kbit/s, 48 kHz, single channel.
+	private static final int LAYER2_HEADER = 0xFFFDA4C0;
+	private static final int FRAMESIZE = 576;
+	private static final int FRAMES = 500;
+
+	private File file = null;
+	private long[] expected = null;
+	private int[] headers = null;
+
+	/**
+	 * Constructor for FrameIndexTest.
+	 * @param arg0
+	 */
+	public FrameIndexTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Random random = new Random(0x494458L);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] tag = new byte[110];
+		tag[0] = 'I'; tag[1] = 'D'; tag[2] = '3';
+		tag[9] = 100;
+		out.write(tag);
+		for (int i = 0; i < FRAMES; i++)
+		{
+			byte[] frame = new byte[FRAMESIZE];
+			random.nextBytes(frame);
+			frame[0] = (byte) (LAYER2_HEADER >>> 24);
+			frame[1] = (byte) (LAYER2_HEADER >>> 16);
+			frame[2] = (byte) (LAYER2_HEADER >>> 8);
+			frame[3] = (byte) LAYER2_HEADER;
+			out.write(frame);
+			if (i % 40 == 11)
+			{
+				out.write(new byte[1 + random.nextInt(100)]);
+			}
+		}
+		file = File.createTempFile("frameindextest", ".mp2");
+		FileOutputStream fout = new FileOutputStream(file);
+		fout.write(out.toByteArray());
+		fout.close();
+
+		// Reference positions, read frame by frame.
+		Bitstream stream = new Bitstream(new FileInputStream(file));
+		long[] offsets = new long[FRAMES];
+		int[] syncs = new int[FRAMES];
+		int frames = 0;
+		Header header;
+		while ((header = stream.readFrame()) != null)
+		{
+			offsets[frames] = stream.frame_pos();
+			syncs[frames] = header.getSyncHeader();
+			stream.closeFrame();
+			frames++;
+		}
+		stream.close();
+		expected = new long[frames];
+		headers = new int[frames];
+		System.arraycopy(offsets, 0, expected, 0, frames);
+		System.arraycopy(syncs, 0, headers, 0, frames);
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		FrameIndex.getSidecar(file).delete();
+		file.delete();
+	}
+
+	public void testOffsets() throws Exception
+	{
+		assertEquals(110, expected[0]);
+		assertEquals(110 + FRAMESIZE, expected[1]);
+		FrameIndex index = FrameIndex.build(file, 1);
+		assertEquals(expected.length, index.getFrameCount());
+		assertEquals(file.length(), index.getLength());
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals("frame " + i, expected[i], index.getOffset(i));
+			assertEquals(i, index.getFrameAt(expected[i]));
+			assertEquals(i, index.getFrameAt(expected[i] + FRAMESIZE - 1));
+		}
+		assertEquals(0, index.getFrameAt(0));
+		assertEquals(index.getFrameCount(), index.getFrameAt(file.length()));
+	}
+
+	public void testSeekSeekableSource() throws Exception
+	{
+		int[] steps = {1, 7, 64};
+		for (int s = 0; s < steps.length; s++)
+		{
+			FrameIndex index = FrameIndex.build(file, steps[s]);
+			Bitstream stream = new Bitstream(new FileChannelSource(file));
+			Random random = new Random(steps[s]);
+			for (int i = 0; i < 200; i++)
+			{
+				int frame = random.nextInt(expected.length);
+				assertTrue(index.seek(stream, frame));
+				assertFrame(stream, frame);
+			}
+			assertTrue(index.seek(stream, expected.length));
+			assertNull(stream.readFrame());
+			stream.close();
+		}
+	}
+
+	public void testSeekInputStream() throws Exception
+	{
+		FrameIndex index = FrameIndex.build(file, 5);
+		Bitstream stream = new Bitstream(new FileInputStream(file));
+		assertFalse(stream.isSeekable());
+		int frame = 0;
+		for (int i = 0; i < 40; i++)
+		{
+			// far enough for the indexed frame to be ahead
+			frame += index.getStep() + i;
+			if (frame >= expected.length) break;
+			assertTrue(index.seek(stream, frame));
+			assertFrame(stream, frame);
+		}
+		// an input stream cannot go back
+		long pos = stream.stream_pos();
+		assertFalse(index.seek(stream, 0));
+		assertEquals(pos, stream.stream_pos());
+		stream.close();
+	}
+
+	public void testSaveLoad() throws Exception
+	{
+		FrameIndex index = FrameIndex.build(file, 3);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		index.save(out);
+		FrameIndex loaded = FrameIndex.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(index.getFrameCount(), loaded.getFrameCount());
+		assertEquals(index.getStep(), loaded.getStep());
+		assertEquals(index.getLength(), loaded.getLength());
+		assertEquals(index.getMsPerFrame(), loaded.getMsPerFrame(), 0f);
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(index.getOffset(index.getIndexedFrame(i)), loaded.getOffset(loaded.getIndexedFrame(i)));
+	}
+
+	public void testSidecar() throws Exception
+	{
+		assertNull(FrameIndex.loadSidecar(file));
+		FrameIndex.createSidecar(file, FrameIndex.DEFAULT_STEP);
+		FrameIndex loaded = FrameIndex.loadSidecar(file);
+		assertNotNull(loaded);
+		assertEquals(expected.length, loaded.getFrameCount());
+		// a changed file makes the index stale
+		FileOutputStream fout = new FileOutputStream(file, true);
+		fout.write(new byte[FRAMESIZE]);
+		fout.close();
+		assertNull(FrameIndex.loadSidecar(file));
+	}
+
+	private void assertFrame(Bitstream stream, int frame) throws Exception
+	{
+		Header header = stream.readFrame();
+		assertNotNull("frame " + frame, header);
+		assertEquals("frame " + frame, expected[frame], stream.frame_pos());
+		assertEquals(headers[frame], header.getSyncHeader());
+		stream.closeFrame();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+/**
+ * The alias reduction and the hybrid filterbank of the Layer 3 decoder
+ * run over all the subbands, as LayerIIIDecoder computed them before it
+ * stopped at the last non zero subband. LayerIIIDecoderTest and
+ * HybridBenchmark compare the two.
+ */
+final class FullBandHybrid
+{
+	private final LayerIIIDecoder decoder;
+	private final float[] tsOutCopy = new float[18];
+	private final float[] rawout = new float[36];
+
+	/**
+	 * @param decoder	The decoder whose inv_mdct() is used.
+	 */
+	FullBandHybrid(LayerIIIDecoder decoder)
+	{
+		this.decoder = decoder;
+	}
+
+	static void antialias(float[] x, LayerIIIDecoder.gr_info_s gr_info)
+	{
+		if ((gr_info.window_switching_flag != 0) && (gr_info.block_type == 2) &&
+			(gr_info.mixed_block_flag == 0))
+			return;
+		int sb18lim = ((gr_info.window_switching_flag != 0) && (gr_info.mixed_block_flag != 0) &&
+			(gr_info.block_type == 2)) ? 18 : 558;
+		for (int sb18 = 0; sb18 < sb18lim; sb18 += 18)
+		{
+			for (int ss = 0; ss < 8; ss++)
+			{
+				int src_idx1 = sb18 + 17 - ss;
+				int src_idx2 = sb18 + 18 + ss;
+				float bu = x[src_idx1];
+				float bd = x[src_idx2];
+				x[src_idx1] = (bu * LayerIIIDecoder.cs[ss]) - (bd * LayerIIIDecoder.ca[ss]);
+				x[src_idx2] = (bd * LayerIIIDecoder.cs[ss]) + (bu * LayerIIIDecoder.ca[ss]);
+			}
+		}
+	}
+
+	void hybrid(float[] tsOut, float[] prvblk, LayerIIIDecoder.gr_info_s gr_info)
+	{
+		for (int sb18 = 0; sb18 < 576; sb18 += 18)
+		{
+			int bt = ((gr_info.window_switching_flag != 0) && (gr_info.mixed_block_flag != 0) &&
+				(sb18 < 36)) ? 0 : gr_info.block_type;
+			System.arraycopy(tsOut, sb18, tsOutCopy, 0, 18);
+			decoder.inv_mdct(tsOutCopy, rawout, bt);
+			// overlap addition
+			for (int cc = 0; cc < 18; cc++)
+			{
+				tsOut[sb18 + cc] = rawout[cc] + prvblk[sb18 + cc];
+				prvblk[sb18 + cc] = rawout[18 + cc];
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the Huffman tree decoder with the lookup table decoder
+ * by decoding the same random main data with each of them, for every
+ * table that reads bits. Random bits select each code with the
+ * probability the code was built for. The decoded values of both
+ * passes must be identical.
+ * <p>
+ * Usage : java javazoom.jl.decoder.HuffmanBenchmark [passes]
+ */
+public class HuffmanBenchmark
+{
+	private static final int BYTES = 4096;
+
+	public static void main(String[] args) throws Exception
+	{
+		int passes = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		huffcodetab.inithuff();
+		byte[] data = new byte[BYTES];
+		new Random(0x48554646L).nextBytes(data);
+
+		// warm up both paths
+		for (int i = 0; i < 20; i++)
+		{
+			decode(data, false);
+			decode(data, true);
+		}
+		long[] tree = new long[passes];
+		long[] lookup = new long[passes];
+		for (int i = 0; i < passes; i++)
+		{
+			long start = System.nanoTime();
+			long tsum = decode(data, false);
+			tree[i] = System.nanoTime() - start;
+			start = System.nanoTime();
+			long lsum = decode(data, true);
+			lookup[i] = System.nanoTime() - start;
+			if (tsum != lsum)
+				throw new IllegalStateException("decoded values differ");
+		}
+		System.out.println("tree   : " + median(tree) / 1000 + " us/pass");
+		System.out.println("lookup : " + median(lookup) / 1000 + " us/pass");
+	}
+
+	/**
+	 * Decodes the data with every table and returns a checksum of the values.
+	 */
+	private static long decode(byte[] data, boolean useLookup)
+	{
+		int[] x = {0}, y = {0}, v = {0}, w = {0};
+		long sum = 0;
+		for (int table = 0; table < huffcodetab.ht.length; table++)
+		{
+			// tables 0, 4 and 14 read no bits
+			if (table == 0 || table == 4 || table == 14)
+				continue;
+			huffcodetab h = huffcodetab.ht[table];
+			BitReserve br = new BitReserve();
+			for (int i = 0; i < data.length; i++)
+				br.hputbuf(data[i] & 0xff);
+			// stay clear of the end of the written data
+			while (br.hsstell() < (BYTES - 96) * 8)
+			{
+				if (useLookup)
+					huffcodetab.huffman_decoder(h, x, y, v, w, br);
+				else
+					huffcodetab.huffman_tree_decoder(h, x, y, v, w, br);
+				sum = sum * 31 + (x[0] << 12 | y[0] << 8 | v[0] << 4 | w[0]);
+			}
+		}
+		return sum;
+	}
+
+	private static long median(long[] times)
+	{
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
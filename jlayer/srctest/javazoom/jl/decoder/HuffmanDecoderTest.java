@@ -0,0 +1,90 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Huffman decoder unit test.
+ * Decodes the same random main data with the lookup tables and by
+ * walking the decoder trees, for every table, and checks that values,
+ * signs and consumed bits are identical.
+ */
+public class HuffmanDecoderTest extends TestCase
+{
+	private static final long SEED = 0x48554646L;
+
+	/**
+	 * Constructor for HuffmanDecoderTest.
+	 * @param arg0
+	 */
+	public HuffmanDecoderTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		huffcodetab.inithuff();
+	}
+
+	public void testAllTables()
+	{
+		Random random = new Random(SEED);
+		int[] x1 = {0}, y1 = {0}, v1 = {0}, w1 = {0};
+		int[] x2 = {0}, y2 = {0}, v2 = {0}, w2 = {0};
+		for (int table = 0; table < huffcodetab.ht.length; table++)
+		{
+			huffcodetab h = huffcodetab.ht[table];
+			// tables 0, 4 and 14 read no bits
+			if (table == 0 || table == 4 || table == 14)
+				continue;
+			for (int round = 0; round < 20; round++)
+			{
+				BitReserve tree = new BitReserve();
+				BitReserve lookup = new BitReserve();
+				for (int i = 0; i < 4096; i++)
+				{
+					int b = random.nextInt(256);
+					tree.hputbuf(b);
+					lookup.hputbuf(b);
+				}
+				// stay clear of the end of the written data
+				while (tree.hsstell() < 4000 * 8)
+				{
+					int e1 = huffcodetab.huffman_tree_decoder(h, x1, y1, v1, w1, tree);
+					int e2 = huffcodetab.huffman_decoder(h, x2, y2, v2, w2, lookup);
+					String at = "table " + table + " bit " + tree.hsstell();
+					assertEquals(at, e1, e2);
+					assertEquals(at, x1[0], x2[0]);
+					assertEquals(at, y1[0], y2[0]);
+					assertEquals(at, v1[0], v2[0]);
+					assertEquals(at, w1[0], w2[0]);
+					assertEquals(at, tree.hsstell(), lookup.hsstell());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the Layer III alias reduction and hybrid filterbank run over
+ * all the subbands by FullBandHybrid with the ones of LayerIIIDecoder
+ * limited to the non zero subbands, on random long block granules
+ * holding values in the given number of subbands.
+ * The output of both passes must be identical.
+ * <p>
+ * Usage : java javazoom.jl.decoder.HybridBenchmark [subbands] [granules] [passes]
+ */
+public class HybridBenchmark
+{
+	public static void main(String[] args) throws Exception
+	{
+		int subbands = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int count = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		float[][] granules = new float[count][576];
+		Random random = new Random(0x4c33L);
+		for (int g = 0; g < count; g++)
+		{
+			for (int i = 0; i < subbands * 18; i++)
+				granules[g][i] = (float) random.nextGaussian();
+		}
+		LayerIIIDecoder decoder = LayerIIIDecoderTest.createDecoder();
+
+		// warm up both paths
+		for (int i = 0; i < 5; i++)
+		{
+			run(decoder, granules, false);
+			run(decoder, granules, true);
+		}
+		long[] all = new long[passes];
+		long[] limited = new long[passes];
+		for (int i = 0; i < passes; i++)
+		{
+			long start = System.nanoTime();
+			long asum = run(decoder, granules, false);
+			all[i] = System.nanoTime() - start;
+			start = System.nanoTime();
+			long lsum = run(decoder, granules, true);
+			limited[i] = System.nanoTime() - start;
+			if (asum != lsum)
+				throw new IllegalStateException("output differs");
+		}
+		System.out.println("all subbands : " + median(all) / 1000 + " us/pass");
+		System.out.println("non zero     : " + median(limited) / 1000 + " us/pass");
+	}
+
+	/**
+	 * Filters all the granules and returns a checksum of the output.
+	 */
+	private static long run(LayerIIIDecoder decoder, float[][] granules, boolean useBandLimit)
+	{
+		FullBandHybrid reference = new FullBandHybrid(decoder);
+		LayerIIIDecoder.gr_info_s gr_info = new LayerIIIDecoder.gr_info_s();
+		float[] x = new float[576];
+		float[] prvblk = new float[576];
+		long sum = 0;
+		for (int g = 0; g < granules.length; g++)
+		{
+			System.arraycopy(granules[g], 0, x, 0, 576);
+			if (useBandLimit)
+			{
+				decoder.antialias(x, gr_info);
+				decoder.hybrid(x, prvblk, gr_info);
+			}
+			else
+			{
+				FullBandHybrid.antialias(x, gr_info);
+				reference.hybrid(x, prvblk, gr_info);
+			}
+			// the sign of a zero may differ
+			for (int i = 0; i < 576; i++)
+				sum = sum * 31 + Float.floatToIntBits(x[i] + 0.0f);
+		}
+		return sum;
+	}
+
+	private static long median(long[] times)
+	{
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
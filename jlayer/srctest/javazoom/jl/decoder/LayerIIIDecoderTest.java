@@ -0,0 +1,155 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * LayerIIIDecoder unit test.
+ * Runs random granules whose subbands above a random one hold only
+ * zeros through the alias reduction and the hybrid filterbank, and
+ * checks that limiting them to the non zero subbands leaves the
+ * samples the same as FullBandHybrid computes them.
+ */
+public class LayerIIIDecoderTest extends TestCase
+{
+	// MPEG-1 Layer III, 128 kbit/s, 44.1 kHz, single channel.
+	private static final int LAYER3_HEADER = 0xFFFB90C0;
+	private static final int FRAMESIZE = 417;
+	private static final int GRANULES = 500;
+
+	private LayerIIIDecoder decoder = null;
+	private Random random = null;
+
+	/**
+	 * Constructor for LayerIIIDecoderTest.
+	 * @param arg0
+	 */
+	public LayerIIIDecoderTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		decoder = createDecoder();
+		random = new Random(0x4c33L);
+	}
+
+	public void testLongBlocks()
+	{
+		compare(0);
+	}
+
+	public void testSwitchedBlocks()
+	{
+		compare(2);
+	}
+
+	public void testSilentGranules()
+	{
+		// all the subbands hold zeros, only the previous granule is left
+		FullBandHybrid reference = new FullBandHybrid(decoder);
+		float[] expectedPrev = new float[576];
+		float[] actualPrev = new float[576];
+		for (int i = 0; i < 576; i++)
+			expectedPrev[i] = actualPrev[i] = random.nextFloat() - 0.5f;
+		LayerIIIDecoder.gr_info_s gr_info = new LayerIIIDecoder.gr_info_s();
+		for (int g = 0; g < 3; g++)
+		{
+			float[] expected = new float[576];
+			float[] actual = new float[576];
+			FullBandHybrid.antialias(expected, gr_info);
+			reference.hybrid(expected, expectedPrev, gr_info);
+			decoder.antialias(actual, gr_info);
+			decoder.hybrid(actual, actualPrev, gr_info);
+			assertSame("granule " + g, expected, actual);
+			assertSame("granule " + g + " saved", expectedPrev, actualPrev);
+		}
+	}
+
+	/**
+	 * @param switched	One granule in every <code>switched</code> uses
+	 * 					switched blocks, 0 for long blocks only.
+	 */
+	private void compare(int switched)
+	{
+		FullBandHybrid reference = new FullBandHybrid(decoder);
+		float[] expectedPrev = new float[576];
+		float[] actualPrev = new float[576];
+		for (int g = 0; g < GRANULES; g++)
+		{
+			LayerIIIDecoder.gr_info_s gr_info = new LayerIIIDecoder.gr_info_s();
+			if ((switched > 0) && (random.nextInt(switched) == 0))
+			{
+				gr_info.window_switching_flag = 1;
+				gr_info.block_type = 1 + random.nextInt(3);
+				gr_info.mixed_block_flag = ((gr_info.block_type == 2) && random.nextBoolean()) ? 1 : 0;
+			}
+			float[] expected = granule(random.nextInt(33));
+			float[] actual = expected.clone();
+			FullBandHybrid.antialias(expected, gr_info);
+			reference.hybrid(expected, expectedPrev, gr_info);
+			decoder.antialias(actual, gr_info);
+			decoder.hybrid(actual, actualPrev, gr_info);
+			assertSame("granule " + g, expected, actual);
+			assertSame("granule " + g + " saved", expectedPrev, actualPrev);
+		}
+	}
+
+	/**
+	 * Returns a granule with random values in the first subbands.
+	 */
+	private float[] granule(int subbands)
+	{
+		float[] x = new float[576];
+		for (int i = 0; i < subbands * 18; i++)
+			x[i] = (random.nextInt(4) == 0) ? 0.0f : (float) random.nextGaussian();
+		return x;
+	}
+
+	private static void assertSame(String message, float[] expected, float[] actual)
+	{
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(message + " sample " + i, expected[i], actual[i], 0.0f);
+	}
+
+	/**
+	 * Creates a decoder for single channel MPEG-1 Layer III frames.
+	 */
+	static LayerIIIDecoder createDecoder() throws Exception
+	{
+		byte[] frame = new byte[FRAMESIZE];
+		frame[0] = (byte) (LAYER3_HEADER >>> 24);
+		frame[1] = (byte) (LAYER3_HEADER >>> 16);
+		frame[2] = (byte) (LAYER3_HEADER >>> 8);
+		frame[3] = (byte) LAYER3_HEADER;
+		Bitstream stream = new Bitstream(new ByteArrayInputStream(frame));
+		Header header = stream.readFrame();
+		return new LayerIIIDecoder(stream, header, new SynthesisFilter(0, 32700.0f, null), null,
+			new FloatObuffer(44100, 1), OutputChannels.BOTH_CHANNELS);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Source unit test.
+ * Decodes a generated file through an InputStream and through
+ * each Source implementation, and checks that the frames, the
+ * PCM output and the ID3v2 tag are identical. Junk between the
+ * frames exercises resynchronization.
+ */
+public class SourceTest extends TestCase
+{
+	// MPEG-1 Layer II, 192 kbit/s, 48 kHz, single channel.
+	private static final int LAYER2_HEADER = 0xFFFDA4C0;
+	private static final int FRAMESIZE = 576;
+	private static final int FRAMES = 300;
+
+	private File file = null;
+
+	/**
+	 * Constructor for SourceTest.
+	 * @param arg0
+	 */
+	public SourceTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Random random = new Random(0x534f55L);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// ID3v2 tag with 200 bytes of frames
+		byte[] tag = new byte[210];
+		random.nextBytes(tag);
+		tag[0] = 'I'; tag[1] = 'D'; tag[2] = '3';
+		tag[6] = 0; tag[7] = 0; tag[8] = 1; tag[9] = 72;
+		out.write(tag);
+		for (int i = 0; i < FRAMES; i++)
+		{
+			byte[] frame = new byte[FRAMESIZE];
+			random.nextBytes(frame);
+			frame[0] = (byte) (LAYER2_HEADER >>> 24);
+			frame[1] = (byte) (LAYER2_HEADER >>> 16);
+			frame[2] = (byte) (LAYER2_HEADER >>> 8);
+			frame[3] = (byte) LAYER2_HEADER;
+			out.write(frame);
+			if (i % 50 == 7)
+			{
+				byte[] junk = new byte[1 + random.nextInt(100)];
+				out.write(junk);
+			}
+		}
+		file = File.createTempFile("sourcetest", ".mp2");
+		FileOutputStream fout = new FileOutputStream(file);
+		fout.write(out.toByteArray());
+		fout.close();
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		file.delete();
+	}
+
+	public void testMappedFileSource() throws Exception
+	{
+		assertSameDecoding(new Bitstream(new MappedFileSource(file)));
+	}
+
+	public void testFileChannelSource() throws Exception
+	{
+		assertSameDecoding(new Bitstream(new FileChannelSource(file)));
+	}
+
+	public void testInputStreamSource() throws Exception
+	{
+		assertSameDecoding(new Bitstream(new InputStreamSource(new FileInputStream(file))));
+	}
+
+	public void testSeek() throws Exception
+	{
+		FileChannelSource channel = new FileChannelSource(file);
+		MappedFileSource mapped = new MappedFileSource(file);
+		assertEquals(file.length(), channel.length());
+		assertEquals(file.length(), mapped.length());
+		byte[] b1 = new byte[1000];
+		byte[] b2 = new byte[1000];
+		long[] positions = {0, 70000, 65536, 65535, 100, file.length() - 10, 3};
+		for (int i = 0; i < positions.length; i++)
+		{
+			assertEquals(positions[i], channel.seek(positions[i]));
+			assertEquals(positions[i], mapped.seek(positions[i]));
+			int read = channel.read(b1, 0, b1.length);
+			assertEquals(read, mapped.read(b2, 0, read));
+			for (int k = 0; k < read; k++)
+				assertEquals(b2[k], b1[k]);
+			assertEquals(positions[i] + read, channel.tell());
+			assertEquals(positions[i] + read, mapped.tell());
+		}
+		channel.seek(file.length());
+		mapped.seek(file.length());
+		assertEquals(-1, channel.read(b1, 0, b1.length));
+		assertEquals(-1, mapped.read(b2, 0, b2.length));
+		channel.close();
+		mapped.close();
+	}
+
+	private void assertSameDecoding(Bitstream actual) throws Exception
+	{
+		Bitstream expected = new Bitstream(new FileInputStream(file));
+		assertEquals("header_pos", expected.header_pos(), actual.header_pos());
+		assertEquals("ID3v2", checksum(expected.getRawID3v2()), checksum(actual.getRawID3v2()));
+		Decoder expectedDecoder = new Decoder();
+		Decoder actualDecoder = new Decoder();
+		int frames = 0;
+		while (true)
+		{
+			Header h1 = expected.readFrame();
+			Header h2 = actual.readFrame();
+			if (h1 == null)
+			{
+				assertNull(h2);
+				break;
+			}
+			assertNotNull(h2);
+			assertEquals(h1.getSyncHeader(), h2.getSyncHeader());
+			assertEquals(checksum(expectedDecoder.decodeFrame(h1, expected)),
+					checksum(actualDecoder.decodeFrame(h2, actual)));
+			expected.closeFrame();
+			actual.closeFrame();
+			frames++;
+		}
+		// frames next to junk may be lost on both paths
+		assertTrue(frames > FRAMES - 10);
+		expected.close();
+		actual.close();
+	}
+
+	private static long checksum(Obuffer output)
+	{
+		SampleBuffer buffer = (SampleBuffer) output;
+		long sum = 0;
+		for (int i = 0; i < buffer.getBufferLength(); i++)
+			sum = sum * 31 + buffer.getBuffer()[i];
+		return sum;
+	}
+
+	private static long checksum(InputStream in) throws Exception
+	{
+		if (in == null)
+			return -1;
+		long sum = 0;
+		int b;
+		while ((b = in.read()) != -1)
+			sum = sum * 31 + b;
+		return sum;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Layer I and II allocation regression test.
+ * Decodes generated MPEG-1 frames and checks that the steady state
+ * decode loop does not allocate per frame, e.g. new Subband objects.
+ */
+public class SubbandAllocationTest extends TestCase
+{
+	private static final int WARMUP_FRAMES = 2000;
+	private static final int MEASURED_FRAMES = 2000;
+	/**
+	 * Tolerance for allocations unrelated to the decoder.
+	 * One set of subbands per frame would exceed it many times.
+	 */
+	private static final long MAX_ALLOCATED_BYTES = 16 * 1024;
+
+	// 48 kHz, no CRC, no padding.
+	private static final int LAYER1_256K = 0xFFFF8400;
+	private static final int LAYER2_192K = 0xFFFDA400;
+	private static final int MODE_STEREO = 0x00;
+	private static final int MODE_JOINT_STEREO = 0x40;
+	private static final int MODE_SINGLE_CHANNEL = 0xC0;
+
+	private com.sun.management.ThreadMXBean threads = null;
+	private Random random = null;
+
+	/**
+	 * Constructor for SubbandAllocationTest.
+	 * @param arg0
+	 */
+	public SubbandAllocationTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		random = new Random(0x4d5032L);
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+		{
+			threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!threads.isThreadAllocatedMemorySupported())
+				threads = null;
+			else
+				threads.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	public void testLayer1Stereo() throws Exception
+	{
+		assertSteadyState(frames(LAYER1_256K | MODE_STEREO, 256, true));
+	}
+
+	public void testLayer1JointStereo() throws Exception
+	{
+		assertSteadyState(frames(LAYER1_256K | MODE_JOINT_STEREO, 256, true));
+	}
+
+	public void testLayer2SingleChannel() throws Exception
+	{
+		assertSteadyState(frames(LAYER2_192K | MODE_SINGLE_CHANNEL, 576, true));
+	}
+
+	public void testLayer2Stereo() throws Exception
+	{
+		assertSteadyState(frames(LAYER2_192K | MODE_STEREO, 576, false));
+	}
+
+	public void testLayer2JointStereo() throws Exception
+	{
+		assertSteadyState(frames(LAYER2_192K | MODE_JOINT_STEREO, 576, false));
+	}
+
+	private void assertSteadyState(byte[] frame) throws Exception
+	{
+		if (threads == null)
+			return;
+		long id = Thread.currentThread().getId();
+		Bitstream stream = new Bitstream(new RepeatingInputStream(frame));
+		Decoder decoder = new Decoder();
+		decode(decoder, stream, WARMUP_FRAMES);
+		long before = threads.getThreadAllocatedBytes(id);
+		decode(decoder, stream, MEASURED_FRAMES);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		assertTrue(allocated + " bytes allocated for " + MEASURED_FRAMES + " frames",
+				allocated < MAX_ALLOCATED_BYTES);
+	}
+
+	private static void decode(Decoder decoder, Bitstream stream, int count) throws Exception
+	{
+		for (int i = 0; i < count; i++)
+		{
+			Header header = stream.readFrame();
+			decoder.decodeFrame(header, stream);
+			stream.closeFrame();
+		}
+	}
+
+	/**
+	 * Builds one frame. Random sample data is only used where the
+	 * decoder accepts any bit pattern, other frames carry silence.
+	 */
+	private byte[] frames(int header, int framesize, boolean randomData)
+	{
+		byte[] frame = new byte[framesize];
+		if (randomData)
+		{
+			random.nextBytes(frame);
+			// 15 is an illegal layer I allocation
+			for (int i = 4; i < 4 + 32; i++)
+			{
+				if ((frame[i] & 0xf0) == 0xf0) frame[i] &= 0xef;
+				if ((frame[i] & 0x0f) == 0x0f) frame[i] &= 0xfe;
+			}
+		}
+		frame[0] = (byte) (header >>> 24);
+		frame[1] = (byte) (header >>> 16);
+		frame[2] = (byte) (header >>> 8);
+		frame[3] = (byte) header;
+		return frame;
+	}
+
+	/**
+	 * Endless stream repeating the same frame.
+	 */
+	private static final class RepeatingInputStream extends ByteArrayInputStream
+	{
+		RepeatingInputStream(byte[] frame)
+		{
+			super(frame);
+		}
+
+		public synchronized int read()
+		{
+			if (pos == count) pos = 0;
+			return super.read();
+		}
+
+		public synchronized int read(byte[] b, int off, int len)
+		{
+			if (pos == count) pos = 0;
+			return super.read(b, off, len);
+		}
+	}
+}
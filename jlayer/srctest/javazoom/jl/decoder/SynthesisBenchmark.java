@@ -0,0 +1,88 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the synthesis filter bank of SynthesisFilter on random
+ * subband samples, to float samples so that no clipping is timed.
+ * <p>
+ * Usage : java javazoom.jl.decoder.SynthesisBenchmark [slots] [passes]
+ */
+public class SynthesisBenchmark
+{
+	private static final float SCALEFACTOR = 32700.0f;
+
+	public static void main(String[] args) throws Exception
+	{
+		int slots = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		int passes = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		float[] samples = new float[slots * 32];
+		Random random = new Random(0x53594eL);
+		for (int i = 0; i < samples.length; i++)
+			samples[i] = random.nextFloat() * 2.0f - 1.0f;
+
+		// warm up
+		long checksum = 0;
+		for (int i = 0; i < 5; i++)
+			checksum = filter(samples);
+		long[] times = new long[passes];
+		for (int i = 0; i < passes; i++)
+		{
+			long start = System.nanoTime();
+			long sum = filter(samples);
+			times[i] = System.nanoTime() - start;
+			if (sum != checksum)
+				throw new IllegalStateException("PCM output differs");
+		}
+		long median = median(times);
+		System.out.println(median / 1000 + " us/pass, " + median / slots + " ns/slot");
+	}
+
+	/**
+	 * Filters all slots and returns a checksum of the PCM samples.
+	 */
+	private static long filter(float[] samples)
+	{
+		SynthesisFilter filter = new SynthesisFilter(0, SCALEFACTOR, null);
+		FloatObuffer output = new FloatObuffer(44100, 1);
+		float[] s = new float[32];
+		long sum = 0;
+		for (int slot = 0; slot < samples.length / 32; slot++)
+		{
+			System.arraycopy(samples, slot * 32, s, 0, 32);
+			filter.input_samples(s);
+			filter.calculate_pcm_samples(output);
+			float[] buffer = output.getBuffer()[0];
+			for (int i = 0; i < 32; i++)
+				sum = sum * 31 + Float.floatToIntBits(buffer[i]);
+			output.clear_buffer();
+		}
+		return sum;
+	}
+
+	private static long median(long[] times)
+	{
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
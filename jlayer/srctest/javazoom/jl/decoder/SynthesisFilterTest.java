@@ -0,0 +1,194 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.jl.decoder;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * SynthesisFilter unit test.
+ * Runs random subband samples through SynthesisFilter, and checks that
+ * the float output of every slot stays within the error bound of the
+ * windows over d[] computed the straightforward way from the V of the
+ * last 16 slots.
+ */
+public class SynthesisFilterTest extends TestCase
+{
+	private static final float SCALEFACTOR = 32700.0f;
+	// FloatObuffer scales the samples to [-1.0, 1.0].
+	private static final float OBUFFER_SCALE = 1.0f / 32768.0f;
+	// Both windows sum the same terms in the same order.
+	private static final float ERROR_BOUND = 0.0f;
+
+	private static float[] d = null;
+
+	private Random random = null;
+
+	/**
+	 * Constructor for SynthesisFilterTest.
+	 * @param arg0
+	 */
+	public SynthesisFilterTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		random = new Random(0x53594eL);
+		if (d == null)
+			d = (float[]) JavaLayerUtils.deserializeArrayResource("sfd.ser", Float.TYPE, 512);
+	}
+
+	public void testSlots()
+	{
+		compare(null, 1.0f, 5000);
+	}
+
+	public void testEqualizer()
+	{
+		float[] eq = new float[32];
+		for (int i = 0; i < 32; i++)
+			eq[i] = random.nextFloat() * 2.0f;
+		compare(eq, 1.0f, 5000);
+	}
+
+	public void testFlatEqualizer()
+	{
+		// a flat equalizer only scales, like a lower scalefactor
+		float[] eq = new float[32];
+		for (int i = 0; i < 32; i++)
+			eq[i] = 0.5f;
+		SynthesisFilter scaled = new SynthesisFilter(0, SCALEFACTOR * 0.5f, null);
+		SynthesisFilter flat = new SynthesisFilter(0, SCALEFACTOR, eq);
+		assertSameOutput(scaled, flat, 200, 0.0f);
+
+		// it only goes back to the subband samples when the bands differ
+		eq[5] = 2.0f;
+		SynthesisFilter banded = new SynthesisFilter(0, SCALEFACTOR, eq);
+		flat.reset();
+		flat.setEQ(eq);
+		eq[5] = 0.5f;
+		assertSameOutput(banded, flat, 200, 0.0f);
+		flat.reset();
+		flat.setEQ(eq);
+		scaled.reset();
+		assertSameOutput(scaled, flat, 200, 0.0f);
+	}
+
+	public void testClipping()
+	{
+		// out of range samples must not be clipped in the filter
+		compare(null, 8.0f, 1000);
+	}
+
+	public void testReset()
+	{
+		SynthesisFilter filter = new SynthesisFilter(0, SCALEFACTOR, null);
+		FloatObuffer first = new FloatObuffer(44100, 1);
+		FloatObuffer second = new FloatObuffer(44100, 1);
+		float[] s = new float[32];
+		for (int i = 0; i < 32; i++)
+			s[i] = random.nextFloat() - 0.5f;
+		filter.input_samples(s);
+		filter.calculate_pcm_samples(first);
+		for (int i = 0; i < 7; i++)
+		{
+			filter.input_samples(s);
+			filter.calculate_pcm_samples(second);
+		}
+		filter.reset();
+		second.clear_buffer();
+		filter.input_samples(s);
+		filter.calculate_pcm_samples(second);
+		for (int i = 0; i < 32; i++)
+			assertEquals(first.getBuffer()[0][i], second.getBuffer()[0][i], 0.0f);
+	}
+
+	private void assertSameOutput(SynthesisFilter expected, SynthesisFilter actual, int slots, float delta)
+	{
+		FloatObuffer expectedBuffer = new FloatObuffer(44100, 1);
+		FloatObuffer actualBuffer = new FloatObuffer(44100, 1);
+		float[] s = new float[32];
+		for (int slot = 0; slot < slots; slot++)
+		{
+			for (int i = 0; i < 32; i++)
+				s[i] = random.nextFloat() * 2.0f - 1.0f;
+			expected.input_samples(s);
+			actual.input_samples(s);
+			expected.calculate_pcm_samples(expectedBuffer);
+			actual.calculate_pcm_samples(actualBuffer);
+			for (int i = 0; i < 32; i++)
+			{
+				assertEquals("slot " + slot + " sample " + i,
+					expectedBuffer.getBuffer()[0][i], actualBuffer.getBuffer()[0][i], delta);
+			}
+			expectedBuffer.clear_buffer();
+			actualBuffer.clear_buffer();
+		}
+	}
+
+	private void compare(float[] eq, float range, int slots)
+	{
+		SynthesisFilter filter = new SynthesisFilter(0, SCALEFACTOR, eq);
+		FloatObuffer actual = new FloatObuffer(44100, 1);
+		// V of the last 16 slots, the newest first
+		float[][] v = new float[16][64];
+		float[] s = new float[32];
+		float[] expected = new float[32];
+		for (int slot = 0; slot < slots; slot++)
+		{
+			for (int i = 0; i < 32; i++)
+				s[i] = (random.nextFloat() * 2.0f - 1.0f) * range;
+			filter.input_samples(s);
+			filter.calculate_pcm_samples(actual);
+			float[] oldest = v[15];
+			System.arraycopy(v, 0, v, 1, 15);
+			v[0] = oldest;
+			filter.last_v(v[0]);
+			window(v, SCALEFACTOR, expected);
+			for (int i = 0; i < 32; i++)
+			{
+				assertEquals("slot " + slot + " sample " + i,
+					expected[i], actual.getBuffer()[0][i], ERROR_BOUND);
+			}
+			actual.clear_buffer();
+		}
+	}
+
+	/**
+	 * Sample i is the sum over the 16 slots k of d[16*i + k] times
+	 * V[i] of the even slots and V[32 + i] of the odd ones.
+	 */
+	private static void window(float[][] v, float scalefactor, float[] out)
+	{
+		for (int i = 0; i < 32; i++)
+		{
+			float sum = v[0][i] * d[16 * i];
+			for (int k = 1; k < 16; k++)
+				sum += v[k][32 * (k & 1) + i] * d[16 * i + k];
+			out[i] = (sum * scalefactor) * OBUFFER_SCALE;
+		}
+	}
+}
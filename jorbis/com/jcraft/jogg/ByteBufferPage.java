@@ -0,0 +1,108 @@
+/* -*-mode:java; c-basic-offset:2; indent-tabs-mode:nil -*- */
+/* JOrbis
+ * Copyright (C) 2000 ymnk, JCraft,Inc.
+ *  
+ * Written by: 2000 ymnk<ymnk@jcraft.com>
+ *   
+ * Many thanks to 
+ *   Monty <monty@xiph.org> and 
+ *   The XIPHOPHORUS Company http://www.xiph.org/ .
+ * JOrbis has been based on their awesome works, Vorbis codec.
+ *   
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public License
+ * as published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+   
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package com.jcraft.jogg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// A page found by ByteBufferSyncState.  Header and body are slices of
+// the buffer the page was found in; nothing is copied.
+
+public class ByteBufferPage{
+  public ByteBuffer header;
+  public ByteBuffer body;
+
+  void set(ByteBuffer data, int page, int header_len, int body_len){
+    ByteBuffer slice=data.duplicate();
+    slice.limit(page+header_len).position(page);
+    header=slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+    slice.limit(page+header_len+body_len).position(page+header_len);
+    body=slice.slice();
+  }
+
+  int version(){
+    return header.get(4)&0xff;
+  }
+
+  public int continued(){
+    return (header.get(5)&0x01);
+  }
+
+  public int bos(){
+    return (header.get(5)&0x02);
+  }
+
+  public int eos(){
+    return (header.get(5)&0x04);
+  }
+
+  public long granulepos(){
+    return header.getLong(6);
+  }
+
+  public int serialno(){
+    return header.getInt(14);
+  }
+
+  int pageno(){
+    return header.getInt(18);
+  }
+
+  int segments(){
+    return header.get(26)&0xff;
+  }
+
+  int lacing(int segment){
+    return header.get(27+segment)&0xff;
+  }
+
+  // Checksum of the page, computed with the checksum field read as
+  // zero so that a read only buffer can be checked in place.
+  static int checksum(ByteBuffer data, int page, int header_len, int body_len){
+    int[] crc_lookup=Page.crc_lookup;
+    int crc_reg=0;
+    int end=page+header_len+body_len;
+    for(int i=page; i<page+22; i++){
+      crc_reg=(crc_reg<<8)^crc_lookup[((crc_reg>>>24)&0xff)^(data.get(i)&0xff)];
+    }
+    for(int i=0; i<4; i++){
+      crc_reg=(crc_reg<<8)^crc_lookup[(crc_reg>>>24)&0xff];
+    }
+    for(int i=page+26; i<end; i++){
+      crc_reg=(crc_reg<<8)^crc_lookup[((crc_reg>>>24)&0xff)^(data.get(i)&0xff)];
+    }
+    return crc_reg;
+  }
+
+  public ByteBufferPage copy(){
+    ByteBufferPage p=new ByteBufferPage();
+    ByteBuffer tmp=ByteBuffer.allocate(header.capacity()+body.capacity());
+    tmp.put(header.duplicate()).put(body.duplicate());
+    p.set(tmp, 0, header.capacity(), body.capacity());
+    return p;
+  }
+}
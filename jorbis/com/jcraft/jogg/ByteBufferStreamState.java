@@ -0,0 +1,293 @@
+/* -*-mode:java; c-basic-offset:2; indent-tabs-mode:nil -*- */
+/* JOrbis
+ * Copyright (C) 2000 ymnk, JCraft,Inc.
+ *  
+ * Written by: 2000 ymnk<ymnk@jcraft.com>
+ *   
+ * Many thanks to 
+ *   Monty <monty@xiph.org> and 
+ *   The XIPHOPHORUS Company http://www.xiph.org/ .
+ * JOrbis has been based on their awesome works, Vorbis codec.
+ *   
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public License
+ * as published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+   
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package com.jcraft.jogg;
+
+import java.nio.ByteBuffer;
+
+// The packet layer matching ByteBufferSyncState.  The segment table
+// of each page points into the page body instead of copying the body
+// into a buffer of its own.  A packet that lies in one page of a heap
+// buffer is returned in place; only packets continued over several
+// pages, or read from a buffer without a backing array, are copied
+// once, into a buffer reused from packet to packet.  The data of a
+// packet is valid until the next call to packetout().
+
+public class ByteBufferStreamState{
+  ByteBuffer[] body_vals; /* page body of each segment */
+  int[] offset_vals; /* offset of each segment in its body */
+  int[] lacing_vals; /* lacing value and flags of each segment */
+  long[] granule_vals;
+  int lacing_storage;
+  int lacing_fill;
+  int lacing_packet;
+  int lacing_returned;
+
+  byte[] packet_data=new byte[8*1024]; /* packets that are copied */
+
+  public int e_o_s; /* set when we have buffered the last packet in the
+                       logical bitstream */
+  int serialno;
+  int pageno;
+  long packetno;
+
+  public ByteBufferStreamState(){
+    lacing_storage=1024;
+    body_vals=new ByteBuffer[lacing_storage];
+    offset_vals=new int[lacing_storage];
+    lacing_vals=new int[lacing_storage];
+    granule_vals=new long[lacing_storage];
+  }
+
+  public void init(int serialno){
+    reset();
+    this.serialno=serialno;
+  }
+
+  public int reset(){
+    for(int i=0; i<lacing_fill; i++){
+      body_vals[i]=null;
+    }
+    lacing_fill=0;
+    lacing_packet=0;
+    lacing_returned=0;
+
+    e_o_s=0;
+    pageno=-1;
+    packetno=0;
+    return (0);
+  }
+
+  void lacing_expand(int needed){
+    if(lacing_storage<=lacing_fill+needed){
+      lacing_storage+=(needed+32);
+      ByteBuffer[] bodies=new ByteBuffer[lacing_storage];
+      System.arraycopy(body_vals, 0, bodies, 0, lacing_fill);
+      body_vals=bodies;
+
+      int[] foo=new int[lacing_storage];
+      System.arraycopy(offset_vals, 0, foo, 0, lacing_fill);
+      offset_vals=foo;
+
+      foo=new int[lacing_storage];
+      System.arraycopy(lacing_vals, 0, foo, 0, lacing_fill);
+      lacing_vals=foo;
+
+      long[] bar=new long[lacing_storage];
+      System.arraycopy(granule_vals, 0, bar, 0, lacing_fill);
+      granule_vals=bar;
+    }
+  }
+
+  public int packetout(Packet op){
+    int ptr=lacing_returned;
+
+    if(lacing_packet<=ptr){
+      return (0);
+    }
+
+    if((lacing_vals[ptr]&0x400)!=0){
+      /* We lost sync here; let the app know */
+      body_vals[ptr]=null;
+      lacing_returned++;
+
+      /* we need to tell the codec there's a gap; it might need to
+         handle previous packet dependencies. */
+      packetno++;
+      return (-1);
+    }
+
+    /* Gather the whole packet. We'll have no holes or a partial packet */
+    int first=ptr;
+    int val=lacing_vals[ptr];
+    int bytes=val&0xff;
+    op.e_o_s=val&0x200; /* last packet of the stream? */
+    op.b_o_s=val&0x100; /* first packet of the stream? */
+    boolean spanning=false;
+    while((val&0xff)==255){
+      val=lacing_vals[++ptr];
+      if(body_vals[ptr]!=body_vals[first]){
+        spanning=true;
+      }
+      if((val&0x200)!=0)
+        op.e_o_s=0x200;
+      bytes+=val&0xff;
+    }
+
+    ByteBuffer body=body_vals[first];
+    if(!spanning&&body.hasArray()){
+      op.packet_base=body.array();
+      op.packet=body.arrayOffset()+offset_vals[first];
+    }
+    else{
+      if(packet_data.length<bytes){
+        packet_data=new byte[bytes+1024];
+      }
+      int fill=0;
+      for(int i=first; i<=ptr; i++){
+        int size=lacing_vals[i]&0xff;
+        if(size==0){
+          continue;
+        }
+        ByteBuffer segment=body_vals[i].duplicate();
+        segment.position(offset_vals[i]);
+        segment.get(packet_data, fill, size);
+        fill+=size;
+      }
+      op.packet_base=packet_data;
+      op.packet=0;
+    }
+    op.bytes=bytes;
+    op.packetno=packetno;
+    op.granulepos=granule_vals[ptr];
+
+    for(int i=first; i<=ptr; i++){
+      body_vals[i]=null;
+    }
+    lacing_returned=ptr+1;
+    packetno++;
+    return (1);
+  }
+
+  // add the incoming page to the stream state; the page is decomposed
+  // into packet segments that point into its body.
+
+  public int pagein(ByteBufferPage og){
+    ByteBuffer body=og.body;
+    int offset=0;
+    int segptr=0;
+
+    int version=og.version();
+    int continued=og.continued();
+    int bos=og.bos();
+    int eos=og.eos();
+    long granulepos=og.granulepos();
+    int _serialno=og.serialno();
+    int _pageno=og.pageno();
+    int segments=og.segments();
+
+    // clean up 'returned data'
+    {
+      int lr=lacing_returned;
+      if(lr!=0){
+        // segment table
+        if((lacing_fill-lr)!=0){
+          System.arraycopy(body_vals, lr, body_vals, 0, lacing_fill-lr);
+          System.arraycopy(offset_vals, lr, offset_vals, 0, lacing_fill-lr);
+          System.arraycopy(lacing_vals, lr, lacing_vals, 0, lacing_fill-lr);
+          System.arraycopy(granule_vals, lr, granule_vals, 0, lacing_fill-lr);
+        }
+        for(int i=lacing_fill-lr; i<lacing_fill; i++){
+          body_vals[i]=null;
+        }
+        lacing_fill-=lr;
+        lacing_packet-=lr;
+        lacing_returned=0;
+      }
+    }
+
+    // check the serial number
+    if(_serialno!=serialno)
+      return (-1);
+    if(version>0)
+      return (-1);
+
+    lacing_expand(segments+1);
+
+    // are we in sequence?
+    if(_pageno!=pageno){
+      // unroll previous partial packet (if any)
+      for(int i=lacing_packet; i<lacing_fill; i++){
+        body_vals[i]=null;
+      }
+      lacing_fill=lacing_packet;
+
+      // make a note of dropped data in segment table
+      if(pageno!=-1){
+        lacing_vals[lacing_fill++]=0x400;
+        lacing_packet++;
+      }
+
+      // are we a 'continued packet' page?  If so, we'll need to skip
+      // some segments
+      if(continued!=0){
+        bos=0;
+        for(; segptr<segments; segptr++){
+          int val=og.lacing(segptr);
+          offset+=val;
+          if(val<255){
+            segptr++;
+            break;
+          }
+        }
+      }
+    }
+
+    {
+      int saved=-1;
+      while(segptr<segments){
+        int val=og.lacing(segptr);
+        body_vals[lacing_fill]=body;
+        offset_vals[lacing_fill]=offset;
+        lacing_vals[lacing_fill]=val;
+        granule_vals[lacing_fill]=-1;
+        offset+=val;
+
+        if(bos!=0){
+          lacing_vals[lacing_fill]|=0x100;
+          bos=0;
+        }
+
+        if(val<255)
+          saved=lacing_fill;
+
+        lacing_fill++;
+        segptr++;
+
+        if(val<255)
+          lacing_packet=lacing_fill;
+      }
+
+      /* set the granulepos on the last pcmval of the last full packet */
+      if(saved!=-1){
+        granule_vals[saved]=granulepos;
+      }
+    }
+
+    if(eos!=0){
+      e_o_s=1;
+      if(lacing_fill>0)
+        lacing_vals[lacing_fill-1]|=0x200;
+    }
+
+    pageno=_pageno+1;
+    return (0);
+  }
+
+  public int eof(){
+    return e_o_s;
+  }
+}
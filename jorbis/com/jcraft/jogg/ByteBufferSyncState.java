@@ -0,0 +1,150 @@
+/* -*-mode:java; c-basic-offset:2; indent-tabs-mode:nil -*- */
+/* JOrbis
+ * Copyright (C) 2000 ymnk, JCraft,Inc.
+ *  
+ * Written by: 2000 ymnk<ymnk@jcraft.com>
+ *   
+ * Many thanks to 
+ *   Monty <monty@xiph.org> and 
+ *   The XIPHOPHORUS Company http://www.xiph.org/ .
+ * JOrbis has been based on their awesome works, Vorbis codec.
+ *   
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public License
+ * as published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+   
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package com.jcraft.jogg;
+
+import java.nio.ByteBuffer;
+
+// DECODING PRIMITIVES: packet streaming layer over a ByteBuffer
+//
+// Unlike SyncState, which copies the stream into its own array, this
+// finds the pages in place in a buffer given by the application: a
+// heap buffer, a direct buffer or a memory mapped file.  The pages
+// returned are slices of that buffer, the checksum is verified without
+// writing to it.  The position of the buffer is moved past the pages
+// returned and the bytes skipped.
+//
+// When a page is cut at the limit of the buffer, pageout() asks for
+// more data.  Pass a new buffer starting with the remaining bytes; do
+// not compact or overwrite the previous one while a
+// ByteBufferStreamState still holds packets from its pages.
+
+public class ByteBufferSyncState{
+  ByteBuffer data;
+  int unsynced;
+
+  public void buffer(ByteBuffer data){
+    this.data=data;
+  }
+
+  public ByteBuffer buffer(){
+    return data;
+  }
+
+  // clear things to an initial state.  Good to call, eg, before seeking
+  public int reset(){
+    data=null;
+    unsynced=0;
+    return (0);
+  }
+
+  // sync the stream.  This is meant to be useful for finding page
+  // boundaries.
+  //
+  // return values for this:
+  // -n) skipped n bytes
+  //  0) page not ready; more data (no bytes skipped)
+  //  n) page synced at current location; page length n bytes
+  public int pageseek(ByteBufferPage og){
+    if(data==null){
+      return (0);
+    }
+    int page=data.position();
+    int bytes=data.limit()-page;
+
+    if(bytes<27){
+      return (0); // not enough for a header
+    }
+
+    // verify capture pattern and checksum
+    if(data.get(page)=='O'&&data.get(page+1)=='g'&&data.get(page+2)=='g'
+        &&data.get(page+3)=='S'){
+      int segments=data.get(page+26)&0xff;
+      int header_len=segments+27;
+      if(bytes<header_len){
+        return (0); // not enough for header + seg table
+      }
+      int body_len=0;
+      for(int i=0; i<segments; i++){
+        body_len+=data.get(page+27+i)&0xff;
+      }
+      if(header_len+body_len>bytes){
+        return (0);
+      }
+      int crc=(data.get(page+22)&0xff)|((data.get(page+23)&0xff)<<8)
+          |((data.get(page+24)&0xff)<<16)|((data.get(page+25)&0xff)<<24);
+      if(ByteBufferPage.checksum(data, page, header_len, body_len)==crc){
+        // yes, have a whole page all ready to go
+        if(og!=null){
+          og.set(data, page, header_len, body_len);
+        }
+        unsynced=0;
+        data.position(page+header_len+body_len);
+        return (header_len+body_len);
+      }
+      // Bad checksum. Lose sync
+    }
+
+    // search for possible capture
+    int next=page+1;
+    int limit=data.limit();
+    while(next<limit&&data.get(next)!='O'){
+      next++;
+    }
+    data.position(next);
+    return (-(next-page));
+  }
+
+  // sync the stream and get a page.  Keep trying until we find a page.
+  // Supress 'sync errors' after reporting the first.
+  //
+  // return values:
+  //  -1) recapture (hole in data)
+  //   0) need more data
+  //   1) page returned
+  public int pageout(ByteBufferPage og){
+    // all we need to do is verify a page at the head of the stream
+    // buffer.  If it doesn't verify, we look for the next potential
+    // frame
+    while(true){
+      int ret=pageseek(og);
+      if(ret>0){
+        // have a page
+        return (1);
+      }
+      if(ret==0){
+        // need more data
+        return (0);
+      }
+      // head did not start a synced page... skipped some bytes
+      if(unsynced==0){
+        unsynced=1;
+        return (-1);
+      }
+      // loop. keep looking
+    }
+  }
+}
@@ -27,7 +27,7 @@
 package com.jcraft.jogg;
 
 public class Page{
-  private static int[] crc_lookup=new int[256];
+  static int[] crc_lookup=new int[256];
   static{
     for(int i=0; i<crc_lookup.length; i++){
       crc_lookup[i]=crc_entry(i);
@@ -61,7 +61,7 @@ public class Page{
     return header_base[header+4]&0xff;
   }
 
-  int continued(){
+  public int continued(){
     return (header_base[header+5]&0x01);
   }
 
@@ -50,6 +50,16 @@ public class Block{
   int floor_bits;
   int res_bits;
 
+  // decode scratch, kept per block so that concurrent decoders share no state
+  float[][] pcmbundle=null;
+  int[] zerobundle=null;
+  int[] nonzero=null;
+  Object[] floormemo=null;
+  int[][][] partword=new int[2][][];
+  int[] entries=new int[15];
+  float[][] mdctx=null; // mdct scratch of each channel, parallel synthesis
+  float[][] mdctw=null;
+
   public Block(DspState vd){
     this.vd=vd;
     if(vd.analysisp!=0){
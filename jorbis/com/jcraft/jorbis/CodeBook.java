@@ -81,17 +81,12 @@ class CodeBook{
     return (encode(best, b));
   }
 
-  private int[] t=new int[15]; // decodevs_add is synchronized for re-using t.
-
-  synchronized int decodevs_add(float[] a, int offset, Buffer b, int n){
+  // t is scratch space of at least n/dim entries, owned by the caller
+  int decodevs_add(float[] a, int offset, Buffer b, int n, int[] t){
     int step=n/dim;
     int entry;
     int i, j, o;
 
-    if(t.length<step){
-      t=new int[step];
-    }
-
     for(i=0; i<step; i++){
       entry=decode(b);
       if(entry==-1)
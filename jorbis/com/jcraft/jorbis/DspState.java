@@ -26,6 +26,8 @@
 
 package com.jcraft.jorbis;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class DspState{
   static final float M_PI=3.1415926539f;
   static final int VI_TRANSFORMB=1;
@@ -70,6 +72,10 @@ public class DspState{
   // application does not need to worry about freeing some packets'
   // memory and not others'; packet storage is always tracked.
   // Cleared next call to a _dsp_ function
+  // parallel synthesis of the channels, see synthesis_parallel()
+  ForkJoinPool pool;
+  int parallel_channels;
+
   byte[] header;
   byte[] header1;
   byte[] header2;
@@ -222,6 +228,29 @@ public class DspState{
     return (0);
   }
 
+  // Drop the PCM of the previous blocks before decoding resumes at
+  // another place in the stream; the lookups of synthesis_init are kept.
+  public int synthesis_restart(){
+    if(vi==null)
+      return (-1);
+    for(int i=0; i<vi.channels; i++){
+      float[] foo=pcm[i];
+      for(int j=0; j<foo.length; j++){
+        foo[j]=0.f;
+      }
+    }
+    lW=0;
+    W=0;
+    centerW=vi.blocksizes[1]/2;
+    pcm_current=centerW;
+    pcm_returned=centerW;
+    centerW-=vi.blocksizes[W]/4+vi.blocksizes[lW]/4;
+    granulepos=-1;
+    sequence=-1;
+    eofflag=0;
+    return (0);
+  }
+
   DspState(Info vi){
     this();
     init(vi, false);
@@ -232,6 +261,16 @@ public class DspState{
     sequence=-1;
   }
 
+  // Spread the floor curve, inverse MDCT and windowing of the channels
+  // of a block over the threads of a pool, for blocks of at least
+  // 'channels' channels.  These steps are independent for each channel
+  // once the residue is decoded; the output is the same as with one
+  // thread.  Off by default, pass a null pool to turn it off again.
+  public void synthesis_parallel(ForkJoinPool pool, int channels){
+    this.pool=pool;
+    this.parallel_channels=Math.max(channels, 2);
+  }
+
   // Unike in analysis, the window is only partially applied for each
   // block.  The time domain envelope is not yet handled at the point of
   // calling (as it relies on the previous block).
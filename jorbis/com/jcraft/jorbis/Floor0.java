@@ -122,8 +122,6 @@ class Floor0 extends FuncFloor{
     return 0;
   }
 
-  float[] lsp=null;
-
   int inverse(Block vb, Object i, float[] out){
     //System.err.println("Floor0.inverse "+i.getClass()+"]");
     LookFloor0 look=(LookFloor0)i;
@@ -136,14 +134,8 @@ class Floor0 extends FuncFloor{
 
       if(booknum!=-1&&booknum<info.numbooks){
 
-        synchronized(this){
-          if(lsp==null||lsp.length<look.m){
-            lsp=new float[look.m];
-          }
-          else{
-            for(int j=0; j<look.m; j++)
-              lsp[j]=0.f;
-          }
+        {
+          float[] lsp=new float[look.m];
 
           CodeBook b=vb.vd.fullbooks[info.books[booknum]];
           float last=0.f;
@@ -26,6 +26,9 @@
 
 package com.jcraft.jorbis;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import com.jcraft.jogg.*;
 
 class Mapping0 extends FuncMapping{
@@ -183,12 +186,7 @@ class Mapping0 extends FuncMapping{
     return info;
   }
 
-  float[][] pcmbundle=null;
-  int[] zerobundle=null;
-  int[] nonzero=null;
-  Object[] floormemo=null;
-
-  synchronized int inverse(Block vb, Object l){
+  int inverse(Block vb, Object l){
     DspState vd=vb.vd;
     Info vi=vd.vi;
     LookMapping0 look=(LookMapping0)l;
@@ -197,12 +195,16 @@ class Mapping0 extends FuncMapping{
     int n=vb.pcmend=vi.blocksizes[vb.W];
 
     float[] window=vd.window[vb.W][vb.lW][vb.nW][mode.windowtype];
-    if(pcmbundle==null||pcmbundle.length<vi.channels){
-      pcmbundle=new float[vi.channels][];
-      nonzero=new int[vi.channels];
-      zerobundle=new int[vi.channels];
-      floormemo=new Object[vi.channels];
+    if(vb.pcmbundle==null||vb.pcmbundle.length<vi.channels){
+      vb.pcmbundle=new float[vi.channels][];
+      vb.nonzero=new int[vi.channels];
+      vb.zerobundle=new int[vi.channels];
+      vb.floormemo=new Object[vi.channels];
     }
+    float[][] pcmbundle=vb.pcmbundle;
+    int[] zerobundle=vb.zerobundle;
+    int[] nonzero=vb.nonzero;
+    Object[] floormemo=vb.floormemo;
 
     // time domain information decode (note that applying the
     // information would have to happen later; we'll probably add a
@@ -287,45 +289,91 @@ class Mapping0 extends FuncMapping{
     }
 
     //    /* compute and apply spectral envelope */
-
-    for(int i=0; i<vi.channels; i++){
-      float[] pcm=vb.pcm[i];
-      int submap=info.chmuxlist[i];
-      look.floor_func[submap].inverse2(vb, look.floor_look[submap],
-          floormemo[i], pcm);
+    // then transform the PCM data and window it.  Each channel is on
+    // its own from here, so they can be spread over several threads.
+
+    ForkJoinPool pool=vd.pool;
+    if(pool!=null&&vi.channels>=vd.parallel_channels){
+      if(vb.mdctx==null||vb.mdctx.length<vi.channels
+          ||vb.mdctx[0].length<n/2){
+        vb.mdctx=new float[vi.channels][n/2];
+        vb.mdctw=new float[vi.channels][n/2];
+      }
+      pool.invoke(new Synthesis(vb, look, window, 0, vi.channels));
+    }
+    else{
+      for(int i=0; i<vi.channels; i++){
+        synthesis(vb, look, window, i, null, null);
+      }
     }
 
-    // transform the PCM data; takes PCM vector, vb; modifies PCM vector
-    // only MDCT right now....
+    // now apply the decoded post-window time information
+    // NOT IMPLEMENTED
+    // all done!
+    return (0);
+  }
 
-    for(int i=0; i<vi.channels; i++){
-      float[] pcm=vb.pcm[i];
-      //_analysis_output("out",seq+i,pcm,n/2,0,0);
-      ((Mdct)vd.transform[vb.W][0]).backward(pcm, pcm);
+  // floor curve, inverse MDCT and windowing of one channel; x and w
+  // are the MDCT scratch of the thread, or null for the shared one
+  static void synthesis(Block vb, LookMapping0 look, float[] window, int i,
+      float[] x, float[] w){
+    int n=vb.pcmend;
+    float[] pcm=vb.pcm[i];
+    int submap=look.map.chmuxlist[i];
+    look.floor_func[submap].inverse2(vb, look.floor_look[submap],
+        vb.floormemo[i], pcm);
+
+    //_analysis_output("out",seq+i,pcm,n/2,0,0);
+    Mdct mdct=(Mdct)vb.vd.transform[vb.W][0];
+    if(x==null){
+      mdct.backward(pcm, pcm);
+    }
+    else{
+      mdct.backward(pcm, pcm, x, w);
     }
 
     // now apply the decoded pre-window time information
     // NOT IMPLEMENTED
 
     // window the data
-    for(int i=0; i<vi.channels; i++){
-      float[] pcm=vb.pcm[i];
-      if(nonzero[i]!=0){
-        for(int j=0; j<n; j++){
-          pcm[j]*=window[j];
-        }
+    if(vb.nonzero[i]!=0){
+      for(int j=0; j<n; j++){
+        pcm[j]*=window[j];
       }
-      else{
-        for(int j=0; j<n; j++){
-          pcm[j]=0.f;
-        }
+    }
+    else{
+      for(int j=0; j<n; j++){
+        pcm[j]=0.f;
       }
     }
+  }
 
-    // now apply the decoded post-window time information
-    // NOT IMPLEMENTED
-    // all done!
-    return (0);
+  // synthesis of the channels from lo to hi, split in halves down to
+  // one channel per task
+  static class Synthesis extends RecursiveAction{
+    final Block vb;
+    final LookMapping0 look;
+    final float[] window;
+    final int lo;
+    final int hi;
+
+    Synthesis(Block vb, LookMapping0 look, float[] window, int lo, int hi){
+      this.vb=vb;
+      this.look=look;
+      this.window=window;
+      this.lo=lo;
+      this.hi=hi;
+    }
+
+    protected void compute(){
+      if(hi-lo==1){
+        synthesis(vb, look, window, lo, vb.mdctx[lo], vb.mdctw[lo]);
+        return;
+      }
+      int mid=(lo+hi)>>>1;
+      invokeAll(new Synthesis(vb, look, window, lo, mid), new Synthesis(vb,
+          look, window, mid, hi));
+    }
   }
 
   class InfoMapping0{
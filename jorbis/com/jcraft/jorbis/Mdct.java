@@ -36,6 +36,17 @@ class Mdct{
 
   float scale;
 
+  // stages with shorter runs of butterflies per block are walked block
+  // by block in the inner loop
+  private static final int SPLIT_MIN_RUN=8;
+
+  // twiddles of the split butterflies, stage after stage, in the order
+  // the inner loop walks them
+  float[] stage_trig_e;
+  float[] stage_trig_o;
+  // bitrev halved, as indices into the real and imaginary halves
+  int[] split_bitrev;
+
   void init(int n){
     bitrev=new int[n/4];
     trig=new float[n+n/4];
@@ -75,6 +86,32 @@ class Mdct{
       }
     }
     scale=4.f/n;
+
+    init_split();
+  }
+
+  private void init_split(){
+    int size=0;
+    for(int i=0; i<log2n-3; i++){
+      size+=n>>>(i+4);
+    }
+    stage_trig_e=new float[size];
+    stage_trig_o=new float[size];
+    int t=0;
+    for(int i=0; i<log2n-3; i++){
+      int m=n>>>(i+4);
+      int k1=1<<(i+3);
+      for(int q=0; q<m; q++){
+        int A=(m-1-q)*k1;
+        stage_trig_e[t]=trig[A];
+        stage_trig_o[t++]=trig[A+1];
+      }
+    }
+    split_bitrev=new int[n/4];
+    for(int i=0; i<n/8; i++){
+      split_bitrev[i*2]=(bitrev[i*2]-1)>>>1;
+      split_bitrev[i*2+1]=bitrev[i*2+1]>>>1;
+    }
   }
 
   void clear(){
@@ -86,165 +123,143 @@ class Mdct{
   float[] _x=new float[1024];
   float[] _w=new float[1024];
 
-  synchronized void backward(float[] in, float[] out){
+  void backward(float[] in, float[] out){
     if(_x.length<n/2){
       _x=new float[n/2];
     }
     if(_w.length<n/2){
       _w=new float[n/2];
     }
-    float[] x=_x;
-    float[] w=_w;
+    backward(in, out, _x, _w);
+  }
+
+  // x and w are scratch arrays of at least n/2 floats; with one pair
+  // for each thread several channels can be transformed at once.
+  void backward(float[] in, float[] out, float[] x, float[] w){
     int n2=n>>>1;
     int n4=n>>>2;
     int n8=n>>>3;
 
-    // rotate + step 1
-    {
-      int inO=1;
-      int xO=0;
-      int A=n2;
-
-      int i;
-      for(i=0; i<n8; i++){
-        A-=2;
-        x[xO++]=-in[inO+2]*trig[A+1]-in[inO]*trig[A];
-        x[xO++]=in[inO]*trig[A+1]-in[inO+2]*trig[A];
-        inO+=4;
-      }
-
-      inO=n2-4;
-
-      for(i=0; i<n8; i++){
-        A-=2;
-        x[xO++]=in[inO]*trig[A+1]+in[inO+2]*trig[A];
-        x[xO++]=in[inO]*trig[A]-in[inO+2]*trig[A+1];
-        inO-=4;
-      }
-    }
-
-    float[] xxx=mdct_kernel(x, w, n, n2, n4, n8);
-    int xx=0;
-
-    // step 8
-
-    {
-      int B=n2;
-      int o1=n4, o2=o1-1;
-      int o3=n4+n2, o4=o3-1;
-
-      for(int i=0; i<n4; i++){
-        float temp1=(xxx[xx]*trig[B+1]-xxx[xx+1]*trig[B]);
-        float temp2=-(xxx[xx]*trig[B]+xxx[xx+1]*trig[B+1]);
-
-        out[o1]=-temp1;
-        out[o2]=temp1;
-        out[o3]=temp2;
-        out[o4]=temp2;
-
-        o1++;
-        o2--;
-        o3++;
-        o4--;
-        xx+=2;
-        B+=2;
-      }
-    }
+    backward_split(in, out, w, x, n2, n4, n8);
   }
 
-  private float[] mdct_kernel(float[] x, float[] w, int n, int n2, int n4,
-      int n8){
-    // step 2
-
-    int xA=n4;
-    int xB=0;
-    int w2=n4;
-    int A=n2;
-
-    for(int i=0; i<n4;){
-      float x0=x[xA]-x[xB];
-      float x1;
-      w[w2+i]=x[xA++]+x[xB++];
-
-      x1=x[xA]-x[xB];
-      A-=4;
-
-      w[i++]=x0*trig[A]+x1*trig[A+1];
-      w[i]=x1*trig[A]-x0*trig[A+1];
-
-      w[w2+i]=x[xA++]+x[xB++];
-      i++;
+  // The same arithmetic as the former interleaved kernel, in the same
+  // order, so the output is bit-identical. The complex values between step 2
+  // and step 7 are kept split, the real parts in re and the imaginary parts
+  // in im.
+  // Steps 1 and 2 are done together, so are steps 4 to 8, and step 3 works
+  // in place: inside a block its inner loop walks re, im and the stage
+  // twiddles upwards one float at a time, a shape the JIT unrolls and
+  // can vectorize. re and im need n/4 floats each.
+  private void backward_split(float[] in, float[] out, float[] re, float[] im,
+      int n2, int n4, int n8){
+    // rotate + step 1, step 2
+
+    for(int k=0; k<n8; k++){
+      int inO=4*k+1;
+      int A=n2-2*k-2;
+      float xB0=-in[inO+2]*trig[A+1]-in[inO]*trig[A];
+      float xB1=in[inO]*trig[A+1]-in[inO+2]*trig[A];
+
+      inO=n2-4-4*k;
+      A=n4-2*k-2;
+      float xA0=in[inO]*trig[A+1]+in[inO+2]*trig[A];
+      float xA1=in[inO]*trig[A]-in[inO+2]*trig[A+1];
+
+      float x0=xA0-xB0;
+      float x1=xA1-xB1;
+      A=n2-4*k-4;
+      re[n8+k]=xA0+xB0;
+      re[k]=x0*trig[A]+x1*trig[A+1];
+      im[k]=x1*trig[A]-x0*trig[A+1];
+      im[n8+k]=xA1+xB1;
     }
 
     // step 3
 
     {
+      int t=0;
       for(int i=0; i<log2n-3; i++){
-        int k0=n>>>(i+2);
-        int k1=1<<(i+3);
-        int wbase=n2-2;
-
-        A=0;
-        float[] temp;
-
-        for(int r=0; r<(k0>>>2); r++){
-          int w1=wbase;
-          w2=w1-(k0>>1);
-          float AEv=trig[A], wA;
-          float AOv=trig[A+1], wB;
-          wbase-=2;
-
-          k0++;
-          for(int s=0; s<(2<<i); s++){
-            wB=w[w1]-w[w2];
-            x[w1]=w[w1]+w[w2];
-
-            wA=w[++w1]-w[++w2];
-            x[w1]=w[w1]+w[w2];
-
-            x[w2]=wA*AEv-wB*AOv;
-            x[w2-1]=wB*AEv+wA*AOv;
-
-            w1-=k0;
-            w2-=k0;
+        int m=n>>>(i+4);
+        if(m>=SPLIT_MIN_RUN){
+          for(int p2=n4-2*m; p2>=0; p2-=2*m){
+            butterflies(re, im, p2, p2+m, t, m);
           }
-          k0--;
-          A+=k1;
         }
-
-        temp=w;
-        w=x;
-        x=temp;
+        else{
+          // short runs, walk the blocks in the inner loop instead
+          for(int q=0; q<m; q++){
+            float AEv=stage_trig_e[t+q];
+            float AOv=stage_trig_o[t+q];
+            for(int p2=n4-2*m+q; p2>=0; p2-=2*m){
+              int p1=p2+m;
+              float wB=re[p1]-re[p2];
+              float wA=im[p1]-im[p2];
+              re[p1]=re[p1]+re[p2];
+              im[p1]=im[p1]+im[p2];
+              im[p2]=wA*AEv-wB*AOv;
+              re[p2]=wB*AEv+wA*AOv;
+            }
+          }
+        }
+        t+=m;
       }
     }
 
-    // step 4, 5, 6, 7
+    // step 4, 5, 6, 7, 8
     {
       int C=n;
       int bit=0;
-      int x1=0;
-      int x2=n2-1;
 
       for(int i=0; i<n8; i++){
-        int t1=bitrev[bit++];
-        int t2=bitrev[bit++];
+        int t1=split_bitrev[bit++];
+        int t2=split_bitrev[bit++];
 
-        float wA=w[t1]-w[t2+1];
-        float wB=w[t1-1]+w[t2];
-        float wC=w[t1]+w[t2+1];
-        float wD=w[t1-1]-w[t2];
+        float wA=im[t1]-im[t2];
+        float wB=re[t1]+re[t2];
+        float wC=im[t1]+im[t2];
+        float wD=re[t1]-re[t2];
 
         float wACE=wA*trig[C];
         float wBCE=wB*trig[C++];
         float wACO=wA*trig[C];
         float wBCO=wB*trig[C++];
 
-        x[x1++]=(wC+wACO+wBCE)*.5f;
-        x[x2--]=(-wD+wBCO-wACE)*.5f;
-        x[x1++]=(wD+wBCO-wACE)*.5f;
-        x[x2--]=(wC-wACO-wBCE)*.5f;
+        // the pairs i and n4-1-i of the interleaved kernel output
+        unrotate(out, i, (wC+wACO+wBCE)*.5f, (wD+wBCO-wACE)*.5f, n2, n4);
+        unrotate(out, n4-1-i, (wC-wACO-wBCE)*.5f, (-wD+wBCO-wACE)*.5f, n2,
+            n4);
       }
     }
-    return (x);
+  }
+
+  private void butterflies(float[] re, float[] im, int p2, int p1, int t,
+      int m){
+    float[] te=stage_trig_e;
+    float[] to=stage_trig_o;
+    for(int q=0; q<m; q++){
+      float AEv=te[t+q];
+      float AOv=to[t+q];
+      float r1=re[p1+q], r2=re[p2+q];
+      float i1=im[p1+q], i2=im[p2+q];
+      float wB=r1-r2;
+      float wA=i1-i2;
+      re[p1+q]=r1+r2;
+      im[p1+q]=i1+i2;
+      im[p2+q]=wA*AEv-wB*AOv;
+      re[p2+q]=wB*AEv+wA*AOv;
+    }
+  }
+
+  // step 8 for the pair j
+  private void unrotate(float[] out, int j, float x0, float x1, int n2, int n4){
+    int B=n2+2*j;
+    float temp1=(x0*trig[B+1]-x1*trig[B]);
+    float temp2=-(x0*trig[B]+x1*trig[B+1]);
+
+    out[n4+j]=-temp1;
+    out[n4-1-j]=temp1;
+    out[n4+n2+j]=temp2;
+    out[n4+n2-1-j]=temp2;
   }
 }
@@ -28,9 +28,12 @@ import javazoom.jl.decoder.BitstreamException;
 import javazoom.jl.decoder.Decoder;
 import javazoom.jl.decoder.DecoderException;
 import javazoom.jl.decoder.Equalizer;
+import javazoom.jl.decoder.FileChannelSource;
+import javazoom.jl.decoder.FrameIndex;
 import javazoom.jl.decoder.Header;
 import javazoom.jl.decoder.Obuffer;
 import javazoom.spi.PropertiesContainer;
+import javazoom.spi.SeekableAudioStream;
 import javazoom.spi.mpeg.sampled.file.IcyListener;
 import javazoom.spi.mpeg.sampled.file.tag.TagParseEvent;
 import javazoom.spi.mpeg.sampled.file.tag.TagParseListener;
@@ -39,6 +42,7 @@ import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -48,11 +52,18 @@ import java.util.Map;
  * Main decoder.
  */
 public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInputStream
-        implements PropertiesContainer, TagParseListener {
+        implements PropertiesContainer, SeekableAudioStream, TagParseListener {
+
+    // Frames decoded and dropped before a seek target, enough to refill the Layer III bit reservoir.
+    private static final int LAYER3_PRIMING_FRAMES = 10;
+    private static final int PRIMING_FRAMES = 1;
 
     private final InputStream m_encodedStream;
-    private final Bitstream m_bitstream;
-    private final Decoder m_decoder;
+    private Bitstream m_bitstream;
+    // File the encoded stream is read from, if known, and a seekable Bitstream on it once opened.
+    private final File m_sourceFile;
+    private Bitstream m_fileBitstream;
+    private Decoder m_decoder;
     private final Equalizer m_equalizer;
     private final float[] m_equalizer_values;
     private final DMAISObuffer m_oBuffer;
@@ -65,6 +76,13 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
     private long currentFrame;
     private int currentFramesize;
     private int currentBitrate = -1;
+    // Frame positions, for exact seeking.
+    private FrameIndex m_frameIndex;
+    // Seeking info, from the first frame.
+    private long m_firstFramePos = -1;
+    private double m_usPerFrame;
+    private int m_primingFrames;
+    private Header m_vbrHeader;
     // Time info.
     private long currentMicrosecond;
     // Shoutcast stream info
@@ -87,23 +105,36 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             byteslength = -1;
         }
         m_encodedStream = inputStream;
+        final Object index = inputStream.getFormat().getProperty("mp3.frameindex");
+        if (index instanceof FrameIndex) {
+            m_frameIndex = (FrameIndex) index;
+        }
+        final Object file = inputStream.getFormat().getProperty("mp3.file");
+        m_sourceFile = (file instanceof File) ? (File) file : null;
         shoutlst = IcyListener.getInstance();
         shoutlst.reset();
         m_bitstream = new Bitstream(inputStream);
-        m_decoder = new Decoder(null);
         m_equalizer = new Equalizer();
         m_equalizer_values = new float[32];
         for (int b = 0; b < m_equalizer.getBandCount(); b++) {
             m_equalizer_values[b] = m_equalizer.getBand(b);
         }
-        m_decoder.setEqualizer(m_equalizer);
         m_oBuffer = new DMAISObuffer(outputFormat.getChannels());
-        m_decoder.setOutputBuffer(m_oBuffer);
+        m_decoder = createDecoder();
         try {
             m_header = m_bitstream.readFrame();
             if ((m_header != null) && (frameslength == -1) && (byteslength > 0)) {
                 frameslength = m_header.max_number_of_frames((int) byteslength);
             }
+            if (m_header != null) {
+                m_firstFramePos = m_bitstream.frame_pos();
+                m_usPerFrame = m_header.msPerFrame() * 1000.0;
+                m_primingFrames = (m_header.layer() == 3) ? LAYER3_PRIMING_FRAMES : PRIMING_FRAMES;
+                if (m_header.vbr()) {
+                    m_vbrHeader = m_header;
+                    frameslength = m_header.max_number_of_frames((int) byteslength);
+                }
+            }
         }
         catch (final BitstreamException e) {
             TDebug.out("DecodedMpegAudioInputStream : Cannot read first frame : " + e.getMessage());
@@ -179,10 +210,14 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             currentFramesize = header.calculate_framesize();
             currentByte = currentByte + currentFramesize;
             currentMicrosecond = (long) (currentFrame * header.msPerFrame() * 1000.0f);
+            // mp3.equalizer may be changed at any time; only pass it on when a band did
+            final int eqVersion = m_equalizer.getVersion();
             for (int b = 0; b < m_equalizer_values.length; b++) {
                 m_equalizer.setBand(b, m_equalizer_values[b]);
             }
-            m_decoder.setEqualizer(m_equalizer);
+            if (m_equalizer.getVersion() != eqVersion) {
+                m_decoder.setEqualizer(m_equalizer);
+            }
             final Obuffer decoderOutput = m_decoder.decodeFrame(header, m_bitstream);
             m_bitstream.closeFrame();
             getCircularBuffer().write(m_oBuffer.getBuffer(), 0, m_oBuffer.getCurrentBufferSize());
@@ -206,17 +241,50 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         }
     }
 
+    /**
+     * Sets the frame index of the encoded stream.
+     * With an index, skip(long) and skipFrames(long) move the stream straight to the target frame.
+     *
+     * @param index frame positions of the encoded stream, or null to skip frame by frame.
+     */
+    public void setFrameIndex(final FrameIndex index) {
+        m_frameIndex = index;
+    }
+
+    public FrameIndex getFrameIndex() {
+        return m_frameIndex;
+    }
+
     @Override
     public long skip(final long bytes) {
-        if ((byteslength > 0) && (frameslength > 0)) {
-            final float ratio = bytes * 1.0f / byteslength * 1.0f;
-            final long bytesread = skipFrames((long) (ratio * frameslength));
-            currentByte = currentByte + bytesread;
-            m_header = null;
-            return bytesread;
+        lockDecoder();
+        try {
+            if (m_frameIndex != null) {
+                // Exact target: the frame holding the byte reached.
+                final int target = m_frameIndex.getFrameAt(nextFramePosition() + bytes);
+                return (target > currentFrame) ? skipFrames(target - currentFrame) : 0;
+            }
+            if (hasTableOfContents()) {
+                // VBR: the time matching the byte reached is read from the table of contents.
+                final long from = nextFramePosition();
+                final double fraction = tocFraction(from + bytes - m_firstFramePos);
+                if (seekMicroseconds((long) (fraction * frameslength * m_usPerFrame)) >= 0) {
+                    return m_bitstream.stream_pos() - from;
+                }
+            }
+            if ((byteslength > 0) && (frameslength > 0)) {
+                final float ratio = bytes * 1.0f / byteslength * 1.0f;
+                final long bytesread = skipFrames((long) (ratio * frameslength));
+                currentByte = currentByte + bytesread;
+                m_header = null;
+                return bytesread;
+            }
+            else {
+                return -1;
+            }
         }
-        else {
-            return -1;
+        finally {
+            unlockDecoder();
         }
     }
 
@@ -231,29 +299,237 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         if (TDebug.TraceAudioConverter) {
             TDebug.out("skip(long frames) : begin");
         }
-        int framesRead = 0;
-        int bytesReads = 0;
+        lockDecoder();
         try {
-            for (int i = 0; i < frames; i++) {
-                final Header header = m_bitstream.readFrame();
-                if (header != null) {
-                    final int fsize = header.calculate_framesize();
-                    bytesReads = bytesReads + fsize;
+            if ((m_frameIndex != null) && (frames > 0)) {
+                final long target = Math.min(currentFrame + frames, m_frameIndex.getFrameCount());
+                final long from = nextFramePosition();
+                if (seekFrame(target) >= 0) {
+                    if (TDebug.TraceAudioConverter) {
+                        TDebug.out("skip(long frames) : end");
+                    }
+                    return m_bitstream.stream_pos() - from;
+                }
+            }
+            int framesRead = 0;
+            int bytesReads = 0;
+            try {
+                for (int i = 0; i < frames; i++) {
+                    final Header header = m_bitstream.readFrame();
+                    if (header != null) {
+                        final int fsize = header.calculate_framesize();
+                        bytesReads = bytesReads + fsize;
+                    }
+                    m_bitstream.closeFrame();
+                    framesRead++;
+                }
+            }
+            catch (final BitstreamException e) {
+                if (TDebug.TraceAudioConverter) {
+                    TDebug.out(e);
+                }
+            }
+            // Drops the PCM decoded before the skipped frames.
+            getCircularBuffer().clear();
+            if (TDebug.TraceAudioConverter) {
+                TDebug.out("skip(long frames) : end");
+            }
+            currentFrame = currentFrame + framesRead;
+            return bytesReads;
+        }
+        finally {
+            unlockDecoder();
+        }
+    }
+
+    /**
+     * Seeks to a time position.
+     * The target frame is found with the frame index if there is one, with the Xing or VBRI
+     * table of contents of a VBR stream, or else by reading frame headers. The frames just
+     * before the target are decoded and dropped, so that the Layer III bit reservoir is full
+     * when the target frame is decoded. Unless the encoded stream is seekable, it only moves forward.
+     *
+     * @param microseconds position from the start of the stream.
+     * @return the position reached in microseconds, or -1 if the stream cannot move there.
+     */
+    @Override
+    public long seekMicroseconds(final long microseconds) {
+        if (TDebug.TraceAudioConverter) {
+            TDebug.out("seekMicroseconds(long microseconds) : begin");
+        }
+        if ((microseconds < 0) || (m_firstFramePos < 0)) {
+            return -1;
+        }
+        long target = (long) (microseconds / m_usPerFrame);
+        if (frameslength > 0) {
+            target = Math.min(target, frameslength);
+        }
+        final long reached = seekFrame(target);
+        if (TDebug.TraceAudioConverter) {
+            TDebug.out("seekMicroseconds(long microseconds) : end");
+        }
+        return reached;
+    }
+
+    /**
+     * Moves to the target frame under the decode lock, and drops the PCM decoded before.
+     * The priming frames before the target are decoded and dropped.
+     *
+     * @return the position reached in microseconds, or -1 if the stream cannot move there.
+     */
+    private long seekFrame(final long target) {
+        lockDecoder();
+        try {
+            final long landing = Math.max(0, target - m_primingFrames);
+            try {
+                if (!moveTo(landing, target)) {
+                    return -1;
+                }
+            }
+            catch (final BitstreamException e) {
+                if (TDebug.TraceAudioConverter) {
+                    TDebug.out(e);
+                }
+                return -1;
+            }
+            getCircularBuffer().clear();
+            try {
+                while (currentFrame < target) {
+                    final Header header = m_bitstream.readFrame();
+                    m_header = null;
+                    if (header == null) {
+                        break;
+                    }
+                    m_decoder.decodeFrame(header, m_bitstream);
+                    m_bitstream.closeFrame();
+                    m_oBuffer.reset();
+                    currentFrame++;
+                }
+            }
+            catch (final BitstreamException e) {
+                if (TDebug.TraceAudioConverter) {
+                    TDebug.out(e);
+                }
+            }
+            catch (final DecoderException e) {
+                if (TDebug.TraceAudioConverter) {
+                    TDebug.out(e);
+                }
+            }
+            currentMicrosecond = (long) (currentFrame * m_usPerFrame);
+            currentByte = m_bitstream.stream_pos() - m_firstFramePos;
+            return currentMicrosecond;
+        }
+        finally {
+            unlockDecoder();
+        }
+    }
+
+    /**
+     * Moves the encoded stream to the landing frame, or keeps it where it is when
+     * decoding from there reaches the target.
+     */
+    private boolean moveTo(final long landing, final long target)
+            throws BitstreamException {
+        if ((landing <= currentFrame) && (currentFrame <= target)) {
+            return true;
+        }
+        if (landing < currentFrame) {
+            openSourceFile();
+        }
+        if (m_frameIndex != null) {
+            if (!m_frameIndex.seek(m_bitstream, (int) landing)) {
+                return false;
+            }
+        }
+        else if (hasTableOfContents()) {
+            final long pos = m_firstFramePos
+                             + m_vbrHeader.vbr_toc_offset((double) landing / frameslength, byteslength - m_firstFramePos);
+            if (!m_bitstream.isSeekable() && (pos < m_bitstream.stream_pos())) {
+                return false;
+            }
+            // Next frame header found by resynchronization.
+            m_bitstream.seek(pos);
+        }
+        else {
+            if (landing < currentFrame) {
+                if (!m_bitstream.isSeekable()) {
+                    return false;
+                }
+                m_bitstream.seek(m_firstFramePos);
+                currentFrame = 0;
+            }
+            m_header = null;
+            for (long frame = currentFrame; frame < landing; frame++) {
+                if (m_bitstream.readFrame() == null) {
+                    break;
                 }
                 m_bitstream.closeFrame();
-                framesRead++;
             }
         }
-        catch (final BitstreamException e) {
+        m_header = null;
+        currentFrame = landing;
+        return true;
+    }
+
+    /**
+     * Reads frames from the source file from now on, so that the stream can move backwards.
+     * Every move after this one seeks to an absolute position, so the new Bitstream does not
+     * need to start where the encoded stream is.
+     */
+    private void openSourceFile() {
+        if (m_bitstream.isSeekable() || (m_sourceFile == null)) {
+            return;
+        }
+        try {
+            m_fileBitstream = new Bitstream(new FileChannelSource(m_sourceFile));
+            m_bitstream = m_fileBitstream;
+            // The layer decoders keep the Bitstream they were created with.
+            m_decoder = createDecoder();
+        }
+        catch (final IOException e) {
             if (TDebug.TraceAudioConverter) {
                 TDebug.out(e);
             }
         }
-        if (TDebug.TraceAudioConverter) {
-            TDebug.out("skip(long frames) : end");
+    }
+
+    private Decoder createDecoder() {
+        final Decoder decoder = new Decoder(null);
+        decoder.setEqualizer(m_equalizer);
+        decoder.setOutputBuffer(m_oBuffer);
+        return decoder;
+    }
+
+    private boolean hasTableOfContents() {
+        return (m_vbrHeader != null) && (frameslength > 0)
+               && (m_vbrHeader.vbr_toc_offset(0.0, byteslength - m_firstFramePos) >= 0);
+    }
+
+    /**
+     * Fraction of the duration at which the table of contents reaches a byte offset.
+     */
+    private double tocFraction(final long offset) {
+        final long streamsize = byteslength - m_firstFramePos;
+        double low = 0.0;
+        double high = 1.0;
+        for (int i = 0; i < 24; i++) {
+            final double mid = (low + high) / 2.0;
+            if (m_vbrHeader.vbr_toc_offset(mid, streamsize) <= offset) {
+                low = mid;
+            }
+            else {
+                high = mid;
+            }
         }
-        currentFrame = currentFrame + framesRead;
-        return bytesReads;
+        return low;
+    }
+
+    /**
+     * Position in the encoded stream of the next frame to decode.
+     */
+    private long nextFramePosition() {
+        return (m_header != null) ? m_bitstream.frame_pos() : m_bitstream.stream_pos();
     }
 
     private boolean isBigEndian() {
@@ -265,6 +541,14 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             throws IOException {
         super.close();
         m_encodedStream.close();
+        if (m_fileBitstream != null) {
+            try {
+                m_fileBitstream.close();
+            }
+            catch (final BitstreamException e) {
+                throw new IOException(e);
+            }
+        }
     }
 
     @Override
@@ -272,16 +556,31 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
         System.out.println("TAG:" + tpe.getTag());
     }
 
+    private boolean isFloat() {
+        return AudioFormat.Encoding.PCM_FLOAT.equals(getFormat().getEncoding());
+    }
+
+    /**
+     * Interleaves the decoded samples into bytes of the output format:
+     * 16 bit signed integers, or 32 bit floats written straight from
+     * the synthesis filter output without going through shorts.
+     */
     private class DMAISObuffer extends Obuffer {
 
+        private static final float FLOAT_SCALE = 1.0f / 32768.0f;
+
         private final int m_nChannels;
         private final byte[] m_abBuffer;
         private final int[] m_anBufferPointers;
         private final boolean m_bIsBigEndian;
+        private final boolean m_bIsFloat;
+        private final int m_nSampleSize;
 
         public DMAISObuffer(final int nChannels) {
             m_nChannels = nChannels;
-            m_abBuffer = new byte[OBUFFERSIZE * nChannels];
+            m_bIsFloat = isFloat();
+            m_nSampleSize = m_bIsFloat ? 4 : 2;
+            m_abBuffer = new byte[OBUFFERSIZE * nChannels * m_nSampleSize / 2];
             m_anBufferPointers = new int[nChannels];
             reset();
             m_bIsBigEndian = isBigEndian();
@@ -289,6 +588,10 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
 
         @Override
         public void append(final int nChannel, final short sValue) {
+            if (m_bIsFloat) {
+                appendFloat(nChannel, sValue * FLOAT_SCALE);
+                return;
+            }
             final byte bFirstByte;
             final byte bSecondByte;
             if (m_bIsBigEndian) {
@@ -305,6 +608,35 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
             m_anBufferPointers[nChannel] += m_nChannels * 2;
         }
 
+        @Override
+        public void appendSamples(final int nChannel, final float[] f) {
+            if (!m_bIsFloat) {
+                super.appendSamples(nChannel, f);
+                return;
+            }
+            for (int i = 0; i < 32; i++) {
+                appendFloat(nChannel, f[i] * FLOAT_SCALE);
+            }
+        }
+
+        private void appendFloat(final int nChannel, final float fValue) {
+            final int nBits = Float.floatToRawIntBits(fValue);
+            final int nPos = m_anBufferPointers[nChannel];
+            if (m_bIsBigEndian) {
+                m_abBuffer[nPos] = (byte) (nBits >>> 24);
+                m_abBuffer[nPos + 1] = (byte) (nBits >>> 16);
+                m_abBuffer[nPos + 2] = (byte) (nBits >>> 8);
+                m_abBuffer[nPos + 3] = (byte) nBits;
+            }
+            else {
+                m_abBuffer[nPos] = (byte) nBits;
+                m_abBuffer[nPos + 1] = (byte) (nBits >>> 8);
+                m_abBuffer[nPos + 2] = (byte) (nBits >>> 16);
+                m_abBuffer[nPos + 3] = (byte) (nBits >>> 24);
+            }
+            m_anBufferPointers[nChannel] = nPos + m_nChannels * 4;
+        }
+
         @Override
         public void set_stop_flag() {
         }
@@ -331,11 +663,9 @@ public class DecodedMpegAudioInputStream extends TAsynchronousFilteredAudioInput
 
         public void reset() {
             for (int i = 0; i < m_nChannels; i++) {
-                /*	Points to byte location,
-                 *	implicitely assuming 16 bit
-                 *	samples.
+                /*	Points to byte location.
                  */
-                m_anBufferPointers[i] = i * 2;
+                m_anBufferPointers[i] = i * m_nSampleSize;
             }
         }
 
@@ -44,6 +44,7 @@ public class MpegFormatConversionProvider extends TEncodingFormatConversionProvi
 {
 	private static final AudioFormat.Encoding	MP3 = Encodings.getEncoding("MP3");
 	private static final AudioFormat.Encoding	PCM_SIGNED = Encodings.getEncoding("PCM_SIGNED");
+	private static final AudioFormat.Encoding	PCM_FLOAT = AudioFormat.Encoding.PCM_FLOAT;
 
 	private static final AudioFormat[]	INPUT_FORMATS =
 	{
@@ -64,6 +65,12 @@ public class MpegFormatConversionProvider extends TEncodingFormatConversionProvi
 		// stereo, 16 bit signed
 		new AudioFormat(PCM_SIGNED, -1.0F, 16, 2, 4, -1.0F, false),
 		new AudioFormat(PCM_SIGNED, -1.0F, 16, 2, 4, -1.0F, true),
+		// mono, 32 bit float
+		new AudioFormat(PCM_FLOAT, -1.0F, 32, 1, 4, -1.0F, false),
+		new AudioFormat(PCM_FLOAT, -1.0F, 32, 1, 4, -1.0F, true),
+		// stereo, 32 bit float
+		new AudioFormat(PCM_FLOAT, -1.0F, 32, 2, 8, -1.0F, false),
+		new AudioFormat(PCM_FLOAT, -1.0F, 32, 2, 8, -1.0F, true),
 	};
 
 	/**	
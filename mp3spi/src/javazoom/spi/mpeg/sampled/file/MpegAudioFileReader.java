@@ -17,6 +17,7 @@
 package javazoom.spi.mpeg.sampled.file;
 
 import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.FrameIndex;
 import javazoom.jl.decoder.Header;
 import javazoom.spi.mpeg.sampled.file.tag.IcyInputStream;
 import javazoom.spi.mpeg.sampled.file.tag.MP3Tag;
@@ -314,13 +315,16 @@ public class MpegAudioFileReader extends TAudioFileReader {
 
     /**
      * Returns AudioInputStream from file.
+     * When a frame index was saved next to the file, see {@link FrameIndex#createSidecar(File, int)},
+     * it is passed to the decoder in the <b>mp3.frameindex</b> format property. The file itself is
+     * passed in the <b>mp3.file</b> format property, so that the decoder can seek backwards.
      */
     @Override
     public AudioInputStream getAudioInputStream(final File file)
             throws UnsupportedAudioFileException, IOException {
         final InputStream inputStream = new FileInputStream(file);
         try {
-            return getAudioInputStream(inputStream);
+            return withSourceFile(getAudioInputStream(inputStream), file, FrameIndex.loadSidecar(file));
         }
         catch (final UnsupportedAudioFileException | IOException | RuntimeException e) {
             inputStream.close();
@@ -328,6 +332,26 @@ public class MpegAudioFileReader extends TAudioFileReader {
         }
     }
 
+    private static AudioInputStream withSourceFile(final AudioInputStream audioInputStream, final File file,
+                                                   final FrameIndex index) {
+        final AudioFormat format = audioInputStream.getFormat();
+        final Map<String, Object> afProperties = new HashMap<>(format.properties());
+        afProperties.put("mp3.file", file);
+        if (index != null) {
+            afProperties.put("mp3.frameindex", index);
+        }
+        final AudioFormat fileFormat = new MpegAudioFormat(
+                format.getEncoding(),
+                format.getSampleRate(),
+                format.getSampleSizeInBits(),
+                format.getChannels(),
+                format.getFrameSize(),
+                format.getFrameRate(),
+                format.isBigEndian(),
+                afProperties);
+        return new AudioInputStream(audioInputStream, fileFormat, audioInputStream.getFrameLength());
+    }
+
     /**
      * Returns AudioInputStream from url.
      */
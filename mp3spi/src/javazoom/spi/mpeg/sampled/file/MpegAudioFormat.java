@@ -58,6 +58,8 @@ public class MpegAudioFormat extends TAudioFormat
 	 * <ul>
 	 * <li><b>bitrate</b> [Integer], bitrate in bits per seconds, average bitrate for VBR enabled stream.
 	 * <li><b>vbr</b> [Boolean], VBR flag.
+	 * <li><b>mp3.frameindex</b> [javazoom.jl.decoder.FrameIndex], frame positions loaded from the index file, if any.
+	 * <li><b>mp3.file</b> [File], the file the stream is read from, when it was opened from a file.
 	 * </ul>
 	 */
 	public Map properties()
@@ -1,3 +1,4 @@
+import javazoom.spi.mpeg.sampled.convert.SeekTest;
 import javazoom.spi.mpeg.sampled.file.PropertiesTest;
 import javazoom.spi.mpeg.sampled.file.MpegAudioFileReaderTest;
 import junit.framework.Test;
@@ -17,6 +18,7 @@ public class AllSPITests
 		suite.addTest(new TestSuite(MpegAudioFileReaderTest.class));
 		suite.addTest(new TestSuite(PropertiesTest.class));
 		suite.addTest(new TestSuite(PlayerTest.class));
+		suite.addTest(new TestSuite(SeekTest.class));
 		//$JUnit-END$
 		return suite;
 	}
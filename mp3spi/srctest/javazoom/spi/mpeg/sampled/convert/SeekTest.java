@@ -0,0 +1,278 @@
+/*
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+package javazoom.spi.mpeg.sampled.convert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javazoom.jl.decoder.FrameIndex;
+import junit.framework.TestCase;
+
+/**
+ * Seeks generated VBR and CBR streams by time, and checks the
+ * position of the encoded stream and the amount of PCM left.
+ */
+public class SeekTest extends TestCase
+{
+	// MPEG-1 Layer II, 48 kHz, single channel, 24 ms per frame.
+	private static final int LAYER2_HEADER = 0xFFFD04C0;
+	// 64, 128 and 192 kbit/s bitrate indexes, and the matching frame sizes.
+	private static final int[] BITRATES = {4, 8, 10};
+	private static final int[] FRAMESIZES = {192, 384, 576};
+	private static final int FRAMES = 400;
+	private static final int PCM_FRAME = 1152 * 2;
+
+	private File vbr = null;
+	private File cbr = null;
+	private long[] vbrOffsets = new long[FRAMES + 1];
+	private long[] cbrOffsets = new long[FRAMES + 1];
+
+	/**
+	 * Constructor for SeekTest.
+	 * @param arg0
+	 */
+	public SeekTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		vbr = generate(true, vbrOffsets);
+		cbr = generate(false, cbrOffsets);
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		FrameIndex.getSidecar(cbr).delete();
+		vbr.delete();
+		cbr.delete();
+	}
+
+	public void testTableOfContents() throws Exception
+	{
+		long[] targets = {2400000, 3600000, 5016000, 9000000};
+		for (int i = 0; i < targets.length; i++)
+		{
+			DecodedMpegAudioInputStream din = open(vbr);
+			assertEquals(targets[i], din.seekMicroseconds(targets[i]));
+			// the frame reached is close to the target, and is a frame start
+			int frame = (int) (targets[i] / 24000);
+			int reached = Arrays.binarySearch(vbrOffsets, position(din));
+			assertTrue("not on a frame: " + position(din), reached >= 0);
+			assertTrue("frame " + reached + " for " + frame, Math.abs(reached - frame) <= 3);
+			assertEquals((FRAMES - reached) * PCM_FRAME, remaining(din));
+		}
+	}
+
+	public void testForwardOnly() throws Exception
+	{
+		DecodedMpegAudioInputStream din = decode(AudioSystem.getAudioInputStream(new BufferedInputStream(new FileInputStream(vbr))));
+		assertEquals(4800000, din.seekMicroseconds(4800000));
+		assertEquals(4896000, din.seekMicroseconds(4896000));
+		// the encoded stream only moves forward
+		assertEquals(-1, din.seekMicroseconds(1000000));
+		din.close();
+	}
+
+	public void testBackwardFromFile() throws Exception
+	{
+		DecodedMpegAudioInputStream din = open(cbr);
+		assertEquals(4800000, din.seekMicroseconds(4800000));
+		// the source file is read from now on
+		assertEquals(1200000, din.seekMicroseconds(1200000));
+		assertEquals(cbrOffsets[50], position(din));
+		assertEquals((FRAMES - 50) * PCM_FRAME, remaining(din));
+	}
+
+	public void testBackwardTableOfContents() throws Exception
+	{
+		DecodedMpegAudioInputStream din = open(vbr);
+		assertEquals(9000000, din.seekMicroseconds(9000000));
+		assertEquals(2400000, din.seekMicroseconds(2400000));
+		int reached = Arrays.binarySearch(vbrOffsets, position(din));
+		assertTrue("not on a frame: " + position(din), reached >= 0);
+		assertTrue("frame " + reached + " for 100", Math.abs(reached - 100) <= 3);
+		assertEquals((FRAMES - reached) * PCM_FRAME, remaining(din));
+	}
+
+	public void testSkipVbr() throws Exception
+	{
+		DecodedMpegAudioInputStream din = open(vbr);
+		long skipped = din.skip(vbr.length() / 2);
+		assertTrue(Math.abs(skipped - vbr.length() / 2) < 4 * FRAMESIZES[2]);
+		din.close();
+	}
+
+	public void testFrameByFrame() throws Exception
+	{
+		DecodedMpegAudioInputStream din = open(cbr);
+		assertEquals(2400000, din.seekMicroseconds(2400000));
+		assertEquals(cbrOffsets[100], position(din));
+		assertEquals((FRAMES - 100) * PCM_FRAME, remaining(din));
+	}
+
+	public void testFrameIndex() throws Exception
+	{
+		FrameIndex.createSidecar(cbr, 4);
+		DecodedMpegAudioInputStream din = open(cbr);
+		assertNotNull(din.getFrameIndex());
+		assertEquals(4824000, din.seekMicroseconds(4824000));
+		assertEquals(cbrOffsets[201], position(din));
+		assertEquals((FRAMES - 201) * PCM_FRAME, remaining(din));
+	}
+
+	public void testSkipFramesIndex() throws Exception
+	{
+		FrameIndex.createSidecar(cbr, 4);
+		DecodedMpegAudioInputStream expected = open(cbr);
+		assertEquals(2424000, expected.seekMicroseconds(2424000));
+		DecodedMpegAudioInputStream din = open(cbr);
+		// leaves half of the first frame decoded in the buffer
+		byte[] data = new byte[PCM_FRAME / 2];
+		assertEquals(data.length, din.read(data, 0, data.length));
+		din.skipFrames(100);
+		assertEquals(cbrOffsets[101], position(din));
+		// the frames before the target were decoded, none of them is left
+		assertTrue(Arrays.equals(readAll(expected), readAll(din)));
+	}
+
+	public void testSkipFramesReadAhead() throws Exception
+	{
+		DecodedMpegAudioInputStream din = open(cbr);
+		byte[] data = new byte[PCM_FRAME / 2];
+		assertEquals(data.length, din.read(data, 0, data.length));
+		din.startReadAhead();
+		// lets the decoder fill the buffer
+		long end = System.currentTimeMillis() + 5000;
+		while ((din.available() < 8 * PCM_FRAME) && (System.currentTimeMillis() < end))
+			Thread.sleep(10);
+		din.skipFrames(100);
+		// nothing decoded before the skip is read after it, neither the
+		// rest of the first frame nor the frames decoded ahead
+		long remaining = remaining(din);
+		assertEquals(0, remaining % PCM_FRAME);
+		assertTrue("remaining " + remaining, remaining <= (FRAMES - 108) * PCM_FRAME);
+	}
+
+	private DecodedMpegAudioInputStream open(File file) throws Exception
+	{
+		return decode(AudioSystem.getAudioInputStream(file));
+	}
+
+	private DecodedMpegAudioInputStream decode(AudioInputStream in) throws Exception
+	{
+		AudioFormat baseFormat = in.getFormat();
+		AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+				baseFormat.getSampleRate(), 16, 1, 2, baseFormat.getSampleRate(), false);
+		return (DecodedMpegAudioInputStream) AudioSystem.getAudioInputStream(decodedFormat, in);
+	}
+
+	private static long position(DecodedMpegAudioInputStream din)
+	{
+		return ((Long) din.properties().get("mp3.position.byte")).longValue();
+	}
+
+	private static long remaining(AudioInputStream din) throws Exception
+	{
+		byte[] data = new byte[4096];
+		long total = 0;
+		int read;
+		while ((read = din.read(data, 0, data.length)) != -1)
+			total += read;
+		din.close();
+		return total;
+	}
+
+	private static byte[] readAll(AudioInputStream din) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] data = new byte[4096];
+		int read;
+		while ((read = din.read(data, 0, data.length)) != -1)
+			out.write(data, 0, read);
+		din.close();
+		return out.toByteArray();
+	}
+
+	private static File generate(boolean variable, long[] offsets) throws Exception
+	{
+		Random random = new Random(variable ? 0x564252L : 0x434252L);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[][] frames = new byte[FRAMES][];
+		for (int i = 0; i < FRAMES; i++)
+		{
+			int rate = (variable && (i > 0)) ? random.nextInt(BITRATES.length) : 2;
+			byte[] frame = new byte[FRAMESIZES[rate]];
+			random.nextBytes(frame);
+			// no false sync words in the frame data
+			for (int k = 4; k < frame.length; k++)
+				frame[k] = (byte) (frame[k] & 0x0F);
+			int header = LAYER2_HEADER | (BITRATES[rate] << 12);
+			frame[0] = (byte) (header >>> 24);
+			frame[1] = (byte) (header >>> 16);
+			frame[2] = (byte) (header >>> 8);
+			frame[3] = (byte) header;
+			frames[i] = frame;
+			offsets[i + 1] = offsets[i] + frame.length;
+		}
+		if (variable)
+		{
+			// Xing header in the first frame, after the mono side info
+			byte[] xing = frames[0];
+			int pos = 4 + 17;
+			xing[pos++] = 'X'; xing[pos++] = 'i'; xing[pos++] = 'n'; xing[pos++] = 'g';
+			pos = putInt(xing, pos, 0x07);
+			pos = putInt(xing, pos, FRAMES);
+			pos = putInt(xing, pos, (int) offsets[FRAMES]);
+			for (int i = 0; i < 100; i++)
+				xing[pos++] = (byte) (offsets[i * FRAMES / 100] * 256 / offsets[FRAMES]);
+		}
+		for (int i = 0; i < FRAMES; i++)
+			out.write(frames[i]);
+		File file = File.createTempFile("seektest", ".mp2");
+		FileOutputStream fout = new FileOutputStream(file);
+		fout.write(out.toByteArray());
+		fout.close();
+		return file;
+	}
+
+	private static int putInt(byte[] b, int pos, int value)
+	{
+		b[pos++] = (byte) (value >>> 24);
+		b[pos++] = (byte) (value >>> 16);
+		b[pos++] = (byte) (value >>> 8);
+		b[pos++] = (byte) value;
+		return pos;
+	}
+}
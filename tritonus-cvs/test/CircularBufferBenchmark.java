@@ -0,0 +1,110 @@
+/*
+ *	CircularBufferBenchmark.java
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+import	org.tritonus.share.TCircularBuffer;
+import	org.tritonus.share.TLockFreeCircularBuffer;
+import	org.tritonus.share.TLockFreeCircularBuffer.WaitStrategy;
+
+
+
+/**	Moves data from a writing to a reading thread through
+	TCircularBuffer and through TLockFreeCircularBuffer with
+	each wait strategy. The buffer is small against the amount
+	of data, so both threads often find it full or empty.
+
+	Usage: java CircularBufferBenchmark [megabytes] [buffer size] [chunk size]
+*/
+public class CircularBufferBenchmark
+{
+	public static void main(String[] args)
+		throws Exception
+	{
+		int	nMegabytes = (args.length > 0) ? Integer.parseInt(args[0]) : 256;
+		int	nBufferSize = (args.length > 1) ? Integer.parseInt(args[1]) : 16384;
+		int	nChunkSize = (args.length > 2) ? Integer.parseInt(args[2]) : 4096;
+		long	lTotal = (long) nMegabytes << 20;
+		System.out.println("processors: " + Runtime.getRuntime().availableProcessors()
+				   + ", buffer: " + nBufferSize + ", chunk: " + nChunkSize);
+		WaitStrategy[]	strategies = WaitStrategy.values();
+		for (int nRound = 0; nRound < 3; nRound++)
+		{
+			// the first round warms up
+			boolean	bPrint = nRound > 0;
+			long	lTime = transfer(new TCircularBuffer(nBufferSize, true, true, null), lTotal, nChunkSize);
+			print(bPrint, "TCircularBuffer", lTime, lTotal);
+			for (int i = 0; i < strategies.length; i++)
+			{
+				lTime = transfer(new TLockFreeCircularBuffer(nBufferSize, true, true, null, strategies[i]), lTotal, nChunkSize);
+				print(bPrint, "TLockFreeCircularBuffer " + strategies[i], lTime, lTotal);
+			}
+		}
+	}
+
+
+
+	private static long transfer(final TCircularBuffer buffer, final long lTotal, final int nChunkSize)
+		throws InterruptedException
+	{
+		Thread	writer = new Thread()
+		{
+			public void run()
+			{
+				byte[]	abData = new byte[nChunkSize];
+				for (long lWritten = 0; lWritten < lTotal; lWritten += nChunkSize)
+				{
+					buffer.write(abData, 0, (int) Math.min(nChunkSize, lTotal - lWritten));
+				}
+				buffer.close();
+			}
+		};
+		byte[]	abData = new byte[nChunkSize];
+		long	lStart = System.nanoTime();
+		writer.start();
+		long	lRead = 0;
+		while (lRead < lTotal)
+		{
+			int	nRead = buffer.read(abData, 0, (int) Math.min(nChunkSize, lTotal - lRead));
+			if (nRead < 0)
+			{
+				break;
+			}
+			lRead += nRead;
+		}
+		writer.join();
+		return System.nanoTime() - lStart;
+	}
+
+
+
+	private static void print(boolean bPrint, String strName, long lNanos, long lBytes)
+	{
+		if (bPrint)
+		{
+			System.out.println(strName + ": " + (lNanos / 1000000) + " ms, "
+					   + (lBytes * 1000 / lNanos) + " MB/s");
+		}
+	}
+}
+
+
+
+/*** CircularBufferBenchmark.java ***/
@@ -0,0 +1,181 @@
+/*
+ *	ReadAheadBenchmark.java
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+import	java.util.concurrent.locks.LockSupport;
+
+import	javax.sound.sampled.AudioFormat;
+import	javax.sound.sampled.AudioSystem;
+
+import	org.tritonus.share.TSettings;
+import	org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
+
+
+
+/**	Reads through a TAsynchronousFilteredAudioInputStream that
+	decodes ahead, once with TCircularBuffer and once with
+	TLockFreeCircularBuffer, as a converter is used in playback.
+	execute() stands for a decoder: it computes for a while and
+	writes one frame, and every 50th frame takes ten times as
+	long. The reader first reads as fast as it can, giving the
+	throughput, then at half of that rate, as a line would take
+	the data, giving the longest time one read() took although
+	data was ready.
+
+	Usage: java ReadAheadBenchmark [megabytes] [frame size] [work per frame]
+*/
+public class ReadAheadBenchmark
+{
+	private static final AudioFormat	FORMAT = new AudioFormat(44100.0F, 16, 2, true, false);
+	private static final int		READ_SIZE = 4096;
+
+
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		int	nMegabytes = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+		int	nFrameSize = (args.length > 1) ? Integer.parseInt(args[1]) : 4608;
+		int	nWork = (args.length > 2) ? Integer.parseInt(args[2]) : 20000;
+		long	lTotal = (long) nMegabytes << 20;
+		System.out.println("processors: " + Runtime.getRuntime().availableProcessors()
+				   + ", frame: " + nFrameSize + ", work: " + nWork);
+		for (int nRound = 0; nRound < 3; nRound++)
+		{
+			// the first round warms up
+			boolean	bPrint = nRound > 0;
+			for (int i = 0; i < 2; i++)
+			{
+				TSettings.LockedCircularBuffer = (i == 0);
+				String	strName = (i == 0) ? "TCircularBuffer" : "TLockFreeCircularBuffer";
+				long[]	alResult = read(lTotal, nFrameSize, nWork, 0);
+				long	lNanosPerRead = alResult[0] * READ_SIZE / lTotal;
+				if (bPrint)
+				{
+					System.out.println(strName + ": " + (alResult[0] / 1000000) + " ms, "
+							   + (lTotal * 1000 / alResult[0]) + " MB/s");
+				}
+				// the reader takes half of what the decoder gives
+				alResult = read(lTotal / 4, nFrameSize, nWork, 2 * lNanosPerRead);
+				if (bPrint)
+				{
+					System.out.println(strName + " paced: max read "
+							   + (alResult[1] / 1000) + " us");
+				}
+			}
+		}
+	}
+
+
+
+	/**	@return the time of all reads and the longest time of a
+		read that found data, in nanoseconds.
+	*/
+	private static long[] read(long lTotal, int nFrameSize, int nWork, long lPeriod)
+		throws Exception
+	{
+		SimulatedDecoder	stream = new SimulatedDecoder(lTotal, nFrameSize, nWork);
+		stream.startReadAhead();
+		byte[]	abData = new byte[READ_SIZE];
+		long	lMaxRead = 0;
+		long	lStart = System.nanoTime();
+		long	lNext = lStart;
+		long	lRead = 0;
+		while (true)
+		{
+			boolean	bReady = stream.available() >= abData.length;
+			long	lBefore = System.nanoTime();
+			int	nRead = stream.read(abData);
+			if (nRead < 0)
+			{
+				break;
+			}
+			if (bReady)
+			{
+				lMaxRead = Math.max(lMaxRead, System.nanoTime() - lBefore);
+			}
+			lRead += nRead;
+			if (lPeriod > 0)
+			{
+				lNext += lPeriod;
+				long	lWait;
+				while ((lWait = lNext - System.nanoTime()) > 0)
+				{
+					LockSupport.parkNanos(lWait);
+				}
+			}
+		}
+		long	lTime = System.nanoTime() - lStart;
+		stream.close();
+		if (lRead != lTotal)
+		{
+			throw new IllegalStateException("read " + lRead + " of " + lTotal + " bytes");
+		}
+		return new long[] { lTime, lMaxRead };
+	}
+
+
+
+	private static class SimulatedDecoder
+	extends TAsynchronousFilteredAudioInputStream
+	{
+		private final byte[]	m_abFrame;
+		private final int	m_nWork;
+		private long		m_lRemaining;
+		private int		m_nFrames;
+		private double		m_dSink;
+
+
+
+		public SimulatedDecoder(long lTotal, int nFrameSize, int nWork)
+		{
+			super(FORMAT, AudioSystem.NOT_SPECIFIED);
+			m_abFrame = new byte[nFrameSize];
+			m_nWork = nWork;
+			m_lRemaining = lTotal;
+		}
+
+
+
+		public void execute()
+		{
+			if (m_lRemaining == 0)
+			{
+				getCircularBuffer().close();
+				return;
+			}
+			int	nWork = (++m_nFrames % 50 == 0) ? 10 * m_nWork : m_nWork;
+			double	dValue = m_dSink;
+			for (int i = 0; i < nWork; i++)
+			{
+				dValue = dValue * 0.999 + i;
+			}
+			m_dSink = dValue;
+			int	nLength = (int) Math.min(m_abFrame.length, m_lRemaining);
+			getCircularBuffer().write(m_abFrame, 0, nLength);
+			m_lRemaining -= nLength;
+		}
+	}
+}
+
+
+
+/*** ReadAheadBenchmark.java ***/
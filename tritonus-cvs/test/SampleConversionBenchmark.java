@@ -0,0 +1,148 @@
+/*
+ *	SampleConversionBenchmark.java
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+import	java.util.Random;
+
+import	javax.sound.sampled.AudioFormat;
+
+import	org.tritonus.share.TSettings;
+import	org.tritonus.share.sampled.FloatSampleTools;
+
+
+
+/**	Times FloatSampleTools for 16, 24 and 32 bit PCM in both
+	byte orders, from bytes to floats and back, interleaved and
+	planar. Each case runs with the generic loops
+	(TSettings.GenericSampleConversion) and with the specialized
+	ones, alternating, and the best round is printed.
+
+	Usage: java SampleConversionBenchmark [frames] [iterations]
+*/
+public class SampleConversionBenchmark
+{
+	private static final int	CHANNELS = 2;
+	private static final int	ROUNDS = 5;
+
+
+
+	public static void main(String[] args)
+	{
+		int	nFrames = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+		int	nIterations = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int[]	anSampleSizes = { 16, 24, 32 };
+		boolean[]	abBigEndian = { false, true };
+		float[]	afInterleaved = new float[nFrames * CHANNELS];
+		Object[]	aPlanar = new Object[CHANNELS];
+		Random	random = new Random(1);
+		for (int i = 0; i < afInterleaved.length; i++)
+		{
+			afInterleaved[i] = random.nextFloat() * 2.0f - 1.0f;
+		}
+		for (int nChannel = 0; nChannel < CHANNELS; nChannel++)
+		{
+			aPlanar[nChannel] = new float[nFrames];
+			System.arraycopy(afInterleaved, nChannel * nFrames / 2, aPlanar[nChannel], 0, nFrames / 2);
+		}
+		System.out.println("frames: " + nFrames + ", channels: " + CHANNELS
+				   + ", iterations: " + nIterations + ", Msamples/s generic / specialized");
+		for (int i = 0; i < anSampleSizes.length; i++)
+		{
+			for (int j = 0; j < abBigEndian.length; j++)
+			{
+				AudioFormat	format = new AudioFormat(44100.0F, anSampleSizes[i], CHANNELS, true, abBigEndian[j]);
+				byte[]	abData = new byte[nFrames * format.getFrameSize()];
+				FloatSampleTools.float2byteInterleaved(afInterleaved, 0, abData, 0, nFrames, format, 0.0f);
+				String	strFormat = anSampleSizes[i] + " bit " + (abBigEndian[j] ? "BE" : "LE");
+				for (int nCase = 0; nCase < 4; nCase++)
+				{
+					long[]	alBest = { Long.MAX_VALUE, Long.MAX_VALUE };
+					// the first round warms up
+					for (int nRound = 0; nRound <= ROUNDS; nRound++)
+					{
+						for (int nMode = 0; nMode < 2; nMode++)
+						{
+							TSettings.GenericSampleConversion = nMode == 0;
+							long	lTime = run(nCase, format, abData, afInterleaved, aPlanar, nFrames, nIterations);
+							if (nRound > 0)
+							{
+								alBest[nMode] = Math.min(alBest[nMode], lTime);
+							}
+						}
+					}
+					long	lSamples = (long) nFrames * CHANNELS * nIterations;
+					System.out.println(strFormat + " " + getCaseName(nCase) + ": "
+							   + (lSamples * 1000 / alBest[0]) + " / "
+							   + (lSamples * 1000 / alBest[1]));
+				}
+			}
+		}
+	}
+
+
+
+	private static long run(int nCase, AudioFormat format, byte[] abData,
+				float[] afInterleaved, Object[] aPlanar,
+				int nFrames, int nIterations)
+	{
+		long	lStart = System.nanoTime();
+		for (int i = 0; i < nIterations; i++)
+		{
+			switch (nCase)
+			{
+			case 0:
+				FloatSampleTools.byte2floatInterleaved(abData, 0, afInterleaved, 0, nFrames, format);
+				break;
+			case 1:
+				FloatSampleTools.byte2float(abData, 0, aPlanar, 0, nFrames, format);
+				break;
+			case 2:
+				FloatSampleTools.float2byteInterleaved(afInterleaved, 0, abData, 0, nFrames, format, 0.0f);
+				break;
+			case 3:
+				FloatSampleTools.float2byte(aPlanar, 0, abData, 0, nFrames, format, 0.0f);
+				break;
+			}
+		}
+		return System.nanoTime() - lStart;
+	}
+
+
+
+	private static String getCaseName(int nCase)
+	{
+		switch (nCase)
+		{
+		case 0:
+			return "bytes -> interleaved";
+		case 1:
+			return "bytes -> planar";
+		case 2:
+			return "interleaved -> bytes";
+		default:
+			return "planar -> bytes";
+		}
+	}
+}
+
+
+
+/*** SampleConversionBenchmark.java ***/
@@ -0,0 +1,279 @@
+/*
+ *	FloatSampleToolsTestCase.java
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.tritonus.test;
+
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+
+import junit.framework.TestCase;
+
+import org.tritonus.share.TSettings;
+import org.tritonus.share.sampled.FloatSampleTools;
+
+
+
+/**	Compares the specialized conversion loops of FloatSampleTools
+	with the generic ones, for each sample size and byte order,
+	interleaved and planar.
+*/
+public class FloatSampleToolsTestCase
+extends TestCase
+{
+	private static final int	FRAMES = 1000;
+	private static final int	CHANNELS = 3;
+
+	private static final float[]	SPECIAL_SAMPLES =
+	{
+		0.0f, -0.0f, 1.0f, -1.0f, 1.5f, -1.5f,
+		0.99999994f, -0.99999994f, 0.5f / 32768.0f, -0.5f / 32768.0f,
+		1.5f / 32768.0f, -1.5f / 32768.0f,
+		Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+	};
+
+	private boolean	m_bGenericSampleConversion;
+
+
+
+	public FloatSampleToolsTestCase(String strName)
+	{
+		super(strName);
+	}
+
+
+
+	protected void setUp()
+	{
+		m_bGenericSampleConversion = TSettings.GenericSampleConversion;
+	}
+
+
+
+	protected void tearDown()
+	{
+		TSettings.GenericSampleConversion = m_bGenericSampleConversion;
+	}
+
+
+
+	public void testByte2FloatInterleaved()
+	{
+		AudioFormat[]	formats = getFormats();
+		for (int nFormat = 0; nFormat < formats.length; nFormat++)
+		{
+			AudioFormat	format = formats[nFormat];
+			byte[]	abData = createBytes(format, 1);
+			float[]	afGeneric = new float[FRAMES * CHANNELS];
+			float[]	afSpecialized = new float[FRAMES * CHANNELS];
+			TSettings.GenericSampleConversion = true;
+			FloatSampleTools.byte2floatInterleaved(abData, 0, afGeneric, 0, FRAMES, format);
+			TSettings.GenericSampleConversion = false;
+			FloatSampleTools.byte2floatInterleaved(abData, 0, afSpecialized, 0, FRAMES, format);
+			assertFloatsEqual(format.toString(), afGeneric, afSpecialized);
+		}
+	}
+
+
+
+	public void testByte2FloatPlanar()
+	{
+		AudioFormat[]	formats = getFormats();
+		for (int nFormat = 0; nFormat < formats.length; nFormat++)
+		{
+			AudioFormat	format = formats[nFormat];
+			// start in the middle of the array to check the offsets
+			int	nFrameOffset = 7;
+			byte[]	abData = createBytes(format, 2);
+			Object[]	aGeneric = new Object[CHANNELS];
+			Object[]	aSpecialized = new Object[CHANNELS];
+			for (int nChannel = 0; nChannel < CHANNELS; nChannel++)
+			{
+				aGeneric[nChannel] = new float[FRAMES + 5];
+				aSpecialized[nChannel] = new float[FRAMES + 5];
+			}
+			int	nByteOffset = nFrameOffset * format.getFrameSize();
+			int	nFrames = FRAMES - nFrameOffset;
+			TSettings.GenericSampleConversion = true;
+			FloatSampleTools.byte2float(abData, nByteOffset, aGeneric, 5, nFrames, format);
+			TSettings.GenericSampleConversion = false;
+			FloatSampleTools.byte2float(abData, nByteOffset, aSpecialized, 5, nFrames, format);
+			for (int nChannel = 0; nChannel < CHANNELS; nChannel++)
+			{
+				assertFloatsEqual(format.toString() + ", channel " + nChannel,
+						  (float[]) aGeneric[nChannel],
+						  (float[]) aSpecialized[nChannel]);
+			}
+		}
+	}
+
+
+
+	public void testFloat2ByteInterleaved()
+	{
+		AudioFormat[]	formats = getFormats();
+		float[]	afData = createFloats(FRAMES * CHANNELS, 3);
+		for (int nFormat = 0; nFormat < formats.length; nFormat++)
+		{
+			AudioFormat	format = formats[nFormat];
+			byte[]	abGeneric = new byte[FRAMES * format.getFrameSize()];
+			byte[]	abSpecialized = new byte[FRAMES * format.getFrameSize()];
+			TSettings.GenericSampleConversion = true;
+			FloatSampleTools.float2byteInterleaved(afData, 0, abGeneric, 0, FRAMES, format, 0.0f);
+			TSettings.GenericSampleConversion = false;
+			FloatSampleTools.float2byteInterleaved(afData, 0, abSpecialized, 0, FRAMES, format, 0.0f);
+			assertTrue(format.toString(), Util.compareByteArrays(abGeneric, 0, abSpecialized, 0, abGeneric.length));
+		}
+	}
+
+
+
+	public void testFloat2BytePlanar()
+	{
+		AudioFormat[]	formats = getFormats();
+		Object[]	aData = new Object[CHANNELS];
+		for (int nChannel = 0; nChannel < CHANNELS; nChannel++)
+		{
+			aData[nChannel] = createFloats(FRAMES, 4 + nChannel);
+		}
+		for (int nFormat = 0; nFormat < formats.length; nFormat++)
+		{
+			AudioFormat	format = formats[nFormat];
+			int	nByteOffset = 3 * format.getFrameSize();
+			int	nFrames = FRAMES - 3;
+			byte[]	abGeneric = new byte[FRAMES * format.getFrameSize()];
+			byte[]	abSpecialized = new byte[FRAMES * format.getFrameSize()];
+			TSettings.GenericSampleConversion = true;
+			FloatSampleTools.float2byte(aData, 2, abGeneric, nByteOffset, nFrames, format, 0.0f);
+			TSettings.GenericSampleConversion = false;
+			FloatSampleTools.float2byte(aData, 2, abSpecialized, nByteOffset, nFrames, format, 0.0f);
+			assertTrue(format.toString(), Util.compareByteArrays(abGeneric, 0, abSpecialized, 0, abGeneric.length));
+		}
+	}
+
+
+
+	/**	The random numbers can't be reproduced, so dithered
+		samples are only checked against the range the dither
+		may move them.
+	*/
+	public void testFloat2ByteDither()
+	{
+		AudioFormat	format = new AudioFormat(44100.0F, 16, 1, true, false);
+		float[]	afData = createFloats(FRAMES, 5);
+		byte[]	abPlain = new byte[FRAMES * 2];
+		byte[]	abDithered = new byte[FRAMES * 2];
+		TSettings.GenericSampleConversion = false;
+		FloatSampleTools.float2byteInterleaved(afData, 0, abPlain, 0, FRAMES, format, 0.0f);
+		FloatSampleTools.float2byteInterleaved(afData, 0, abDithered, 0, FRAMES, format, FloatSampleTools.DEFAULT_DITHER_BITS);
+		for (int i = 0; i < FRAMES; i++)
+		{
+			int	nPlain = (abPlain[2 * i + 1] << 8) | (abPlain[2 * i] & 0xFF);
+			int	nDithered = (abDithered[2 * i + 1] << 8) | (abDithered[2 * i] & 0xFF);
+			assertTrue("sample " + i + ": " + nPlain + " dithered to " + nDithered,
+				   Math.abs(nDithered - nPlain) <= 1);
+		}
+	}
+
+
+
+	public void testRoundTrip()
+	{
+		AudioFormat[]	formats = getFormats();
+		TSettings.GenericSampleConversion = false;
+		for (int nFormat = 0; nFormat < formats.length; nFormat++)
+		{
+			AudioFormat	format = formats[nFormat];
+			if (format.getSampleSizeInBits() == 32)
+			{
+				// a float can't hold 32 bit samples exactly
+				continue;
+			}
+			byte[]	abData = createBytes(format, 6);
+			float[]	afData = new float[FRAMES * CHANNELS];
+			byte[]	abResult = new byte[abData.length];
+			FloatSampleTools.byte2floatInterleaved(abData, 0, afData, 0, FRAMES, format);
+			FloatSampleTools.float2byteInterleaved(afData, 0, abResult, 0, FRAMES, format, 0.0f);
+			assertTrue(format.toString(), Util.compareByteArrays(abData, 0, abResult, 0, abData.length));
+		}
+	}
+
+
+
+	private static AudioFormat[] getFormats()
+	{
+		int[]	anSampleSizes = { 16, 24, 32 };
+		AudioFormat[]	formats = new AudioFormat[anSampleSizes.length * 2];
+		for (int i = 0; i < anSampleSizes.length; i++)
+		{
+			formats[2 * i] = new AudioFormat(44100.0F, anSampleSizes[i], CHANNELS, true, false);
+			formats[2 * i + 1] = new AudioFormat(44100.0F, anSampleSizes[i], CHANNELS, true, true);
+		}
+		return formats;
+	}
+
+
+
+	private static byte[] createBytes(AudioFormat format, long lSeed)
+	{
+		byte[]	abData = new byte[FRAMES * format.getFrameSize()];
+		new Random(lSeed).nextBytes(abData);
+		// full scale samples at the start
+		int	nSampleSize = format.getFrameSize() / format.getChannels();
+		for (int i = 0; i < nSampleSize; i++)
+		{
+			boolean	bMostSignificant = format.isBigEndian() ? i == 0 : i == nSampleSize - 1;
+			abData[i] = bMostSignificant ? (byte) 0x7F : (byte) 0xFF;
+			abData[nSampleSize + i] = bMostSignificant ? (byte) 0x80 : 0;
+		}
+		return abData;
+	}
+
+
+
+	private static float[] createFloats(int nLength, long lSeed)
+	{
+		Random	random = new Random(lSeed);
+		float[]	afData = new float[nLength];
+		for (int i = 0; i < nLength; i++)
+		{
+			afData[i] = random.nextFloat() * 2.2f - 1.1f;
+		}
+		System.arraycopy(SPECIAL_SAMPLES, 0, afData, 0, SPECIAL_SAMPLES.length);
+		return afData;
+	}
+
+
+
+	private static void assertFloatsEqual(String strMessage, float[] afExpected, float[] afActual)
+	{
+		assertEquals(strMessage + ": length", afExpected.length, afActual.length);
+		for (int i = 0; i < afExpected.length; i++)
+		{
+			assertEquals(strMessage + ": sample " + i,
+				     Float.floatToIntBits(afExpected[i]),
+				     Float.floatToIntBits(afActual[i]));
+		}
+	}
+}
+
+
+
+/*** FloatSampleToolsTestCase.java ***/
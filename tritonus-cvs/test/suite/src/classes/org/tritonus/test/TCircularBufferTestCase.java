@@ -155,6 +155,20 @@ extends TestCase
 
 
 
+	public void testSkip()
+	{
+		int	nBufferSize = 1000;
+		TCircularBuffer	buffer = new TCircularBuffer(
+			nBufferSize, false, false, null);
+		buffer.write(new byte[700]);
+		assertEquals("skipped length", 200, buffer.skip(200));
+		assertEquals("availableRead()", 500, buffer.availableRead());
+		assertEquals("skipped length", 500, buffer.skip(1000));
+		assertEquals("availableWrite()", nBufferSize, buffer.availableWrite());
+	}
+
+
+
 
 	private static class TestTrigger
 	implements TCircularBuffer.Trigger
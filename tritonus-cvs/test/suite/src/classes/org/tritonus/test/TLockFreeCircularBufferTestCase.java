@@ -0,0 +1,309 @@
+/*
+ *	TLockFreeCircularBufferTestCase.java
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.tritonus.test;
+
+import junit.framework.TestCase;
+
+import org.tritonus.share.TCircularBuffer;
+import org.tritonus.share.TLockFreeCircularBuffer;
+import org.tritonus.share.TLockFreeCircularBuffer.WaitStrategy;
+
+
+
+public class TLockFreeCircularBufferTestCase
+extends TestCase
+{
+	public TLockFreeCircularBufferTestCase(String strName)
+	{
+		super(strName);
+	}
+
+
+
+	public void testBufferSize()
+	{
+		// not a power of two; the buffer still holds just that
+		int	nSize = 45678;
+		TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			nSize, false, false, null);
+		assertEquals("buffer size", nSize, buffer.availableWrite());
+		assertEquals("written length", nSize, buffer.write(new byte[nSize + 10]));
+		assertEquals("availableWrite()", 0, buffer.availableWrite());
+		nSize = 0;
+		buffer = new TLockFreeCircularBuffer(
+			nSize, false, false, null);
+		assertEquals("buffer size", nSize, buffer.availableWrite());
+	}
+
+
+
+	public void testReadWrite()
+	{
+		int	nBufferSize = 8901 * 4;
+		int	nResult;
+		byte[]	abWriteArray = new byte[nBufferSize];
+		byte[]	abReadArray = new byte[nBufferSize];
+		TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			nBufferSize, true, true, null);
+		for (int i = 0 ; i < abWriteArray.length; i++)
+		{
+			abWriteArray[i] = (byte)(i % 256);
+		}
+		nResult = buffer.write(abWriteArray);
+		assertEquals("written length", abWriteArray.length, nResult);
+		nResult = buffer.read(abReadArray);
+		assertEquals("read length", abReadArray.length, nResult);
+		assertTrue("data content", Util.compareByteArrays(abReadArray, 0, abWriteArray, 0, abReadArray.length));
+
+		// wraps around the end of the storage
+		for (int nRound = 0; nRound < 20; nRound++)
+		{
+			nResult = buffer.write(abWriteArray, nBufferSize / 4, nBufferSize / 2);
+			assertEquals("written length", nBufferSize / 2, nResult);
+			nResult = buffer.read(abReadArray, 0, nBufferSize / 2);
+			assertEquals("read length", nBufferSize / 2, nResult);
+			assertTrue("data content", Util.compareByteArrays(abReadArray, 0, abWriteArray, nBufferSize / 4, nBufferSize / 2));
+		}
+	}
+
+
+
+	public void testTrigger()
+	{
+		int	nBufferSize = 45678;
+		final byte[]	abData = new byte[nBufferSize / 3];
+		final TCircularBuffer[]	buffer = new TCircularBuffer[1];
+		// fills the buffer on the reading thread, as the converters do
+		TCircularBuffer.Trigger	trigger = new TCircularBuffer.Trigger()
+		{
+			public void execute()
+			{
+				buffer[0].write(abData);
+			}
+		};
+		buffer[0] = new TLockFreeCircularBuffer(
+			nBufferSize, false, true, trigger);
+		assertEquals("read length", 10, buffer[0].read(new byte[10]));
+		assertEquals("availableRead()", nBufferSize / 3 - 10, buffer[0].availableRead());
+		// not enough left, so the trigger writes again
+		assertEquals("read length", 2 * (nBufferSize / 3) - 10, buffer[0].read(new byte[nBufferSize]));
+	}
+
+
+
+	public void testClose()
+	{
+		int	nResult;
+		int	nBufferSize = 45678;
+		TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			nBufferSize, true, true, null);
+		buffer.write(new byte[nBufferSize / 2]);
+		buffer.close();
+		assertEquals("availableRead()", nBufferSize / 2, buffer.availableRead());
+		nResult = buffer.read(new byte[nBufferSize]);
+		assertEquals("read length", nBufferSize / 2, nResult);
+		assertEquals("availableWrite()", nBufferSize, buffer.availableWrite());
+		nResult = buffer.read(new byte[nBufferSize / 2]);
+		assertEquals("read length", -1, nResult);
+	}
+
+
+
+	public void testClear()
+	{
+		int	nBufferSize = 1000;
+		TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			nBufferSize, false, false, null);
+		buffer.write(new byte[700]);
+		buffer.clear();
+		assertEquals("availableRead()", 0, buffer.availableRead());
+		assertEquals("availableWrite()", nBufferSize, buffer.availableWrite());
+		assertEquals("read length", 0, buffer.read(new byte[10]));
+	}
+
+
+
+	public void testSkip()
+	{
+		int	nBufferSize = 1000;
+		byte[]	abData = new byte[700];
+		for (int i = 0; i < abData.length; i++)
+		{
+			abData[i] = (byte) i;
+		}
+		TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			nBufferSize, false, false, null);
+		buffer.write(abData);
+		byte[]	abRead = new byte[100];
+		buffer.read(abRead);
+		assertEquals("skipped length", 200, buffer.skip(200));
+		assertEquals("availableRead()", 400, buffer.availableRead());
+		assertEquals("read length", 100, buffer.read(abRead));
+		assertTrue("data content", Util.compareByteArrays(abRead, 0, abData, 300, 100));
+		assertEquals("skipped length", 300, buffer.skip(1000));
+		assertEquals("availableWrite()", nBufferSize, buffer.availableWrite());
+	}
+
+
+
+	/**	A thread that seeks clears the buffer while the writer
+		waits for space and the reader does not read.
+	*/
+	public void testClearWakesWriter()
+		throws Exception
+	{
+		WaitStrategy[]	strategies = WaitStrategy.values();
+		for (int i = 0; i < strategies.length; i++)
+		{
+			final TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+				100, false, true, null, strategies[i]);
+			final int[]	anResult = new int[1];
+			Thread	writer = new Thread()
+			{
+				public void run()
+				{
+					anResult[0] = buffer.write(new byte[150]);
+				}
+			};
+			writer.start();
+			Thread.sleep(50);
+			assertTrue(strategies[i] + ": writer does not wait", writer.isAlive());
+			buffer.clear();
+			writer.join(5000);
+			assertFalse(strategies[i] + ": writer still waits", writer.isAlive());
+			assertEquals(strategies[i] + ": written length", 150, anResult[0]);
+			assertEquals(strategies[i] + ": availableRead()", 50, buffer.availableRead());
+			assertEquals(strategies[i] + ": read length", 50, buffer.read(new byte[100]));
+		}
+	}
+
+
+
+	public void testTransferSpin()
+		throws Exception
+	{
+		checkTransfer(WaitStrategy.SPIN);
+	}
+
+
+
+	public void testTransferPark()
+		throws Exception
+	{
+		checkTransfer(WaitStrategy.PARK);
+	}
+
+
+
+	public void testTransferBlock()
+		throws Exception
+	{
+		checkTransfer(WaitStrategy.BLOCK);
+	}
+
+
+
+	public void testCloseWakesReader()
+		throws Exception
+	{
+		WaitStrategy[]	strategies = WaitStrategy.values();
+		for (int i = 0; i < strategies.length; i++)
+		{
+			final TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+				100, true, true, null, strategies[i]);
+			final int[]	anResult = new int[1];
+			Thread	reader = new Thread()
+			{
+				public void run()
+				{
+					anResult[0] = buffer.read(new byte[10]);
+				}
+			};
+			reader.start();
+			Thread.sleep(50);
+			buffer.close();
+			reader.join(5000);
+			assertFalse(strategies[i] + ": reader still waits", reader.isAlive());
+			assertEquals(strategies[i] + ": read length", -1, anResult[0]);
+		}
+	}
+
+
+
+	/**	Moves a few megabytes through a small buffer, with a
+		writing and a reading thread that both wait.
+	*/
+	private void checkTransfer(WaitStrategy strategy)
+		throws Exception
+	{
+		final int	nTotal = 4 * 1024 * 1024;
+		final TCircularBuffer	buffer = new TLockFreeCircularBuffer(
+			3000, true, true, null, strategy);
+		Thread	writer = new Thread()
+		{
+			public void run()
+			{
+				byte[]	abData = new byte[1500];
+				int	nWritten = 0;
+				int	nChunk = 1;
+				while (nWritten < nTotal)
+				{
+					int	nLength = Math.min(nChunk, nTotal - nWritten);
+					for (int i = 0; i < nLength; i++)
+					{
+						abData[i] = (byte) (nWritten + i);
+					}
+					buffer.write(abData, 0, nLength);
+					nWritten += nLength;
+					nChunk = (nChunk * 7 + 13) % abData.length + 1;
+				}
+				buffer.close();
+			}
+		};
+		writer.start();
+		byte[]	abData = new byte[1024];
+		int	nRead = 0;
+		int	nChunk = 1;
+		while (true)
+		{
+			int	nResult = buffer.read(abData, 0, nChunk);
+			if (nResult == -1)
+			{
+				break;
+			}
+			for (int i = 0; i < nResult; i++)
+			{
+				if (abData[i] != (byte) (nRead + i))
+				{
+					fail(strategy + ": wrong byte at " + (nRead + i));
+				}
+			}
+			nRead += nResult;
+			nChunk = (nChunk * 5 + 11) % abData.length + 1;
+		}
+		writer.join();
+		assertEquals(strategy + ": bytes read", nTotal, nRead);
+	}
+}
+
+
+
+/*** TLockFreeCircularBufferTestCase.java ***/
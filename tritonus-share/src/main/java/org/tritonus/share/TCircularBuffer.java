@@ -43,7 +43,7 @@ public class TCircularBuffer
 	private long		m_lReadPos;
 	private long		m_lWritePos;
 	private Trigger		m_trigger;
-	private boolean		m_bOpen;
+	private volatile boolean	m_bOpen;
 
 
 
@@ -63,13 +63,52 @@ public class TCircularBuffer
 
 	public void close()
 	{
-		m_bOpen = false;
-		// TODO: call notify() ?
+		synchronized (this)
+		{
+			m_bOpen = false;
+			// a writer waiting for space stops waiting
+			notifyAll();
+		}
+	}
+
+
+
+	/**	Drops the data that was written but not read yet.
+	 */
+	public void clear()
+	{
+		synchronized (this)
+		{
+			m_lReadPos = m_lWritePos;
+			notifyAll();
+		}
 	}
 
 
 
-	private boolean isOpen()
+	/**	Drops up to nLength bytes of the data that was written
+		but not read yet. Unlike read(), this never waits and
+		never executes the trigger.
+
+		@return the number of bytes dropped.
+	 */
+	public int skip(int nLength)
+	{
+		synchronized (this)
+		{
+			nLength = Math.max(0, Math.min(nLength, availableRead()));
+			m_lReadPos += nLength;
+			notifyAll();
+			return nLength;
+		}
+	}
+
+
+
+	/**	Returns false once close() was called. Data written before
+		may still be read.
+	 */
+	public boolean isOpen()
 	{
 		return m_bOpen;
 	}
@@ -205,7 +244,7 @@ public class TCircularBuffer
 			int nRemainingBytes = nLength;
 			while (nRemainingBytes > 0)
 			{
-				while (availableWrite() == 0)
+				while (availableWrite() == 0 && isOpen())
 				{
 					try
 					{
@@ -219,6 +258,11 @@ public class TCircularBuffer
 						}
 					}
 				}
+				if (! isOpen() && availableWrite() == 0)
+				{
+					nLength -= nRemainingBytes;
+					break;
+				}
 				int	nAvailable = Math.min(availableWrite(), nRemainingBytes);
 				while (nAvailable > 0)
 				{
@@ -0,0 +1,474 @@
+/*
+ *	TLockFreeCircularBuffer.java
+ *
+ *	This file is part of Tritonus: http://www.tritonus.org/
+ */
+
+/*
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+/*
+|<---            this code is formatted to fit into 80 columns             --->|
+*/
+
+package org.tritonus.share;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.tritonus.share.TDebug;
+
+
+
+/**	A circular buffer for one writing and one reading thread.
+	read() and write() take no lock. The read and the write
+	position are volatile counters, and each side only stores
+	its own one. The storage has a power of two length, so
+	positions are masked instead of taken modulo the size. A
+	thread only waits when the buffer is empty (read) or full
+	(write), in the way the WaitStrategy says.
+
+	Only one thread may call write() and only one thread may
+	call read() at the same time; these may be the same thread,
+	as with a trigger. clear() and skip() may be called from
+	another thread, for instance one that seeks, but by one
+	thread at a time: they move a clear position, which the
+	reader takes over at its next step, so read() stays
+	without a lock. availableRead(), availableWrite() and
+	close() may be called from any thread.
+	The buffer holds the size given to the constructor, as
+	TCircularBuffer does, even if the storage is larger.
+*/
+public class TLockFreeCircularBuffer
+extends TCircularBuffer
+{
+	/**	How a thread waits for data or for space.
+	 */
+	public static enum WaitStrategy
+	{
+		/**	Calls Thread.yield() until the other side moves.
+			Lowest latency, but keeps a processor busy.
+		*/
+		SPIN,
+
+		/**	Parks the thread with LockSupport; the other side
+			unparks it.
+		*/
+		PARK,
+
+		/**	Waits on a monitor; the other side notifies it.
+			The monitor is only taken when a thread waits.
+		*/
+		BLOCK
+	}
+
+
+
+	/**	The longest time a parked thread sleeps before it checks
+		the positions again.
+	*/
+	private static final long	MAX_PARK_NANOS = 10000000L;
+
+	private final boolean		m_bBlockingRead;
+	private final boolean		m_bBlockingWrite;
+	private final byte[]		m_abData;
+	private final int		m_nMask;
+	private final int		m_nSize;
+	private final Trigger		m_trigger;
+	private final WaitStrategy	m_waitStrategy;
+	private final Object		m_lock = new Object();
+
+	private volatile long		m_lReadPos;
+	private volatile long		m_lWritePos;
+	/*	Read position set by clear() and skip(). The reader goes
+		on from here if it is ahead of m_lReadPos.
+	*/
+	private volatile long		m_lClearPos;
+	private volatile boolean	m_bOpen;
+	private volatile Thread		m_readWaiter;
+	private volatile Thread		m_writeWaiter;
+
+	/*	Last read position seen by the writer. It is never
+		ahead of getReadPos(), so the space it gives is never too
+		large, and the writer only loads the read position again
+		when this space is too small for the data to write.
+	*/
+	private long			m_lCachedReadPos;
+
+
+
+	public TLockFreeCircularBuffer(int nSize, boolean bBlockingRead, boolean bBlockingWrite, Trigger trigger)
+	{
+		this(nSize, bBlockingRead, bBlockingWrite, trigger, WaitStrategy.PARK);
+	}
+
+
+
+	public TLockFreeCircularBuffer(int nSize, boolean bBlockingRead, boolean bBlockingWrite, Trigger trigger, WaitStrategy waitStrategy)
+	{
+		// the storage of the superclass is not used
+		super(0, bBlockingRead, bBlockingWrite, trigger);
+		if (nSize < 0 || nSize > (1 << 30))
+		{
+			throw new IllegalArgumentException("illegal buffer size: " + nSize);
+		}
+		m_bBlockingRead = bBlockingRead;
+		m_bBlockingWrite = bBlockingWrite;
+		int	nLength = (nSize <= 1) ? 1 : Integer.highestOneBit(nSize - 1) << 1;
+		m_abData = new byte[nLength];
+		m_nMask = nLength - 1;
+		m_nSize = nSize;
+		m_trigger = trigger;
+		m_waitStrategy = waitStrategy;
+		m_bOpen = true;
+	}
+
+
+
+	@Override
+	public boolean isOpen()
+	{
+		return m_bOpen;
+	}
+
+
+
+	public WaitStrategy getWaitStrategy()
+	{
+		return m_waitStrategy;
+	}
+
+
+
+	@Override
+	public void close()
+	{
+		m_bOpen = false;
+		signal(m_readWaiter);
+		signal(m_writeWaiter);
+	}
+
+
+
+	/**	Drops the data that was written but not read yet.
+		The space is free for the writer at once. A read running
+		at the same time may still return some of the dropped
+		data, or data written over it.
+	 */
+	@Override
+	public void clear()
+	{
+		m_lClearPos = m_lWritePos;
+		signal(m_writeWaiter);
+	}
+
+
+
+	/**	Drops up to nLength bytes of the data that was written
+		but not read yet, see clear().
+
+		@return the number of bytes dropped.
+	 */
+	@Override
+	public int skip(int nLength)
+	{
+		long	lReadPos = getReadPos();
+		long	lClearPos = Math.min(lReadPos + Math.max(0, nLength), m_lWritePos);
+		m_lClearPos = lClearPos;
+		signal(m_writeWaiter);
+		return (int) (lClearPos - lReadPos);
+	}
+
+
+
+	@Override
+	public int availableRead()
+	{
+		// the read position first, so the difference is never negative
+		long	lReadPos = getReadPos();
+		return (int) Math.min(m_lWritePos - lReadPos, m_nSize);
+	}
+
+
+
+	/**	The position of the next byte to read, taking clear()
+		and skip() into account.
+	 */
+	private long getReadPos()
+	{
+		return Math.max(m_lReadPos, m_lClearPos);
+	}
+
+
+
+	@Override
+	public int availableWrite()
+	{
+		return m_nSize - availableRead();
+	}
+
+
+
+	@Override
+	public int read(byte[] abData, int nOffset, int nLength)
+	{
+		if (TDebug.TraceCircularBuffer)
+		{
+			TDebug.out(">TLockFreeCircularBuffer.read(): called; nLength: " + nLength);
+			dumpState();
+		}
+		if (! m_bOpen)
+		{
+			if (availableRead() > 0)
+			{
+				nLength = Math.min(nLength, availableRead());
+				if (TDebug.TraceCircularBuffer) { TDebug.out("reading rest in closed buffer, length: " + nLength); }
+			}
+			else
+			{
+				if (TDebug.TraceCircularBuffer) { TDebug.out("< not open. returning -1."); }
+				return -1;
+			}
+		}
+		if (m_trigger != null && availableRead() < nLength)
+		{
+			if (TDebug.TraceCircularBuffer) { TDebug.out("executing trigger."); }
+			m_trigger.execute();
+		}
+		if (!m_bBlockingRead)
+		{
+			nLength = Math.min(availableRead(), nLength);
+		}
+		long	lReadPos = m_lReadPos;
+		int	nRemainingBytes = nLength;
+		while (nRemainingBytes > 0)
+		{
+			lReadPos = Math.max(lReadPos, m_lClearPos);
+			int	nAvailable = (int) (m_lWritePos - lReadPos);
+			if (nAvailable == 0)
+			{
+				// a non-blocking read finds nothing after a clear()
+				if (! m_bBlockingRead || ! await(true, lReadPos))
+				{
+					break;
+				}
+				continue;
+			}
+			nAvailable = Math.min(nAvailable, nRemainingBytes);
+			int	nPos = (int) lReadPos & m_nMask;
+			int	nFirst = Math.min(nAvailable, m_abData.length - nPos);
+			System.arraycopy(m_abData, nPos, abData, nOffset, nFirst);
+			System.arraycopy(m_abData, 0, abData, nOffset + nFirst, nAvailable - nFirst);
+			lReadPos += nAvailable;
+			m_lReadPos = lReadPos;
+			signal(m_writeWaiter);
+			nOffset += nAvailable;
+			nRemainingBytes -= nAvailable;
+		}
+		int	nRead = nLength - nRemainingBytes;
+		if (TDebug.TraceCircularBuffer)
+		{
+			TDebug.out("After read:");
+			dumpState();
+			TDebug.out("< completed. Read " + nRead + " bytes");
+		}
+		// a blocking read that ended at the close of an empty buffer
+		return (nRead == 0 && nLength > 0 && ! m_bOpen) ? -1 : nRead;
+	}
+
+
+
+	@Override
+	public int write(byte[] abData, int nOffset, int nLength)
+	{
+		if (TDebug.TraceCircularBuffer)
+		{
+			TDebug.out(">TLockFreeCircularBuffer.write(): called; nLength: " + nLength);
+			dumpState();
+		}
+		if (!m_bBlockingWrite)
+		{
+			nLength = Math.min(availableWrite(), nLength);
+		}
+		long	lWritePos = m_lWritePos;
+		int	nRemainingBytes = nLength;
+		while (nRemainingBytes > 0)
+		{
+			int	nFree = m_nSize - (int) (lWritePos - m_lCachedReadPos);
+			if (nFree < nRemainingBytes)
+			{
+				m_lCachedReadPos = getReadPos();
+				nFree = m_nSize - (int) (lWritePos - m_lCachedReadPos);
+				if (nFree == 0)
+				{
+					if (! await(false, lWritePos))
+					{
+						break;
+					}
+					continue;
+				}
+			}
+			nFree = Math.min(nFree, nRemainingBytes);
+			int	nPos = (int) lWritePos & m_nMask;
+			int	nFirst = Math.min(nFree, m_abData.length - nPos);
+			System.arraycopy(abData, nOffset, m_abData, nPos, nFirst);
+			System.arraycopy(abData, nOffset + nFirst, m_abData, 0, nFree - nFirst);
+			lWritePos += nFree;
+			m_lWritePos = lWritePos;
+			signal(m_readWaiter);
+			nOffset += nFree;
+			nRemainingBytes -= nFree;
+		}
+		if (TDebug.TraceCircularBuffer)
+		{
+			TDebug.out("After write:");
+			dumpState();
+			TDebug.out("< completed. Wrote " + (nLength - nRemainingBytes) + " bytes");
+		}
+		return nLength - nRemainingBytes;
+	}
+
+
+
+	/**	Checks whether the other side has moved since the reader
+		or the writer found the buffer empty or full at lPos.
+	 */
+	private boolean hasMoved(boolean bRead, long lPos)
+	{
+		if (bRead)
+		{
+			return m_lWritePos != lPos;
+		}
+		else
+		{
+			return lPos - getReadPos() < m_nSize;
+		}
+	}
+
+
+
+	/**	Waits until the other side has moved or the buffer is
+		closed. The waiter is published before the positions are
+		checked, and the other side stores its position before it
+		looks for a waiter, so no wakeup gets lost. An interrupt
+		does not end the wait, but it is kept for the caller.
+
+		@return false if the buffer was closed while it was
+		still empty or full.
+	 */
+	private boolean await(boolean bRead, long lPos)
+	{
+		boolean	bInterrupted = false;
+		Thread	thread = Thread.currentThread();
+		switch (m_waitStrategy)
+		{
+		case SPIN:
+			while (m_bOpen && ! hasMoved(bRead, lPos))
+			{
+				Thread.yield();
+			}
+			break;
+
+		case PARK:
+			setWaiter(bRead, thread);
+			while (m_bOpen && ! hasMoved(bRead, lPos))
+			{
+				LockSupport.parkNanos(this, MAX_PARK_NANOS);
+				bInterrupted |= Thread.interrupted();
+			}
+			setWaiter(bRead, null);
+			break;
+
+		case BLOCK:
+			synchronized (m_lock)
+			{
+				setWaiter(bRead, thread);
+				while (m_bOpen && ! hasMoved(bRead, lPos))
+				{
+					try
+					{
+						m_lock.wait();
+					}
+					catch (InterruptedException e)
+					{
+						if (TDebug.TraceAllExceptions)
+						{
+							TDebug.out(e);
+						}
+						bInterrupted = true;
+					}
+				}
+				setWaiter(bRead, null);
+			}
+			break;
+		}
+		if (bInterrupted)
+		{
+			thread.interrupt();
+		}
+		return hasMoved(bRead, lPos);
+	}
+
+
+
+	private void setWaiter(boolean bRead, Thread thread)
+	{
+		if (bRead)
+		{
+			m_readWaiter = thread;
+		}
+		else
+		{
+			m_writeWaiter = thread;
+		}
+	}
+
+
+
+	private void signal(Thread waiter)
+	{
+		if (waiter == null)
+		{
+			return;
+		}
+		if (m_waitStrategy == WaitStrategy.BLOCK)
+		{
+			synchronized (m_lock)
+			{
+				m_lock.notifyAll();
+			}
+		}
+		else
+		{
+			LockSupport.unpark(waiter);
+		}
+	}
+
+
+
+	private void dumpState()
+	{
+		TDebug.out("m_lReadPos  = " + m_lReadPos + " ^= " + ((int) m_lReadPos & m_nMask));
+		TDebug.out("m_lWritePos = " + m_lWritePos + " ^= " + ((int) m_lWritePos & m_nMask));
+		TDebug.out("m_lClearPos = " + m_lClearPos);
+		TDebug.out("availableRead()  = " + availableRead());
+		TDebug.out("availableWrite() = " + availableWrite());
+	}
+}
+
+
+
+/*** TLockFreeCircularBuffer.java ***/
@@ -43,6 +43,23 @@ public class TSettings
 
 	public static boolean	AlsaUsePlughw = getBooleanProperty("AlsaUsePlughw");
 
+	/**	Use the synchronized TCircularBuffer in asynchronous
+		converters instead of TLockFreeCircularBuffer.
+	*/
+	public static boolean	LockedCircularBuffer = getBooleanProperty("LockedCircularBuffer");
+
+	/**	Decode ahead on a thread of their own in all asynchronous
+		converters, see
+		TAsynchronousFilteredAudioInputStream.startReadAhead().
+	*/
+	public static boolean	ReadAhead = getBooleanProperty("ReadAhead");
+
+	/**	Convert all sample formats with the generic per-sample
+		loops in FloatSampleTools instead of the loops that are
+		specialized for 16, 24 and 32 bit PCM.
+	*/
+	public static boolean	GenericSampleConversion = getBooleanProperty("GenericSampleConversion");
+
 
 
 	private static boolean getBooleanProperty(String strName)
@@ -31,6 +31,8 @@ package org.tritonus.share.sampled;
 import java.util.*;
 import javax.sound.sampled.*;
 
+import org.tritonus.share.TSettings;
+
 /**
  * Utility functions for handling data in normalized float arrays. Each sample
  * is linear in the range of [-1.0f, +1.0f].
@@ -476,6 +478,11 @@ public class FloatSampleTools {
 		// TDebug.out("FloatSampleTools.byte2floatGeneric, formatType="
 		// +formatType2Str(formatType));
 		// }
+		if (!TSettings.GenericSampleConversion
+				&& byte2floatSpecialized(input, inByteOffset, inByteStep,
+						output, outOffset, sampleCount, formatType)) {
+			return;
+		}
 		int endCount = outOffset + sampleCount;
 		int inIndex = inByteOffset;
 		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
@@ -543,6 +550,112 @@ public class FloatSampleTools {
 		}
 	}
 
+	/**
+	 * Converts the formats that are used most often with a loop of their
+	 * own, so that the format is evaluated once per buffer instead of once
+	 * per sample. The results are identical to the generic loop.
+	 * 
+	 * @return false if there is no specialized loop for formatType
+	 */
+	private static boolean byte2floatSpecialized(byte[] input,
+			int inByteOffset, int inByteStep, float[] output, int outOffset,
+			int sampleCount, int formatType) {
+		switch (formatType) {
+		case CT_16SB:
+			byte2float16SB(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		case CT_16SL:
+			byte2float16SL(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		case CT_24_3SB:
+			byte2float24_3SB(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		case CT_24_3SL:
+			byte2float24_3SL(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		case CT_32SB:
+			byte2float32SB(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		case CT_32SL:
+			byte2float32SL(input, inByteOffset, inByteStep, output,
+					outOffset, sampleCount);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static void byte2float16SB(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex] << 8) 
+					| (input[inIndex + 1] & 0xFF))
+					* invTwoPower15;
+		}
+	}
+
+	private static void byte2float16SL(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex + 1] << 8) 
+					| (input[inIndex] & 0xFF))
+					* invTwoPower15;
+		}
+	}
+
+	private static void byte2float24_3SB(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex] << 16)
+					| ((input[inIndex + 1] & 0xFF) << 8) 
+					| (input[inIndex + 2] & 0xFF))
+					* invTwoPower23;
+		}
+	}
+
+	private static void byte2float24_3SL(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex + 2] << 16)
+					| ((input[inIndex + 1] & 0xFF) << 8) 
+					| (input[inIndex] & 0xFF))
+					* invTwoPower23;
+		}
+	}
+
+	private static void byte2float32SB(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex] << 24)
+					| ((input[inIndex + 1] & 0xFF) << 16)
+					| ((input[inIndex + 2] & 0xFF) << 8) 
+					| (input[inIndex + 3] & 0xFF))
+					* invTwoPower31;
+		}
+	}
+
+	private static void byte2float32SL(byte[] input, int inIndex,
+			int inByteStep, float[] output, int outOffset, int sampleCount) {
+		int endCount = outOffset + sampleCount;
+		for (int outIndex = outOffset; outIndex < endCount; outIndex++, inIndex += inByteStep) {
+			output[outIndex] = ((input[inIndex + 3] << 24)
+					| ((input[inIndex + 2] & 0xFF) << 16)
+					| ((input[inIndex + 1] & 0xFF) << 8) 
+					| (input[inIndex] & 0xFF))
+					* invTwoPower31;
+		}
+	}
+
 	// /////////////////// FLOAT 2 BYTE /////////////////////////////////// //
 
 	private static byte quantize8(float sample, float ditherBits) {
@@ -597,6 +710,26 @@ public class FloatSampleTools {
 		}
 	}
 
+	/**
+	 * Clips and rounds like quantize16(), quantize24() and quantize32(), but
+	 * without branches: the clipping compiles to conditional moves (unlike
+	 * Math.min() and Math.max(), which handle NaN and -0.0f separately), and
+	 * adding the signed 0.5f gives the same float as subtracting 0.5f from a
+	 * negative sample. NaN stays NaN and is converted to 0.
+	 */
+	private static int quantize(float sample, float min, float max) {
+		sample = sample > max ? max : sample;
+		sample = sample < min ? min : sample;
+		return (int) (sample + Math.copySign(0.5f, sample));
+	}
+
+	private static float dither(float sample, float ditherBits) {
+		if (ditherBits != 0) {
+			sample += random.nextFloat() * ditherBits;
+		}
+		return sample;
+	}
+
 	/**
 	 * Conversion function to convert a non-interleaved float audio data to an
 	 * interleaved byte array. The float arrays contains normalized samples in
@@ -802,6 +935,12 @@ public class FloatSampleTools {
 			// create the random number generator for dithering
 			random = new Random();
 		}
+		if (!TSettings.GenericSampleConversion
+				&& float2byteSpecialized(input, inOffset, output,
+						outByteOffset, outByteStep, sampleCount, formatType,
+						ditherBits)) {
+			return;
+		}
 		int endSample = inOffset + sampleCount;
 		int iSample;
 		int outIndex = outByteOffset;
@@ -874,4 +1013,121 @@ public class FloatSampleTools {
 			}
 		}
 	}
+
+	/**
+	 * The float to byte counterpart of byte2floatSpecialized(). Dithering
+	 * draws the random numbers in the same order as the generic loop.
+	 * 
+	 * @return false if there is no specialized loop for formatType
+	 */
+	private static boolean float2byteSpecialized(float[] input, int inOffset,
+			byte[] output, int outByteOffset, int outByteStep,
+			int sampleCount, int formatType, float ditherBits) {
+		switch (formatType) {
+		case CT_16SB:
+			float2byte16SB(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		case CT_16SL:
+			float2byte16SL(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		case CT_24_3SB:
+			float2byte24_3SB(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		case CT_24_3SL:
+			float2byte24_3SL(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		case CT_32SB:
+			float2byte32SB(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		case CT_32SL:
+			float2byte32SL(input, inOffset, output, outByteOffset,
+					outByteStep, sampleCount, ditherBits);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static void float2byte16SB(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower15,
+					ditherBits), -32768.0f, 32767.0f);
+			output[outIndex] = (byte) (iSample >> 8);
+			output[outIndex + 1] = (byte) (iSample & 0xFF);
+		}
+	}
+
+	private static void float2byte16SL(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower15,
+					ditherBits), -32768.0f, 32767.0f);
+			output[outIndex] = (byte) (iSample & 0xFF);
+			output[outIndex + 1] = (byte) (iSample >> 8);
+		}
+	}
+
+	private static void float2byte24_3SB(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower23,
+					ditherBits), -8388608.0f, 8388607.0f);
+			output[outIndex] = (byte) (iSample >> 16);
+			output[outIndex + 1] = (byte) ((iSample >>> 8) & 0xFF);
+			output[outIndex + 2] = (byte) (iSample & 0xFF);
+		}
+	}
+
+	private static void float2byte24_3SL(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower23,
+					ditherBits), -8388608.0f, 8388607.0f);
+			output[outIndex] = (byte) (iSample & 0xFF);
+			output[outIndex + 1] = (byte) ((iSample >>> 8) & 0xFF);
+			output[outIndex + 2] = (byte) (iSample >> 16);
+		}
+	}
+
+	private static void float2byte32SB(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower31,
+					ditherBits), -2147483648.0f, 2147483647.0f);
+			output[outIndex] = (byte) (iSample >> 24);
+			output[outIndex + 1] = (byte) ((iSample >>> 16) & 0xFF);
+			output[outIndex + 2] = (byte) ((iSample >>> 8) & 0xFF);
+			output[outIndex + 3] = (byte) (iSample & 0xFF);
+		}
+	}
+
+	private static void float2byte32SL(float[] input, int inOffset,
+			byte[] output, int outIndex, int outByteStep, int sampleCount,
+			float ditherBits) {
+		int endSample = inOffset + sampleCount;
+		for (int inIndex = inOffset; inIndex < endSample; inIndex++, outIndex += outByteStep) {
+			int iSample = quantize(dither(input[inIndex] * twoPower31,
+					ditherBits), -2147483648.0f, 2147483647.0f);
+			output[outIndex] = (byte) (iSample & 0xFF);
+			output[outIndex + 1] = (byte) ((iSample >>> 8) & 0xFF);
+			output[outIndex + 2] = (byte) ((iSample >>> 16) & 0xFF);
+			output[outIndex + 3] = (byte) (iSample >> 24);
+		}
+	}
 }
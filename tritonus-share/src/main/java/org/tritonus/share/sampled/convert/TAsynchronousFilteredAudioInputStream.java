@@ -32,11 +32,17 @@ package org.tritonus.share.sampled.convert;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sound.sampled.AudioFormat;
 
 import org.tritonus.share.TDebug;
 import org.tritonus.share.TCircularBuffer;
+import org.tritonus.share.TLockFreeCircularBuffer;
+import org.tritonus.share.TSettings;
 
 
 
@@ -49,6 +55,14 @@ import org.tritonus.share.TCircularBuffer;
     internal buffer, which is realized in this
     class.
 
+    By default, execute() is called from read() when the buffer
+    runs low, so decoding happens on the reading thread. After
+    startReadAhead(), a thread of its own calls execute() and
+    keeps the buffer filled ahead of the reader. execute() always
+    runs under the decode lock, see lockDecoder(). While a thread
+    decodes ahead, read() does not take that lock, so it never
+    waits for a decoding step.
+
     @author Matthias Pfisterer
 */
 public abstract class TAsynchronousFilteredAudioInputStream
@@ -58,12 +72,36 @@ implements TCircularBuffer.Trigger
 	private static final int	DEFAULT_BUFFER_SIZE = 327670;
 	private static final int	DEFAULT_MIN_AVAILABLE = 4096;
 	private static final byte[]	EMPTY_BYTE_ARRAY = new byte[0];
+	private static final long	LOCK_POLL_MILLIS = 10;
 
 
 	// must be protected because it's accessed by the native CDDA lib 
 	protected TCircularBuffer		m_circularBuffer;
 	private int			m_nMinAvailable;
+	private int			m_nBufferSize;
 	private byte[]			m_abSingleByte;
+	private volatile ReadAhead	m_readAhead;
+	private boolean			m_bReadAheadStarted;
+	private volatile boolean	m_bClosed;
+	private final ReentrantLock	m_decodeLock = new ReentrantLock();
+	// threads waiting in lockDecoder()
+	private final AtomicInteger	m_nLockRequests = new AtomicInteger();
+
+	/*	The trigger of the circular buffer. read() holds the
+		decode lock when the reader has to decode itself: without
+		read-ahead, or to finish the stream once it has read all
+		data.
+	*/
+	private final TCircularBuffer.Trigger	m_trigger = new TCircularBuffer.Trigger()
+	{
+		public void execute()
+		{
+			if (m_decodeLock.isHeldByCurrentThread())
+			{
+				TAsynchronousFilteredAudioInputStream.this.execute();
+			}
+		}
+	};
 
 
 
@@ -111,12 +149,24 @@ implements TCircularBuffer.Trigger
 		      outputFormat,
 		      lLength);
 		if (TDebug.TraceAudioConverter) { TDebug.out("TAsynchronousFilteredAudioInputStream.<init>(): begin"); }
-		m_circularBuffer = new TCircularBuffer(
-			nBufferSize,
-			false,	// blocking read
-			true,	// blocking write
-			this);	// trigger
+		if (TSettings.LockedCircularBuffer)
+		{
+			m_circularBuffer = new TCircularBuffer(
+				nBufferSize,
+				false,	// blocking read
+				true,	// blocking write
+				m_trigger);	// trigger
+		}
+		else
+		{
+			m_circularBuffer = new TLockFreeCircularBuffer(
+				nBufferSize,
+				false,	// blocking read
+				true,	// blocking write
+				m_trigger);	// trigger
+		}
 		m_nMinAvailable = nMinAvailable;
+		m_nBufferSize = m_circularBuffer.availableWrite();
 		if (TDebug.TraceAudioConverter) { TDebug.out("TAsynchronousFilteredAudioInputStream.<init>(): end"); }
 	}
 
@@ -148,6 +198,160 @@ implements TCircularBuffer.Trigger
 
 
 
+	/**	Starts decoding ahead on a thread of its own, keeping
+		half of the circular buffer filled.
+		@see #startReadAhead(int, ThreadFactory)
+	*/
+	public void startReadAhead()
+	{
+		startReadAhead(m_nBufferSize / 2, null);
+	}
+
+
+
+	/**	Starts decoding ahead on a thread of its own.
+		From now on, execute() is called by that thread whenever
+		less than nReadAheadBytes are waiting in the circular
+		buffer, and no more by read(). read() waits for data
+		instead of returning 0. Seeks of subclasses that call
+		lockDecoder() keep the thread out while they run.
+		The amount is limited to what leaves enough room for the
+		largest amount that one execute() wrote so far, so that
+		the thread does not have to wait for space while it holds
+		the decode lock.
+
+		@param nReadAheadBytes how many decoded bytes to keep
+		ready.
+
+		@param threadFactory makes the decoding thread, for
+		instance a factory of virtual threads. If null, a daemon
+		platform thread is used.
+	*/
+	public synchronized void startReadAhead(int nReadAheadBytes, ThreadFactory threadFactory)
+	{
+		if (m_bReadAheadStarted || m_bClosed)
+		{
+			return;
+		}
+		m_bReadAheadStarted = true;
+		ReadAhead	readAhead = new ReadAhead(Math.max(1, Math.min(nReadAheadBytes, m_nBufferSize)));
+		Thread	thread;
+		if (threadFactory != null)
+		{
+			thread = threadFactory.newThread(readAhead);
+		}
+		else
+		{
+			thread = new Thread(readAhead, "read-ahead " + getClass().getName());
+			thread.setDaemon(true);
+		}
+		m_readAhead = readAhead;
+		thread.start();
+	}
+
+
+
+	/**	Checks whether startReadAhead() was called.
+	*/
+	public boolean isReadAhead()
+	{
+		return m_readAhead != null;
+	}
+
+
+
+	/**	Tells the read-ahead thread whether calling execute()
+		would decode more data. When this returns false, the
+		thread waits, and execute() is called by the reader once
+		it has read all data, as without read-ahead. Subclasses
+		which let go of their decoder in the execute() after the
+		last data keep it this way until the reader is done with
+		the stream, so a seek back still works.
+		This implementation returns true.
+	*/
+	protected boolean hasMoreToDecode()
+	{
+		return true;
+	}
+
+
+
+	/**	Takes the decode lock, under which execute() runs.
+		Subclasses hold it while they move their decoder, as in a
+		seek, and release it with unlockDecoder(). A read-ahead
+		thread does not start another execute() while a thread
+		waits here. If it waits for space in a full circular
+		buffer, the buffer is cleared, so that a seek on the
+		reading thread does not wait for itself.
+	*/
+	protected void lockDecoder()
+	{
+		boolean	bInterrupted = false;
+		m_nLockRequests.incrementAndGet();
+		try
+		{
+			while (true)
+			{
+				try
+				{
+					if (m_decodeLock.tryLock(LOCK_POLL_MILLIS, TimeUnit.MILLISECONDS))
+					{
+						break;
+					}
+				}
+				catch (InterruptedException e)
+				{
+					bInterrupted = true;
+				}
+				if (m_circularBuffer.availableWrite() == 0)
+				{
+					m_circularBuffer.clear();
+				}
+			}
+		}
+		finally
+		{
+			m_nLockRequests.decrementAndGet();
+		}
+		if (bInterrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+
+	/**	Releases the decode lock taken by lockDecoder().
+	*/
+	protected void unlockDecoder()
+	{
+		m_decodeLock.unlock();
+		ReadAhead	readAhead = m_readAhead;
+		if (readAhead != null)
+		{
+			readAhead.wake();
+		}
+	}
+
+
+
+	/**	When decoding ahead, waits until decoded data is in the
+		circular buffer, the buffer is closed or there is no more
+		to decode, see hasMoreToDecode(). Otherwise, returns at
+		once.
+	*/
+	protected void awaitReadAhead()
+		throws IOException
+	{
+		ReadAhead	readAhead = m_readAhead;
+		if (readAhead != null)
+		{
+			readAhead.awaitData();
+		}
+	}
+
+
+
 	@Override
 	public int read()
 		throws IOException
@@ -194,7 +398,38 @@ implements TCircularBuffer.Trigger
 		//$$fb 2001-04-22: this returns at maximum circular buffer
 		// length. This is not very efficient...
 		//$$fb 2001-04-25: we should check that we do not exceed getFrameLength() !
-		int	nRead = m_circularBuffer.read(abData, nOffset, nLength);
+		if (! m_bReadAheadStarted && TSettings.ReadAhead)
+		{
+			startReadAhead();
+		}
+		ReadAhead	readAhead = m_readAhead;
+		if (readAhead != null && nLength > 0)
+		{
+			readAhead.awaitData();
+		}
+		int	nRead;
+		if (readAhead == null || ! readAhead.isRunning()
+		    || (! hasMoreToDecode() && m_circularBuffer.availableRead() == 0))
+		{
+			// the trigger decodes on this thread
+			m_decodeLock.lock();
+			try
+			{
+				nRead = m_circularBuffer.read(abData, nOffset, nLength);
+			}
+			finally
+			{
+				m_decodeLock.unlock();
+			}
+		}
+		else
+		{
+			nRead = m_circularBuffer.read(abData, nOffset, nLength);
+		}
+		if (readAhead != null)
+		{
+			readAhead.dataRead(nRead);
+		}
 		if (TDebug.TraceAudioConverter) { TDebug.out("TAsynchronousFilteredAudioInputStream.read(byte[], int, int): end"); }
 		return nRead;
 	}
@@ -228,10 +463,21 @@ implements TCircularBuffer.Trigger
 
 
 
+	/**	Closes the circular buffer. A read-ahead thread is told to
+		stop, but this does not wait for it: it may still be in
+		execute(), for instance reading from the source stream,
+		until the subclass closes that.
+	*/
 	@Override
 	public void close()
 		throws IOException
 	{
+		m_bClosed = true;
+		ReadAhead	readAhead = m_readAhead;
+		if (readAhead != null)
+		{
+			readAhead.stop();
+		}
 		m_circularBuffer.close();
 	}
 
@@ -258,8 +504,217 @@ implements TCircularBuffer.Trigger
 	{
 		throw new IOException("mark not supported");
 	}
+
+
+
+	/**	Calls execute() on a thread of its own while the circular
+		buffer holds less than the read-ahead amount. The thread
+		and the reader wait on this object when there is nothing
+		to do for them.
+	*/
+	private class ReadAhead
+	implements Runnable
+	{
+		private final int		m_nReadAheadBytes;
+		private volatile boolean	m_bRunning = true;
+		private volatile boolean	m_bDecoderWaiting;
+		private volatile boolean	m_bReaderWaiting;
+		private volatile Throwable	m_error;
+		// most bytes one execute() wrote
+		private int			m_nMaxExecuteBytes;
+		// bytes taken by the reader, written by the reader only
+		private volatile long		m_lBytesRead;
+
+
+
+		public ReadAhead(int nReadAheadBytes)
+		{
+			m_nReadAheadBytes = nReadAheadBytes;
+		}
+
+
+
+		public boolean isRunning()
+		{
+			return m_bRunning;
+		}
+
+
+
+		public void run()
+		{
+			if (TDebug.TraceAudioConverter) { TDebug.out("TAsynchronousFilteredAudioInputStream.ReadAhead.run(): begin"); }
+			try
+			{
+				while (m_bRunning)
+				{
+					synchronized (this)
+					{
+						m_bDecoderWaiting = true;
+						while (m_bRunning && ! needsData())
+						{
+							wait();
+						}
+						m_bDecoderWaiting = false;
+					}
+					m_decodeLock.lock();
+					try
+					{
+						if (! m_bRunning || ! m_circularBuffer.isOpen())
+						{
+							break;
+						}
+						// the reader goes on reading meanwhile
+						long	lBefore = m_lBytesRead + m_circularBuffer.availableRead();
+						execute();
+						long	lWritten = m_lBytesRead + m_circularBuffer.availableRead() - lBefore;
+						m_nMaxExecuteBytes = (int) Math.max(m_nMaxExecuteBytes, lWritten);
+					}
+					finally
+					{
+						m_decodeLock.unlock();
+					}
+					if (m_bReaderWaiting)
+					{
+						synchronized (this)
+						{
+							notifyAll();
+						}
+					}
+				}
+			}
+			catch (InterruptedException e)
+			{
+				if (TDebug.TraceAllExceptions) { TDebug.out(e); }
+			}
+			catch (RuntimeException e)
+			{
+				if (TDebug.TraceAllExceptions) { TDebug.out(e); }
+				m_error = e;
+				m_circularBuffer.close();
+			}
+			catch (Error e)
+			{
+				m_error = e;
+				m_circularBuffer.close();
+				throw e;
+			}
+			finally
+			{
+				synchronized (this)
+				{
+					m_bRunning = false;
+					notifyAll();
+				}
+			}
+			if (TDebug.TraceAudioConverter) { TDebug.out("TAsynchronousFilteredAudioInputStream.ReadAhead.run(): end"); }
+		}
+
+
+
+		private boolean needsData()
+		{
+			if (! m_circularBuffer.isOpen())
+			{
+				// nothing more to decode; the loop ends
+				return true;
+			}
+			if (! hasMoreToDecode() || m_nLockRequests.get() > 0)
+			{
+				return false;
+			}
+			int	nLimit = m_nBufferSize - Math.max(m_nMinAvailable, m_nMaxExecuteBytes);
+			int	nTarget = Math.max(1, Math.min(m_nReadAheadBytes, nLimit));
+			return m_circularBuffer.availableRead() < nTarget;
+		}
+
+
+
+		/**	Waits until the circular buffer holds data, is closed,
+			there is no more to decode or the thread stopped.
+		*/
+		public void awaitData()
+			throws IOException
+		{
+			if (m_circularBuffer.availableRead() == 0)
+			{
+				synchronized (this)
+				{
+					m_bReaderWaiting = true;
+					try
+					{
+						while (m_bRunning
+						       && m_circularBuffer.availableRead() == 0
+						       && m_circularBuffer.isOpen()
+						       && hasMoreToDecode())
+						{
+							notifyAll();
+							wait();
+						}
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new IOException("interrupted while waiting for decoded data");
+					}
+					finally
+					{
+						m_bReaderWaiting = false;
+					}
+				}
+			}
+			Throwable	error = m_error;
+			if (error != null && m_circularBuffer.availableRead() == 0)
+			{
+				IOException	e = new IOException("decoding failed: " + error);
+				e.initCause(error);
+				throw e;
+			}
+		}
+
+
+
+		/**	Counts the bytes read and wakes the decoding thread if
+			it waits for the reader.
+		*/
+		public void dataRead(int nRead)
+		{
+			if (nRead > 0)
+			{
+				m_lBytesRead += nRead;
+			}
+			wake();
+		}
+
+
+
+		/**	Wakes the decoding thread if it waits.
+		*/
+		public void wake()
+		{
+			if (m_bDecoderWaiting)
+			{
+				synchronized (this)
+				{
+					notifyAll();
+				}
+			}
+		}
+
+
+
+		public void stop()
+		{
+			synchronized (this)
+			{
+				m_bRunning = false;
+				notifyAll();
+			}
+		}
+	}
 }
 
 
 
+
 /*** TAsynchronousFilteredAudioInputStream.java ***/
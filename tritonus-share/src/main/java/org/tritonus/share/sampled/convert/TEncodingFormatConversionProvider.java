@@ -37,6 +37,7 @@ import javax.sound.sampled.AudioFormat;
 
 import org.tritonus.share.TDebug;
 import org.tritonus.share.ArraySet;
+import org.tritonus.share.sampled.Encodings;
 
 
 // this class depends on handling of AudioSystem.NOT_SPECIFIED in AudioFormat.matches()
@@ -111,6 +112,10 @@ extends TSimpleFormatConversionProvider
 			Iterator<AudioFormat>	iterator = getCollectionTargetFormats().iterator();
 			while (iterator.hasNext()) {
 				AudioFormat	targetFormat = iterator.next();
+				// target formats may have several encodings
+				if (!Encodings.equals(targetFormat.getEncoding(), targetEncoding)) {
+					continue;
+				}
 				targetFormat=replaceNotSpecified(sourceFormat, targetFormat);
 				result.add(targetFormat);
 			}
@@ -0,0 +1,40 @@
+/*
+ * SeekableAudioStream.
+ * 
+ * JavaZOOM : vorbisspi@javazoom.net
+ * 			  http://www.javazoom.net
+ * 
+ *-----------------------------------------------------------------------
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *----------------------------------------------------------------------
+ */
+
+package javazoom.spi;
+
+/**
+ * Implemented by decoded audio streams that can move to a time position
+ * by themselves, without being reopened.
+ */
+public interface SeekableAudioStream
+{
+	/**
+	 * Seeks to a time position. The next bytes read are the ones at the
+	 * position reached.
+	 *
+	 * @param microseconds position from the start of the stream.
+	 * @return the position reached in microseconds, or -1 if the stream cannot move there.
+	 */
+	public long seekMicroseconds(long microseconds);
+}
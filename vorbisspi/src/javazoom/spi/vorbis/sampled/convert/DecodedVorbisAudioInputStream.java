@@ -32,13 +32,16 @@ import com.jcraft.jorbis.Comment;
 import com.jcraft.jorbis.DspState;
 import com.jcraft.jorbis.Info;
 import javazoom.spi.PropertiesContainer;
+import javazoom.spi.SeekableAudioStream;
 import org.tritonus.share.TDebug;
 import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,7 +49,7 @@ import java.util.Map;
  * This class implements the Vorbis decoding.
  */
 public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInputStream
-        implements PropertiesContainer {
+        implements PropertiesContainer, SeekableAudioStream {
 
     static final int playState_NeedHeaders = 0;
     static final int playState_ReadData = 1;
@@ -56,6 +59,8 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     static final int playState_Corrupt = -1;
     private final int bufferMultiple_ = 4;
     private final int bufferSize_ = bufferMultiple_ * 256 * 2;
+    // Bisection stops when fewer bytes than this are left to search.
+    private static final int SEEK_CHUNK_SIZE = 8500;
     // bout is now a global so that we can continue from when we have a buffer full.
     int bout;
     private final InputStream oggBitStream_;
@@ -69,7 +74,14 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     private Block vorbisBlock;
     private int playState;
     private int convsize = bufferSize_ * 2;
-    private final byte[] convbuffer = new byte[convsize];
+    private byte[] convbuffer;
+    // Output format.
+    private final int sampleBytes;
+    private final boolean floatOutput;
+    private final boolean bigEndian;
+    // Set while read(float[][], int, int) runs the decoder.
+    private boolean planarRead;
+    private byte[] planarBuffer;
     private byte[] buffer;
     private int bytes;
     private float[][][] _pcmf;
@@ -78,6 +90,16 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     private int i;
     private final HashMap properties;
     private long currentBytes;
+    // Seeking.
+    private final File sourceFile;
+    private RandomAccessFile seekableSource;
+    private long dataBegin = -1;
+    private long lastGranule;
+    private long samplePosition;
+    private long skipSamples;
+    private final Packet primer = new Packet();
+    private boolean hasPrimer;
+    private long primerGranule;
 
     /**
      * Constructor.
@@ -85,6 +107,11 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     public DecodedVorbisAudioInputStream(final AudioFormat outputFormat, final AudioInputStream bitStream) {
         super(outputFormat, -1);
         oggBitStream_ = bitStream;
+        final Object file = bitStream.getFormat().getProperty("ogg.file");
+        sourceFile = (file instanceof File) ? (File) file : null;
+        sampleBytes = outputFormat.getSampleSizeInBits() / 8;
+        floatOutput = AudioFormat.Encoding.PCM_FLOAT.equals(outputFormat.getEncoding());
+        bigEndian = outputFormat.isBigEndian();
         init_jorbis();
         index = 0;
         playState = playState_NeedHeaders;
@@ -122,6 +149,376 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
         return properties;
     }
 
+    /**
+     * Seeks to a time position.
+     * When the stream was opened from a file, see the <b>ogg.file</b> format property, the
+     * pages of the file are bisected by granule position, so that only a few pages are read
+     * whatever the distance. Otherwise the stream only moves forward: the pages before the
+     * target are read but not decoded. In both cases decoding restarts one packet before the
+     * target and the samples before it are dropped, so the next sample read is the target one.
+     *
+     * @param microseconds position from the start of the stream.
+     * @return the position reached in microseconds, or -1 if the stream cannot move there.
+     */
+    @Override
+    public long seekMicroseconds(final long microseconds) {
+        if (microseconds < 0) {
+            return -1;
+        }
+        lockDecoder();
+        try {
+            if (!readyToSeek()) {
+                return -1;
+            }
+            final long reached = seekSample(microseconds * vorbisInfo.rate / 1000000L);
+            return (reached < 0) ? -1 : reached * 1000000L / vorbisInfo.rate;
+        }
+        finally {
+            unlockDecoder();
+        }
+    }
+
+    /**
+     * Skips decoded bytes by seeking, see {@link #seekMicroseconds(long)}.
+     */
+    @Override
+    public long skip(final long bytes)
+            throws IOException {
+        if (bytes <= 0) {
+            return 0;
+        }
+        lockDecoder();
+        try {
+            if (readyToSeek()) {
+                final int frameSize = getFormat().getFrameSize();
+                final long from = readPosition();
+                final long reached = seekSample(from + bytes / frameSize);
+                if (reached >= 0) {
+                    return (reached - from) * frameSize;
+                }
+            }
+        }
+        finally {
+            unlockDecoder();
+        }
+        return super.skip(bytes);
+    }
+
+    /**
+     * Reads decoded samples as planar floats, straight from the synthesis output of the decoder
+     * and without converting them to the bytes of the output format. Samples are in the
+     * range [-1.0, 1.0] and are not clipped.
+     * Samples already converted for {@link #read(byte[], int, int)} are returned first.
+     * While decoding ahead (see {@link #startReadAhead()}), the samples are converted back from
+     * the circular buffer, so they are rounded to the output format.
+     *
+     * @param samples one array for each channel.
+     * @param offset  index of the first sample written in each array.
+     * @param length  maximum number of samples to read in each array.
+     * @return the number of samples read in each array, or -1 at the end of the stream.
+     */
+    public int read(final float[][] samples, final int offset, final int length)
+            throws IOException {
+        if (length <= 0) {
+            return 0;
+        }
+        // While decoding ahead, the buffer only stays empty at the end of the stream.
+        awaitReadAhead();
+        if (getCircularBuffer().availableRead() > 0) {
+            return readConverted(samples, offset, length);
+        }
+        lockDecoder();
+        try {
+            // Decoded ahead while waiting for the lock.
+            if (getCircularBuffer().availableRead() > 0) {
+                return readConverted(samples, offset, length);
+            }
+            planarRead = true;
+            try {
+                int available;
+                while ((available = pcmout()) == 0) {
+                    if ((playState == playState_Done) || (playState == playState_Corrupt)) {
+                        execute();
+                        return -1;
+                    }
+                    if (playState == playState_BufferFull) {
+                        // Pending samples are still in the DspState.
+                        playState = playState_WriteData;
+                    }
+                    execute();
+                }
+                final int read = Math.min(available, length);
+                final float[][] pcmf = _pcmf[0];
+                for (int ch = 0; ch < vorbisInfo.channels; ch++) {
+                    System.arraycopy(pcmf[ch], _index[ch], samples[ch], offset, read);
+                }
+                vorbisDspState.synthesis_read(read);
+                samplePosition += read;
+                return read;
+            }
+            finally {
+                planarRead = false;
+            }
+        }
+        finally {
+            unlockDecoder();
+        }
+    }
+
+    /**
+     * Reads samples from the circular buffer, converting them back from the output format.
+     */
+    private int readConverted(final float[][] samples, final int offset, final int length) {
+        final int channels = vorbisInfo.channels;
+        final int frameSize = getFormat().getFrameSize();
+        final int frames = Math.min(length, getCircularBuffer().availableRead() / frameSize);
+        if ((planarBuffer == null) || (planarBuffer.length < frames * frameSize)) {
+            planarBuffer = new byte[frames * frameSize];
+        }
+        getCircularBuffer().read(planarBuffer, 0, frames * frameSize);
+        final float scale = floatOutput ? 1.0f : 1.0f / ((1 << (8 * sampleBytes - 1)) - 1);
+        for (int ch = 0; ch < channels; ch++) {
+            int pointer = ch * sampleBytes;
+            for (int j = 0; j < frames; j++) {
+                int val = 0;
+                for (int b = 0; b < sampleBytes; b++) {
+                    final int shift = bigEndian ? 8 * (sampleBytes - 1 - b) : 8 * b;
+                    val |= (planarBuffer[pointer + b] & 0xff) << shift;
+                }
+                if (floatOutput) {
+                    samples[ch][offset + j] = Float.intBitsToFloat(val);
+                }
+                else {
+                    // Sign extension.
+                    val = (val << (32 - 8 * sampleBytes)) >> (32 - 8 * sampleBytes);
+                    samples[ch][offset + j] = val * scale;
+                }
+                pointer += frameSize;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * The execute() after the last page lets go of the decoder, so a read-ahead thread
+     * leaves it to the reader.
+     */
+    @Override
+    protected boolean hasMoreToDecode() {
+        return playState != playState_Done;
+    }
+
+    private boolean readyToSeek() {
+        if (playState == playState_NeedHeaders) {
+            try {
+                readHeaders();
+            }
+            catch (final IOException ioe) {
+                playState = playState_Corrupt;
+                return false;
+            }
+            playState = playState_ReadData;
+        }
+        // Done with the buffer still open: the last page is decoded, but the decoder is still there.
+        final boolean released = (playState == playState_Done) && !getCircularBuffer().isOpen();
+        return !released && (playState != playState_Corrupt) && (vorbisInfo.rate > 0);
+    }
+
+    /**
+     * Position of the next sample read from this stream.
+     */
+    private long readPosition() {
+        return samplePosition - getCircularBuffer().availableRead() / getFormat().getFrameSize();
+    }
+
+    /**
+     * Moves to a sample.
+     *
+     * @return the sample reached, or -1 if the stream cannot move there.
+     */
+    private long seekSample(final long target) {
+        final long from = readPosition();
+        try {
+            if ((target >= from) && (target <= samplePosition)) {
+                // Already decoded.
+                getCircularBuffer().skip((int) ((target - from) * getFormat().getFrameSize()));
+                return target;
+            }
+            if ((sourceFile == null) && (target < from)) {
+                // The encoded stream only moves forward; keep what is decoded.
+                return -1;
+            }
+            getCircularBuffer().clear();
+            if (playState == playState_BufferFull) {
+                // Pending samples are still in the DspState.
+                playState = playState_WriteData;
+            }
+            if ((target > samplePosition) && (target <= lastGranule)) {
+                // Within the packets already read.
+                skipSamples = target - samplePosition;
+                return target;
+            }
+            hasPrimer = false;
+            if (sourceFile != null) {
+                moveTo(bisect(target));
+                return scanPages(target, true);
+            }
+            dropPackets(lastGranule);
+            return scanPages(target, hasPrimer);
+        }
+        catch (final IOException e) {
+            if (TDebug.TraceAudioConverter) {
+                TDebug.out(e);
+            }
+            playState = playState_Corrupt;
+            return -1;
+        }
+    }
+
+    /**
+     * Finds in the file the start of the last page that begins a packet and ends before the target.
+     */
+    private long bisect(final long target)
+            throws IOException {
+        if (seekableSource == null) {
+            seekableSource = new RandomAccessFile(sourceFile, "r");
+        }
+        final SyncState syncState = new SyncState();
+        final Page page = new Page();
+        long begin = dataBegin;
+        long end = seekableSource.length();
+        long landing = dataBegin;
+        while (end - begin > SEEK_CHUNK_SIZE) {
+            final long middle = (begin + end) / 2;
+            seekableSource.seek(middle);
+            syncState.reset();
+            long offset = middle;
+            int found = 0;
+            while ((found <= 0) && (offset < end)) {
+                found = syncState.pageseek(page);
+                if (found < 0) {
+                    offset -= found;
+                }
+                else if (found == 0) {
+                    final int index = syncState.buffer(SEEK_CHUNK_SIZE);
+                    final int bytes = seekableSource.read(syncState._data, index, SEEK_CHUNK_SIZE);
+                    if (bytes <= 0) {
+                        break;
+                    }
+                    syncState.wrote(bytes);
+                }
+                else if (page.granulepos() == -1) {
+                    // No packet ends on this page.
+                    offset += found;
+                    found = 0;
+                }
+            }
+            if ((found <= 0) || (offset >= end)) {
+                end = middle;
+            }
+            else if (page.granulepos() < target) {
+                if (page.continued() == 0) {
+                    landing = offset;
+                }
+                begin = offset + found;
+            }
+            else {
+                end = middle;
+            }
+        }
+        return landing;
+    }
+
+    /**
+     * Reads the file from a page start.
+     */
+    private void moveTo(final long offset)
+            throws IOException {
+        seekableSource.seek(offset);
+        currentBytes = offset;
+        oggSyncState_.reset();
+        oggStreamState_.reset();
+        lastGranule = 0;
+    }
+
+    /**
+     * Takes the packets out of the stream state without decoding them.
+     * The last one is kept to restart decoding.
+     */
+    private void dropPackets(final long granule) {
+        int result;
+        while ((result = oggStreamState_.packetout(oggPacket_)) != 0) {
+            if (result == 1) {
+                final byte[] packet = (primer.packet_base != null && primer.packet_base.length >= oggPacket_.bytes)
+                                      ? primer.packet_base : new byte[oggPacket_.bytes];
+                System.arraycopy(oggPacket_.packet_base, oggPacket_.packet, packet, 0, oggPacket_.bytes);
+                primer.packet_base = packet;
+                primer.packet = 0;
+                primer.bytes = oggPacket_.bytes;
+                primer.b_o_s = oggPacket_.b_o_s;
+                primer.e_o_s = oggPacket_.e_o_s;
+                primer.granulepos = oggPacket_.granulepos;
+                primer.packetno = oggPacket_.packetno;
+                hasPrimer = true;
+                primerGranule = granule;
+            }
+        }
+    }
+
+    /**
+     * Reads pages without decoding them up to the one the target is in, and restarts decoding there.
+     *
+     * @param restart true if the packets read so far were not all decoded.
+     */
+    private long scanPages(final long target, boolean restart) {
+        while (true) {
+            final int result = oggSyncState_.pageout(oggPage_);
+            if (result == 0) {
+                index = oggSyncState_.buffer(bufferSize_);
+                buffer = oggSyncState_._data;
+                bytes = readFromStream(buffer, index, bufferSize_);
+                if (bytes <= 0) {
+                    // Target after the end of the stream.
+                    samplePosition = lastGranule;
+                    playState = playState_Done;
+                    return samplePosition;
+                }
+                oggSyncState_.wrote(bytes);
+                continue;
+            }
+            if (result < 0) {
+                continue;
+            }
+            oggStreamState_.pagein(oggPage_);
+            final long granule = oggPage_.granulepos();
+            if (granule == -1) {
+                continue;
+            }
+            lastGranule = granule;
+            if ((granule < target) && (oggPage_.eos() == 0)) {
+                dropPackets(granule);
+                restart = true;
+                continue;
+            }
+            if (restart) {
+                vorbisDspState.synthesis_restart();
+                samplePosition = 0;
+                if (hasPrimer) {
+                    // Its samples are only needed to overlap the next packet.
+                    if (vorbisBlock.synthesis(primer) == 0) {
+                        vorbisDspState.synthesis_blockin(vorbisBlock);
+                    }
+                    vorbisDspState.synthesis_read(vorbisDspState.synthesis_pcmout(null, null));
+                    samplePosition = primerGranule;
+                }
+            }
+            skipSamples = Math.max(0, target - samplePosition);
+            playState = playState_WriteData;
+            // The last page ends before a target after the end of the stream.
+            return Math.min(target, granule);
+        }
+    }
+
     /**
      * Main loop.
      */
@@ -214,6 +611,9 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 }
 
                 oggStreamState_.pagein(oggPage_);
+                if (oggPage_.granulepos() != -1) {
+                    lastGranule = oggPage_.granulepos();
+                }
 
                 if (TDebug.TraceAudioConverter) {
                     TDebug.out("Setting playState to playState_WriteData.");
@@ -294,6 +694,9 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                     if (oggBitStream_ != null) {
                         oggBitStream_.close();
                     }
+                    if (seekableSource != null) {
+                        seekableSource.close();
+                    }
                     getCircularBuffer().close();
                 }
                 catch (final Exception e) {
@@ -312,37 +715,19 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
      */
     private void outputSamples() {
         int samples;
-        while ((samples = vorbisDspState.synthesis_pcmout(_pcmf, _index)) > 0) {
-            final float[][] pcmf = _pcmf[0];
-            bout = (samples < convsize ? samples : convsize);
-            double fVal = 0.0;
-            // convert doubles to 16 bit signed ints (host order) and
-            // interleave
-            for (i = 0; i < vorbisInfo.channels; i++) {
-                int pointer = i * 2;
-                //int ptr=i;
-                final int mono = _index[i];
-                for (int j = 0; j < bout; j++) {
-                    fVal = pcmf[i][mono + j] * 32767.;
-                    int val = (int) (fVal);
-                    if (val > 32767) {
-                        val = 32767;
-                    }
-                    if (val < -32768) {
-                        val = -32768;
-                    }
-                    if (val < 0) {
-                        val = val | 0x8000;
-                    }
-                    convbuffer[pointer] = (byte) (val);
-                    convbuffer[pointer + 1] = (byte) (val >>> 8);
-                    pointer += 2 * (vorbisInfo.channels);
-                }
+        while ((samples = pcmout()) > 0) {
+            if (planarRead) {
+                // Leave the samples in the DspState for read(float[][], int, int).
+                bout = 0;
+                playState = playState_BufferFull;
+                return;
             }
+            bout = (samples < convsize ? samples : convsize);
+            final int length = interleave(_pcmf[0], _index, bout);
             if (TDebug.TraceAudioConverter) {
-                TDebug.out("about to write: " + 2 * vorbisInfo.channels * bout);
+                TDebug.out("about to write: " + length);
             }
-            if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bout) {
+            if (getCircularBuffer().availableWrite() < length) {
                 if (TDebug.TraceAudioConverter) {
                     TDebug.out(
                             "Too much data in this data packet, better return, let the channel drain, and try again...");
@@ -350,7 +735,7 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 playState = playState_BufferFull;
                 return;
             }
-            getCircularBuffer().write(convbuffer, 0, 2 * vorbisInfo.channels * bout);
+            getCircularBuffer().write(convbuffer, 0, length);
             if (bytes < bufferSize_) {
                 if (TDebug.TraceAudioConverter) {
                     TDebug.out("Finished with final buffer of music?");
@@ -361,19 +746,99 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                     TDebug.out("VorbisDspState.synthesis_read returned -1.");
                 }
             }
+            samplePosition += bout;
         } // while(samples...)
         playState = playState_ReadData;
     }
 
+    /**
+     * Returns the number of samples ready in the DspState, after dropping the samples before a seek target.
+     */
+    private int pcmout() {
+        int samples;
+        while ((samples = vorbisDspState.synthesis_pcmout(_pcmf, _index)) > 0 && (skipSamples > 0)) {
+            // Samples before the seek target.
+            final int skipped = (int) Math.min(samples, skipSamples);
+            vorbisDspState.synthesis_read(skipped);
+            skipSamples -= skipped;
+            samplePosition += skipped;
+        }
+        return samples;
+    }
+
+    /**
+     * Converts samples to the output format and interleaves them in convbuffer.
+     * There is one loop for each sample format, so that the format is not tested per sample.
+     *
+     * @return the number of bytes written.
+     */
+    private int interleave(final float[][] pcmf, final int[] index, final int samples) {
+        final int channels = vorbisInfo.channels;
+        final int step = sampleBytes * channels;
+        for (int ch = 0; ch < channels; ch++) {
+            final float[] pcm = pcmf[ch];
+            final int mono = index[ch];
+            int pointer = ch * sampleBytes;
+            if (floatOutput) {
+                // No clipping, the full decoder precision is kept.
+                for (int j = 0; j < samples; j++) {
+                    putSample(Float.floatToRawIntBits(pcm[mono + j]), pointer, 4);
+                    pointer += step;
+                }
+            }
+            else if (sampleBytes == 3) {
+                for (int j = 0; j < samples; j++) {
+                    final int val = (int) (pcm[mono + j] * 8388607.0f);
+                    putSample(Math.max(-8388608, Math.min(8388607, val)), pointer, 3);
+                    pointer += step;
+                }
+            }
+            else if (bigEndian) {
+                for (int j = 0; j < samples; j++) {
+                    final int val = Math.max(-32768, Math.min(32767, (int) (pcm[mono + j] * 32767.0f)));
+                    convbuffer[pointer] = (byte) (val >>> 8);
+                    convbuffer[pointer + 1] = (byte) val;
+                    pointer += step;
+                }
+            }
+            else {
+                for (int j = 0; j < samples; j++) {
+                    final int val = Math.max(-32768, Math.min(32767, (int) (pcm[mono + j] * 32767.0f)));
+                    convbuffer[pointer] = (byte) val;
+                    convbuffer[pointer + 1] = (byte) (val >>> 8);
+                    pointer += step;
+                }
+            }
+        }
+        return step * samples;
+    }
+
+    private void putSample(final int val, final int pointer, final int size) {
+        if (bigEndian) {
+            for (int b = 0; b < size; b++) {
+                convbuffer[pointer + b] = (byte) (val >>> (8 * (size - 1 - b)));
+            }
+        }
+        else {
+            for (int b = 0; b < size; b++) {
+                convbuffer[pointer + b] = (byte) (val >>> (8 * b));
+            }
+        }
+    }
+
     private void continueFromBufferFull() {
-        if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bout) {
+        final int length = bout * sampleBytes * vorbisInfo.channels;
+        if (getCircularBuffer().availableWrite() < length) {
             if (TDebug.TraceAudioConverter) {
                 TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
             }
             // Don't change play state.
             return;
         }
-        getCircularBuffer().write(convbuffer, 0, 2 * vorbisInfo.channels * bout);
+        getCircularBuffer().write(convbuffer, 0, length);
+        // These samples are written now, don't get them again from the DspState.
+        vorbisDspState.synthesis_read(bout);
+        samplePosition += bout;
         // Don't change play state. Let outputSamples change play state, if necessary.
         outputSamples();
     }
@@ -482,7 +947,10 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 TDebug.out("Comment: " + currComment);
             }
         }
+        // Audio pages start after the pages read so far.
+        dataBegin = currentBytes - (oggSyncState_.getBufferOffset() - oggSyncState_.getDataOffset());
         convsize = bufferSize_ / vorbisInfo.channels;
+        convbuffer = new byte[convsize * vorbisInfo.channels * sampleBytes];
         vorbisDspState.synthesis_init(vorbisInfo);
         vorbisBlock.init(vorbisDspState);
         _pcmf = new float[1][][];
@@ -501,7 +969,12 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     private int readFromStream(final byte[] buffer, final int index, final int bufferSize_) {
         int bytes = 0;
         try {
-            bytes = oggBitStream_.read(buffer, index, bufferSize_);
+            if (seekableSource != null) {
+                bytes = seekableSource.read(buffer, index, bufferSize_);
+            }
+            else {
+                bytes = oggBitStream_.read(buffer, index, bufferSize_);
+            }
         }
         catch (final Exception e) {
             if (TDebug.TraceAudioConverter) {
@@ -521,6 +994,9 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
             throws IOException {
         super.close();
         oggBitStream_.close();
+        if (seekableSource != null) {
+            seekableSource.close();
+        }
     }
 
 }
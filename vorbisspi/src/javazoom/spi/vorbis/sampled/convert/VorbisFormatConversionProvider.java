@@ -58,166 +58,63 @@ public class VorbisFormatConversionProvider extends TMatrixFormatConversionProvi
       new AudioFormat(VorbisEncoding.VORBISENC, 12000.0F, -1, 2, -1, -1, false), // 41
   };
 
-  private static final AudioFormat[] OUTPUT_FORMATS =
+  private static final float[] SAMPLE_RATES =
   {
-      new AudioFormat(8000.0F, 16, 1, true, false), // 0
-      new AudioFormat(8000.0F, 16, 1, true, true), // 1
-      new AudioFormat(8000.0F, 16, 2, true, false), // 2
-      new AudioFormat(8000.0F, 16, 2, true, true), // 3
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(8000.0F, 24, 1, true, false),
-                      new AudioFormat(8000.0F, 24, 1, true, true),
-                      new AudioFormat(8000.0F, 24, 2, true, false),
-                      new AudioFormat(8000.0F, 24, 2, true, true),
-                      new AudioFormat(8000.0F, 32, 1, true, false),
-                      new AudioFormat(8000.0F, 32, 1, true, true),
-                      new AudioFormat(8000.0F, 32, 2, true, false),
-                      new AudioFormat(8000.0F, 32, 2, true, true),
-       */
-      new AudioFormat(11025.0F, 16, 1, true, false), // 4
-      new AudioFormat(11025.0F, 16, 1, true, true), // 5
-      new AudioFormat(11025.0F, 16, 2, true, false), // 6
-      new AudioFormat(11025.0F, 16, 2, true, true), // 7
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(11025.0F, 24, 1, true, false),
-                      new AudioFormat(11025.0F, 24, 1, true, true),
-                      new AudioFormat(11025.0F, 24, 2, true, false),
-                      new AudioFormat(11025.0F, 24, 2, true, true),
-                      new AudioFormat(11025.0F, 32, 1, true, false),
-                      new AudioFormat(11025.0F, 32, 1, true, true),
-                      new AudioFormat(11025.0F, 32, 2, true, false),
-                      new AudioFormat(11025.0F, 32, 2, true, true),
-       */
-      new AudioFormat(12000.0F, 16, 1, true, false), // 8
-      new AudioFormat(12000.0F, 16, 1, true, true), // 9
-      new AudioFormat(12000.0F, 16, 2, true, false), // 10
-      new AudioFormat(12000.0F, 16, 2, true, true), // 11
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(12000.0F, 24, 1, true, false),
-                      new AudioFormat(12000.0F, 24, 1, true, true),
-                      new AudioFormat(12000.0F, 24, 2, true, false),
-                      new AudioFormat(12000.0F, 24, 2, true, true),
-                      new AudioFormat(12000.0F, 32, 1, true, false),
-                      new AudioFormat(12000.0F, 32, 1, true, true),
-                      new AudioFormat(12000.0F, 32, 2, true, false),
-                      new AudioFormat(12000.0F, 32, 2, true, true),
-       */
-      new AudioFormat(16000.0F, 16, 1, true, false), // 12
-      new AudioFormat(16000.0F, 16, 1, true, true), // 13
-      new AudioFormat(16000.0F, 16, 2, true, false), // 14
-      new AudioFormat(16000.0F, 16, 2, true, true), // 15
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(16000.0F, 24, 1, true, false),
-                      new AudioFormat(16000.0F, 24, 1, true, true),
-                      new AudioFormat(16000.0F, 24, 2, true, false),
-                      new AudioFormat(16000.0F, 24, 2, true, true),
-                      new AudioFormat(16000.0F, 32, 1, true, false),
-                      new AudioFormat(16000.0F, 32, 1, true, true),
-                      new AudioFormat(16000.0F, 32, 2, true, false),
-                      new AudioFormat(16000.0F, 32, 2, true, true),
-       */
-      new AudioFormat(22050.0F, 16, 1, true, false), // 16
-      new AudioFormat(22050.0F, 16, 1, true, true), // 17
-      new AudioFormat(22050.0F, 16, 2, true, false), // 18
-      new AudioFormat(22050.0F, 16, 2, true, true), // 19
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(22050.0F, 24, 1, true, false),
-                      new AudioFormat(22050.0F, 24, 1, true, true),
-                      new AudioFormat(22050.0F, 24, 2, true, false),
-                      new AudioFormat(22050.0F, 24, 2, true, true),
-                      new AudioFormat(22050.0F, 32, 1, true, false),
-                      new AudioFormat(22050.0F, 32, 1, true, true),
-                      new AudioFormat(22050.0F, 32, 2, true, false),
-                      new AudioFormat(22050.0F, 32, 2, true, true),
-       */
-      new AudioFormat(24000.0F, 16, 1, true, false), // 20
-      new AudioFormat(24000.0F, 16, 1, true, true), // 21
-      new AudioFormat(24000.0F, 16, 2, true, false), // 22
-      new AudioFormat(24000.0F, 16, 2, true, true), // 23
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(24000.0F, 24, 1, true, false),
-                      new AudioFormat(24000.0F, 24, 1, true, true),
-                      new AudioFormat(24000.0F, 24, 2, true, false),
-                      new AudioFormat(24000.0F, 24, 2, true, true),
-                      new AudioFormat(24000.0F, 32, 1, true, false),
-                      new AudioFormat(24000.0F, 32, 1, true, true),
-                      new AudioFormat(24000.0F, 32, 2, true, false),
-                      new AudioFormat(24000.0F, 32, 2, true, true),
-       */
-      new AudioFormat(32000.0F, 16, 1, true, false), // 24
-      new AudioFormat(32000.0F, 16, 1, true, true), // 25
-      new AudioFormat(32000.0F, 16, 2, true, false), // 26
-      new AudioFormat(32000.0F, 16, 2, true, true), // 27
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(32000.0F, 24, 1, true, false),
-                      new AudioFormat(32000.0F, 24, 1, true, true),
-                      new AudioFormat(32000.0F, 24, 2, true, false),
-                      new AudioFormat(32000.0F, 24, 2, true, true),
-                      new AudioFormat(32000.0F, 32, 1, true, false),
-                      new AudioFormat(32000.0F, 32, 1, true, true),
-                      new AudioFormat(32000.0F, 32, 2, true, false),
-                      new AudioFormat(32000.0F, 32, 2, true, true),
-       */
-      new AudioFormat(44100.0F, 16, 1, true, false), // 28
-      new AudioFormat(44100.0F, 16, 1, true, true), // 29
-      new AudioFormat(44100.0F, 16, 2, true, false), // 30
-      new AudioFormat(44100.0F, 16, 2, true, true), // 31
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(44100.0F, 24, 1, true, false),
-                      new AudioFormat(44100.0F, 24, 1, true, true),
-                      new AudioFormat(44100.0F, 24, 2, true, false),
-                      new AudioFormat(44100.0F, 24, 2, true, true),
-                      new AudioFormat(44100.0F, 32, 1, true, false),
-                      new AudioFormat(44100.0F, 32, 1, true, true),
-                      new AudioFormat(44100.0F, 32, 2, true, false),
-                      new AudioFormat(44100.0F, 32, 2, true, true),
-       */
-      new AudioFormat(48000.0F, 16, 1, true, false), // 32
-      new AudioFormat(48000.0F, 16, 1, true, true), // 33
-      new AudioFormat(48000.0F, 16, 2, true, false), // 34
-      new AudioFormat(48000.0F, 16, 2, true, true), // 35
-      /*	24 and 32 bit not yet possible
-                      new AudioFormat(48000.0F, 24, 1, true, false),
-                      new AudioFormat(48000.0F, 24, 1, true, true),
-                      new AudioFormat(48000.0F, 24, 2, true, false),
-                      new AudioFormat(48000.0F, 24, 2, true, true),
-                      new AudioFormat(48000.0F, 32, 1, true, false),
-                      new AudioFormat(48000.0F, 32, 1, true, true),
-                      new AudioFormat(48000.0F, 32, 2, true, false),
-                      new AudioFormat(48000.0F, 32, 2, true, true),
-       */
+      8000.0F, 11025.0F, 12000.0F, 16000.0F, 22050.0F, 24000.0F, 32000.0F, 44100.0F, 48000.0F
   };
 
-  private static final boolean t = true;
-  private static final boolean f = false;
-
   /*
-   *	One row for each source format.
+   *	For each sample rate: 16 bit signed, then 24 bit signed, then
+   *	32 bit float, each in mono and stereo, little and big endian.
+   *	16 bit comes first so that it stays the default PCM_SIGNED target.
    */
-  private static final boolean[][] CONVERSIONS =
-  {
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,t,t,f,f,f,f, f,f,f,f,f,f},	// 0
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,t,t,f,f, f,f,f,f,f,f},	// 1
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,t,t, f,f,f,f,f,f},	// 2
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, t,t,f,f,f,f},	// 3
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,t,t,f,f},	// 4
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,t,t},	// 5
+  private static final AudioFormat[] OUTPUT_FORMATS = createOutputFormats();
 
-      {f,f,f,f,f,f,f,f,f,f, f,f,t,t,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 18
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,t,t,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 19
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,t,t,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 20
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,t,t, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 21
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, t,t,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 22
-      {f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,t,t,f,f,f,f,f,f, f,f,f,f,f,f},	// 23
+  /*
+   *	One row for each source format, a conversion is possible to
+   *	the target formats with the same sample rate and channels.
+   */
+  private static final boolean[][] CONVERSIONS = createConversions();
 
-      {t,t,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 36
-      {f,f,t,t,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 37
-      {f,f,f,f,t,t,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 38
-      {f,f,f,f,f,f,t,t,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 39
-      {f,f,f,f,f,f,f,f,t,t, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 40
-      {f,f,f,f,f,f,f,f,f,f, t,t,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 41
+  private static AudioFormat[] createOutputFormats()
+  {
+    final AudioFormat[] formats = new AudioFormat[SAMPLE_RATES.length * 12];
+    int n = 0;
+    for (int i = 0; i < SAMPLE_RATES.length; i++)
+    {
+      final float rate = SAMPLE_RATES[i];
+      for (int channels = 1; channels <= 2; channels++)
+      {
+        formats[n++] = new AudioFormat(rate, 16, channels, true, false);
+        formats[n++] = new AudioFormat(rate, 16, channels, true, true);
+      }
+      for (int channels = 1; channels <= 2; channels++)
+      {
+        formats[n++] = new AudioFormat(rate, 24, channels, true, false);
+        formats[n++] = new AudioFormat(rate, 24, channels, true, true);
+      }
+      for (int channels = 1; channels <= 2; channels++)
+      {
+        formats[n++] = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, rate, 32, channels, 4 * channels, rate, false);
+        formats[n++] = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, rate, 32, channels, 4 * channels, rate, true);
+      }
+    }
+    return formats;
+  }
 
-  };
+  private static boolean[][] createConversions()
+  {
+    final boolean[][] conversions = new boolean[INPUT_FORMATS.length][OUTPUT_FORMATS.length];
+    for (int i = 0; i < INPUT_FORMATS.length; i++)
+    {
+      for (int o = 0; o < OUTPUT_FORMATS.length; o++)
+      {
+        conversions[i][o] = (INPUT_FORMATS[i].getSampleRate() == OUTPUT_FORMATS[o].getSampleRate())
+            && (INPUT_FORMATS[i].getChannels() == OUTPUT_FORMATS[o].getChannels());
+      }
+    }
+    return conversions;
+  }
 
   /**
    * Constructor.
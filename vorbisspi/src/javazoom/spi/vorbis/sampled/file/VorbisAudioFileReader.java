@@ -39,11 +39,14 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,20 +61,16 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class VorbisAudioFileReader extends TAudioFileReader {
 
     private static final Logger _logger = getLogger(VorbisAudioFileReader.class);
+    // Initial size of the stream buffers, they only grow as far as the header pages go.
     private static final int BUFFER_SIZE = 4096;
-    private static final int INITIAL_READ_LENGTH = 128_000 * 32;
-    private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
+    // Largest header the stream can be reset after, comments may carry pictures.
+    private static final int MAX_HEADER_LENGTH = 128_000 * 32;
+    private static final int MARK_LIMIT = MAX_HEADER_LENGTH + 1;
+    private static final int PAGE_HEADER_LENGTH = 27;
+    // Bytes read at a time when scanning the end of a file for its last page.
+    private static final int SCAN_CHUNK_SIZE = 8500;
     private final Map<String, String> _tagMapping;
 
-    private SyncState _syncState;
-    private StreamState _streamState;
-    private Page _page;
-    private Packet _packet;
-    private Info _vorbisInfo;
-    private Comment _comment;
-    private int _bytes;
-    private InputStream _oggBitStream;
-
 
     public VorbisAudioFileReader() {
         super(MARK_LIMIT, true);
@@ -82,27 +81,34 @@ public class VorbisAudioFileReader extends TAudioFileReader {
 
     /**
      * Return the AudioFileFormat from the given file.
+     * The duration is the granule position of the last page, found by scanning the file
+     * backwards from its end. Only chained files, whose last page belongs to another
+     * logical stream than the first one, are opened with a VorbisFile to sum their links.
      */
     @Override
     public AudioFileFormat getAudioFileFormat(final File file)
             throws UnsupportedAudioFileException, IOException {
-        InputStream inputStream = null;
+        // Header pages are read with exact reads, no buffering is needed.
+        final FileInputStream inputStream = new FileInputStream(file);
         try {
-            inputStream = new BufferedInputStream(new FileInputStream(file));
-            //            inputStream.mark(MARK_LIMIT);
-            //            final AudioFileFormat aff = getAudioFileFormat(inputStream);
-            //            inputStream.reset();
-            // Get Vorbis file info such as length in seconds.
-            final VorbisFile vf = new VorbisFile(file.getAbsolutePath());
-            return getAudioFileFormat(inputStream, (int) file.length(), Math.round((vf.time_total(-1)) * 1000));
-        }
-        catch (final JOrbisException e) {
-            throw new IOException(e.getMessage(), e);
+            final HeaderProbe probe = probe(inputStream);
+            final float seconds;
+            final Page last = findLastPage(inputStream.getChannel());
+            if ((last == null) || (last.serialno() == probe.serialno)) {
+                seconds = (last == null) ? 0 : (float) last.granulepos() / probe.info.rate;
+            }
+            else {
+                try {
+                    seconds = new VorbisFile(file.getAbsolutePath()).time_total(-1);
+                }
+                catch (final JOrbisException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+            return getAudioFileFormat(probe, (int) file.length(), Math.round(seconds * 1000));
         }
         finally {
-            if (inputStream != null) {
-                inputStream.close();
-            }
+            inputStream.close();
         }
     }
 
@@ -131,7 +137,7 @@ public class VorbisAudioFileReader extends TAudioFileReader {
             throws UnsupportedAudioFileException, IOException {
         try {
             if (!inputStream.markSupported()) {
-                inputStream = new BufferedInputStream(inputStream);
+                inputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
             }
             inputStream.mark(MARK_LIMIT);
             return getAudioFileFormat(inputStream, AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED);
@@ -155,22 +161,39 @@ public class VorbisAudioFileReader extends TAudioFileReader {
      */
     private AudioFileFormat getAudioFileFormat(final InputStream bitStream, final int mediaLength, final int totalMs)
             throws UnsupportedAudioFileException, IOException {
-        final Map<String, Object> affProperties = new HashMap<>();
-        final Map<String, Object> afProperties = new HashMap<>();
-        if (totalMs > 0) {
-            affProperties.put("duration", totalMs * 1000L);
-        }
-        _oggBitStream = bitStream;
-        initJorbis();
+        return getAudioFileFormat(probe(bitStream), mediaLength, totalMs);
+    }
+
+    /**
+     * Reads the Vorbis headers at the start of a stream.
+     */
+    private static HeaderProbe probe(final InputStream bitStream)
+            throws UnsupportedAudioFileException {
+        final HeaderProbe probe = new HeaderProbe(bitStream);
         try {
-            readHeaders(affProperties);
+            probe.readHeaders();
         }
         catch (final IOException ioe) {
             _logger.info(ioe.getMessage());
             throw new UnsupportedAudioFileException(ioe.getMessage());
         }
+        return probe;
+    }
+
+    /**
+     * Return the AudioFileFormat from the headers read, length in bytes and length in milliseconds.
+     */
+    private AudioFileFormat getAudioFileFormat(final HeaderProbe probe, final int mediaLength, final int totalMs) {
+        final Map<String, Object> affProperties = new HashMap<>();
+        final Map<String, Object> afProperties = new HashMap<>();
+        if (totalMs > 0) {
+            affProperties.put("duration", totalMs * 1000L);
+        }
+        affProperties.put("ogg.serial", probe.serialno);
+        readTags(probe.comment, affProperties);
+        final Info vorbisInfo = probe.info;
 
-        String dmp = _vorbisInfo.toString();
+        String dmp = vorbisInfo.toString();
         _logger.debug("Vorbis Info: {}", dmp);
         // TODO: Encapsulate bitrate and framerate
         final int ind = dmp.lastIndexOf("bitrate:");
@@ -200,16 +223,16 @@ public class VorbisAudioFileReader extends TAudioFileReader {
             }
         }
         afProperties.put("vbr", Boolean.TRUE);
-        if (_vorbisInfo.channels > 0) {
-            affProperties.put("ogg.channels", _vorbisInfo.channels);
+        if (vorbisInfo.channels > 0) {
+            affProperties.put("ogg.channels", vorbisInfo.channels);
         }
-        if (_vorbisInfo.rate > 0) {
-            affProperties.put("ogg.frequency.hz", _vorbisInfo.rate);
+        if (vorbisInfo.rate > 0) {
+            affProperties.put("ogg.frequency.hz", vorbisInfo.rate);
         }
         if (mediaLength > 0) {
             affProperties.put("ogg.length.bytes", mediaLength);
         }
-        affProperties.put("ogg.version", _vorbisInfo.version);
+        affProperties.put("ogg.version", vorbisInfo.version);
 
         //AudioFormat.Encoding encoding = VorbisEncoding.VORBISENC;
         //AudioFormat format = new VorbisAudioFormat(encoding, vorbisInfo.rate, AudioSystem.NOT_SPECIFIED, vorbisInfo.channels, AudioSystem.NOT_SPECIFIED, AudioSystem.NOT_SPECIFIED, true,af_properties);
@@ -224,9 +247,9 @@ public class VorbisAudioFileReader extends TAudioFileReader {
         }
 
         final AudioFormat format = new VorbisAudioFormat(VorbisEncoding.VORBISENC,
-                                                         _vorbisInfo.rate,
+                                                         vorbisInfo.rate,
                                                          AudioSystem.NOT_SPECIFIED,
-                                                         _vorbisInfo.channels,
+                                                         vorbisInfo.channels,
                                                          1,
                                                          frameRate,
                                                          false,
@@ -254,7 +277,7 @@ public class VorbisAudioFileReader extends TAudioFileReader {
             throws UnsupportedAudioFileException, IOException {
         try {
             if (!inputStream.markSupported()) {
-                inputStream = new BufferedInputStream(inputStream);
+                inputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
             }
             inputStream.mark(MARK_LIMIT);
             final AudioFileFormat audioFileFormat = getAudioFileFormat(inputStream, medialength, totalms);
@@ -269,13 +292,15 @@ public class VorbisAudioFileReader extends TAudioFileReader {
 
     /**
      * Return the AudioInputStream from the given File.
+     * The file is passed to the decoder in the <b>ogg.file</b> format property,
+     * so that it can seek backwards and bisect the pages of the file.
      */
     @Override
     public AudioInputStream getAudioInputStream(final File file)
             throws UnsupportedAudioFileException, IOException {
         final InputStream inputStream = new FileInputStream(file);
         try {
-            return getAudioInputStream(inputStream);
+            return withSourceFile(getAudioInputStream(inputStream), file);
         }
         catch (final UnsupportedAudioFileException | IOException e) {
             inputStream.close();
@@ -283,6 +308,22 @@ public class VorbisAudioFileReader extends TAudioFileReader {
         }
     }
 
+    private static AudioInputStream withSourceFile(final AudioInputStream audioInputStream, final File file) {
+        final AudioFormat format = audioInputStream.getFormat();
+        final Map<String, Object> afProperties = new HashMap<>(format.properties());
+        afProperties.put("ogg.file", file);
+        final AudioFormat fileFormat = new VorbisAudioFormat(
+                format.getEncoding(),
+                format.getSampleRate(),
+                format.getSampleSizeInBits(),
+                format.getChannels(),
+                format.getFrameSize(),
+                format.getFrameRate(),
+                format.isBigEndian(),
+                afProperties);
+        return new AudioInputStream(audioInputStream, fileFormat, audioInputStream.getFrameLength());
+    }
+
     /**
      * Return the AudioInputStream from the given URL.
      */
@@ -299,77 +340,8 @@ public class VorbisAudioFileReader extends TAudioFileReader {
         }
     }
 
-    /**
-     * Reads headers and comments.
-     */
-    private void readHeaders(final Map<String, Object> affProperties)
-            throws IOException {
-        int index = _syncState.buffer(BUFFER_SIZE);
-        _bytes = readFromStream(_syncState._data, index, BUFFER_SIZE);
-        if (_bytes == -1) {
-            throw new IOException("Cannot get any data from selected Ogg bitstream.");
-        }
-        _syncState.wrote(_bytes);
-        if (_syncState.pageout(_page) != 1) {
-            if (_bytes < BUFFER_SIZE) {
-                throw new IOException("EOF");
-            }
-            throw new IOException("Input does not appear to be an Ogg bitstream.");
-        }
-        _streamState.init(_page.serialno());
-        _vorbisInfo.init();
-        _comment.init();
-        affProperties.put("ogg.serial", _page.serialno());
-        if (_streamState.pagein(_page) < 0) {
-            // error; stream version mismatch perhaps
-            throw new IOException("Error reading first page of Ogg bitstream data.");
-        }
-        if (_streamState.packetout(_packet) != 1) {
-            // no page? must not be vorbis
-            throw new IOException("Error reading initial header packet.");
-        }
-        if (_vorbisInfo.synthesis_headerin(_comment, _packet) < 0) {
-            // error case; not a vorbis header
-            throw new IOException("This Ogg bitstream does not contain Vorbis audio data.");
-        }
-        int i = 0;
-        while (i < 2) {
-            while (i < 2) {
-                int result = _syncState.pageout(_page);
-                if (result == 0) {
-                    break;
-                } // Need more data
-                if (result == 1) {
-                    _streamState.pagein(_page);
-                    while (i < 2) {
-                        result = _streamState.packetout(_packet);
-                        if (result == 0) {
-                            break;
-                        }
-                        if (result == -1) {
-                            throw new IOException("Corrupt secondary header.  Exiting.");
-                        }
-                        _vorbisInfo.synthesis_headerin(_comment, _packet);
-                        i++;
-                    }
-                }
-            }
-            index = _syncState.buffer(BUFFER_SIZE);
-            _bytes = readFromStream(_syncState._data, index, BUFFER_SIZE);
-            if (_bytes == -1) {
-                break;
-            }
-            if (_bytes == 0 && i < 2) {
-                throw new IOException("End of file before finding all Vorbis  headers!");
-            }
-            _syncState.wrote(_bytes);
-        }
-        // Read Ogg Vorbis comments.
-        readTags(affProperties);
-    }
-
-    private void readTags(final Map<String, Object> affProperties) {
-        final byte[][] ptr = _comment.user_comments;
+    private void readTags(final Comment comment, final Map<String, Object> affProperties) {
+        final byte[][] ptr = comment.user_comments;
         String currComment = "";
         for (final byte[] bytes : ptr) {
             if (bytes != null) {
@@ -385,7 +357,7 @@ public class VorbisAudioFileReader extends TAudioFileReader {
         }
         affProperties.put(
                 "ogg.comment.encodedby",
-                new String(_comment.vendor, 0, _comment.vendor.length - 1, StandardCharsets.UTF_8));
+                new String(comment.vendor, 0, comment.vendor.length - 1, StandardCharsets.UTF_8));
     }
 
     private static boolean tagMatches(final String currComment, final String title) {
@@ -393,33 +365,192 @@ public class VorbisAudioFileReader extends TAudioFileReader {
     }
 
     /**
-     * Reads from the oggBitStream_ a specified number of Bytes(bufferSize_) worth
-     * starting at index and puts them in the specified buffer[].
+     * Finds the last page of a file that ends a packet, by scanning backwards from the end
+     * of the file with positional reads. Each step parses the pages that start in the next
+     * chunk before the part already scanned, reading past it for a page that overlaps it.
      *
-     * @return the number of bytes read or -1 if error.
+     * @return the page, or null if there is none.
      */
-    private int readFromStream(final byte[] buffer, final int index, final int bufferSize) {
-        try {
-            return _oggBitStream.read(buffer, index, bufferSize);
-        }
-        catch (final RuntimeException | IOException e) {
-            _logger.info("Error reading audio.", e);
+    private static Page findLastPage(final FileChannel channel)
+            throws IOException {
+        final long size = channel.size();
+        final SyncState syncState = new SyncState();
+        final Page page = new Page();
+        final Page last = new Page();
+        long end = size;
+        while (end > 0) {
+            final long begin = Math.max(0, end - SCAN_CHUNK_SIZE);
+            syncState.reset();
+            long offset = begin;
+            long position = begin;
+            boolean found = false;
+            while (offset < end) {
+                final int result = syncState.pageseek(page);
+                if (result < 0) {
+                    offset -= result;
+                }
+                else if (result == 0) {
+                    if (position >= size) {
+                        break;
+                    }
+                    final int length = (int) Math.min(SCAN_CHUNK_SIZE, size - position);
+                    final int index = syncState.buffer(length);
+                    final ByteBuffer buffer = ByteBuffer.wrap(syncState._data, index, length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position() - index) < 0) {
+                            throw new EOFException();
+                        }
+                    }
+                    syncState.wrote(length);
+                    position += length;
+                }
+                else {
+                    if (page.granulepos() != -1) {
+                        copyPage(page, last);
+                        found = true;
+                    }
+                    offset += result;
+                }
+            }
+            if (found) {
+                return last;
+            }
+            end = begin;
         }
-        return -1;
+        return null;
     }
 
     /**
-     * Initializes all the jOrbis and jOgg vars that are used for song playback.
+     * Keeps the header of a page, the SyncState buffer it points to is reused.
      */
-    private void initJorbis() {
-        _syncState = new SyncState();
-        _streamState = new StreamState();
-        _page = new Page();
-        _packet = new Packet();
-        _vorbisInfo = new Info();
-        _comment = new Comment();
-        _bytes = 0;
-        _syncState.init();
+    private static void copyPage(final Page page, final Page copy) {
+        if ((copy.header_base == null) || (copy.header_base.length < page.header_len)) {
+            copy.header_base = new byte[page.header_len];
+        }
+        System.arraycopy(page.header_base, page.header, copy.header_base, 0, page.header_len);
+        copy.header = 0;
+        copy.header_len = page.header_len;
     }
 
+    /**
+     * Reads the three Vorbis header packets.
+     * The stream is read page by page with exact reads, the page header first, then the
+     * segment table and then the body, so that nothing after the last header page is read.
+     * The pages are gathered in the SyncState buffer, which grows with the size of the headers.
+     * A probe holds all the state of one read, so that a reader can be used by several threads.
+     */
+    private static final class HeaderProbe {
+
+        private final InputStream _in;
+        private final SyncState _syncState = new SyncState();
+        private final StreamState _streamState = new StreamState();
+        private final Page _page = new Page();
+        private final Packet _packet = new Packet();
+        final Info info = new Info();
+        final Comment comment = new Comment();
+        int serialno;
+
+        HeaderProbe(final InputStream in) {
+            _in = in;
+            _syncState.init();
+        }
+
+        void readHeaders()
+                throws IOException {
+            final int read = readPage();
+            if (read == 0) {
+                throw new IOException("Cannot get any data from selected Ogg bitstream.");
+            }
+            if (read < 0) {
+                throw new IOException("EOF");
+            }
+            if (_syncState.pageout(_page) != 1) {
+                throw new IOException("Input does not appear to be an Ogg bitstream.");
+            }
+            serialno = _page.serialno();
+            _streamState.init(serialno);
+            info.init();
+            comment.init();
+            if (_streamState.pagein(_page) < 0) {
+                // error; stream version mismatch perhaps
+                throw new IOException("Error reading first page of Ogg bitstream data.");
+            }
+            if (_streamState.packetout(_packet) != 1) {
+                // no page? must not be vorbis
+                throw new IOException("Error reading initial header packet.");
+            }
+            if (info.synthesis_headerin(comment, _packet) < 0) {
+                // error case; not a vorbis header
+                throw new IOException("This Ogg bitstream does not contain Vorbis audio data.");
+            }
+            int i = 0;
+            while (i < 2) {
+                final int result = _streamState.packetout(_packet);
+                if (result == 1) {
+                    info.synthesis_headerin(comment, _packet);
+                    i++;
+                }
+                else if (result < 0) {
+                    throw new IOException("Corrupt secondary header.  Exiting.");
+                }
+                else if (readPage() <= 0) {
+                    throw new IOException("End of file before finding all Vorbis  headers!");
+                }
+                else if (_syncState.pageout(_page) != 1) {
+                    throw new IOException("Corrupt secondary header.  Exiting.");
+                }
+                else {
+                    _streamState.pagein(_page);
+                }
+            }
+        }
+
+        /**
+         * Reads one page into the SyncState.
+         *
+         * @return the length of the page, 0 at the end of the stream, or -1 if the stream ends within the page.
+         */
+        private int readPage()
+                throws IOException {
+            int index = _syncState.buffer(PAGE_HEADER_LENGTH);
+            final int header = readFully(_syncState._data, index, PAGE_HEADER_LENGTH);
+            if (header < PAGE_HEADER_LENGTH) {
+                return (header == 0) ? 0 : -1;
+            }
+            final byte[] data = _syncState._data;
+            if ((data[index] != 'O') || (data[index + 1] != 'g') || (data[index + 2] != 'g') || (data[index + 3] != 'S')) {
+                throw new IOException("Input does not appear to be an Ogg bitstream.");
+            }
+            _syncState.wrote(PAGE_HEADER_LENGTH);
+            final int segments = _syncState._data[index + PAGE_HEADER_LENGTH - 1] & 0xff;
+            index = _syncState.buffer(segments);
+            if (readFully(_syncState._data, index, segments) < segments) {
+                return -1;
+            }
+            _syncState.wrote(segments);
+            int body = 0;
+            for (int i = 0; i < segments; i++) {
+                body += _syncState._data[index + i] & 0xff;
+            }
+            index = _syncState.buffer(body);
+            if (readFully(_syncState._data, index, body) < body) {
+                return -1;
+            }
+            _syncState.wrote(body);
+            return PAGE_HEADER_LENGTH + segments + body;
+        }
+
+        private int readFully(final byte[] buffer, final int index, final int length)
+                throws IOException {
+            int read = 0;
+            while (read < length) {
+                final int bytes = _in.read(buffer, index + read, length - read);
+                if (bytes < 0) {
+                    break;
+                }
+                read += bytes;
+            }
+            return read;
+        }
+    }
 }
@@ -57,6 +57,7 @@ public class VorbisAudioFormat extends TAudioFormat
 	 * <ul>
 	 * <li><b>bitrate</b> [Integer], bitrate in bits per seconds, average bitrate for VBR enabled stream.
 	 * <li><b>vbr</b> [Boolean], VBR flag.
+	 * <li><b>ogg.file</b> [File], the file the stream is read from, when it was opened from a file.
 	 * </ul>
 	 */
 	public Map properties()
@@ -0,0 +1,296 @@
+/*
+ *   ByteBufferStreamStateTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jogg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Reads the packets of an Ogg file with SyncState and StreamState and
+ * with the ByteBuffer layer, and checks that both return the same
+ * packets from heap, direct and mapped buffers.
+ */
+public class ByteBufferStreamStateTest extends TestCase
+{
+	private static final File OGG = new File("../tritonus-cvs/test/suite/sounds/testtruncate.ogg");
+
+	private byte[] file = null;
+	private List reference = null;
+
+	/**
+	 * Constructor for ByteBufferStreamStateTest.
+	 * @param arg0
+	 */
+	public ByteBufferStreamStateTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		file = new byte[(int) OGG.length()];
+		FileInputStream in = new FileInputStream(OGG);
+		try
+		{
+			int read = 0;
+			while (read < file.length) read += in.read(file, read, file.length - read);
+		}
+		finally
+		{
+			in.close();
+		}
+		reference = readReference(file);
+		assertTrue("packets", reference.size() > 3);
+	}
+
+	public void testHeapBuffer()
+	{
+		assertPackets(reference, read(ByteBuffer.wrap(file)));
+	}
+
+	public void testHeapBufferAtOffset()
+	{
+		byte[] padded = new byte[file.length + 100];
+		System.arraycopy(file, 0, padded, 37, file.length);
+		ByteBuffer buffer = ByteBuffer.wrap(padded, 37, file.length).slice();
+		assertPackets(reference, read(buffer));
+	}
+
+	public void testDirectBuffer()
+	{
+		ByteBuffer buffer = ByteBuffer.allocateDirect(file.length);
+		buffer.put(file);
+		buffer.flip();
+		assertPackets(reference, read(buffer));
+	}
+
+	public void testReadOnlyBuffer()
+	{
+		assertPackets(reference, read(ByteBuffer.wrap(file).asReadOnlyBuffer()));
+	}
+
+	public void testMappedFile() throws Exception
+	{
+		RandomAccessFile raf = new RandomAccessFile(OGG, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			assertPackets(reference, read(buffer));
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	public void testChunkedBuffers()
+	{
+		// Feed the stream in chunks, a page cut at the end of a chunk is
+		// found again at the start of the next buffer.
+		ByteBufferSyncState oy = new ByteBufferSyncState();
+		ByteBufferStreamState os = new ByteBufferStreamState();
+		ByteBufferPage og = new ByteBufferPage();
+		Packet op = new Packet();
+		List packets = new ArrayList();
+		int start = 0;
+		int end = Math.min(file.length, 1000);
+		oy.buffer(ByteBuffer.wrap(file, 0, end).slice());
+		boolean first = true;
+		while (true)
+		{
+			int result = oy.pageout(og);
+			if (result == 0)
+			{
+				if (end == file.length) break;
+				start += oy.buffer().position();
+				end = Math.min(file.length, end + 1000);
+				// a fresh array for every chunk, as a network reader would
+				byte[] chunk = new byte[end - start];
+				System.arraycopy(file, start, chunk, 0, chunk.length);
+				oy.buffer(ByteBuffer.wrap(chunk));
+				continue;
+			}
+			assertEquals("sync", 1, result);
+			if (first)
+			{
+				os.init(og.serialno());
+				first = false;
+			}
+			os.pagein(og);
+			while (os.packetout(op) == 1) packets.add(snapshot(op, copy(op)));
+		}
+		assertPackets(reference, packets);
+	}
+
+	public void testBadChecksum()
+	{
+		byte[] corrupted = (byte[]) file.clone();
+		// flip a byte in the body of the first audio page
+		int page = pageOffset(corrupted, 3);
+		corrupted[page + 27 + (corrupted[page + 26] & 0xff) + 10] ^= 0x55;
+
+		ByteBufferSyncState oy = new ByteBufferSyncState();
+		ByteBufferPage og = new ByteBufferPage();
+		oy.buffer(ByteBuffer.wrap(corrupted));
+		int pages = 0;
+		int holes = 0;
+		int result;
+		while ((result = oy.pageout(og)) != 0)
+		{
+			if (result == 1) pages++;
+			else holes++;
+		}
+		assertEquals("holes", 1, holes);
+		assertEquals("pages", countPages(file) - 1, pages);
+		// the buffer given is not written to
+		assertEquals(0x55, (file[page + 27 + (file[page + 26] & 0xff) + 10] ^ corrupted[page + 27 + (corrupted[page + 26] & 0xff) + 10]) & 0xff);
+	}
+
+	public void testPageFields()
+	{
+		SyncState oy = new SyncState();
+		Page og = new Page();
+		int index = oy.buffer(file.length);
+		System.arraycopy(file, 0, oy._data, index, file.length);
+		oy.wrote(file.length);
+		ByteBufferSyncState boy = new ByteBufferSyncState();
+		ByteBufferPage bog = new ByteBufferPage();
+		boy.buffer(ByteBuffer.wrap(file));
+		while (oy.pageout(og) == 1)
+		{
+			assertEquals("pageout", 1, boy.pageout(bog));
+			assertEquals("version", og.version(), bog.version());
+			assertEquals("continued", og.continued(), bog.continued());
+			assertEquals("bos", og.bos(), bog.bos());
+			assertEquals("eos", og.eos(), bog.eos());
+			assertEquals("granulepos", og.granulepos(), bog.granulepos());
+			assertEquals("serialno", og.serialno(), bog.serialno());
+			assertEquals("pageno", og.pageno(), bog.pageno());
+			assertEquals("header", og.header_len, bog.header.remaining());
+			assertEquals("body", og.body_len, bog.body.remaining());
+		}
+		assertEquals("end", 0, boy.pageout(bog));
+	}
+
+	private static List readReference(byte[] file)
+	{
+		SyncState oy = new SyncState();
+		StreamState os = new StreamState();
+		Page og = new Page();
+		Packet op = new Packet();
+		List packets = new ArrayList();
+		int index = oy.buffer(file.length);
+		System.arraycopy(file, 0, oy._data, index, file.length);
+		oy.wrote(file.length);
+		boolean first = true;
+		while (oy.pageout(og) == 1)
+		{
+			if (first)
+			{
+				os.init(og.serialno());
+				first = false;
+			}
+			os.pagein(og);
+			while (os.packetout(op) == 1) packets.add(snapshot(op, copy(op)));
+		}
+		return packets;
+	}
+
+	private static List read(ByteBuffer buffer)
+	{
+		ByteBufferSyncState oy = new ByteBufferSyncState();
+		ByteBufferStreamState os = new ByteBufferStreamState();
+		ByteBufferPage og = new ByteBufferPage();
+		Packet op = new Packet();
+		List packets = new ArrayList();
+		oy.buffer(buffer);
+		boolean first = true;
+		while (oy.pageout(og) == 1)
+		{
+			if (first)
+			{
+				os.init(og.serialno());
+				first = false;
+			}
+			os.pagein(og);
+			while (os.packetout(op) == 1) packets.add(snapshot(op, copy(op)));
+		}
+		assertFalse("remaining", buffer.hasRemaining());
+		return packets;
+	}
+
+	private static byte[] copy(Packet op)
+	{
+		byte[] bytes = new byte[op.bytes];
+		System.arraycopy(op.packet_base, op.packet, bytes, 0, op.bytes);
+		return bytes;
+	}
+
+	private static Object[] snapshot(Packet op, byte[] bytes)
+	{
+		return new Object[] { bytes, new long[] { op.granulepos, op.packetno, op.b_o_s, op.e_o_s } };
+	}
+
+	private static void assertPackets(List expected, List actual)
+	{
+		assertEquals("packets", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			Object[] e = (Object[]) expected.get(i);
+			Object[] a = (Object[]) actual.get(i);
+			assertTrue("packet " + i, Arrays.equals((byte[]) e[0], (byte[]) a[0]));
+			assertTrue("fields " + i, Arrays.equals((long[]) e[1], (long[]) a[1]));
+		}
+	}
+
+	private static int pageOffset(byte[] file, int n)
+	{
+		int pos = 0;
+		for (int i = 0; i < n; i++) pos += pageLength(file, pos);
+		return pos;
+	}
+
+	private static int countPages(byte[] file)
+	{
+		int pages = 0;
+		for (int pos = 0; pos < file.length; pos += pageLength(file, pos)) pages++;
+		return pages;
+	}
+
+	private static int pageLength(byte[] file, int pos)
+	{
+		int segments = file[pos + 26] & 0xff;
+		int length = 27 + segments;
+		for (int i = 0; i < segments; i++) length += file[pos + 27 + i] & 0xff;
+		return length;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *   MdctBenchmark - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jorbis;
+
+import java.util.Random;
+
+/**
+ * Measures the interleaved kernel of InterleavedMdct and the split one
+ * of Mdct, for the short and long blocks of usual streams.
+ * <p>
+ * Usage : java com.jcraft.jorbis.MdctBenchmark [transforms]
+ */
+public class MdctBenchmark
+{
+	public static void main(String[] args)
+	{
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		int[] sizes = { 256, 2048 };
+		for (int s = 0; s < sizes.length; s++)
+		{
+			int n = sizes[s];
+			InterleavedMdct interleaved = new InterleavedMdct();
+			interleaved.init(n);
+			Mdct split = new Mdct();
+			split.init(n);
+			float[] in = new float[n / 2];
+			Random random = new Random(n);
+			for (int i = 0; i < in.length; i++)
+				in[i] = (float) random.nextGaussian();
+			float[] out = new float[n];
+			// warm up both kernels
+			long warmup = System.nanoTime() + 2000000000L;
+			while (System.nanoTime() < warmup)
+			{
+				interleaved.backward(in, out);
+				split.backward(in, out);
+			}
+			int transforms = (int) Math.max(1000, (long) count * 256 / n);
+			// best of a few alternating rounds, the short blocks are noisy
+			long before = Long.MAX_VALUE;
+			long after = Long.MAX_VALUE;
+			for (int round = 0; round < 5; round++)
+			{
+				long start = System.nanoTime();
+				for (int i = 0; i < transforms; i++)
+					interleaved.backward(in, out);
+				before = Math.min(before, (System.nanoTime() - start) / transforms);
+				start = System.nanoTime();
+				for (int i = 0; i < transforms; i++)
+					split.backward(in, out);
+				after = Math.min(after, (System.nanoTime() - start) / transforms);
+			}
+			System.out.println("n=" + n + " : interleaved " + before + " ns, split " + after + " ns, speedup "
+				+ ((long) ((double) before / after * 100)) / 100.0);
+		}
+	}
+}
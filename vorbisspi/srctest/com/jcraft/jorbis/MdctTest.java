@@ -0,0 +1,127 @@
+/*
+ *   MdctTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jorbis;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the split MDCT kernel of Mdct against the interleaved one of
+ * InterleavedMdct, and both against a direct evaluation of the inverse
+ * MDCT.
+ */
+public class MdctTest extends TestCase
+{
+	/**
+	 * Constructor for MdctTest.
+	 * @param arg0
+	 */
+	public MdctTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testBlock256()
+	{
+		assertSameOutput(256);
+	}
+
+	public void testBlock2048()
+	{
+		assertSameOutput(2048);
+	}
+
+	public void testAllBlockSizes()
+	{
+		// the blocksizes a Vorbis stream may declare
+		for (int n = 64; n <= 8192; n <<= 1)
+			assertSameOutput(n);
+	}
+
+	public void testDirectInverse()
+	{
+		assertCloseToDirect(256);
+		assertCloseToDirect(2048);
+	}
+
+	private void assertSameOutput(int n)
+	{
+		InterleavedMdct interleaved = new InterleavedMdct();
+		interleaved.init(n);
+		Mdct split = new Mdct();
+		split.init(n);
+		Random random = new Random(n);
+		for (int pass = 0; pass < 4; pass++)
+		{
+			float[] in = spectrum(random, n);
+			float[] expected = new float[n];
+			float[] actual = new float[n];
+			interleaved.backward(in, expected);
+			split.backward(in, actual);
+			for (int i = 0; i < n; i++)
+				assertEquals("n=" + n + " sample " + i, Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+		}
+	}
+
+	private void assertCloseToDirect(int n)
+	{
+		float[] in = spectrum(new Random(n), n);
+		double[] direct = direct(in, n);
+		double peak = 0;
+		for (int i = 0; i < n; i++)
+			peak = Math.max(peak, Math.abs(direct[i]));
+		float[] out = new float[n];
+		InterleavedMdct interleaved = new InterleavedMdct();
+		interleaved.init(n);
+		interleaved.backward(in, out);
+		for (int i = 0; i < n; i++)
+			assertEquals("n=" + n + " interleaved sample " + i, direct[i], out[i], peak * 1e-5);
+		Mdct split = new Mdct();
+		split.init(n);
+		split.backward(in, out);
+		for (int i = 0; i < n; i++)
+			assertEquals("n=" + n + " split sample " + i, direct[i], out[i], peak * 1e-5);
+	}
+
+	private static float[] spectrum(Random random, int n)
+	{
+		float[] in = new float[n / 2];
+		for (int i = 0; i < in.length; i++)
+			in[i] = (float) (random.nextGaussian() / (1 + i / 16.0));
+		return in;
+	}
+
+	/**
+	 * The inverse MDCT of the Vorbis specification, without a window:
+	 * y[i] = sum X[k] cos(2 pi / n (i + 1/2 + n/4) (k + 1/2)).
+	 */
+	private static double[] direct(float[] in, int n)
+	{
+		double[] out = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			double sum = 0;
+			for (int k = 0; k < n / 2; k++)
+				sum += in[k] * Math.cos(2 * Math.PI / n * (i + 0.5 + n / 4.0) * (k + 0.5));
+			out[i] = sum;
+		}
+		return out;
+	}
+}
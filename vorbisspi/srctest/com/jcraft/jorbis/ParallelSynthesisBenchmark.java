@@ -0,0 +1,66 @@
+/*
+ *   ParallelSynthesisBenchmark - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jorbis;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the decoding time of synthetic 2, 6 and 8 channel streams,
+ * see SyntheticStream, with the synthesis on the calling thread and
+ * spread over a fork-join pool.
+ * <p>
+ * Usage : java com.jcraft.jorbis.ParallelSynthesisBenchmark file.ogg [threads] [passes]
+ */
+public class ParallelSynthesisBenchmark
+{
+	public static void main(String[] args) throws Exception
+	{
+		File file = new File(args[0]);
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		int[] channels = { 2, 6, 8 };
+		System.out.println(threads + " thread(s)");
+		for (int c = 0; c < channels.length; c++)
+		{
+			SyntheticStream stream = new SyntheticStream(file, channels[c]);
+			// warm up both ways
+			long warmup = System.nanoTime() + 2000000000L;
+			while (System.nanoTime() < warmup)
+			{
+				stream.decode(null, null);
+				stream.decode(pool, null);
+			}
+			long single = time(stream, null, passes);
+			long parallel = time(stream, pool, passes);
+			System.out.println(channels[c] + " channels : one thread " + single / 1000000 + " ms, pool " + parallel / 1000000
+				+ " ms, speedup " + ((long) ((double) single / parallel * 100)) / 100.0);
+		}
+		pool.shutdown();
+	}
+
+	private static long time(SyntheticStream stream, ForkJoinPool pool, int passes)
+	{
+		long start = System.nanoTime();
+		for (int i = 0; i < passes; i++)
+			stream.decode(pool, null);
+		return (System.nanoTime() - start) / passes;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ *   ParallelSynthesisTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jorbis;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that the parallel synthesis gives the same samples as the
+ * synthesis on one thread.
+ */
+public class ParallelSynthesisTest extends TestCase
+{
+	private static final File OGG = new File("../tritonus-cvs/test/suite/sounds/testtruncate.ogg");
+
+	private ForkJoinPool pool = null;
+
+	/**
+	 * Constructor for ParallelSynthesisTest.
+	 * @param arg0
+	 */
+	public ParallelSynthesisTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		pool = new ForkJoinPool(4);
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception
+	{
+		pool.shutdown();
+		super.tearDown();
+	}
+
+	public void testMono() throws Exception
+	{
+		// under the threshold, decoded on the calling thread
+		assertSameOutput(new SyntheticStream(OGG, 1));
+	}
+
+	public void testSixChannels() throws Exception
+	{
+		assertSameOutput(new SyntheticStream(OGG, 6));
+	}
+
+	public void testEightChannels() throws Exception
+	{
+		assertSameOutput(new SyntheticStream(OGG, 8));
+	}
+
+	private void assertSameOutput(SyntheticStream stream)
+	{
+		int samples = stream.decode(null, null);
+		assertTrue("samples", samples > 100000);
+		float[][] expected = new float[stream.getChannels()][samples];
+		float[][] actual = new float[stream.getChannels()][samples];
+		stream.decode(null, expected);
+		assertEquals(samples, stream.decode(pool, actual));
+		for (int ch = 0; ch < expected.length; ch++)
+		{
+			for (int i = 0; i < samples; i++)
+			{
+				if (Float.floatToIntBits(expected[ch][i]) != Float.floatToIntBits(actual[ch][i]))
+					fail("channel " + ch + " differs at sample " + i);
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ *   SyntheticStream - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package com.jcraft.jorbis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import com.jcraft.jogg.Packet;
+import com.jcraft.jogg.Page;
+import com.jcraft.jogg.StreamState;
+import com.jcraft.jogg.SyncState;
+
+/**
+ * Decodes the packets of a mono file as if the stream had more
+ * channels. There is no encoder here to make real multichannel files:
+ * the extra channels read the bits that follow the first one, which
+ * gives noise, but every channel goes through the floor curve, the
+ * inverse MDCT and the windowing like in a real multichannel stream.
+ */
+class SyntheticStream
+{
+	private final Info info = new Info();
+	private final Packet[] packets;
+
+	SyntheticStream(File file, int channels) throws IOException
+	{
+		byte[] data = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			int offset = 0;
+			while (offset < data.length)
+				offset += in.read(data, offset, data.length - offset);
+		}
+		finally
+		{
+			in.close();
+		}
+		SyncState oy = new SyncState();
+		StreamState os = new StreamState();
+		Page og = new Page();
+		Comment comment = new Comment();
+		int index = oy.buffer(data.length);
+		System.arraycopy(data, 0, oy._data, index, data.length);
+		oy.wrote(data.length);
+		java.util.List list = new java.util.ArrayList();
+		boolean first = true;
+		info.init();
+		comment.init();
+		while (oy.pageout(og) == 1)
+		{
+			if (first)
+			{
+				os.init(og.serialno());
+				first = false;
+			}
+			os.pagein(og);
+			Packet op = new Packet();
+			while (os.packetout(op) == 1)
+			{
+				if (list.size() < 3)
+				{
+					info.synthesis_headerin(comment, op);
+				}
+				else
+				{
+					Packet copy = new Packet();
+					copy.packet_base = new byte[op.bytes];
+					System.arraycopy(op.packet_base, op.packet, copy.packet_base, 0, op.bytes);
+					copy.bytes = op.bytes;
+					copy.granulepos = op.granulepos;
+					copy.packetno = op.packetno;
+					copy.e_o_s = op.e_o_s;
+					op = copy;
+				}
+				list.add(op);
+				op = new Packet();
+			}
+		}
+		list.subList(0, 3).clear();
+		packets = (Packet[]) list.toArray(new Packet[list.size()]);
+		info.channels = channels;
+	}
+
+	int getChannels()
+	{
+		return info.channels;
+	}
+
+	/**
+	 * Decodes all the packets.
+	 *
+	 * @param pool	the pool of the parallel synthesis, or null.
+	 * @param pcm	receives the samples of each channel, or null.
+	 * @return the number of samples of each channel.
+	 */
+	int decode(ForkJoinPool pool, float[][] pcm)
+	{
+		DspState dsp = new DspState();
+		dsp.synthesis_init(info);
+		dsp.synthesis_parallel(pool, 2);
+		Block block = new Block(dsp);
+		float[][][] out = new float[1][][];
+		int[] index = new int[info.channels];
+		int total = 0;
+		for (int p = 0; p < packets.length; p++)
+		{
+			if (block.synthesis(packets[p]) == 0)
+				dsp.synthesis_blockin(block);
+			int samples;
+			while ((samples = dsp.synthesis_pcmout(out, index)) > 0)
+			{
+				if (pcm != null)
+				{
+					for (int ch = 0; ch < info.channels; ch++)
+						System.arraycopy(out[0][ch], index[ch], pcm[ch], total, Math.min(samples, pcm[ch].length - total));
+				}
+				total += samples;
+				dsp.synthesis_read(samples);
+			}
+		}
+		return total;
+	}
+}
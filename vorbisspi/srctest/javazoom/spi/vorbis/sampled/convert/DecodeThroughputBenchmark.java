@@ -0,0 +1,132 @@
+/*
+ *   DecodeThroughputBenchmark - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.convert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import javazoom.spi.vorbis.sampled.file.VorbisAudioFileReader;
+
+/**
+ * Measures how Ogg Vorbis decoding scales with the number of
+ * decoders running at the same time. Every thread decodes the same
+ * file with its own DecodedVorbisAudioInputStream, the total number
+ * of decoded files per second is printed for 1, 2, 4 ... threads.
+ * All the threads must produce the same PCM output.
+ * <p>
+ * Usage : java javazoom.spi.vorbis.sampled.convert.DecodeThroughputBenchmark file.ogg [maxthreads] [passes]
+ */
+public class DecodeThroughputBenchmark
+{
+	public static void main(String[] args) throws Exception
+	{
+		final byte[] ogg = readFully(new FileInputStream(args[0]));
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final int passes = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+
+		// warm up for a few seconds so that the first run is not penalized
+		final long expected = decode(ogg);
+		long warmup = System.nanoTime() + 3000000000L;
+		while (System.nanoTime() < warmup)
+			decode(ogg);
+
+		double single = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2)
+		{
+			final long[] sums = new long[threads];
+			final Exception[] errors = new Exception[threads];
+			Thread[] workers = new Thread[threads];
+			for (int t = 0; t < threads; t++)
+			{
+				final int id = t;
+				workers[t] = new Thread()
+				{
+					public void run()
+					{
+						try
+						{
+							long sum = 0;
+							for (int i = 0; i < passes; i++)
+								sum ^= decode(ogg);
+							sums[id] = sum;
+						}
+						catch (Exception e)
+						{
+							errors[id] = e;
+						}
+					}
+				};
+			}
+			long start = System.nanoTime();
+			for (int t = 0; t < threads; t++)
+				workers[t].start();
+			for (int t = 0; t < threads; t++)
+				workers[t].join();
+			long elapsed = System.nanoTime() - start;
+			long check = ((passes & 1) == 0) ? 0 : expected;
+			for (int t = 0; t < threads; t++)
+			{
+				if (errors[t] != null) throw errors[t];
+				if (sums[t] != check)
+					throw new IllegalStateException("PCM output differs in thread " + t);
+			}
+			double rate = (double) threads * passes * 1e9 / elapsed;
+			if (threads == 1) single = rate;
+			System.out.println(threads + " thread(s) : " + (long) rate + " files/s, speedup " + ((long) (rate / single * 100)) / 100.0);
+		}
+	}
+
+	/**
+	 * Decodes the whole file and returns a checksum of the PCM bytes.
+	 */
+	private static long decode(byte[] ogg) throws Exception
+	{
+		AudioInputStream in = new VorbisAudioFileReader().getAudioInputStream(new ByteArrayInputStream(ogg));
+		AudioFormat source = in.getFormat();
+		AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+			source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+		AudioInputStream pcm = new DecodedVorbisAudioInputStream(target, in);
+		byte[] buffer = new byte[8192];
+		long sum = 0;
+		int read;
+		while ((read = pcm.read(buffer)) > 0)
+		{
+			for (int i = 0; i < read; i++)
+				sum = sum * 31 + buffer[i];
+		}
+		pcm.close();
+		return sum;
+	}
+
+	private static byte[] readFully(InputStream in) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) > 0)
+			out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+}
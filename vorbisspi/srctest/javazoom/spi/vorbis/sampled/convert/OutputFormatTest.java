@@ -0,0 +1,193 @@
+/*
+ *   OutputFormatTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.convert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import javazoom.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import junit.framework.TestCase;
+
+/**
+ * Decodes an Ogg Vorbis file to 16 bit, 24 bit and float PCM, and
+ * through the planar float read, and checks that they agree.
+ */
+public class OutputFormatTest extends TestCase
+{
+	// 22050 Hz mono.
+	private static final File OGG = new File("../tritonus-cvs/test/suite/sounds/testtruncate.ogg");
+
+	private short[] reference = null;
+
+	/**
+	 * Constructor for OutputFormatTest.
+	 * @param arg0
+	 */
+	public OutputFormatTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		byte[] data = readFully(open(AudioFormat.Encoding.PCM_SIGNED, 16, false));
+		reference = new short[data.length / 2];
+		for (int i = 0; i < reference.length; i++)
+			reference[i] = (short) ((data[2 * i] & 0xff) | (data[2 * i + 1] << 8));
+		assertTrue("samples", reference.length > 100000);
+	}
+
+	public void testTargetFormats()
+	{
+		VorbisFormatConversionProvider provider = new VorbisFormatConversionProvider();
+		AudioFormat source = new AudioFormat(new AudioFormat.Encoding("VORBISENC"), 44100.0F, -1, 2, -1, -1, false);
+		AudioFormat[] signed = provider.getTargetFormats(AudioFormat.Encoding.PCM_SIGNED, source);
+		assertEquals(4, signed.length);
+		assertEquals("16 bit first", 16, signed[0].getSampleSizeInBits());
+		AudioFormat[] floats = provider.getTargetFormats(AudioFormat.Encoding.PCM_FLOAT, source);
+		assertEquals(2, floats.length);
+		assertEquals(8, floats[0].getFrameSize());
+	}
+
+	public void testBigEndian() throws Exception
+	{
+		byte[] data = readFully(open(AudioFormat.Encoding.PCM_SIGNED, 16, true));
+		assertEquals(reference.length * 2, data.length);
+		for (int i = 0; i < reference.length; i++)
+			assertEquals("sample " + i, reference[i], (short) ((data[2 * i] << 8) | (data[2 * i + 1] & 0xff)));
+	}
+
+	public void test24Bit() throws Exception
+	{
+		checkInt24(readFully(open(AudioFormat.Encoding.PCM_SIGNED, 24, false)), false);
+		checkInt24(readFully(open(AudioFormat.Encoding.PCM_SIGNED, 24, true)), true);
+	}
+
+	public void testFloat() throws Exception
+	{
+		checkFloat(readFully(open(AudioFormat.Encoding.PCM_FLOAT, 32, false)), false);
+		checkFloat(readFully(open(AudioFormat.Encoding.PCM_FLOAT, 32, true)), true);
+	}
+
+	public void testPlanarRead() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(AudioFormat.Encoding.PCM_FLOAT, 32, false);
+		float[] samples = readPlanar(din, 0);
+		checkSamples(samples);
+		byte[] data = readFully(open(AudioFormat.Encoding.PCM_FLOAT, 32, false));
+		for (int i = 0; i < samples.length; i++)
+			assertEquals("sample " + i, Float.floatToRawIntBits(samples[i]), int32(data, 4 * i, false));
+	}
+
+	public void testPlanarReadAfterBytes() throws Exception
+	{
+		// bytes already decoded for read(byte[]) come first
+		DecodedVorbisAudioInputStream din = open(AudioFormat.Encoding.PCM_SIGNED, 16, false);
+		byte[] head = new byte[20000];
+		int offset = 0;
+		while (offset < head.length)
+			offset += din.read(head, offset, head.length - offset);
+		float[] samples = readPlanar(din, head.length / 2);
+		for (int i = 0; i < head.length / 2; i++)
+			samples[i] = (short) ((head[2 * i] & 0xff) | (head[2 * i + 1] << 8)) / 32767.0f;
+		checkSamples(samples);
+	}
+
+	private float[] readPlanar(DecodedVorbisAudioInputStream din, int offset) throws Exception
+	{
+		float[][] samples = { new float[reference.length + 1000] };
+		int read;
+		while ((read = din.read(samples, offset, 1000)) >= 0)
+			offset += read;
+		din.close();
+		assertEquals(reference.length, offset);
+		return Arrays.copyOf(samples[0], offset);
+	}
+
+	private void checkSamples(float[] samples)
+	{
+		for (int i = 0; i < samples.length; i++)
+		{
+			int val = Math.max(-32768, Math.min(32767, (int) (samples[i] * 32767.0f)));
+			assertEquals("sample " + i, reference[i], val, 1);
+		}
+	}
+
+	private void checkInt24(byte[] data, boolean bigEndian)
+	{
+		assertEquals(reference.length * 3, data.length);
+		for (int i = 0; i < reference.length; i++)
+		{
+			int b0 = data[3 * i] & 0xff;
+			int b1 = data[3 * i + 1] & 0xff;
+			int b2 = data[3 * i + 2];
+			int val = bigEndian ? ((b0 << 24) >> 8) | (b1 << 8) | (data[3 * i + 2] & 0xff) : (b2 << 16) | (b1 << 8) | b0;
+			assertEquals("sample " + i, reference[i], val / 256, 1);
+		}
+	}
+
+	private void checkFloat(byte[] data, boolean bigEndian)
+	{
+		assertEquals(reference.length * 4, data.length);
+		for (int i = 0; i < reference.length; i++)
+		{
+			float value = Float.intBitsToFloat(int32(data, 4 * i, bigEndian));
+			// the same conversion as the 16 bit output
+			assertEquals("sample " + i, reference[i], Math.max(-32768, Math.min(32767, (int) (value * 32767.0f))));
+		}
+	}
+
+	private static int int32(byte[] data, int offset, boolean bigEndian)
+	{
+		int val = 0;
+		for (int b = 0; b < 4; b++)
+			val |= (data[offset + b] & 0xff) << (bigEndian ? 24 - 8 * b : 8 * b);
+		return val;
+	}
+
+	private static DecodedVorbisAudioInputStream open(AudioFormat.Encoding encoding, int bits, boolean bigEndian) throws Exception
+	{
+		AudioInputStream in = new VorbisAudioFileReader().getAudioInputStream(OGG);
+		AudioFormat source = in.getFormat();
+		int frameSize = source.getChannels() * bits / 8;
+		AudioFormat target = new AudioFormat(encoding, source.getSampleRate(), bits,
+			source.getChannels(), frameSize, source.getSampleRate(), bigEndian);
+		return new DecodedVorbisAudioInputStream(target, in);
+	}
+
+	private static byte[] readFully(InputStream in) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) >= 0)
+			out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ *   ReadAheadTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.convert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import javazoom.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import junit.framework.TestCase;
+
+/**
+ * Decodes an Ogg Vorbis file on a read-ahead thread and checks that
+ * the PCM is the same as when it is decoded by the reading thread.
+ */
+public class ReadAheadTest extends TestCase
+{
+	// 22050 Hz mono, a little more than 8 seconds.
+	private static final File OGG = new File("../tritonus-cvs/test/suite/sounds/testtruncate.ogg");
+	private static final int RATE = 22050;
+	private static final int FRAME_SIZE = 2;
+
+	private byte[] reference = null;
+
+	/**
+	 * Constructor for ReadAheadTest.
+	 * @param arg0
+	 */
+	public ReadAheadTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		reference = readFully(open(), 4096);
+	}
+
+	public void testDecode() throws Exception
+	{
+		int[] sizes = {1, 333, 4096, 65536};
+		for (int i = 0; i < sizes.length; i++)
+		{
+			DecodedVorbisAudioInputStream din = open();
+			din.startReadAhead();
+			assertTrue(din.isReadAhead());
+			byte[] data = readFully(din, sizes[i]);
+			assertEquals(reference.length, data.length);
+			assertSame(0, data);
+		}
+	}
+
+	public void testSmallReadAhead() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead(100, null);
+		assertSame(0, readFully(din, 4096));
+	}
+
+	public void testThreadFactory() throws Exception
+	{
+		final int[] threads = new int[1];
+		ThreadFactory factory = new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				threads[0]++;
+				return new Thread(r);
+			}
+		};
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead(8192, factory);
+		// started once only
+		din.startReadAhead(8192, factory);
+		assertEquals(1, threads[0]);
+		assertSame(0, readFully(din, 4096));
+	}
+
+	public void testSeek() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead();
+		byte[] data = new byte[RATE * FRAME_SIZE];
+		readFully(din, data);
+		assertSame(0, data);
+		long[] targets = {6000000, 500000, 3300000};
+		for (int i = 0; i < targets.length; i++)
+		{
+			assertEquals(targets[i], din.seekMicroseconds(targets[i]));
+			readFully(din, data);
+			assertSame(sample(targets[i]), data);
+		}
+		assertEquals(7100000, din.seekMicroseconds(7100000));
+		byte[] tail = readFully(din, 4096);
+		assertEquals(reference.length - sample(7100000) * FRAME_SIZE, tail.length);
+		assertSame(sample(7100000), tail);
+	}
+
+	public void testPlanarRead() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead();
+		float[][] samples = new float[1][1000];
+		int position = 0;
+		int read;
+		while ((read = din.read(samples, 0, samples[0].length)) >= 0)
+		{
+			for (int i = 0; i < read; i++)
+			{
+				int j = (position + i) * FRAME_SIZE;
+				short expected = (short) ((reference[j] & 0xff) | (reference[j + 1] << 8));
+				assertEquals(expected / 32767.0f, samples[0][i], 1e-6f);
+			}
+			position += read;
+		}
+		assertEquals(reference.length / FRAME_SIZE, position);
+	}
+
+	public void testSeekAtEnd() throws Exception
+	{
+		// the whole stream fits in the buffer, and gets decoded ahead
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead(1 << 20, null);
+		byte[] data = new byte[3 * RATE * FRAME_SIZE];
+		readFully(din, data);
+		for (int i = 0; i < 100 && din.available() < reference.length - data.length; i++)
+			Thread.sleep(20);
+		assertEquals(reference.length - data.length, din.available());
+		assertEquals(1000000, din.seekMicroseconds(1000000));
+		readFully(din, data);
+		assertSame(sample(1000000), data);
+	}
+
+	public void testClose() throws Exception
+	{
+		final Thread[] threads = new Thread[1];
+		ThreadFactory factory = new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				return threads[0] = new Thread(r);
+			}
+		};
+		DecodedVorbisAudioInputStream din = open();
+		din.startReadAhead(65536, factory);
+		byte[] data = new byte[1000];
+		readFully(din, data);
+		din.close();
+		threads[0].join(2000);
+		assertFalse(threads[0].isAlive());
+	}
+
+	private void assertSame(int sample, byte[] data)
+	{
+		for (int i = 0; i < data.length; i++)
+		{
+			if (reference[sample * FRAME_SIZE + i] != data[i])
+				fail("PCM differs at sample " + (sample + i / FRAME_SIZE));
+		}
+	}
+
+	private static int sample(long microseconds)
+	{
+		return (int) (microseconds * RATE / 1000000);
+	}
+
+	private static DecodedVorbisAudioInputStream open() throws Exception
+	{
+		AudioInputStream in = new VorbisAudioFileReader().getAudioInputStream(OGG);
+		AudioFormat source = in.getFormat();
+		AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+			source.getChannels(), source.getChannels() * FRAME_SIZE, source.getSampleRate(), false);
+		return new DecodedVorbisAudioInputStream(target, in);
+	}
+
+	private static void readFully(InputStream in, byte[] data) throws Exception
+	{
+		int offset = 0;
+		while (offset < data.length)
+		{
+			int read = in.read(data, offset, data.length - offset);
+			if (read < 0)
+				fail("end of stream");
+			// a reader that waits never gets 0 bytes
+			assertTrue(read > 0);
+			offset += read;
+		}
+	}
+
+	private static byte[] readFully(InputStream in, int size) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[size];
+		int read;
+		while ((read = in.read(buffer)) >= 0)
+			out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+}
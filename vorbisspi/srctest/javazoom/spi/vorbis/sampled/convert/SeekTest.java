@@ -0,0 +1,193 @@
+/*
+ *   SeekTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.convert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import javazoom.spi.vorbis.sampled.file.VorbisAudioFileReader;
+import junit.framework.TestCase;
+
+/**
+ * Seeks an Ogg Vorbis file and checks that the PCM read after the
+ * seek is the same as the PCM at that position in a full decode.
+ */
+public class SeekTest extends TestCase
+{
+	// 22050 Hz mono, a little more than 8 seconds.
+	private static final File OGG = new File("../tritonus-cvs/test/suite/sounds/testtruncate.ogg");
+	private static final int RATE = 22050;
+	private static final int FRAME_SIZE = 2;
+
+	private byte[] reference = null;
+
+	/**
+	 * Constructor for SeekTest.
+	 * @param arg0
+	 */
+	public SeekTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		reference = readFully(open(OGG));
+	}
+
+	public void testSeekFile() throws Exception
+	{
+		long[] targets = {2000000, 20000, 7900000, 3300000, 0};
+		for (int i = 0; i < targets.length; i++)
+		{
+			DecodedVorbisAudioInputStream din = open(OGG);
+			assertEquals(targets[i], din.seekMicroseconds(targets[i]));
+			assertTail(sample(targets[i]), readFully(din));
+		}
+	}
+
+	public void testSeekBackAndForth() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(OGG);
+		byte[] head = new byte[RATE * FRAME_SIZE];
+		readFully(din, head);
+		assertEquals(500000, din.seekMicroseconds(500000));
+		byte[] data = new byte[RATE * FRAME_SIZE];
+		readFully(din, data);
+		assertSame(sample(500000), data);
+		assertEquals(6000000, din.seekMicroseconds(6000000));
+		readFully(din, data);
+		assertSame(sample(6000000), data);
+		// within the decoded data
+		assertEquals(7100000, din.seekMicroseconds(7100000));
+		assertTail(sample(7100000), readFully(din));
+	}
+
+	public void testForwardOnly() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(new ByteArrayInputStream(readFully(new FileInputStream(OGG))));
+		assertEquals(1000000, din.seekMicroseconds(1000000));
+		byte[] data = new byte[RATE * FRAME_SIZE];
+		readFully(din, data);
+		assertSame(sample(1000000), data);
+		// the encoded stream only moves forward
+		assertEquals(-1, din.seekMicroseconds(500000));
+		assertEquals(5000000, din.seekMicroseconds(5000000));
+		assertTail(sample(5000000), readFully(din));
+	}
+
+	public void testForwardOnlyKeepsData() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(new ByteArrayInputStream(readFully(new FileInputStream(OGG))));
+		din.startReadAhead();
+		byte[] data = new byte[RATE * FRAME_SIZE];
+		readFully(din, data);
+		assertSame(0, data);
+		// cannot move back, and nothing decoded ahead is lost
+		assertEquals(-1, din.seekMicroseconds(0));
+		assertTail(RATE, readFully(din));
+	}
+
+	public void testSkip() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(OGG);
+		long bytes = 3 * RATE * FRAME_SIZE + 2 * 333;
+		assertEquals(bytes, din.skip(bytes));
+		assertTail((int) (bytes / FRAME_SIZE), readFully(din));
+	}
+
+	public void testSeekAfterEnd() throws Exception
+	{
+		DecodedVorbisAudioInputStream din = open(OGG);
+		long reached = din.seekMicroseconds(60000000);
+		assertEquals(reference.length / FRAME_SIZE * 1000000L / RATE, reached);
+		assertEquals(0, readFully(din).length);
+	}
+
+	private void assertTail(int sample, byte[] data)
+	{
+		assertEquals(reference.length - sample * FRAME_SIZE, data.length);
+		assertSame(sample, data);
+	}
+
+	private void assertSame(int sample, byte[] data)
+	{
+		for (int i = 0; i < data.length; i++)
+		{
+			if (reference[sample * FRAME_SIZE + i] != data[i])
+				fail("PCM differs at sample " + (sample + i / FRAME_SIZE));
+		}
+	}
+
+	private static int sample(long microseconds)
+	{
+		return (int) (microseconds * RATE / 1000000);
+	}
+
+	private static DecodedVorbisAudioInputStream open(File file) throws Exception
+	{
+		return decode(new VorbisAudioFileReader().getAudioInputStream(file));
+	}
+
+	private static DecodedVorbisAudioInputStream open(InputStream in) throws Exception
+	{
+		return decode(new VorbisAudioFileReader().getAudioInputStream(in));
+	}
+
+	private static DecodedVorbisAudioInputStream decode(AudioInputStream in)
+	{
+		AudioFormat source = in.getFormat();
+		AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+			source.getChannels(), source.getChannels() * FRAME_SIZE, source.getSampleRate(), false);
+		return new DecodedVorbisAudioInputStream(target, in);
+	}
+
+	private static void readFully(InputStream in, byte[] data) throws Exception
+	{
+		int offset = 0;
+		while (offset < data.length)
+		{
+			int read = in.read(data, offset, data.length - offset);
+			if (read < 0)
+				fail("end of stream");
+			offset += read;
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) >= 0)
+			out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+}
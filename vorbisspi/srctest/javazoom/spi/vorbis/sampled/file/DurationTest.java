@@ -0,0 +1,114 @@
+/*
+ *   DurationTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.tritonus.share.sampled.file.TAudioFileFormat;
+
+import com.jcraft.jorbis.VorbisFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that the duration found by scanning the end of a file is the
+ * one VorbisFile computes from all the links.
+ */
+public class DurationTest extends TestCase
+{
+	private static final File SOUNDS = new File("../tritonus-cvs/test/suite/sounds");
+
+	private File chained = null;
+
+	/**
+	 * Constructor for DurationTest.
+	 * @param arg0
+	 */
+	public DurationTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		// two logical streams one after the other
+		chained = File.createTempFile("chained", ".ogg");
+		OutputStream out = new FileOutputStream(chained);
+		try
+		{
+			copy(new File(SOUNDS, "testtruncate.ogg"), out);
+			copy(new File(SOUNDS, "testsilence.ogg"), out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception
+	{
+		chained.delete();
+		super.tearDown();
+	}
+
+	public void testSingleLink() throws Exception
+	{
+		assertDuration(new File(SOUNDS, "testtruncate.ogg"));
+		assertDuration(new File(SOUNDS, "testsilence.ogg"));
+	}
+
+	public void testChained() throws Exception
+	{
+		assertDuration(chained);
+	}
+
+	private static void assertDuration(File file) throws Exception
+	{
+		long expected = Math.round(new VorbisFile(file.getPath()).time_total(-1) * 1000) * 1000L;
+		TAudioFileFormat format = (TAudioFileFormat) new VorbisAudioFileReader().getAudioFileFormat(file);
+		assertEquals(file.getName(), Long.valueOf(expected), format.properties().get("duration"));
+	}
+
+	private static void copy(File file, OutputStream out) throws Exception
+	{
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				out.write(buffer, 0, read);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ *   HeaderProbeTest - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.tritonus.share.sampled.file.TAudioFileFormat;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that the Vorbis headers are read from the header pages only,
+ * and that one reader can be used by several threads.
+ */
+public class HeaderProbeTest extends TestCase
+{
+	private static final File SOUNDS = new File("../tritonus-cvs/test/suite/sounds");
+
+	/**
+	 * Constructor for HeaderProbeTest.
+	 * @param arg0
+	 */
+	public HeaderProbeTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testTags() throws Exception
+	{
+		Map properties = properties(new VorbisAudioFileReader(), new File(SOUNDS, "testsilence.ogg"));
+		assertEquals("downloads", properties.get("album"));
+		assertEquals("testsilence", properties.get("title"));
+		assertEquals(Integer.valueOf(44100), properties.get("ogg.frequency.hz"));
+		assertEquals(Integer.valueOf(1), properties.get("ogg.channels"));
+		assertEquals("Xiph.Org libVorbis I 20020717", properties.get("ogg.comment.encodedby"));
+	}
+
+	public void testReadsHeaderPagesOnly() throws Exception
+	{
+		byte[] data = read(new File(SOUNDS, "testtruncate.ogg"));
+		CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(data));
+		new VorbisAudioFileReader().getAudioFileFormat(in, data.length);
+		assertEquals(headerLength(data), in.count);
+	}
+
+	public void testNotOgg() throws Exception
+	{
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (i * 31);
+		CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(data));
+		try
+		{
+			new VorbisAudioFileReader().getAudioFileFormat(in, data.length);
+			fail("not an Ogg stream");
+		}
+		catch (UnsupportedAudioFileException e)
+		{
+			// expected
+		}
+		assertEquals("page header only", 27, in.count);
+	}
+
+	public void testSharedReader() throws Exception
+	{
+		final VorbisAudioFileReader reader = new VorbisAudioFileReader();
+		final File[] files = { new File(SOUNDS, "testsilence.ogg"), new File(SOUNDS, "testtruncate.ogg") };
+		final Map[] expected = { properties(reader, files[0]), properties(reader, files[1]) };
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						for (int i = 0; i < 100; i++)
+						{
+							int n = i % files.length;
+							assertEquals(expected[n], properties(reader, files[n]));
+						}
+					}
+					catch (Throwable e)
+					{
+						failure[0] = e;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+		if (failure[0] != null)
+			fail(failure[0].toString());
+	}
+
+	private static Map properties(VorbisAudioFileReader reader, File file) throws Exception
+	{
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			return ((TAudioFileFormat) reader.getAudioFileFormat(in, file.length())).properties();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the length of the pages before the first audio page.
+	 */
+	private static int headerLength(byte[] data)
+	{
+		int pos = 0;
+		while (true)
+		{
+			long granule = 0;
+			for (int b = 7; b >= 0; b--)
+				granule = (granule << 8) | (data[pos + 6 + b] & 0xff);
+			if (granule != 0)
+				return pos;
+			int segments = data[pos + 26] & 0xff;
+			int length = 27 + segments;
+			for (int i = 0; i < segments; i++)
+				length += data[pos + 27 + i] & 0xff;
+			pos += length;
+		}
+	}
+
+	private static byte[] read(File file) throws IOException
+	{
+		byte[] data = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			int offset = 0;
+			while (offset < data.length)
+				offset += in.read(data, offset, data.length - offset);
+		}
+		finally
+		{
+			in.close();
+		}
+		return data;
+	}
+
+	private static final class CountingInputStream extends FilterInputStream
+	{
+		int count = 0;
+
+		CountingInputStream(InputStream in)
+		{
+			super(in);
+		}
+
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b >= 0)
+				count++;
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int read = super.read(b, off, len);
+			if (read > 0)
+				count += read;
+			return read;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *   ProbeBenchmark - JavaZOOM : http://www.javazoom.net
+ *
+ *   This program is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Library General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Library General Public
+ *   License along with this program; if not, write to the Free Software
+ *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package javazoom.spi.vorbis.sampled.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jcraft.jorbis.VorbisFile;
+
+/**
+ * Measures the time to get the AudioFileFormat of every Ogg file of a
+ * directory tree, with the duration found by scanning the end of the
+ * file, and with the duration of a full VorbisFile open as before.
+ * Both must give the same duration.
+ * <p>
+ * Usage : java javazoom.spi.vorbis.sampled.file.ProbeBenchmark directory [passes]
+ */
+public class ProbeBenchmark
+{
+	public static void main(String[] args) throws Exception
+	{
+		List files = new ArrayList();
+		collect(new File(args.length > 0 ? args[0] : "."), files);
+		int passes = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+		if (files.isEmpty())
+		{
+			System.out.println("No .ogg file found.");
+			return;
+		}
+		VorbisAudioFileReader reader = new VorbisAudioFileReader();
+		for (int i = 0; i < files.size(); i++)
+		{
+			File file = (File) files.get(i);
+			if (probe(reader, file) != openAll(reader, file))
+				throw new IllegalStateException("Durations differ for " + file);
+		}
+		System.out.println(files.size() + " file(s)");
+		for (int pass = 0; pass < passes; pass++)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < files.size(); i++)
+				probe(reader, (File) files.get(i));
+			long scan = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < files.size(); i++)
+				openAll(reader, (File) files.get(i));
+			long full = System.nanoTime() - start;
+			System.out.println("pass " + pass + " : tail scan " + scan / 1000 / files.size() + " us/file, VorbisFile "
+				+ full / 1000 / files.size() + " us/file");
+		}
+	}
+
+	private static long probe(VorbisAudioFileReader reader, File file) throws Exception
+	{
+		Object duration = reader.getAudioFileFormat(file).properties().get("duration");
+		return (duration == null) ? 0 : ((Long) duration).longValue();
+	}
+
+	/**
+	 * The former way: the headers from the stream, the duration from a VorbisFile.
+	 */
+	private static long openAll(VorbisAudioFileReader reader, File file) throws Exception
+	{
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			reader.getAudioFileFormat(in, file.length());
+		}
+		finally
+		{
+			in.close();
+		}
+		return Math.round(new VorbisFile(file.getPath()).time_total(-1) * 1000) * 1000L;
+	}
+
+	private static void collect(File dir, List files)
+	{
+		File[] entries = dir.listFiles();
+		if (entries == null) return;
+		for (int i = 0; i < entries.length; i++)
+		{
+			if (entries[i].isDirectory())
+				collect(entries[i], files);
+			else if (entries[i].getName().toLowerCase().endsWith(".ogg") && entries[i].length() > 4096)
+				files.add(entries[i]);
+		}
+	}
+}